@@ -4,6 +4,7 @@ call timeout 10
 del Exmatrikulator /F /Q
 call timeout 10
 xcopy backups\%1 /E /H /R /Y /I
+if exist backups\%1.manifest rmdir /S /Q backups\%1
 call timeout 10
 start javadb\bin\startNetworkServer -h localhost -p 1527
 call timeout 10
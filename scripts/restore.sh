@@ -4,5 +4,6 @@ bin/asadmin stop-domain exmatrikulator
 javadb/bin/stopNetworkServer
 rm -rf Exmatrikulator/*
 cp -R backups/$1/Exmatrikulator/* Exmatrikulator/
+[ -f backups/$1.manifest ] && rm -rf backups/$1
 javadb/bin/startNetworkServer -h localhost -p 1527 &
 bin/asadmin start-domain exmatrikulator
@@ -0,0 +1,146 @@
+package de.unibremen.opensores.util.tme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the threaded scanner with the reader based
+ * scanner on generated TME files. Run it with:
+ *
+ * <pre>
+ * mvn -Pbenchmark clean test-compile exec:exec
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScannerBenchmark {
+    /**
+     * Number of nodes in the generated TME file.
+     */
+    @Param({"1000", "50000"})
+    private int nodes;
+
+    /**
+     * Generated TME file.
+     */
+    private String data;
+
+    /**
+     * Generates a TME file resembling a jgradebook export.
+     */
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nodes; i++) {
+            sb.append("Student ").append(i).append(" {\n")
+                .append(" firstname=Max%C3%9C").append(i).append('\n')
+                .append(" lastname=Mustermann\n")
+                .append(" email=student").append(i).append("%40uni-bremen.de\n")
+                .append(" matriculation=").append(1000000 + i).append('\n')
+                .append(" points={1.5, 2, 3.25, 4, 5}\n")
+                .append(" passed=true\n")
+                .append("}\n");
+        }
+
+        data = sb.toString();
+    }
+
+    /**
+     * Counts the tokens of the file using the threaded scanner.
+     *
+     * @return Number of scanned tokens.
+     * @throws InterruptedException If thread was interrupted.
+     */
+    @Benchmark
+    public int scanThreaded() throws InterruptedException {
+        return count(new Scanner(data));
+    }
+
+    /**
+     * Counts the tokens of the file using the reader based scanner.
+     *
+     * @return Number of scanned tokens.
+     * @throws InterruptedException If thread was interrupted.
+     */
+    @Benchmark
+    public int scanReader() throws InterruptedException {
+        return count(new Scanner(new StringReader(data)));
+    }
+
+    /**
+     * Parses the file using the threaded scanner.
+     *
+     * @return Parsed nodes.
+     * @throws InterruptedException If thread was interrupted.
+     * @throws ParseException If the file couldn't be parsed.
+     */
+    @Benchmark
+    public List<TMEObject> parseThreaded() throws InterruptedException,
+           ParseException {
+        return new Parser(data).getTMEObjects();
+    }
+
+    /**
+     * Parses the file using the reader based scanner.
+     *
+     * @return Parsed nodes.
+     * @throws IOException If the file couldn't be read.
+     * @throws InterruptedException If thread was interrupted.
+     * @throws ParseException If the file couldn't be parsed.
+     */
+    @Benchmark
+    public List<TMEObject> parseReader() throws IOException,
+           InterruptedException, ParseException {
+        return new Parser(new StringReader(data)).getTMEObjects();
+    }
+
+    /**
+     * Consumes all tokens of a scanner.
+     *
+     * @param sc Scanner to consume.
+     * @return Number of tokens.
+     * @throws InterruptedException If thread was interrupted.
+     */
+    private int count(final Scanner sc) throws InterruptedException {
+        int n = 0;
+        while (sc.nextToken().getType() != TokenType.EOF) {
+            n++;
+        }
+
+        return n;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command line arguments, ignored.
+     * @throws RunnerException If the benchmark failed.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ScannerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
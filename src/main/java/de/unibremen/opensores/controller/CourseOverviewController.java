@@ -13,6 +13,7 @@ import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.LecturerService;
 import de.unibremen.opensores.service.LogService;
 import de.unibremen.opensores.service.PrivilegedUserService;
+import de.unibremen.opensores.service.RetentionService;
 import de.unibremen.opensores.service.StudentService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.Constants;
@@ -65,6 +66,11 @@ public class CourseOverviewController {
     private PrivilegedUserService privilegedUserService;
     private StudentService studentService;
 
+    /**
+     * RetentionService for deleting old courses.
+     */
+    private RetentionService retentionService;
+
     /**
      * String typed in by the user to find courses.
      */
@@ -140,13 +146,14 @@ public class CourseOverviewController {
     public void deleteOldData() {
         log.debug("deleteOldData() called");
 
+        List<Long> courseIds = new ArrayList<>();
         for (Course c : oldCourses) {
             logService.persist(Log.from(loggedInUser, c.getCourseId(),
                     String.format("Deleting the course %s with its Associations",
                             c.getName())));
-            courseService.deleteCourseWithAssociatons(c);
-
+            courseIds.add(c.getCourseId());
         }
+        retentionService.deleteCourses(courseIds);
         oldCourses.clear();
     }
 
@@ -314,7 +321,7 @@ public class CourseOverviewController {
     /**
      * Method which gets called when the user chooses a participation type of
      * the course he wants to join. His selection will be put in the new student
-     * object and the course will now get updated in the database.
+     * object and the students will now get saved in the database.
      */
     public void parttypeSelected() {
         if (selectedCourse == null) {
@@ -338,7 +345,7 @@ public class CourseOverviewController {
             logUserJoinedCourse(partType,s.getUser());
         }
 
-        courseService.update(selectedCourse);
+        studentService.saveParticipations(newStudents);
         selectedCourse = null;
         newStudents = new ArrayList<>();
         chosenPartTypeId = 0;
@@ -439,6 +446,15 @@ public class CourseOverviewController {
         this.studentService = studentService;
     }
 
+    /**
+     * Injects the retention service.
+     * @param retentionService The retention service to be injected to the bean.
+     */
+    @EJB
+    public void setRetentionService(RetentionService retentionService) {
+        this.retentionService = retentionService;
+    }
+
     /**
      * Injects the user service.
      * @param userService The user service to be injected to the bean.
@@ -15,6 +15,7 @@ import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.GradeService;
+import de.unibremen.opensores.service.LecturerService;
 import de.unibremen.opensores.service.LogService;
 import de.unibremen.opensores.service.PrivilegedUserService;
 import de.unibremen.opensores.service.StudentService;
@@ -103,6 +104,11 @@ public class  ParticipantsController {
      */
     private PrivilegedUserService privilegedUserService;
 
+    /**
+     * The lecturer service for database transactions related to lecturers.
+     */
+    private LecturerService lecturerService;
+
     /**
      * The LogService for adding logs related to the exmatrikulator actions.
      */
@@ -464,16 +470,6 @@ public class  ParticipantsController {
             logExistingUserAddedToCourse(selectedUser);
         }
 
-        if (selectedRoleId == Role.STUDENT.getId()) {
-            Student student = createNewStudentFromInput();
-            course.getStudents().add(student);
-            logStudentCreated(student);
-        } else if (selectedRoleId == Role.PRIVILEGED_USER.getId()) {
-            PrivilegedUser privilegedUser = createNewPrivUserFromInput();
-            course.getTutors().add(privilegedUser);
-            logPrivilegedUserCreated(privilegedUser);
-        }
-
         if (newToSystem) {
             selectedUser.addRole(GlobalRole.USER);
             selectedUser.setPassword(null);
@@ -484,7 +480,17 @@ public class  ParticipantsController {
             userService.persist(selectedUser);
         }
 
-        course = courseService.update(course);
+        if (selectedRoleId == Role.STUDENT.getId()) {
+            Student student = createNewStudentFromInput();
+            studentService.persist(student);
+            course.getStudents().add(student);
+            logStudentCreated(student);
+        } else if (selectedRoleId == Role.PRIVILEGED_USER.getId()) {
+            PrivilegedUser privilegedUser = createNewPrivUserFromInput();
+            privilegedUserService.persist(privilegedUser);
+            course.getTutors().add(privilegedUser);
+            logPrivilegedUserCreated(privilegedUser);
+        }
 
         if (newToSystem) {
             try {
@@ -510,24 +516,27 @@ public class  ParticipantsController {
     public void deleteSelectedParticipation() {
         if (editedStudent != null) {
             editedStudent.setDeleted(true);
+            studentService.updateParticipation(editedStudent);
             logStudentDeleted(editedStudent);
         } else if (editedLecturer != null) {
             editedLecturer.setDeleted(true);
+            lecturerService.updateParticipation(editedLecturer);
             PrivilegedUser privilegedUser = course
                     .getPrivilegedUserFromUser(editedLecturer.getUser());
             logLecturerDeleted(editedLecturer);
             if (privilegedUser != null) {
                 privilegedUser.setDeleted(true);
+                privilegedUserService.updateParticipation(privilegedUser);
                 logPrivilegedUserDeleted(privilegedUser);
             }
         } else if (editedPrivilegedUser != null) {
             editedPrivilegedUser.setDeleted(true);
+            privilegedUserService.updateParticipation(editedPrivilegedUser);
             logPrivilegedUserDeleted(editedPrivilegedUser);
         } else {
             throw new IllegalStateException("There is no selected student,"
                    +  " privileged user nor lecturer.");
         }
-        course = courseService.update(course);
         resetSelectedValues();
     }
 
@@ -561,7 +570,7 @@ public class  ParticipantsController {
             return;
         }
         student.setConfirmed(true);
-        course = courseService.update(course);
+        studentService.updateParticipation(student);
         logConfirmStudent(student);
     }
 
@@ -592,7 +601,7 @@ public class  ParticipantsController {
         }
         log.debug("restoreStudent called: " + student.getUser());
         student.setDeleted(false);
-        course = courseService.update(course);
+        studentService.updateParticipation(student);
         logStudentRestored(student);
     }
 
@@ -607,7 +616,7 @@ public class  ParticipantsController {
         }
         log.debug("restorePrivilegedUser called: " + privUser.getUser());
         privUser.setDeleted(false);
-        course = courseService.update(course);
+        privilegedUserService.updateParticipation(privUser);
         logPrivilegedUserRestored(privUser);
     }
 
@@ -787,6 +796,7 @@ public class  ParticipantsController {
             log.debug("Updating the values of the existing student association");
             editedStudent.setParticipationType(getParticipationTypeFromId());
             editedStudent.setDeleted(false);
+            studentService.updateParticipation(editedStudent);
             logOnEditStudent(editedStudent);
         } else {
             log.debug("Creating a new student from user input");
@@ -803,12 +813,11 @@ public class  ParticipantsController {
                 t.getTutors().remove(editedPrivilegedUser);
                 editedPrivilegedUser.getTutorials().remove(t);
             }
+            privilegedUserService.updateParticipation(editedPrivilegedUser);
             logHidePrivilegedUserForStudent(editedPrivilegedUser);
         }
 
         selectedUser = userService.update(selectedUser);
-        // Assuming CascadeType.MERGE for updating the student and privileged user
-        course = courseService.update(course);
     }
 
     /**
@@ -823,6 +832,7 @@ public class  ParticipantsController {
             editedPrivilegedUser.setDeleted(false);
             editedPrivilegedUser.setSecretary(isPrivilegedUserSecretary);
             editedPrivilegedUser.setPrivileges(getPrivilegedIds());
+            privilegedUserService.updateParticipation(editedPrivilegedUser);
             logOnEditPrivUser(editedPrivilegedUser);
         } else {
             log.debug("Creating a new privileged user association from user input");
@@ -843,12 +853,11 @@ public class  ParticipantsController {
                 editedStudent.getTutorial().getStudents().remove(editedStudent);
                 editedStudent.setTutorial(null);
             }
+            studentService.updateParticipation(editedStudent);
             logHideStudentForPrivilegedUser(editedStudent);
         }
 
-        // Assuming CascadeType.MERGE for updating the student and privileged user
         selectedUser = userService.update(selectedUser);
-        course = courseService.update(course);
     }
 
     /**
@@ -1097,6 +1106,15 @@ public class  ParticipantsController {
         this.privilegedUserService = privilegedUserService;
     }
 
+    /**
+     * Sets the LecturerService for this controller, used for mocking.
+     * @param lecturerService The lecturer service to be used by this controller.
+     */
+    @EJB
+    public void setLecturerService(LecturerService lecturerService) {
+        this.lecturerService = lecturerService;
+    }
+
     public String getPaboGradeName(final String name) {
         return gradeService.paboGradeDisplayName(name);
     }
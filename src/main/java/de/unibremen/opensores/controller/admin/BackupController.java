@@ -130,16 +130,9 @@ public class BackupController {
             return;
         }
 
-        String path = backup.getPath();
-        backupService.remove(backup);
+        backupService.deleteBackup(backup);
         logBackupDeleted(backup);
-        try {
-            File file = new File(path);
-            backupService.deleteFolder(file);
-            log.debug("Deleted Backup " + backup.getName());
-        } catch (IOException | SecurityException e) {
-            log.error(e);
-        }
+        log.debug("Deleted Backup " + backup.getName());
     }
 
     /**
@@ -181,8 +174,13 @@ public class BackupController {
         }
 
         String os = System.getProperty("os.name");
-        String backupName = backup.getName() + "_"
-                + dateForm.format(backup.getDate());
+        String backupName;
+        try {
+            backupName = backupService.extractBackup(backup).getName();
+        } catch (IOException e) {
+            log.error(e);
+            return;
+        }
 
         log.debug("Restoring from " + backupName);
         log.debug("Detected OS: " + os);
@@ -0,0 +1,122 @@
+package de.unibremen.opensores.controller.admin;
+
+import de.unibremen.opensores.service.CacheService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.faces.application.FacesMessage;
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+import javax.faces.context.FacesContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Controller for the statistics page of the second-level cache.
+ */
+@ManagedBean
+@ViewScoped
+public class CacheController {
+
+    /**
+     * The log4j logger.
+     */
+    private static Logger log = LogManager.getLogger(CacheController.class);
+
+    /**
+     * The CacheService for reading the statistics.
+     */
+    @EJB
+    private CacheService cacheService;
+
+    /**
+     * The resource bundle for the messages.
+     */
+    private ResourceBundle bundle;
+
+    /**
+     * Executed after construction.
+     */
+    @PostConstruct
+    public void init() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        bundle = ResourceBundle.getBundle("messages",
+                facesContext.getViewRoot().getLocale());
+    }
+
+    /**
+     * Returns the statistics of all cache regions.
+     *
+     * @return List of region names with their statistics.
+     */
+    public List<Map.Entry<String, SecondLevelCacheStatistics>> getRegions() {
+        return new ArrayList<>(cacheService.getRegionStatistics().entrySet());
+    }
+
+    /**
+     * Returns the overall statistics, including the query cache.
+     *
+     * @return Hibernate statistics.
+     */
+    public Statistics getStatistics() {
+        return cacheService.getStatistics();
+    }
+
+    /**
+     * Switches collecting the statistics on or off.
+     */
+    public void toggleStatistics() {
+        boolean enabled = !cacheService.getStatistics().isStatisticsEnabled();
+        cacheService.setStatisticsEnabled(enabled);
+        log.debug("Cache statistics enabled: " + enabled);
+        addInfo(enabled ? "cache.statisticsEnabled" : "cache.statisticsDisabled");
+    }
+
+    /**
+     * Returns the percentage of lookups which were answered by the cache.
+     *
+     * @param hits Number of hits.
+     * @param misses Number of misses.
+     * @return Hit ratio in percent, 0 if there were no lookups.
+     */
+    public long hitRatio(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : Math.round(100.0 * hits / lookups);
+    }
+
+    /**
+     * Resets the counters of the statistics.
+     */
+    public void clearStatistics() {
+        cacheService.clearStatistics();
+        log.debug("Cleared the cache statistics");
+        addInfo("cache.statisticsCleared");
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public void evictAll() {
+        cacheService.evictAll();
+        log.debug("Evicted all cache regions");
+        addInfo("cache.evicted");
+    }
+
+    /**
+     * Adds an info message to the faces context.
+     *
+     * @param key Key of the message in the resource bundle.
+     */
+    private void addInfo(String key) {
+        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(
+                FacesMessage.SEVERITY_INFO, bundle.getString("common.success"),
+                bundle.getString(key)));
+    }
+}
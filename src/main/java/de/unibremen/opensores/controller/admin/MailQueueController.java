@@ -0,0 +1,152 @@
+package de.unibremen.opensores.controller.admin;
+
+import de.unibremen.opensores.model.MailStatus;
+import de.unibremen.opensores.model.QueuedMail;
+import de.unibremen.opensores.service.MailDispatcher;
+import de.unibremen.opensores.service.MailService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.faces.application.FacesMessage;
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+import javax.faces.context.FacesContext;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.ResourceBundle;
+
+/**
+ * Controller for the status page of the outbound mail queue.
+ */
+@ManagedBean
+@ViewScoped
+public class MailQueueController {
+
+    /**
+     * The log4j logger.
+     */
+    private static Logger log = LogManager.getLogger(
+            MailQueueController.class);
+
+    /**
+     * Maximum number of mails listed per status.
+     */
+    private static final int LIST_LIMIT = 100;
+
+    /**
+     * The MailService for querying the queue.
+     */
+    @EJB
+    private MailService mailService;
+
+    /**
+     * The MailDispatcher for sending the mails right away.
+     */
+    @EJB
+    private MailDispatcher mailDispatcher;
+
+    /**
+     * The resource bundle for the messages.
+     */
+    private ResourceBundle bundle;
+
+    /**
+     * Executed after construction.
+     */
+    @PostConstruct
+    public void init() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        bundle = ResourceBundle.getBundle("messages",
+                facesContext.getViewRoot().getLocale());
+    }
+
+    /**
+     * Returns all states a queued mail can be in.
+     *
+     * @return Array of mail states.
+     */
+    public MailStatus[] getStates() {
+        return MailStatus.values();
+    }
+
+    /**
+     * Counts the mails with the given status.
+     *
+     * @param status Status of the mails.
+     * @return Number of mails.
+     */
+    public long count(MailStatus status) {
+        return mailService.countByStatus(status);
+    }
+
+    /**
+     * Returns the number of batches currently being sent.
+     *
+     * @return Number of running batches.
+     */
+    public int getRunningBatches() {
+        return mailDispatcher.getRunningBatches();
+    }
+
+    /**
+     * Lists the oldest pending mails.
+     *
+     * @return List of pending mails.
+     */
+    public List<QueuedMail> getPendingMails() {
+        return mailService.listByStatus(MailStatus.PENDING, LIST_LIMIT);
+    }
+
+    /**
+     * Lists the oldest failed mails.
+     *
+     * @return List of failed mails.
+     */
+    public List<QueuedMail> getFailedMails() {
+        return mailService.listByStatus(MailStatus.FAILED, LIST_LIMIT);
+    }
+
+    /**
+     * Starts sending the due mails without waiting for the next timer.
+     */
+    public void dispatch() {
+        int started = mailDispatcher.dispatch();
+        log.debug("Started " + started + " batches manually");
+        addInfo("mailqueue.dispatched", started);
+    }
+
+    /**
+     * Puts all failed mails back into the queue.
+     */
+    public void retryFailed() {
+        int retried = mailService.retryFailed();
+        log.debug("Retrying " + retried + " failed mails");
+        addInfo("mailqueue.retried", retried);
+    }
+
+    /**
+     * Removes all sent mails from the queue.
+     */
+    public void deleteSent() {
+        int deleted = mailService.deleteSent();
+        log.debug("Removed " + deleted + " sent mails");
+        addInfo("mailqueue.deleted", deleted);
+    }
+
+    /**
+     * Adds an info message to the faces context.
+     *
+     * @param key Key of the message in the resource bundle.
+     * @param count Number inserted into the message.
+     */
+    private void addInfo(String key, int count) {
+        String msg = new MessageFormat(bundle.getString(key))
+                .format(new Object[]{count});
+        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(
+                FacesMessage.SEVERITY_INFO, bundle.getString("common.success"),
+                msg));
+    }
+}
@@ -9,7 +9,6 @@ import org.apache.logging.log4j.Logger;
 import org.apache.commons.io.FileUtils;
 import org.primefaces.event.FileUploadEvent;
 import org.primefaces.model.UploadedFile;
-import org.mindrot.jbcrypt.BCrypt;
 
 import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.tme.Parser;
@@ -27,6 +26,7 @@ import de.unibremen.opensores.model.GradeFormula;
 import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.model.ParticipationType;
 import de.unibremen.opensores.service.UserService;
+import de.unibremen.opensores.service.PasswordService;
 import de.unibremen.opensores.service.GroupService;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.StudentService;
@@ -39,10 +39,13 @@ import de.unibremen.opensores.exception.SemesterFormatException;
 import java.util.HashMap;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -76,6 +79,12 @@ public class TmeController {
     @EJB
     private UserService userService;
 
+    /**
+     * Password service for hashing the imported passwords.
+     */
+    @EJB
+    private PasswordService passwordService;
+
     /**
      * Course service for connecting to the database.
      */
@@ -133,6 +142,11 @@ public class TmeController {
      */
     private HashMap<Integer, TMEObject> nodeMap = new HashMap<>();
 
+    /**
+     * Logs of the import which haven't been written yet.
+     */
+    private List<Log> pendingLogs = new ArrayList<>();
+
     /**
      * The currently ogged in user.
      */
@@ -165,6 +179,7 @@ public class TmeController {
 
         files.add(file);
         logFileUploaded(file);
+        writeLogs();
     }
 
     /**
@@ -200,6 +215,7 @@ public class TmeController {
             uploaded = uploadFiles();
         } catch (IOException e) {
             log.error(e);
+            writeLogs();
             facesContext.addMessage(null, new FacesMessage(FacesMessage
                 .SEVERITY_ERROR, bundle.getString("common.error"),
                 bundle.getString("courses.create.storeError")));
@@ -208,11 +224,12 @@ public class TmeController {
 
         List<TMEObject> objs = new ArrayList<>();
         for (File file : uploaded) {
-            try {
-                String data = FileUtils.readFileToString(file);
-                objs.addAll(new Parser(data).getTMEObjects());
+            try (Reader reader = Files.newBufferedReader(file.toPath(),
+                    StandardCharsets.UTF_8)) {
+                objs.addAll(new Parser(reader).getTMEObjects());
             } catch (InterruptedException | IOException e) {
                 log.fatal(e);
+                writeLogs();
                 return;
             } catch (ParseException e) {
                 facesContext.addMessage(null, new FacesMessage(FacesMessage
@@ -246,6 +263,8 @@ public class TmeController {
                 bundle.getString("import.success")));
         }
 
+        writeLogs();
+
         // Clear all data fields in order to prevent duplicated data
         // errors when importing a different file afterwards.
         entityMap.clear();
@@ -269,13 +288,9 @@ public class TmeController {
             }
         }
 
+        createUsers(objs);
         for (TMEObject obj : objs) {
-            String[] splited = obj.getName().split("\\.");
-            if (splited.length <= 0) {
-                throw new TmeException("Invalid node key");
-            }
-
-            String key = splited[splited.length - 1];
+            String key = nodeKey(obj);
             switch (key) {
                 case "Course":
                     createCourse(obj);
@@ -310,6 +325,74 @@ public class TmeController {
         }
     }
 
+    /**
+     * Returns the last component of the name of the given node.
+     *
+     * @param node TME object.
+     * @return Node key, for instance Teacher for jgradebook.data.Teacher.
+     * @throws TmeException If the node name is invalid.
+     */
+    private String nodeKey(TMEObject node) throws TmeException {
+        String[] splited = node.getName().split("\\.");
+        if (splited.length <= 0) {
+            throw new TmeException("Invalid node key");
+        }
+
+        return splited[splited.length - 1];
+    }
+
+    /**
+     * Creates the users of all Teacher and StudentData nodes at once.
+     * Their passwords are hashed in parallel and the new users are
+     * inserted in batches, createUser then finds them in the entity map.
+     *
+     * @param objs TMEObjects to import.
+     * @throws TmeException On an invalid node key.
+     */
+    private void createUsers(List<TMEObject> objs) throws TmeException {
+        List<TMEObject> userNodes = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        for (TMEObject obj : objs) {
+            String key = nodeKey(obj);
+            if (key.equals("Teacher") || key.equals("StudentData")) {
+                userNodes.add(obj);
+                emails.add(obj.getString("email"));
+            }
+        }
+
+        if (userNodes.isEmpty()) {
+            return;
+        }
+
+        Map<String, User> users = userService.findByEmails(emails);
+        List<User> newUsers = new ArrayList<>();
+        List<String> passwords = new ArrayList<>();
+        for (TMEObject node : userNodes) {
+            String email = node.getString("email").toLowerCase();
+            User user = users.get(email);
+            if (user == null) {
+                user = newUser(node);
+                newUsers.add(user);
+                passwords.add(node.getString("password"));
+                users.put(email, user);
+            }
+
+            entityMap.put(node.getId(), user);
+        }
+
+        List<String> hashes = passwordService.hashAll(passwords);
+        for (int i = 0; i < newUsers.size(); i++) {
+            newUsers.get(i).setPassword(hashes.get(i));
+        }
+
+        userService.persistAll(newUsers);
+        for (User newUser : newUsers) {
+            logUserCreated(newUser);
+        }
+
+        log.debug(String.format("Persisted %d new users", newUsers.size()));
+    }
+
     /**
      * Imports a course and associated TME objects.
      *
@@ -394,7 +477,7 @@ public class TmeController {
         course.setMaxGroupSize(node.getInt("maximaleGruppenGroesse"));
 
         courseService.persist(course);
-        logService.persist(Log.from(loggedInUser, course.getCourseId(),
+        pendingLogs.add(Log.from(loggedInUser, course.getCourseId(),
                 "Has been created by TME Import"));
         createGroups(node.getArray("groups"), course);
 
@@ -484,7 +567,7 @@ public class TmeController {
         group.setName(node.getString("name"));
         group.setTutorial(tutorial);
         groupService.persist(group);
-        logService.persist(Log.from(loggedInUser, course.getCourseId(),
+        pendingLogs.add(Log.from(loggedInUser, course.getCourseId(),
                 String.format("String the group %s has been created by TME import",
                         group.getName())));
 
@@ -581,7 +664,7 @@ public class TmeController {
             student.setPrivateComment(null);
         }
 
-        logService.persist(Log.from(loggedInUser,course.getCourseId(),
+        pendingLogs.add(Log.from(loggedInUser,course.getCourseId(),
             String.format("The student %s has been created by TME import",
                     student.getUser())));
         studentService.persist(student);
@@ -655,7 +738,7 @@ public class TmeController {
             course.getTutors().add(tutor);
             tutor.getTutorials().add(tutorial);
             privilegedUserService.persist(tutor);
-            logService.persist(Log.from(loggedInUser, course.getCourseId(),
+            pendingLogs.add(Log.from(loggedInUser, course.getCourseId(),
                    String.format("The privileged user %s has been persisted by tme import",
                     tutor.getUser())));
         }
@@ -724,8 +807,28 @@ public class TmeController {
             return user;
         }
 
+        User newUser = newUser(node);
+        newUser.setPassword(passwordService.hash(node.getString("password")));
+
+        userService.persist(newUser);
+        logUserCreated(newUser);
+        log.debug(String.format("Persisted new user '%s' (%s)",
+                    newUser.toString(), newUser.getEmail()));
+
+        entityMap.put(node.getId(), newUser);
+        return newUser;
+    }
+
+    /**
+     * Creates a new user entity from the given TME object, without
+     * setting its password.
+     *
+     * @param node StudentData or Teacher TME object.
+     * @return New user entity.
+     */
+    private User newUser(TMEObject node) {
         User newUser = new User();
-        newUser.setEmail(email);
+        newUser.setEmail(node.getString("email"));
         newUser.setFirstName(node.getString("firstname"));
         newUser.setLastName(node.getString("lastname"));
         newUser.setLastActivity(DateUtil.getDateTime());
@@ -737,20 +840,11 @@ public class TmeController {
             newUser.setMatriculationNumber(null);
         }
 
-        String plainPasswd = node.getString("password");
-        newUser.setPassword(BCrypt.hashpw(plainPasswd, BCrypt.gensalt()));
-
         newUser.addRole(GlobalRole.USER);
         if (node.has("superuser") && node.getBoolean("superuser")) {
             newUser.addRole(GlobalRole.LECTURER);
         }
 
-        userService.persist(newUser);
-        logUserCreated(newUser);
-        log.debug(String.format("Persisted new user '%s' (%s)",
-                    newUser.toString(), newUser.getEmail()));
-
-        entityMap.put(node.getId(), newUser);
         return newUser;
     }
 
@@ -829,9 +923,18 @@ public class TmeController {
 
     /**
      * Logs an action of this controller with the currently logged in user.
+     * The log is written with the next call of writeLogs.
      * @param description The description of the action.
      */
     private void logAction(String description) {
-        logService.persist(Log.withoutCourse(loggedInUser,description));
+        pendingLogs.add(Log.withoutCourse(loggedInUser,description));
+    }
+
+    /**
+     * Writes all pending logs in one batch.
+     */
+    private void writeLogs() {
+        logService.persistAll(pendingLogs);
+        pendingLogs.clear();
     }
 }
@@ -0,0 +1,175 @@
+package de.unibremen.opensores.controller.admin;
+
+import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.service.UserFilter;
+import de.unibremen.opensores.service.UserService;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Lazy data model loading the users shown in the admin user table page by
+ * page, sorted and filtered by the database. Like the LogDataModel, moving
+ * to the next or previous page continues after the last or before the first
+ * user of the current page. The number of matching users is counted again
+ * only if the filter changes or the count is older than COUNT_MAX_AGE.
+ */
+public class UserDataModel extends LazyDataModel<User> {
+
+    private static final long serialVersionUID = -2613546078417213570L;
+
+    /**
+     * Milliseconds after which the number of users is counted again.
+     */
+    private static final long COUNT_MAX_AGE = 30 * 1000L;
+
+    /**
+     * UserService for loading the users.
+     */
+    private final transient UserService userService;
+
+    /**
+     * Filter the current page was loaded with or null if nothing was loaded.
+     */
+    private UserFilter filter;
+
+    /**
+     * Field the current page was sorted by.
+     */
+    private String sortField;
+
+    /**
+     * Order the current page was loaded with.
+     */
+    private boolean ascending;
+
+    /**
+     * Index of the first row of the current page.
+     */
+    private int pageFirst;
+
+    /**
+     * Time the row count was updated at.
+     */
+    private long countedAt;
+
+    /**
+     * Users of the current page or null if nothing was loaded.
+     */
+    private transient List<User> page;
+
+    /**
+     * Creates a new model.
+     *
+     * @param userService UserService for loading the users.
+     */
+    public UserDataModel(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public List<User> load(int first, int pageSize, String newSortField,
+                           SortOrder sortOrder, Map<String, Object> filters) {
+        UserFilter newFilter = createFilter(filters);
+        boolean newAscending = sortOrder != SortOrder.DESCENDING;
+
+        boolean continued = newFilter.equals(filter)
+            && Objects.equals(newSortField, sortField)
+            && newAscending == ascending
+            && page != null && !page.isEmpty() && page.size() == pageSize;
+        long now = System.currentTimeMillis();
+        if (!newFilter.equals(filter) || now - countedAt > COUNT_MAX_AGE) {
+            setRowCount(userService.countUsers(newFilter));
+            countedAt = now;
+        }
+
+        List<User> users;
+        int remaining = getRowCount() - first;
+        if (continued && first == pageFirst + pageSize) {
+            users = userService.findUsers(newFilter, newSortField, newAscending,
+                    page.get(page.size() - 1), 0, pageSize);
+        } else if (continued && first == pageFirst - pageSize) {
+            users = userService.findUsers(newFilter, newSortField, !newAscending,
+                    page.get(0), 0, pageSize);
+            Collections.reverse(users);
+        } else if (remaining <= 0) {
+            users = new ArrayList<>();
+        } else if (first > remaining) {
+            int count = Math.min(pageSize, remaining);
+            users = userService.findUsers(newFilter, newSortField, !newAscending,
+                    null, remaining - count, count);
+            Collections.reverse(users);
+        } else {
+            users = userService.findUsers(newFilter, newSortField, newAscending,
+                    null, first, pageSize);
+        }
+
+        filter = newFilter;
+        sortField = newSortField;
+        ascending = newAscending;
+        pageFirst = first;
+        page = users;
+        return users;
+    }
+
+    /**
+     * Forces the row count and the current page to be updated when the next
+     * page is loaded, for instance after users have been created or deleted.
+     */
+    public void reset() {
+        filter = null;
+        page = null;
+    }
+
+    /**
+     * Creates the filter from the filters of the data table.
+     *
+     * @param filters Filters of the data table by field name.
+     * @return Filter for the UserService.
+     */
+    private static UserFilter createFilter(Map<String, Object> filters) {
+        UserFilter userFilter = new UserFilter();
+        userFilter.setLastName(getText(filters, "lastName"));
+        userFilter.setFirstName(getText(filters, "firstName"));
+        userFilter.setEmail(getText(filters, "email"));
+        userFilter.setMatriculationNumber(getText(filters, "matriculationNumber"));
+        return userFilter;
+    }
+
+    /**
+     * Returns the trimmed text of a filter or null if it is empty.
+     */
+    private static String getText(Map<String, Object> filters, String key) {
+        Object value = filters.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return null;
+        }
+
+        return value.toString().trim();
+    }
+
+    @Override
+    public Object getRowKey(User user) {
+        return user.getUserId();
+    }
+
+    @Override
+    public User getRowData(String rowKey) {
+        if (page == null) {
+            return null;
+        }
+
+        for (User user : page) {
+            if (String.valueOf(user.getUserId()).equals(rowKey)) {
+                return user;
+            }
+        }
+
+        return null;
+    }
+}
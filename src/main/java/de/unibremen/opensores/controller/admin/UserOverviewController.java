@@ -2,31 +2,23 @@ package de.unibremen.opensores.controller.admin;
 
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.GlobalRole;
-import de.unibremen.opensores.model.GradeFormula;
-import de.unibremen.opensores.model.Grading;
-import de.unibremen.opensores.model.Lecturer;
 import de.unibremen.opensores.model.Log;
 import de.unibremen.opensores.model.PasswordReset;
-import de.unibremen.opensores.model.PrivilegedUser;
-import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.Log;
 import de.unibremen.opensores.model.PasswordReset;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.model.Backup;
 import de.unibremen.opensores.service.CourseService;
-import de.unibremen.opensores.service.GradeFormulaService;
-import de.unibremen.opensores.service.GradingService;
-import de.unibremen.opensores.service.LecturerService;
 import de.unibremen.opensores.service.LogService;
-import de.unibremen.opensores.service.PrivilegedUserService;
-import de.unibremen.opensores.service.StudentService;
+import de.unibremen.opensores.service.RetentionService;
+import de.unibremen.opensores.service.RetentionSweep;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.service.BackupService;
 import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.DateUtil;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.primefaces.model.LazyDataModel;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
@@ -44,7 +36,9 @@ import javax.xml.bind.annotation.XmlElementDecl;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -67,9 +61,7 @@ public class UserOverviewController {
 
     private User loggedInUser;
 
-    private List<User> users;
-
-    private List<User> filteredUsers;
+    private UserDataModel users;
 
     private User selectedUser;
 
@@ -98,27 +90,27 @@ public class UserOverviewController {
     private CourseService courseService;
 
     /**
-     * Services for database transactions for user->course relations.
+     * The LogService for creating Exmatrikulator business domain logs.
      */
-    private LecturerService lecturerService;
-    private PrivilegedUserService privilegedUserService;
-    private StudentService studentService;
+    private LogService logService;
 
     /**
-     * Other Services needed for user merging.
+     * Services for deleting old data.
      */
-    private GradingService gradingService;
-    private GradeFormulaService gradeFormulaService;
+    private RetentionService retentionService;
+    private RetentionSweep retentionSweep;
 
     /**
-     * The LogService for creating Exmatrikulator business domain logs.
+     * A list of courses which are 10 years old.
      */
-    private LogService logService;
+    private List<Course> oldCourses;
 
     /**
-     * A list of courses which are 10 years old.
+     * Preview of the last merge asked for and the users it was made for.
      */
-    private List<Course> oldCourses;
+    private String mergePreview;
+    private User mergePreviewUser;
+    private User mergePreviewSelected;
 
     /**
      * A list of users which have not been active for 10 years.
@@ -142,9 +134,10 @@ public class UserOverviewController {
         bundle = ResourceBundle.getBundle("messages",
                 FacesContext.getCurrentInstance().getViewRoot().getLocale());
 
+        users = new UserDataModel(userService);
         oldCourses = courseService.getOldCourses();
         oldUsers = userService.getOldUsers();
-        oldBackups = backupService.getOldBackups();
+        oldBackups = backupService.getExpiredBackups();
     }
 
     /**
@@ -167,40 +160,49 @@ public class UserOverviewController {
     }
 
     /**
-     * Deletes the inactive courses with its associations.
+     * Starts deleting the inactive courses and users and the expired
+     * backups in the background.
      */
     public void deleteOldData() {
         log.debug("deleteOldData() called");
 
-        for (Course c : oldCourses) {
-            courseService.deleteCourseWithAssociatons(c);
-        }
+        retentionSweep.start();
         oldCourses.clear();
-
-        for (User u : oldUsers) {
-            deleteUser(u);
-        }
         oldUsers.clear();
-
-        for (Backup b : oldBackups) {
-            backupService.remove(b);
-        }
         oldBackups.clear();
     }
 
     /**
-     * Loads all users from the database.
-     * @return List of users
+     * Returns whether old data is being deleted in the background.
+     *
+     * @return True if the retention sweep is running.
      */
-    public List<User> getUsers() {
-        if (users == null || users.isEmpty()) {
-            users = userService.getUsers();
-        }
+    public boolean isDeletingOldData() {
+        return retentionSweep.isRunning();
+    }
+
+    /**
+     * Returns the progress of deleting the old data.
+     *
+     * @return Localised numbers of the deleted courses, users and backups.
+     */
+    public String getDeleteOldDataProgress() {
+        return MessageFormat.format(bundle.getString("courses.overview.oldDataProgress"),
+                retentionSweep.getDeletedCourses(), retentionSweep.getDeletedUsers(),
+                retentionSweep.getDeletedBackups());
+    }
+
+    /**
+     * Returns the lazy model of the user table, which loads the users page by
+     * page from the database.
+     * @return Model of all users
+     */
+    public LazyDataModel<User> getUsers() {
         return users;
     }
 
     private void updateUserList() {
-        users = userService.getUsers();
+        users.reset();
     }
 
     /**
@@ -305,75 +307,13 @@ public class UserOverviewController {
      * user completely.
      */
     public void deleteUser() {
-
-        for (Course c : userService.getAllCourses(selectedUser)) {
-            Lecturer lec = c.getLecturerFromUser(selectedUser);
-            PrivilegedUser priv = c.getPrivilegedUserFromUser(selectedUser);
-            Student stud = c.getStudentFromUser(selectedUser);
-
-            if (lec != null) {
-                lec.setDeleted(true);
-            }
-            if (priv != null) {
-                priv.setDeleted(true);
-            }
-            if (stud != null) {
-                stud.setDeleted(true);
-            }
-
-            courseService.update(c);
-        }
-
         logUserDeleted(selectedUser);
-        selectedUser.setFirstName("Deleted");
-        selectedUser.setLastName("User");
-        selectedUser.setEmail(RandomStringUtils.randomAlphanumeric(10));
-        selectedUser.setPassword(null);
-        selectedUser.setMatriculationNumber("XXXXXX");
-        selectedUser.setProfileInfo("");
-        selectedUser.setPassword(RandomStringUtils.randomAlphanumeric(10));
-        userService.update(selectedUser);
+        retentionService.deleteUsers(
+                Collections.singletonList(selectedUser.getUserId()));
         clearFields();
         updateUserList();
     }
 
-    /**
-     * Deletes a user by overwriting all of his/her attributes.
-     * This is beneficial for not destroying many relations by deleting this
-     * user completely. This method overloads the deleteUser method of this
-     * class.
-     *
-     * @param toDelete the user to be deleted
-     */
-    public void deleteUser(User toDelete) {
-        for (Course c : userService.getAllCourses(toDelete)) {
-            Lecturer lec = c.getLecturerFromUser(toDelete);
-            PrivilegedUser priv = c.getPrivilegedUserFromUser(toDelete);
-            Student stud = c.getStudentFromUser(toDelete);
-
-            if (lec != null) {
-                lec.setDeleted(true);
-            }
-            if (priv != null) {
-                priv.setDeleted(true);
-            }
-            if (stud != null) {
-                stud.setDeleted(true);
-            }
-
-            courseService.update(c);
-        }
-
-        toDelete.setFirstName("Deleted");
-        toDelete.setLastName("User");
-        toDelete.setEmail(RandomStringUtils.randomAlphanumeric(10));
-        toDelete.setPassword(null);
-        toDelete.setMatriculationNumber("XXXXXX");
-        toDelete.setProfileInfo("");
-        toDelete.setPassword(RandomStringUtils.randomAlphanumeric(10));
-        userService.update(toDelete);
-    }
-
     /**
      * Method which tries to merge the currently selected User with the user given
      * as a parameter. The User object of the selected User will be kept and all
@@ -386,71 +326,71 @@ public class UserOverviewController {
         FacesContext context = FacesContext.getCurrentInstance();
         log.debug("User " + selectedUser + " should be merged with " + toBeMerged);
 
-        List<Course> coursesOfOtherUser = userService.getAllCourses(toBeMerged);
+        if (selectedUser.equals(toBeMerged)) {
+            context.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    bundle.getString("users.mergeSelf")));
+            return;
+        }
 
         //check if the users have common courses to throw an error
-        for (Course c : coursesOfOtherUser) {
-            log.debug("Checking Course " + c.getName() + " of user " + toBeMerged);
-            if (c.containsUser(selectedUser)) {
-                log.debug("Course " + c.getName() + " contains user " + selectedUser);
-                context.addMessage(null, new FacesMessage(FacesMessage
-                        .SEVERITY_FATAL, bundle.getString("common.error"),
-                        bundle.getString("users.mergeError")
-                                + " (" + c.getName() + ")."));
-                log.debug("merge failed");
-                return;
-            }
+        List<String> commonCourses = userService.findCommonCourseNames(
+                selectedUser, toBeMerged);
+        if (!commonCourses.isEmpty()) {
+            context.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    bundle.getString("users.mergeError")
+                            + " (" + String.join(", ", commonCourses) + ")."));
+            log.debug("merge failed");
+            return;
         }
 
-        //Course-relations
-        for (Course c : coursesOfOtherUser) {
-            Lecturer lec = c.getLecturerFromUser(toBeMerged);
-            PrivilegedUser priv = c.getPrivilegedUserFromUser(toBeMerged);
-            Student stud = c.getStudentFromUser(toBeMerged);
-
-            if (lec != null) {
-                lec.setUser(selectedUser);
-                lecturerService.update(lec);
-            }
-            if (priv != null) {
-                priv.setUser(selectedUser);
-                privilegedUserService.update(priv);
-            }
-            if (stud != null) {
-                stud.setUser(selectedUser);
-                studentService.update(stud);
-            }
+        int moved = userService.mergeUsers(selectedUser, toBeMerged);
+        logUserMerged(selectedUser, toBeMerged);
+        logUserDeleted(toBeMerged);
+        log.debug("merge was successful, " + moved + " rows were moved");
+        clearFields();
+        updateUserList();
+    }
+
+    /**
+     * Describes what a merge of the selected user with the given user would
+     * change, without changing anything. The description is kept until
+     * another user is given.
+     * @param toBeMerged User which would be merged into the selected user.
+     * @return Localised description of the merge or null if no user is given.
+     */
+    public String getMergePreview(User toBeMerged) {
+        if (toBeMerged == null || selectedUser == null) {
+            return null;
         }
 
-        //gradings
-        for (Grading g : gradingService.getGradingsByCorrector(toBeMerged)) {
-            g.setCorrector(selectedUser);
-            gradingService.update(g);
+        if (toBeMerged.equals(selectedUser)) {
+            return bundle.getString("users.mergeSelf");
         }
 
-        //gradeformulas
-        for (GradeFormula g : gradeFormulaService.getFormulasByEditor(toBeMerged)) {
-            g.setEditor(selectedUser);
-            gradeFormulaService.update(g);
+        if (mergePreview != null && toBeMerged.equals(mergePreviewUser)
+                && selectedUser.equals(mergePreviewSelected)) {
+            return mergePreview;
         }
 
-        //logs
-        for (Log l : logService.getLogFromUser(toBeMerged)) {
-            l.setLoggedInUser(selectedUser);
-            logService.update(l);
+        List<String> commonCourses = userService.findCommonCourseNames(
+                selectedUser, toBeMerged);
+        if (commonCourses.isEmpty()) {
+            Map<String, Long> counts = userService.countMergedRows(toBeMerged);
+            long participations = counts.get("Student")
+                    + counts.get("PrivilegedUser") + counts.get("Lecturer");
+            mergePreview = MessageFormat.format(bundle.getString("users.mergePreview"),
+                    participations, counts.get("Grading"),
+                    counts.get("GradeFormula"), counts.get("Log"));
+        } else {
+            mergePreview = bundle.getString("users.mergeError")
+                    + " (" + String.join(", ", commonCourses) + ").";
         }
 
-        //GlobalRoles
-        toBeMerged.getRoles().stream()
-                .filter(i1 -> !selectedUser.getRoles().contains(i1))
-                .forEach(i2 -> selectedUser.getRoles().add(i2));
-        userService.update(selectedUser);
-        logUserMerged(selectedUser, toBeMerged);
-        log.debug("merge was successful");
-        //delete other user
-        selectedUser = toBeMerged;
-        deleteUser();
-        updateUserList();
+        mergePreviewUser = toBeMerged;
+        mergePreviewSelected = selectedUser;
+        return mergePreview;
     }
 
     /**
@@ -662,69 +602,30 @@ public class UserOverviewController {
     }
 
     /**
-     * Injects the studentService.
-     * @param studentService The course service to be injected.
-     */
-    @EJB
-    public void setStudentService(StudentService studentService) {
-        this.studentService = studentService;
-    }
-
-    /**
-     * Injects the gradingService.
-     * @param gradingService The gradingService to be injected.
-     */
-    @EJB
-    public void setGradingService(GradingService gradingService) {
-        this.gradingService = gradingService;
-    }
-
-    /**
-     * Injects the gradeFormulaService.
-     * @param gradeFormulaService The gradeFormulaService to be injected.
+     * Injects the backup service.
+     * @param backupService The backup service to be injected to the bean.
      */
     @EJB
-    public void setGradeFormulaService(GradeFormulaService gradeFormulaService) {
-        this.gradeFormulaService = gradeFormulaService;
+    public void setBackupService(BackupService backupService) {
+        this.backupService = backupService;
     }
 
     /**
-     * Injects the privilegedUserService.
-     * @param privilegedUserService The course service to be injected.
+     * Injects the retention service.
+     * @param retentionService The retention service to be injected to the bean.
      */
     @EJB
-    public void setPrivilegedUserService(PrivilegedUserService privilegedUserService) {
-        this.privilegedUserService = privilegedUserService;
+    public void setRetentionService(RetentionService retentionService) {
+        this.retentionService = retentionService;
     }
 
     /**
-     * Injects the lecturerService.
-     * @param lecturerService The course service to be injected.
+     * Injects the retention sweep.
+     * @param retentionSweep The retention sweep to be injected to the bean.
      */
     @EJB
-    public void setLecturerService(LecturerService lecturerService) {
-        this.lecturerService = lecturerService;
-    }
-
-    /**
-     * Injects the backup service.
-     * @param backupService The backup service to be injected to the bean.
-     */
-    @EJB
-    public void setBackupService(BackupService backupService) {
-        this.backupService = backupService;
-    }
-
-    public void setUsers(List<User> users) {
-        this.users = users;
-    }
-
-    public List<User> getFilteredUsers() {
-        return filteredUsers;
-    }
-
-    public void setFilteredUsers(List<User> filteredUsers) {
-        this.filteredUsers = filteredUsers;
+    public void setRetentionSweep(RetentionSweep retentionSweep) {
+        this.retentionSweep = retentionSweep;
     }
 
     public User getSelectedUser() {
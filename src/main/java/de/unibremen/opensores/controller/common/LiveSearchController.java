@@ -54,7 +54,8 @@ public class LiveSearchController {
     public void searchForUsers(AjaxBehaviorEvent event) {
         log.debug("searchForUsers: " + searchString);
         if (searchString.length() >= Constants.LIVE_SEARCH_THRESHOLD) {
-            userResultList = userService.searchForUsers(searchString);
+            userResultList = userService.searchForUsers(searchString, 0,
+                    Constants.LIVE_SEARCH_LIMIT);
         }
     }
 
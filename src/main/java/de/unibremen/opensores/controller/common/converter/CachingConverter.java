@@ -0,0 +1,80 @@
+package de.unibremen.opensores.controller.common.converter;
+
+import javax.faces.component.EditableValueHolder;
+import javax.faces.component.UIComponent;
+import javax.faces.convert.Converter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base class for the entity converters, which are request scoped. Resolved
+ * entities are kept for the rest of the request. On the first value which
+ * isn't resolved yet, all values submitted for the component are looked up
+ * with a single query, so a pick list with many entries costs one query
+ * instead of one per entry.
+ *
+ * @param <T> The converted entity class.
+ */
+abstract class CachingConverter<T> implements Converter {
+    /**
+     * Resolved entities by scope, e.g. the course id, and submitted value.
+     * Values without an entity are mapped to null.
+     */
+    private final Map<Object, Map<String, T>> cache = new HashMap<>();
+
+    /**
+     * Looks up the entities for the given values.
+     *
+     * @param scope Scope passed to lookup, e.g. the course id.
+     * @param values Submitted values which aren't resolved yet.
+     * @return Entities by value, values without an entity may be missing.
+     */
+    protected abstract Map<String, T> load(Object scope, Set<String> values);
+
+    /**
+     * Returns the entity for the given value, loading it together with the
+     * other values submitted for the component if it isn't resolved yet.
+     *
+     * @param scope Scope of the value, e.g. the course id.
+     * @param component Component the value was submitted for.
+     * @param value Submitted value.
+     * @return Entity for the value or null.
+     */
+    protected T lookup(Object scope, UIComponent component, String value) {
+        Map<String, T> resolved = cache.computeIfAbsent(scope, s -> new HashMap<>());
+        if (resolved.containsKey(value)) {
+            return resolved.get(value);
+        }
+
+        Set<String> values = new LinkedHashSet<>();
+        values.add(value);
+        if (component instanceof EditableValueHolder) {
+            addValues(((EditableValueHolder) component).getSubmittedValue(), values);
+        }
+        values.removeAll(resolved.keySet());
+
+        Map<String, T> loaded = load(scope, values);
+        for (String v : values) {
+            resolved.put(v, loaded.get(v));
+        }
+        return resolved.get(value);
+    }
+
+    /**
+     * Adds the strings of a submitted value, which is a string for single
+     * selections, an array for multiple selections and an array of arrays
+     * for pick lists.
+     */
+    private static void addValues(Object submitted, Collection<String> values) {
+        if (submitted instanceof String) {
+            values.add((String) submitted);
+        } else if (submitted instanceof Object[]) {
+            for (Object element : (Object[]) submitted) {
+                addValues(element, values);
+            }
+        }
+    }
+}
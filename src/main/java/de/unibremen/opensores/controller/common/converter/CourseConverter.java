@@ -3,13 +3,17 @@ package de.unibremen.opensores.controller.common.converter;
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.service.CourseService;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import javax.ejb.EJB;
 import javax.faces.application.FacesMessage;
 import javax.faces.context.FacesContext;
 import javax.faces.component.UIComponent;
-import javax.faces.convert.Converter;
 import javax.faces.bean.RequestScoped;
 import javax.faces.bean.ManagedBean;
 import javax.faces.convert.ConverterException;
@@ -21,7 +25,7 @@ import javax.faces.convert.ConverterException;
  */
 @ManagedBean
 @RequestScoped
-public class CourseConverter implements Converter {
+public class CourseConverter extends CachingConverter<Course> {
     /**
      * The course service for connection to the database.
      */
@@ -35,13 +39,8 @@ public class CourseConverter implements Converter {
         ResourceBundle bundle = ResourceBundle.getBundle("messages",
             facesContext.getViewRoot().getLocale());
 
-        Course course;
-        try {
-            course = (value == null || value.trim().isEmpty()) ? null : courseService
-                .find(Course.class, Integer.valueOf(value).longValue());
-        } catch (NumberFormatException e) {
-            course = null;
-        }
+        Course course = (value == null || value.trim().isEmpty()) ? null
+            : lookup(null, component, value);
 
         if (course == null) {
             String msg = bundle.getString("courses.fail");
@@ -52,6 +51,26 @@ public class CourseConverter implements Converter {
         }
     }
 
+    @Override
+    protected Map<String, Course> load(Object scope, Set<String> values) {
+        List<Long> ids = new ArrayList<>();
+        for (String value : values) {
+            try {
+                ids.add(Integer.valueOf(value).longValue());
+            } catch (NumberFormatException e) {
+                // Invalid ids have no course.
+            }
+        }
+
+        Map<String, Course> courses = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Course course : courseService.findCoursesById(ids)) {
+                courses.put(course.getCourseId().toString(), course);
+            }
+        }
+        return courses;
+    }
+
     @Override
     public String getAsString(FacesContext context,
             UIComponent component, Object value) {
@@ -5,14 +5,16 @@ import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.service.CourseService;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.text.MessageFormat;
 
 import javax.ejb.EJB;
 import javax.faces.application.FacesMessage;
 import javax.faces.context.FacesContext;
 import javax.faces.component.UIComponent;
-import javax.faces.convert.Converter;
 import javax.faces.bean.RequestScoped;
 import javax.faces.bean.ManagedBean;
 import javax.faces.convert.ConverterException;
@@ -24,7 +26,7 @@ import javax.faces.convert.ConverterException;
  */
 @ManagedBean
 @RequestScoped
-public class PrivilegedUserConverter implements Converter {
+public class PrivilegedUserConverter extends CachingConverter<PrivilegedUser> {
     /**
      * The course service for connection to the database.
      */
@@ -49,7 +51,7 @@ public class PrivilegedUserConverter implements Converter {
                 .SEVERITY_FATAL, bundle.getString("common.error"), msg));
         }
 
-        PrivilegedUser tutor = courseService.findTutor(course, value);
+        PrivilegedUser tutor = lookup(course, component, value);
         if (tutor == null) {
             String fmt = bundle.getString("courses.studentDoesNotExist");
             String msg = new MessageFormat(fmt).format(new Object[]{value});
@@ -60,6 +62,15 @@ public class PrivilegedUserConverter implements Converter {
         return tutor;
     }
 
+    @Override
+    protected Map<String, PrivilegedUser> load(Object course, Set<String> emails) {
+        Map<String, PrivilegedUser> tutors = new HashMap<>();
+        for (PrivilegedUser tutor : courseService.findTutorsByEmail((Course) course, emails)) {
+            tutors.put(tutor.getUser().getEmail(), tutor);
+        }
+        return tutors;
+    }
+
     @Override
     public String getAsString(FacesContext context,
             UIComponent component, Object value) {
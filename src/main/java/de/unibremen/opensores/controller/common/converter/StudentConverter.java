@@ -5,14 +5,16 @@ import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.service.CourseService;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.text.MessageFormat;
 
 import javax.ejb.EJB;
 import javax.faces.application.FacesMessage;
 import javax.faces.context.FacesContext;
 import javax.faces.component.UIComponent;
-import javax.faces.convert.Converter;
 import javax.faces.bean.RequestScoped;
 import javax.faces.bean.ManagedBean;
 import javax.faces.convert.ConverterException;
@@ -24,7 +26,7 @@ import javax.faces.convert.ConverterException;
  */
 @ManagedBean
 @RequestScoped
-public class StudentConverter implements Converter {
+public class StudentConverter extends CachingConverter<Student> {
     /**
      * The course service for connection to the database.
      */
@@ -49,7 +51,7 @@ public class StudentConverter implements Converter {
                 .SEVERITY_FATAL, bundle.getString("common.error"), msg));
         }
 
-        Student student = courseService.findStudent(course, value);
+        Student student = lookup(course, component, value);
         if (student == null) {
             String fmt = bundle.getString("courses.studentDoesNotExist");
             String msg = new MessageFormat(fmt).format(new Object[]{value});
@@ -60,6 +62,15 @@ public class StudentConverter implements Converter {
         return student;
     }
 
+    @Override
+    protected Map<String, Student> load(Object course, Set<String> emails) {
+        Map<String, Student> students = new HashMap<>();
+        for (Student student : courseService.findStudentsByEmail((Course) course, emails)) {
+            students.put(student.getUser().getEmail(), student);
+        }
+        return students;
+    }
+
     @Override
     public String getAsString(FacesContext context,
             UIComponent component, Object value) {
@@ -148,8 +148,10 @@ public class CourseCreateFlowController implements Serializable {
         if (!courseWasSaved) {
             logDebugData();
 
-            //persist new users
-            usersToBeCreated.stream().forEach(this::createNewUser);
+            //persist new users in batches and notify them afterwards
+            usersToBeCreated.stream().forEach(this::initNewUser);
+            userService.persistAll(usersToBeCreated);
+            usersToBeCreated.stream().forEach(this::notifyNewUser);
 
             //set default ParticipationType for all students
             ParticipationType defaultParttype = course.getDefaultParticipationType();
@@ -186,12 +188,14 @@ public class CourseCreateFlowController implements Serializable {
         }
     }
 
-    private void createNewUser(User newUser) {
+    private void initNewUser(User newUser) {
         PasswordReset passwordReset = userService
                 .initPasswordReset(newUser, RESET_TOKEN_EXPIRATION);
         newUser.setToken(passwordReset);
         newUser.setLastActivity(DateUtil.getDateTime());
-        userService.persist(newUser);
+    }
+
+    private void notifyNewUser(User newUser) {
         try {
             sendRegistrationMail(newUser);
         } catch (IOException | MessagingException ex) {
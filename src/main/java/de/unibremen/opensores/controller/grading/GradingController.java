@@ -23,7 +23,6 @@ import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -51,9 +50,10 @@ public class GradingController {
     private User user;
 
     /**
-     * Student gradings. Stored here so it won't be loaded multiple times.
+     * Student gradings indexed by student id and exam id. Stored here so it
+     * won't be loaded multiple times, null if it wasn't loaded yet.
      */
-    private Map<Long, Map<Long, Grading>> studentGradings = new HashMap<>();
+    private Map<Long, Map<Long, Grading>> studentGradings;
 
     /**
      * String to search for in the students overview.
@@ -161,28 +161,21 @@ public class GradingController {
     /**
      * Returns the grading of a single exam and student. Uses map because
      * gradings are only stored for graded exams. But we want all exams to
-     * show up.
+     * show up. The gradings of all visible students are loaded at once on
+     * the first call.
      * @param student Student whose gradings shall be loaded
      * @param exam Exam to check
      * @return Map of exams with gradings
      */
     public Grading getStudentGrading(final Student student,
                                                 final Exam exam) {
-        log.debug("load student gradings for student "
-                + student.getUser().getFirstName());
-
-        Map<Long, Grading> gradings = studentGradings.get(student.getStudentId());
-
-        log.debug("Gradings is "
-                + (gradings == null ? "not loaded" : "already loaded"));
-
-        if (gradings == null) {
-            gradings = gradingService.getStudentGradings(student);
-            log.debug("Loaded gradings is null");
-            studentGradings.put(student.getStudentId(), gradings);
+        if (studentGradings == null) {
+            log.debug("load grading matrix for course " + course.getCourseId());
+            studentGradings = gradingService.getGradingMatrix(course, user);
         }
 
-        return gradings.get(exam.getExamId());
+        Map<Long, Grading> gradings = studentGradings.get(student.getStudentId());
+        return (gradings == null) ? null : gradings.get(exam.getExamId());
     }
 
     public void setSearchValue(String search) {
@@ -219,16 +212,27 @@ public class GradingController {
     }
 
     /**
-     * Called to reset the exam gradings cache for a specific student.
+     * Called to reset the exam gradings cache for a specific student. The
+     * gradings of the student are reloaded right away, the rest of the
+     * cached gradings stays untouched.
      * @param student Student to remove from the cache.
      */
     public void resetExamGradings(Student student) {
-        if (student == null) {
+        if (student == null || studentGradings == null) {
             return;
         }
 
-        log.debug("Remove student gradings for " + student.getStudentId());
-        studentGradings.remove(student.getStudentId());
+        log.debug("Reload student gradings for " + student.getStudentId());
+        studentGradings.put(student.getStudentId(),
+                gradingService.getStudentGradings(student));
+    }
+
+    /**
+     * Called to reset the whole exam gradings cache, the gradings are
+     * reloaded on the next access.
+     */
+    public void resetExamGradings() {
+        studentGradings = null;
     }
 
     /**
@@ -14,8 +14,10 @@ import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.GradingService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.Constants;
+import de.unibremen.opensores.util.csv.GradeParser;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.primefaces.event.FileUploadEvent;
 import org.primefaces.event.SelectEvent;
 
 import javax.annotation.PostConstruct;
@@ -30,10 +32,15 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
@@ -62,6 +69,7 @@ public class GradingInsertController {
     private String formPrivateComment;
     private String formPublicComment;
     private boolean overwriting = false;
+    private Map<String, BigDecimal> uploadedGrades;
     private Integer formGradeType = GradeType.Pabo.getId();
     private BigDecimal formMaxPoints;
 
@@ -238,30 +246,9 @@ public class GradingInsertController {
 
             return;
         } catch (InvalidGradeException | NumberFormatException e) {
-            String errorMessage = bundle.getString("gradings.invalidGrading");
-
-            if (exam != null) {
-                if (exam.hasGradeType(GradeType.Boolean)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.boolean");
-                } else if (exam.hasGradeType(GradeType.Numeric)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.numeric");
-                } else if (exam.hasGradeType(GradeType.Percent)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.percent");
-                } else if (exam.hasGradeType(GradeType.Point)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.point");
-
-                    errorMessage = MessageFormat.format(errorMessage,
-                            exam.getMaxPoints());
-                }
-            }
-
             facesContext.addMessage(null, new FacesMessage(FacesMessage
                     .SEVERITY_FATAL, bundle.getString("common.error"),
-                    errorMessage));
+                    invalidGradingMessage(bundle, exam)));
             return;
         } catch (AlreadyGradedException e) {
             facesContext.addMessage(null, new FacesMessage(FacesMessage
@@ -351,30 +338,9 @@ public class GradingInsertController {
 
             return;
         } catch (InvalidGradeException | NumberFormatException e) {
-            String errorMessage = bundle.getString("gradings.invalidGrading");
-
-            if (exam != null) {
-                if (exam.hasGradeType(GradeType.Boolean)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.boolean");
-                } else if (exam.hasGradeType(GradeType.Numeric)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.numeric");
-                } else if (exam.hasGradeType(GradeType.Percent)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.percent");
-                } else if (exam.hasGradeType(GradeType.Point)) {
-                    errorMessage += bundle.getString(
-                            "gradings.invalidGrading.point");
-
-                    errorMessage = MessageFormat.format(errorMessage,
-                            exam.getMaxPoints());
-                }
-            }
-
             facesContext.addMessage(null, new FacesMessage(FacesMessage
                     .SEVERITY_FATAL, bundle.getString("common.error"),
-                    errorMessage));
+                    invalidGradingMessage(bundle, exam)));
             return;
         } catch (AlreadyGradedException e) {
             facesContext.addMessage(null, new FacesMessage(FacesMessage
@@ -397,10 +363,153 @@ public class GradingInsertController {
                 bundle.getString("gradings.stored")));
     }
 
+    /**
+     * Parses an uploaded CSV file with the grades of the selected exam and
+     * stores them.
+     * @param event Upload event of the file
+     */
+    public void handleGradeUpload(FileUploadEvent event) {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        ResourceBundle bundle = ResourceBundle.getBundle("messages",
+                facesContext.getViewRoot().getLocale());
+
+        try (Reader reader = new InputStreamReader(
+                event.getFile().getInputstream(), StandardCharsets.ISO_8859_1)) {
+            uploadedGrades = GradeParser.parseGrades(reader);
+        } catch (IOException e) {
+            log.debug(e);
+            uploadedGrades = null;
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    MessageFormat.format(bundle.getString(
+                            "gradings.upload.invalidFile"), e.getMessage())));
+            return;
+        }
+
+        overwriting = false;
+        storeUploadedGrades();
+    }
+
+    /**
+     * Stores the grades of the uploaded CSV file for the selected exam.
+     */
+    public void storeUploadedGrades() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        ResourceBundle bundle = ResourceBundle.getBundle("messages",
+                facesContext.getViewRoot().getLocale());
+
+        if (uploadedGrades == null || uploadedGrades.isEmpty()) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    bundle.getString("gradings.upload.noFile")));
+            return;
+        }
+
+        Exam exam = (formExam == null) ? null
+                : gradingService.getExam(course, formExam);
+        if (exam == null) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    bundle.getString("gradings.unknownExam")));
+            return;
+        }
+        /*
+        Map the matriculation numbers to the students of the course
+         */
+        Map<String, Student> students = gradingService
+                .findStudentsByMatriculation(course, uploadedGrades.keySet());
+        List<String> unknown = uploadedGrades.keySet().stream()
+                .filter(number -> !students.containsKey(number))
+                .collect(Collectors.toList());
+
+        if (!unknown.isEmpty()) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    MessageFormat.format(bundle.getString(
+                            "gradings.upload.unknownStudents"),
+                            String.join(", ", unknown))));
+            return;
+        }
+
+        Map<Student, BigDecimal> values = new LinkedHashMap<>();
+        uploadedGrades.forEach((number, value) ->
+                values.put(students.get(number), value));
+
+        final boolean overwrite = overwriting;
+        overwriting = false;
+        int stored;
+
+        try {
+            stored = gradingService.storeGrades(course, user, exam, values,
+                    null, null, overwrite);
+        } catch (IllegalAccessException e) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    bundle.getString(e.getMessage().equals("NOT_GRADABLE")
+                            ? "common.notGradable" : "common.noAccess")));
+            return;
+        } catch (InvalidGradeException e) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_FATAL, bundle.getString("common.error"),
+                    invalidGradingMessage(bundle, exam)));
+            return;
+        } catch (AlreadyGradedException e) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage
+                    .SEVERITY_WARN, bundle.getString("common.warning"),
+                    bundle.getString("gradings.overwriting")));
+            overwriting = true;
+            return;
+        }
+
+        uploadedGrades = null;
+        gradingController.resetExamGradings();
+
+        facesContext.addMessage(null, new FacesMessage(FacesMessage
+                .SEVERITY_INFO, bundle.getString("common.success"),
+                MessageFormat.format(bundle.getString("gradings.upload.stored"),
+                        stored)));
+    }
+
+    /**
+     * Returns the message for an invalid grading, including the valid
+     * values of the grade type of the exam.
+     * @param bundle Bundle of the current locale
+     * @param exam Exam that was graded or null
+     * @return Error message
+     */
+    private String invalidGradingMessage(ResourceBundle bundle, Exam exam) {
+        String errorMessage = bundle.getString("gradings.invalidGrading");
+
+        if (exam != null) {
+            if (exam.hasGradeType(GradeType.Boolean)) {
+                errorMessage += bundle.getString(
+                        "gradings.invalidGrading.boolean");
+            } else if (exam.hasGradeType(GradeType.Numeric)) {
+                errorMessage += bundle.getString(
+                        "gradings.invalidGrading.numeric");
+            } else if (exam.hasGradeType(GradeType.Percent)) {
+                errorMessage += bundle.getString(
+                        "gradings.invalidGrading.percent");
+            } else if (exam.hasGradeType(GradeType.Point)) {
+                errorMessage += bundle.getString(
+                        "gradings.invalidGrading.point");
+
+                errorMessage = MessageFormat.format(errorMessage,
+                        exam.getMaxPoints());
+            }
+        }
+
+        return errorMessage;
+    }
+
     public boolean isOverwriting() {
         return overwriting;
     }
 
+    public boolean isGradesUploaded() {
+        return uploadedGrades != null;
+    }
+
     /**
      * Method used for autocompletion of students.
      * @param query string to search for
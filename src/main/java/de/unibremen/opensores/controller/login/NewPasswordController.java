@@ -5,8 +5,8 @@ import de.unibremen.opensores.model.Role;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.model.PasswordReset;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.PasswordService;
 import de.unibremen.opensores.service.UserService;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.ResourceBundle;
 
@@ -33,6 +33,9 @@ public class NewPasswordController {
     @EJB
     private LogService logService;
 
+    @EJB
+    private PasswordService passwordService;
+
     /**
      * Unique id for the user who wants to change his password.
      */
@@ -82,7 +85,7 @@ public class NewPasswordController {
             return;
         }
 
-        final String hashpw = BCrypt.hashpw(password, BCrypt.gensalt());
+        final String hashpw = passwordService.hash(password);
         user.setToken(null);
         user.setPassword(hashpw);
         userService.update(user);
@@ -4,9 +4,9 @@ import de.unibremen.opensores.model.GlobalRole;
 import de.unibremen.opensores.model.Log;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.PasswordService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.DateUtil;
-import org.mindrot.jbcrypt.BCrypt;
 
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
@@ -38,6 +38,12 @@ public class RegistrationController {
     @EJB
     private LogService logService;
 
+    /**
+     * The PasswordService for hashing the password.
+     */
+    @EJB
+    private PasswordService passwordService;
+
     /**
      * The typed in email of the user, shouldn't be in the system.
      */
@@ -115,7 +121,7 @@ public class RegistrationController {
      * @return The generated registered User Object.
      */
     private User initUserFromInput() {
-        final String hashPW = BCrypt.hashpw(password, BCrypt.gensalt());
+        final String hashPW = passwordService.hash(password);
         final User newUser = new User();
 
         /* Don't set language here. Only set the language column if the user
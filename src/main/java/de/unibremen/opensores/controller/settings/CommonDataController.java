@@ -219,7 +219,8 @@ public class CommonDataController {
             return;
         }
 
-        searchResultList = userService.searchForLecturers(query);
+        searchResultList = userService.searchForLecturers(query, 0,
+                Constants.LIVE_SEARCH_LIMIT);
     }
 
     /**
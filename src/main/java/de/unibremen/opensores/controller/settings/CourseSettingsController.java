@@ -13,16 +13,16 @@ import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.GradeService;
+import de.unibremen.opensores.service.GradingService;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.MailService;
 import de.unibremen.opensores.service.MailTemplateService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.Constants;
 
 import de.unibremen.opensores.util.DateUtil;
-import de.unibremen.opensores.util.ServerProperties;
 import de.unibremen.opensores.util.csv.CourseDataParser;
 import de.unibremen.opensores.util.csv.PaboParser;
-import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.primefaces.model.StreamedContent;
@@ -41,17 +41,8 @@ import javax.faces.bean.ViewScoped;
 import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletRequest;
-import javax.mail.MessagingException;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.InvalidPathException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
-import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.TimeZone;
 
@@ -90,6 +81,12 @@ public class CourseSettingsController {
     @EJB
     private MailTemplateService mailTemplateService;
 
+    /**
+     * The MailService for queueing the mails.
+     */
+    @EJB
+    private MailService mailService;
+
     /**
      * CourseService for database transactions related to courses.
      */
@@ -108,6 +105,12 @@ public class CourseSettingsController {
     @EJB
     private LogService logService;
 
+    /**
+     * GradingService for loading the students and gradings of the export.
+     */
+    @EJB
+    private GradingService gradingService;
+
     /**
      * The course for which the overview page gets accessed.
      */
@@ -122,11 +125,6 @@ public class CourseSettingsController {
 
     private PrivilegedUser privUser;
 
-    /**
-     * Folder Path to temporary file location specified in server properties.
-     */
-    private Path tempFileFolder;
-
     private SimpleDateFormat dateFormatter;
 
     private ResourceBundle bundle;
@@ -168,46 +166,8 @@ public class CourseSettingsController {
         }
 
 
-        Properties properties = null;
-
-        try {
-            properties = ServerProperties.getProperties();
-        } catch (IOException ex) {
-            log.error("config.properties could not be loaded");
-            log.error(ex);
-        }
-
-        if (properties != null) {
-            final String strRootPath = properties.getProperty("fileupload.root","");
-            final String strTempPath = properties.getProperty("fileupload.tempfolder","");
-
-            //check properties
-            if (strRootPath.trim().isEmpty() || strTempPath.trim().isEmpty()) {
-                log.info("One or more fileupload paths in config.properties"
-                        + "are empty or not declared");
-            }
-
-            //build path
-            try {
-                tempFileFolder = Paths.get(strRootPath,strTempPath);
-            } catch (InvalidPathException ex) {
-                log.error(ex);
-            }
-
-            //mkdir
-            if (!Files.exists(tempFileFolder)) {
-                try {
-                    Files.createDirectories(tempFileFolder);
-                } catch (IOException ex) {
-                    log.error(ex);
-                }
-            }
-        }
-
-
         log.debug("Loaded course object: " + course);
-        if (course == null || user == null || (!isLecturer && privUser == null)
-                || tempFileFolder == null || !Files.exists(tempFileFolder)) {
+        if (course == null || user == null || (!isLecturer && privUser == null)) {
             log.debug("trying to redirect to /course/overview");
             try {
                 FacesContext.getCurrentInstance()
@@ -228,88 +188,33 @@ public class CourseSettingsController {
     }
 
     /**
-     * Generates the file for a course data csv.
+     * Streams the course data csv to the user. The students are loaded page
+     * by page while the response is written, no file is created.
      */
     public void generateCourseDataCSV() {
         String fileName = String.format("course_export_%s_%s.csv",course.getCourseId(),
                 dateFormatter.format(DateUtil.getDateTime()));
-        String dirPath = tempFileFolder.toString();
-        log.debug(String.format("Creating a pabo csv file with filename %s and dirPath %s",
-                fileName, dirPath));
-
-        File csvFile = null;
-
-        try {
-            csvFile = CourseDataParser.parseCourseToCSV(course,isLecturer,
-                    privUser,dirPath,fileName);
-        } catch (IOException e) {
-            log.error(e);
-            log.error("Error parsing the csv file.\n");
-            addErrorMessage(bundle
-                    .getString("courses.paboFile.errorWhileGeneratingDownload"));
-            return;
-        }
-
-        executeCSVFileDownload(csvFile, fileName);
-    }
-
-    /**
-     * Executes the download for a csv file.
-     * @param csvFile The CSV File to be downloaded by the user.
-     */
-    private void executeCSVFileDownload(File csvFile, String fileName) {
-        log.debug("Got CSV File: " + csvFile.toPath());
-        log.debug("Trying to get the input stream");
-        FileInputStream input;
-        try {
-            input = new FileInputStream(csvFile);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            log.error("Error while creating input stream of the file");
-            addErrorMessage(bundle.getString("courses.paboFile.errorWhileGeneratingDownload"));
-            return;
-        }
+        log.debug("Streaming a course data csv file with filename " + fileName);
 
         FacesContext fc = FacesContext.getCurrentInstance();
         ExternalContext ec = fc.getExternalContext();
 
-        log.debug("Trying to set up the download request");
         ec.responseReset();
         ec.setResponseContentType("application/csv");
-        ec.setResponseContentLength((int)csvFile.length());
         ec.setResponseHeader("Content-Disposition",
                 "attachment; filename=\"" + fileName + "\"");
 
-        log.debug("Trying to set up the output stream");
-        OutputStream output;
-        try {
-            output = ec.getResponseOutputStream();
+        try (OutputStream output = ec.getResponseOutputStream()) {
+            CourseDataParser.writeCourseToCSV(course, isLecturer, privUser, output,
+                after -> gradingService.getStudentGradingsPage(course, after));
         } catch (IOException e) {
             log.error(e);
-            log.error("Error creating output stream");
-            addErrorMessage(bundle.getString("courses.paboFile.errorWhileGeneratingDownload"));
-            if (input != null ) {
-                try {
-                    input.close();
-                } catch (IOException e1) {
-                    log.error(e1);
-                }
-            }
-            return;
-        }
-
-        log.debug("Creation suceeded, trying to copy from the input stream and closing");
-        try {
-            IOUtils.copy(input,output);
-            input.close();
-            output.close();
-        } catch (IOException e) {
-            log.error(e);
-            addErrorMessage(bundle.getString("courses.paboFile.errorWhileGeneratingDownload"));
+            log.error("Error streaming the csv file.\n");
+            addErrorMessage(bundle
+                    .getString("courses.paboFile.errorWhileGeneratingDownload"));
             return;
         }
 
-
         log.debug("Response is complete");
         fc.responseComplete();
     }
@@ -431,17 +336,10 @@ public class CourseSettingsController {
             return;
         }
 
-        log.debug("Sending mails to course" + course.getName());
-        try {
-            template.issue(course.getStudents());
-        } catch (IOException | MessagingException e) {
-            String msg = bundle.getString("mailtemplates.fail");
-            facesContext.addMessage(null, new FacesMessage(FacesMessage
-                .SEVERITY_FATAL, bundle.getString("common.error"), msg));
-            return;
-        }
+        log.debug("Queueing mails to course " + course.getName());
+        mailService.enqueue(template.createJobs(course.getStudents()));
 
-        String msg = bundle.getString("mailtemplates.success");
+        String msg = bundle.getString("mailtemplates.queued");
         facesContext.addMessage(null, new FacesMessage(FacesMessage
             .SEVERITY_INFO, bundle.getString("common.success"), msg));
     }
@@ -21,9 +21,7 @@ import de.unibremen.opensores.util.DateUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.primefaces.event.SelectEvent;
-import org.primefaces.model.DefaultScheduleModel;
 import org.primefaces.model.DualListModel;
-import org.primefaces.model.ScheduleEvent;
 import org.primefaces.model.ScheduleModel;
 
 import javax.annotation.PostConstruct;
@@ -249,15 +247,12 @@ public class ExamEventController {
 
         log.debug("Student user is: " + studentUser);
         if (studentUser != null) {
-            studentExamEvent = getExamEventFromStudent(studentUser);
+            studentExamEvent = examEventService.findEventOfStudent(exam, studentUser);
         }
 
         if (examEventModel == null) {
             log.debug("examEventModel gets created");
-            examEventModel = new DefaultScheduleModel();
-        }
-        for (ExamEvent examEvent: exam.getEvents()) {
-            examEventModel.addEvent(examEvent);
+            examEventModel = new ExamEventModel(examEventService, exam);
         }
     }
 
@@ -313,13 +308,15 @@ public class ExamEventController {
     public void addEvent(ActionEvent actionEvent) {
         if (event.getId() == null) {
             updateExaminedStudentsFromDualList();
+            event.setEditable(false);
             event = examEventService.persist(event);
             examEventModel.addEvent(event);
+            event.setEditable(canUserEditEvent(event));
             log.debug("Event gets added");
             logEventCreated(event);
         } else {
-            updateExaminedStudentsFromDualList();;
-            examEventModel.updateEvent(event);
+            updateExaminedStudentsFromDualList();
+            updateExamEvent();
             log.debug("Event gets updated");
 
             if ((oldEventEndDate != null && oldEventStartDate != null)
@@ -331,7 +328,6 @@ public class ExamEventController {
                 logEventUpdated(event);
             }
         }
-        updateExamEvents();
         event = createDefaultEvent();
     }
 
@@ -354,9 +350,9 @@ public class ExamEventController {
             event.getExaminedStudents().clear();
             studentService.update(oldExaminedStudents);
             examEventModel.deleteEvent(event);
+            examEventService.remove(event);
             logEventRemoved(event);
         }
-        updateExamEvents();
         event = createDefaultEvent();
     }
 
@@ -620,42 +616,16 @@ public class ExamEventController {
     }
 
     /**
-     * Updates the events of the exam in the database.
-     */
-    private void updateExamEvents() {
-        log.debug("updateExamEvents() called");
-        exam.getEvents().clear();
-        log.debug("ExamEventModel Size: " + examEventModel.getEvents().size());
-        for (ScheduleEvent scheduleEvent: examEventModel.getEvents()) {
-            ExamEvent examEvent = (ExamEvent) scheduleEvent;
-            log.debug("Exam event with start date: " + examEvent.getStartDate()
-                    + " and end date: " + examEvent.getEndDate());
-            examEvent.setEditable(false);
-            exam.getEvents().add(examEvent);
-        }
-        exam = examService.update(exam);
-        if (!examEventModel.getEvents().contains(event)) {
-            examEventService.remove(event);
-        }
-        for (ScheduleEvent scheduleEvent: examEventModel.getEvents()) {
-            ExamEvent examEvent = (ExamEvent) scheduleEvent;
-            examEvent.setEditable(canUserEditEvent(examEvent));
-        }
-    }
-
-    /**
-     * Gets the examEvent of the current exam to which the user is registered.
+     * Updates the selected event of the exam in the database.
      */
-    private ExamEvent getExamEventFromStudent(Student student) {
-        for (ExamEvent examEvent: exam.getEvents()) {
-            if (examEvent.getExaminedStudents().contains(student)) {
-                return examEvent;
-            }
-        }
-        return null;
+    private void updateExamEvent() {
+        log.debug("updateExamEvent() called");
+        event.setEditable(false);
+        event = examEventService.update(event);
+        examEventModel.updateEvent(event);
+        event.setEditable(canUserEditEvent(event));
     }
 
-
     /**
      * Adds a fail message to the FacesContext.
      * @param message the message to be displayed.
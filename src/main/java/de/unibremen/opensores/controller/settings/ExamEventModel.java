@@ -0,0 +1,49 @@
+package de.unibremen.opensores.controller.settings;
+
+import de.unibremen.opensores.model.Exam;
+import de.unibremen.opensores.model.ExamEvent;
+import de.unibremen.opensores.service.ExamEventService;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.primefaces.model.LazyScheduleModel;
+
+import java.util.Date;
+
+/**
+ * Lazy schedule model loading the events of an exam which overlap the range
+ * shown by the PrimeFaces scheduler. The scheduler fetches the events with
+ * an AJAX request whenever the range changes, so only the events of the
+ * visible month or week are loaded.
+ */
+public class ExamEventModel extends LazyScheduleModel {
+
+    private static final long serialVersionUID = 6412945571037205483L;
+
+    /**
+     * ExamEventService for loading the events.
+     */
+    private final transient ExamEventService examEventService;
+
+    /**
+     * The exam which events are shown.
+     */
+    @SuppressFBWarnings(value = "SE_BAD_FIELD")
+    private final Exam exam;
+
+    /**
+     * Creates a new model.
+     *
+     * @param examEventService ExamEventService for loading the events.
+     * @param exam The exam which events are shown.
+     */
+    public ExamEventModel(ExamEventService examEventService, Exam exam) {
+        this.examEventService = examEventService;
+        this.exam = exam;
+    }
+
+    @Override
+    public void loadEvents(Date start, Date end) {
+        for (ExamEvent event : examEventService.findEventsBetween(exam, start, end)) {
+            addEvent(event);
+        }
+    }
+}
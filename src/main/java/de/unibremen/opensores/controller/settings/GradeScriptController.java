@@ -1,40 +1,36 @@
 package de.unibremen.opensores.controller.settings;
 
+import de.unibremen.opensores.exception.ScriptLimitException;
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.Exam;
 import de.unibremen.opensores.model.Grade;
 import de.unibremen.opensores.model.GradeFormula;
 import de.unibremen.opensores.model.GradeType;
-import de.unibremen.opensores.model.Grading;
 import de.unibremen.opensores.model.Log;
 import de.unibremen.opensores.model.PaboGrade;
 import de.unibremen.opensores.model.ParticipationType;
 import de.unibremen.opensores.model.Privilege;
 import de.unibremen.opensores.model.PrivilegedUser;
-import de.unibremen.opensores.model.Semester;
 import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
+import de.unibremen.opensores.service.GradeFormulaEvaluator;
 import de.unibremen.opensores.service.GradeFormulaService;
 import de.unibremen.opensores.service.GradeService;
 import de.unibremen.opensores.service.LogService;
 import de.unibremen.opensores.service.ParticipationTypeService;
+import de.unibremen.opensores.service.PythonService;
+import de.unibremen.opensores.service.ScriptBudget;
 import de.unibremen.opensores.service.StudentService;
 import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.DateUtil;
 import org.apache.commons.lang3.CharEncoding;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.Hibernate;
 import org.primefaces.component.tabview.TabView;
 import org.primefaces.event.TabChangeEvent;
-import org.python.core.PyBoolean;
-import org.python.core.PyDictionary;
 import org.python.core.PyException;
-import org.python.core.PyList;
-import org.python.core.PyObject;
-import org.python.core.PyString;
-import org.python.core.PySystemState;
-import org.python.core.PyTuple;
 import org.python.util.PythonInterpreter;
 
 import javax.annotation.PostConstruct;
@@ -50,14 +46,15 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
 
 /**
  * The controller for grade scripts.
@@ -78,134 +75,6 @@ public class GradeScriptController {
      */
     private static final int DEFAULT_OUTPUT_BLOCK_SIZE = 8192;
 
-    /**
-     * The None type name to represent not existing grades.
-     * (equals null in Java).
-     */
-    private static final String PY_NONE = "None";
-
-    /**
-     * The class name of the decimal object representing BigDecimals in Python.
-     * See http://www.jython.org/docs/library/decimal.html
-     */
-    private static final String PY_DECIMAL_CLASS_NAME = "Decimal";
-
-    /**
-     * The number of numbers decimal places in the python environment.
-     */
-    private static final int PY_DECIMAL_PRECISION = 1000;
-
-    /**
-     * The indexes of the arguments in the 4 element tuple for the grade script method.
-     */
-    private static final int PY_IDX_ARG_TUPLE_CURRENT_GRADES = 0;
-    private static final int PY_IDX_ARG_TUPLE_STUDENT_INFO = 1;
-    private static final int PY_IDX_ARG_TUPLE_OLD_GRADES = 2;
-
-    /**
-     * Path to the model directory, must be loaded in the namespace
-     * of the python interpreter.
-     */
-    private static final String PATH_MODEL
-            = "src/main/java/de/unibremen/opensores/model";
-
-    /**
-     * The keys of student infos in the student dict.
-     */
-    private static final String KEY_STUDENT_INFO_FIRST_NAME = "first_name";
-    private static final String KEY_STUDENT_INFO_LAST_NAME = "last_name";
-    private static final String KEY_STUDENT_INFO_EMAIL = "email";
-    private static final String KEY_STUDENT_INFO_MATR = "matriculation";
-    private static final String KEY_STUDENT_INFO_PART_TYPE = "part_type";
-    /**
-     * The imports which get executed after resetting the locals before a script
-     * gets executed.
-     */
-    private static final String[] PY_IMPORTS = {
-        "import de.unibremen.opensores.model.PaboGrade as PaboGrade",
-        "from decimal import *",
-        "import inspect",
-        "import sys",
-        "import json",
-        "import codecs"
-    };
-
-    /**
-     * Sets up the precision in the python environment.
-     */
-    private static final String PY_SET_DECIMAL_PRECISION =
-            "getcontext().prec = " + PY_DECIMAL_PRECISION;
-
-
-    /**
-     * Sets the encoding of the stout to utf8.
-     */
-    private static final String PY_SET_UTF_8_TO_STDOUT_STDERR =
-            "\nsys.stdout = codecs.getwriter('utf8')(sys.stdout)\n"
-                    + "sys.stderr = codecs.getwriter('utf8')(sys.stderr)\n";
-
-
-    /**
-     * An array of protected local fields which should not be set to null when
-     * the python interpreter gets reset.
-     */
-    private static final String[] PY_PROTECTED_LOCALS = {
-        "__name__", "__builtins__", "__doc__", "__package__", "sys"
-    };
-
-
-    /**
-     * The name of the method which is used to grade students.
-     */
-    private static final String PY_GRADE_METHOD_NAME = "set_final_grade";
-
-    /**
-     * Python method which checks if the method for setting final grades
-     * "set_final_grade" has been supplied with exactly three arguments.
-     * Takes the parameter dir which is a list the names of the local namespace
-     */
-    private static final String PY_INIT_CHECK_SET_FINAL_GRADE_METHOD =
-            String.format("%ndef check_%1$s_method(dir):%n"
-                            + "    return \"%1$s\" in dir and "
-                            + "len(inspect.getargspec(%1$s)[0]) == 3%n",
-                    PY_GRADE_METHOD_NAME);
-
-    /**
-     * Calls the method check_set_final_grade_method too check if the method
-     * which is called to set the grades is in the namespace and takes three arguments
-     * Returns a PyBoolean which is true if the method exists and takes one
-     * parameter and false otherwise.
-     */
-    private static final String PY_CALL_CHECK_SET_FINAL_GRADE_METHOD =
-            String.format("check_%s_method(dir())", PY_GRADE_METHOD_NAME);
-
-    /**
-     * Python variable name of a list of pyTuple of student arguments.
-     */
-    private static final String PY_VAR_STUDENT_ARGS_LIST = "student_args_list";
-
-
-    /**
-     * The string value which is used to set the final grade.
-     */
-    private static final String PY_STR_FINAL_GRADE = "final_grade";
-
-    /**
-     * Name of a single python tuple representing the method arguments of a student.
-     */
-    private static final String PY_VAR_STUDENT_ARG = "student_arg";
-
-    /**
-     * Executes set_final_grades for every student object.
-     */
-    private static final String PY_EXEC_SET_FINAL_GRADES
-            = String.format("for %s in %s:%n\t%1$s[%d]['%s'] = %s(%1$s[%d],%1$s[%d],%1$s[%d])",
-            PY_VAR_STUDENT_ARG, PY_VAR_STUDENT_ARGS_LIST, PY_IDX_ARG_TUPLE_CURRENT_GRADES,
-            PY_STR_FINAL_GRADE, PY_GRADE_METHOD_NAME,
-            PY_IDX_ARG_TUPLE_CURRENT_GRADES, PY_IDX_ARG_TUPLE_STUDENT_INFO,
-            PY_IDX_ARG_TUPLE_OLD_GRADES);
-
-
     /**
      * The CourseService for database transactions related to courses.
      */
@@ -236,6 +105,11 @@ public class GradeScriptController {
      */
     private GradeService gradeService;
 
+    /**
+     * PythonService providing the interpreter and compiling the scripts.
+     */
+    private PythonService pythonService;
+
     /**
      * The ResourceBundle for string properties.
      */
@@ -284,6 +158,27 @@ public class GradeScriptController {
      */
     private PythonInterpreter pyInterpreter;
 
+    /**
+     * Whether the interpreter was acquired from the PythonService and has to
+     * be released to it.
+     */
+    private boolean pooledInterpreter;
+
+    /**
+     * The evaluator of the formulas using the python interpreter.
+     */
+    private GradeFormulaEvaluator evaluator;
+
+    /**
+     * The budget of the formula which is currently running or null.
+     */
+    private volatile ScriptBudget scriptBudget;
+
+    /**
+     * The number of students graded by the currently running formula.
+     */
+    private volatile int scriptStudents;
+
     /**
      * The set standard outputStream of the python interpreter.
      */
@@ -410,7 +305,7 @@ public class GradeScriptController {
         activeTabIndex = course.getParticipationTypes().indexOf(selectedParticipationType);
         scriptOutput = "";
         gradedStudents = studentService
-                .getUndeletedAndConfirmedStudentsOf(course.getParticipationTypes());
+                .getUndeletedAndConfirmedStudentsOf(course);
     }
 
 
@@ -420,7 +315,10 @@ public class GradeScriptController {
      */
     @PreDestroy
     public void destroy() {
-        if (pyInterpreter != null) {
+        if (pooledInterpreter) {
+            pythonService.release(pyInterpreter);
+            pyInterpreter = null;
+        } else if (pyInterpreter != null) {
             pyInterpreter.cleanup();
             pyInterpreter.close();
         }
@@ -470,78 +368,61 @@ public class GradeScriptController {
      */
     public void execScript(ParticipationType type) {
         log.debug("execScript called with participation type " + type);
-        pyOutPutStream.reset();
-        pyInterpreter.cleanup();
-        resetPyInterpreterLocals();
-
-        log.debug("Trying to execute the formula");
         String script = editedFormulas.get(type).getFormula();
         GradeFormula gradeFormula = getActiveGradeFormula();
+        List<Student> students = getGradedStudentsFrom(type);
 
+        log.debug("Trying to execute the formula");
         try {
-            pyInterpreter.exec(script);
+            runScript(() -> execFormula(script), students.size());
         } catch (PyException e) {
             log.error(e);
             scriptOutput = e.toString();
             gradeFormula.setValid(false);
             addFailMessage(bundle.getString("gradingFormula.messageNotInterpretable"));
             return;
+        } catch (ScriptLimitException e) {
+            gradeFormula.setValid(false);
+            addLimitMessage(e);
+            return;
         }
 
-        log.debug("Trying to execute the formula");
-        PyBoolean gradingMethodSet;
+        log.debug("Trying to execute the grading method with the students");
+        Map<Long, List<Student>> otherStudents = loadOtherStudents(students);
+        PaboGrade[] finalGrades;
         try {
-            gradingMethodSet =
-                    (PyBoolean) pyInterpreter.eval(PY_CALL_CHECK_SET_FINAL_GRADE_METHOD);
+            finalGrades = runScript(() -> evaluator.evaluate(course, students, otherStudents),
+                    students.size());
         } catch (PyException e) {
             log.error(e);
             scriptOutput = e.toString();
-            gradingMethodSet = new PyBoolean(false);
-        }
-
-        if (!gradingMethodSet.getBooleanValue()) {
-            log.debug("The method set_final_grade hasn't been set with three args");
             gradeFormula.setValid(false);
-            addFailMessage(bundle.getString("gradingFormula.messageMethodNotSet"));
+            addFailMessage(bundle.getString("gradingFormula.messageFailExecutingGradeMethod"));
+            return;
+        } catch (ScriptLimitException e) {
+            gradeFormula.setValid(false);
+            addLimitMessage(e);
             return;
         }
 
-        log.debug("Trying to set the pabo Grades");
-        final Map<Student, PyTuple> studentArgsMap = createStudentParams();
-        pyInterpreter.set(PY_VAR_STUDENT_ARGS_LIST, new PyList(studentArgsMap.values()));
-
-        log.debug("Trying to execute the grading method with the student args");
-        try {
-            pyInterpreter.exec(PY_EXEC_SET_FINAL_GRADES);
-        } catch (PyException e) {
-            log.error(e);
-            scriptOutput = e.toString();
+        if (finalGrades == null) {
+            log.debug("Neither set_final_grade nor set_final_grades has been set with three args");
             gradeFormula.setValid(false);
-            addFailMessage(bundle.getString("gradingFormula.messageFailExecutingGradeMethod"));
+            addFailMessage(bundle.getString("gradingFormula.messageMethodNotSet"));
             return;
         }
 
         log.debug("Executing succeeded, getting all pabo grades now");
         boolean allValidPaboGradesSet = true;
 
-        for (Map.Entry<Student,PyTuple> entry: studentArgsMap.entrySet()) {
-            Object firstArg =  entry.getValue().get(PY_IDX_ARG_TUPLE_CURRENT_GRADES);
-            if (!(firstArg instanceof PyDictionary)) {
-                log.error("The first argument of the student tuple list is not a dict");
-                entry.getKey().setPaboGrade(null);
-                allValidPaboGradesSet = false;
-                continue;
-            }
-
-            PyDictionary gradesDict = (PyDictionary) firstArg;
-            Object paboGradeObj = gradesDict.get(new PyString(PY_STR_FINAL_GRADE))
-                    .__tojava__(PaboGrade.class);
-            if (!(paboGradeObj instanceof PaboGrade)) {
-                entry.getKey().setPaboGrade(null);
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            if (finalGrades[i] == null) {
+                student.setPaboGrade(null);
                 allValidPaboGradesSet = false;
             } else {
-                entry.getKey().setPaboGrade(((PaboGrade) paboGradeObj).name());
-                entry.getKey().setPaboGradeFormula(script);
+                student.setPaboGrade(finalGrades[i].name());
+                student.setPaboGradeFormula(script);
             }
         }
 
@@ -795,310 +676,128 @@ public class GradeScriptController {
      *         the formula, false otherwise.
      */
     private boolean isActiveScriptValid() {
-        pyOutPutStream.reset();
-        pyInterpreter.cleanup();
-        resetPyInterpreterLocals();
         GradeFormula activeFormula = getActiveGradeFormula();
+        List<Student> students = getGradedStudentsFrom(getActiveParticipationType());
 
+        PaboGrade[] finalGrades;
         try {
-            pyInterpreter.exec(activeFormula.getFormula());
+            runScript(() -> execFormula(activeFormula.getFormula()), students.size());
+            Map<Long, List<Student>> otherStudents = loadOtherStudents(students);
+            finalGrades = runScript(() -> evaluator.evaluate(course, students, otherStudents),
+                    students.size());
         } catch (PyException e) {
             return false;
-        }
-
-        log.debug("Trying to execute the formula");
-        PyBoolean gradingMethodSet;
-        try {
-            gradingMethodSet =
-                    (PyBoolean) pyInterpreter.eval(PY_CALL_CHECK_SET_FINAL_GRADE_METHOD);
-        } catch (PyException e) {
-            return false;
-        }
-
-        if (!gradingMethodSet.getBooleanValue()) {
-            log.debug("The method set_final_grade hasn't been set with one arg");
+        } catch (ScriptLimitException e) {
+            addLimitMessage(e);
             return false;
         }
 
-        log.debug("Trying to set the pabo Grades");
-        final Map<Student, PyTuple> studentPyGradeDictMap = createStudentParams();
-        pyInterpreter.set(PY_VAR_STUDENT_ARGS_LIST, new PyList(studentPyGradeDictMap.values()));
-
-        try {
-            pyInterpreter.exec(PY_EXEC_SET_FINAL_GRADES);
-        } catch (PyException e) {
+        if (finalGrades == null) {
+            log.debug("The method set_final_grade hasn't been set with three args");
             return false;
         }
 
-        boolean allValidPaboGradesSet = true;
-
-        for (Map.Entry<Student, PyTuple> entry: studentPyGradeDictMap.entrySet()) {
-
-            Object firstArg =  entry.getValue().get(PY_IDX_ARG_TUPLE_CURRENT_GRADES);
-            if (!(firstArg instanceof PyDictionary)) {
-                log.error("The first argument of the student tuple list is not a dict");
-                allValidPaboGradesSet = false;
-                break;
-            }
-
-            PyDictionary gradesDict = (PyDictionary) firstArg;
-            Object paboGradeObj = gradesDict.get(new PyString(PY_STR_FINAL_GRADE))
-                    .__tojava__(PaboGrade.class);
-            if (!(paboGradeObj instanceof PaboGrade)) {
-                allValidPaboGradesSet = false;
+        for (PaboGrade finalGrade: finalGrades) {
+            if (finalGrade == null) {
                 log.error("Not all PaboGrades set in script");
+                return false;
             }
         }
 
-        return allValidPaboGradesSet;
+        return true;
     }
 
     /**
-     * Initialised the python interpreter.
-     * Sets a new system state and imports the PaboGrade Enum class.
-     */
-    private void initPyInterpreter() {
-        if (pyInterpreter == null) {
-            pyInterpreter = new PythonInterpreter(null, new PySystemState());
+     * Runs python code on the script threads of the PythonService, so that a
+     * formula which loops forever or allocates too much memory doesn't block
+     * the request thread. If the run had to be abandoned, the formula may
+     * still be running in the interpreter, so a new one is used afterwards.
+     * @param task The task executing the python code.
+     * @param students The number of students graded by the task.
+     * @return The result of the task.
+     * @throws ScriptLimitException If the formula exceeded a limit or all
+     *                              script threads are busy.
+     * @throws PyException If the formula raised an error.
+     */
+    private <T> T runScript(Callable<T> task, int students) throws ScriptLimitException {
+        scriptStudents = students;
+        scriptBudget = pythonService.createBudget();
+        try {
+            return pythonService.execute(scriptBudget, task);
+        } catch (ScriptLimitException e) {
+            if (scriptBudget.isCancelled()) {
+                log.warn("Abandoning the python interpreter of a cancelled formula");
+                pyInterpreter = null;
+                pooledInterpreter = false;
+                initPyInterpreter();
+            }
+            throw e;
+        } finally {
+            scriptBudget = null;
         }
-        PySystemState sys = pyInterpreter.getSystemState();
-        sys.path.append(new PyString(PATH_MODEL));
-        pyOutPutStream = new ByteArrayOutputStream(DEFAULT_OUTPUT_BLOCK_SIZE);
-        pyInterpreter.setOut(pyOutPutStream);
-        execPySetup();
-        pyInterpreter.exec(PY_SET_UTF_8_TO_STDOUT_STDERR);
     }
 
     /**
-     * Executes python strings for imports, settings in the environment.
+     * Clears the output and executes a formula, which defines the grade
+     * methods. Runs on the script threads.
+     * @param formula The source of the formula.
+     * @return Always null.
+     * @throws PyException If the formula isn't valid python or raised an error.
      */
-    private void execPySetup() {
-        for (String importStr: PY_IMPORTS) {
-            pyInterpreter.exec(importStr);
-        }
-        pyInterpreter.exec(PY_SET_DECIMAL_PRECISION);
-        pyInterpreter.exec(PY_INIT_CHECK_SET_FINAL_GRADE_METHOD);
-    }
-
-    /**
-     * Sets up a python dictionary of the students gradings of the exams.
-     * The shortcut of a exam of the grading gets put as key of the dictionary,
-     * the value of the grade of the grading gets put as value depending of
-     * the grade type(see gradeValueToPyObject).
-     * @param exams The list of exams for which should be included in the grade dict.
-     * @param student The student which gradings should be put in the dict.
-     * @return The Python dictionary of the exam shortcuts.
-     */
-    private PyDictionary createPyGradeDict(List<Exam> exams, Student student) {
-        log.debug("createPyGradeDict called with student " + student.getUser());
-        PyDictionary pyGradeDict = new PyDictionary();
-        for (Exam exam: exams) {
-            Grading grading = student.getGradingFromExam(exam);
-            log.debug("Got grading " + grading + " for exam " + exam.getName());
-            pyGradeDict.put(new PyString(exam.getShortcut()),
-                    gradeValueToPyObject((grading == null) ? null : grading.getGrade()));
-        }
-        return pyGradeDict;
-    }
-
-    /**
-     * Converts a grade value of the exmatrikulator system in a python representation
-     * depending of the gradeType and value of the grade. The following mappings
-     * take place:
-     *  * GradeType.Boolean will be represented as PyBoolean
-     *    for passed(true)
-     *    / not passed(false)
-     *    / none if the error doesnt represent a boolean.
-     *  * GradeType.Numeric and GradeType.Percent will be represented as python
-     *    Decimals with the numeric or percent values.
-     *  * GradeType.Point will be represented as tuple of the reached and max
-     *    points.
-     *  * If the grade has no value (no grade has been given): The grade will be None.
-     * @param grade The grade object representing the grade object.
-     * @return The Python object representation of the grade value.
-     */
-    private PyObject gradeValueToPyObject(Grade grade) {
-        log.debug("gradeValueToPyObject called with: " + grade);
-        if (grade == null || grade.getValue() == null) {
-            return pyInterpreter.get(PY_NONE);
-        }
-        if (GradeType.Boolean.getId().equals(grade.getGradeType())) {
-            return booleanGradeToPyBoolean(grade);
-        } else if (GradeType.Numeric.getId().equals(grade.getGradeType())
-                || GradeType.Percent.getId().equals(grade.getGradeType())) {
-            return pyDecimalFromBigDecimal(grade.getValue());
-        } else if (GradeType.Point.getId().equals(grade.getGradeType())) {
-            return pyTupleFromPointGrade(grade);
-        } else {
-            throw new IllegalStateException(
-                    "Grade was not a Boolean, Numeric nor PointGrade");
-        }
+    private Void execFormula(String formula) {
+        pyOutPutStream.reset();
+        evaluator.execFormula(formula);
+        return null;
     }
 
     /**
-     * Converts a grade of the type boolean grade to a Python Boolean object.
-     * @param grade A grade of the type GradeType.Boolean. It must have as value
-     *              either "0" for not passed or "1" for passed.
-     *              If the gradeType is not a boolean grade or the value of the
-     *              grade does not match, an None gets returned;
-     * @return A PyBoolean which is true if the grade has a value of 1, or false
-     *         if the grade has a value of 0.
-     */
-    private PyObject booleanGradeToPyBoolean(Grade grade) {
-        log.debug("booleanGradeToPyBoolean called with " + grade);
-        if (grade.getValue().compareTo(new BigDecimal("1")) == 0) {
-            return new PyBoolean(true);
-        } else if (grade.getValue().compareTo(new BigDecimal("0")) == 0) {
-            return new PyBoolean(false);
-        } else {
-            log.error("Grade had a GradeType of boolean, but didnt have the right values");
-            return pyInterpreter.get(PY_NONE);
+     * Loads the other student relations of the students and initialises the
+     * exams of the course, since the script threads can't load them.
+     * @param students The students which other relations should be loaded.
+     * @return Map from the user ids to the other student relations of the users.
+     */
+    private Map<Long, List<Student>> loadOtherStudents(List<Student> students) {
+        List<User> users = new ArrayList<>(students.size());
+        for (Student student: students) {
+            users.add(student.getUser());
         }
+        Hibernate.initialize(course.getExams());
+        return courseService.getOtherStudentsFromStudentsAndLecturer(users, loggedInUser, course);
     }
 
     /**
-     * Creates a python decimal object from a java BigDecimal object.
-     * @param bigDecimal The BigDecimal object from which the python decimal
-     *                   object should be created from.
-     * @return A pyObject representing the python decimal.
-     */
-    private PyObject pyDecimalFromBigDecimal(BigDecimal bigDecimal) {
-        log.debug("pyDecimalFromBigDecimal called with bigDecimal: " + bigDecimal);
-        PyObject pyDecimal = pyInterpreter.get(PY_DECIMAL_CLASS_NAME);
-        return pyDecimal.__call__(new PyString(bigDecimal.toString()));
-    }
-
-    /**
-     * Creates a python tuple from a point grade representing the reached and
-     * max points of the grade. The first part of the tuple are the reached points,
-     * the second part are the maximal points of the exam. Both points are
-     * represented as python decimals.
-     * @param grade The grade with type PointGrade with which the
-     * @return A tuple representing the reached points and the maximal points
-     *         of the grade.
-     */
-    private PyTuple pyTupleFromPointGrade(Grade grade) {
-        log.debug("pyTupleFromPointGrade called with " + grade);
-        PyObject[] pyTupleArgs = {pyDecimalFromBigDecimal(grade.getValue()),
-                pyDecimalFromBigDecimal(grade.getMaxPoints())};
-        return new PyTuple(pyTupleArgs);
-    }
-
-    /**
-     * Creates a map from each student to a python tuple containing the three
-     * arguments of the method set_final_grade.
-
-     * @return The map of student gradings.
+     * Adds the fail message of an exceeded script limit to the FacesContext.
+     * @param exception The exception naming the exceeded limit.
      */
-    private Map<Student, PyTuple> createStudentParams() {
-        log.debug("createStudentParams() called");
-
-        Map<Student, PyTuple> studentPyTupleMap = new HashMap<>();
-        for (Student student: gradedStudents.get(getActiveParticipationType())) {
-            log.debug("Putting student " + student.getUser() + " in dict");
-            studentPyTupleMap.put(student, createStudentArgsTuple(student, course));
+    private void addLimitMessage(ScriptLimitException exception) {
+        log.warn("Grade formula stopped: " + exception.getLimit());
+        switch (exception.getLimit()) {
+            case TIME:
+                addFailMessage(bundle.getString("gradingFormula.messageTimeLimitExceeded"));
+                break;
+            case MEMORY:
+                addFailMessage(bundle.getString("gradingFormula.messageMemoryLimitExceeded"));
+                break;
+            default:
+                addFailMessage(bundle.getString("gradingFormula.messageScriptsBusy"));
+                break;
         }
-
-        return studentPyTupleMap;
-
-    }
-
-
-    /**
-     * The first element of the tuple for the student for the arguments in the
-     * method to set the final grade.
-     * The first parameter is a is a python dictionary containing the grades
-     * of the current course.
-     * The second parameter is a python dictionary with information about the
-     * student like the email and matriculationNumber.
-     * The first parameter is python dictionary containing the other grades of the
-     * students, indexes by the semesters and the courses of the other student,
-     * in which the current user was a lecturer.
-     * @param student The student of which the pyTuple of the method args should
-     *                be built.
-     * @param course The current course.
-     * @return The pyTuple containing the arugments of the student.
-     */
-    private PyTuple createStudentArgsTuple(Student student, Course course) {
-        log.debug("createStudentArgsTuple called with student " + student.getUser());
-        List<Student> otherStudentRelations = courseService
-                .getOtherStudentsFromStudentAndLecturer(student.getUser(),loggedInUser,course);
-        PyObject[] pyTupleArgs = {
-                createPyGradeDict(course.getExams(), student),
-                createStudentInfoDict(student),
-                createOtherStudentGradesDict(otherStudentRelations)
-        };
-        return new PyTuple(pyTupleArgs);
-    }
-
-
-    /**
-     * Creates a PyDictionary about infos about the student. The infos and their
-     * stored keys
-     * first_name: FirstName of the student
-     * last_name: LastName of the student
-     * email: email of the student
-     * matriculation: Matriculation number of the student.
-     * part_type: participation type of the student.
-     * @param student The student which infos should be put in the py Dict.
-     * @return The PyDict with student infos.
-     */
-    private PyDictionary createStudentInfoDict(Student student) {
-        log.debug("createStudentInfoDict called with student " + student.getUser());
-        PyDictionary studentDict = new PyDictionary();
-
-        studentDict.put(new PyString(KEY_STUDENT_INFO_MATR),
-                student.getUser().getMatriculationNumber() == null
-                        ? new PyString("")
-                        : new PyString(student.getUser().getMatriculationNumber()));
-
-        studentDict.put(new PyString(KEY_STUDENT_INFO_FIRST_NAME),
-                new PyString(student.getUser().getFirstName()));
-        studentDict.put(new PyString(KEY_STUDENT_INFO_LAST_NAME),
-                new PyString(student.getUser().getLastName()));
-        studentDict.put(new PyString(KEY_STUDENT_INFO_EMAIL),
-                new PyString(student.getUser().getEmail()));
-        studentDict.put(new PyString(KEY_STUDENT_INFO_PART_TYPE),
-                new PyString(student.getParticipationType().getName()));
-
-
-        return studentDict;
     }
 
     /**
-     * Creates a python dictionary of the other student relations of a student
-     * in which the currently logged in user is lecturer.
-     * The dictionary has as the first index the semester in which the courses were
-     * located, which points to a dictionary of courses during this semester.
-     * This dictionary uses the shortcut of a course to get a grade dictionary
-     * of the student in that course.
-     * @param otherStudentRelations The other student relations which should create
-     *                            the Python Dictionary
-     * @return The python dictionary with other grades indexed by semester
-     *         and course shortcut.
-     */
-    private PyDictionary createOtherStudentGradesDict(List<Student> otherStudentRelations) {
-        List<Semester> semesters = new ArrayList<>();
-        PyDictionary semesterDict = new PyDictionary();
-
-        for (Student otherStudent: otherStudentRelations) {
-            Semester semester = otherStudent.getCourse().getSemester();
-
-            if (!semesters.contains(semester)) {
-                semesters.add(otherStudent.getCourse().getSemester());
-                semesterDict.put(new PyString(semester.toString()), new PyDictionary());
-            }
-
-            if (!otherStudent.getCourse().equals(course)) {
-                PyDictionary courseDict = (PyDictionary)
-                        semesterDict.get(new PyString(semester.toString()));
-
-                courseDict.put(new PyString(otherStudent.getCourse().getIdentifier()),
-                        createPyGradeDict(otherStudent.getCourse().getExams(), otherStudent));
-            }
+     * Initialised the python interpreter.
+     * Acquires an interpreter of the PythonService, which may have been used
+     * by another view before, and imports the PaboGrade Enum class.
+     */
+    private void initPyInterpreter() {
+        if (pyInterpreter == null) {
+            pyInterpreter = pythonService.acquire();
+            pooledInterpreter = true;
         }
-
-        return semesterDict;
+        pyOutPutStream = new ByteArrayOutputStream(DEFAULT_OUTPUT_BLOCK_SIZE);
+        pyInterpreter.setOut(pyOutPutStream);
+        evaluator = new GradeFormulaEvaluator(pyInterpreter, pythonService);
+        evaluator.setUp();
     }
 
     /**
@@ -1123,38 +822,6 @@ public class GradeScriptController {
                 message));
     }
 
-    /**
-     * Resets the python interpreter locales which got imported while running
-     * a grade script.
-     */
-    private void resetPyInterpreterLocals() {
-        List<String> scriptLocals = new ArrayList<>();
-        PyObject locals = pyInterpreter.getLocals();
-        for (PyObject item : locals.__iter__().asIterable()) {
-            scriptLocals.add(item.toString());
-        }
-        for (String local : scriptLocals) {
-            if (!isProtectedPyLocal(local)) {
-                pyInterpreter.set(local, null);
-            }
-        }
-        execPySetup();
-    }
-
-    /**
-     * Checks if a string of the name of a local is of a protected local.
-     * @param local The string of a python local.
-     * @return True if the string local is a protected local, false otherwise.
-     */
-    private boolean isProtectedPyLocal(String local) {
-        for (String protectedLocal: PY_PROTECTED_LOCALS) {
-            if (protectedLocal.equals(local)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Copies a formula object to a new formula object. Only the GradeFormula formula
      * string and whether the script is valid get restored. The save date
@@ -1292,6 +959,11 @@ public class GradeScriptController {
         this.gradeService = gradeService;
     }
 
+    @EJB
+    public void setPythonService(PythonService pythonService) {
+        this.pythonService = pythonService;
+    }
+
     public void setPythonInterpreter(PythonInterpreter pyInterpreter) {
         this.pyInterpreter = pyInterpreter;
     }
@@ -1354,6 +1026,20 @@ public class GradeScriptController {
         return scriptOutput;
     }
 
+    /**
+     * Returns how many students the currently running formula has graded.
+     * Called by the progress poll while the formula is running.
+     * @return The progress message or an empty string if no formula is running.
+     */
+    public String getScriptProgress() {
+        ScriptBudget budget = scriptBudget;
+        if (budget == null) {
+            return "";
+        }
+        return new MessageFormat(bundle.getString("gradingFormula.progress"))
+                .format(new Object[]{budget.getGraded(), scriptStudents});
+    }
+
     public void setScriptOutput(String scriptOutput) {
         this.scriptOutput = scriptOutput;
     }
@@ -7,10 +7,12 @@ import de.unibremen.opensores.model.Role;
 import de.unibremen.opensores.model.GlobalRole;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.service.CourseService;
+import de.unibremen.opensores.service.LogFilter;
 import de.unibremen.opensores.service.LogService;
 import de.unibremen.opensores.util.DateUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.primefaces.model.LazyDataModel;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
@@ -21,11 +23,8 @@ import javax.faces.context.ExternalContext;
 import javax.faces.application.FacesMessage;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.stream.Collectors;
 import java.util.ResourceBundle;
 import javax.servlet.http.HttpServletResponse;
 
@@ -81,19 +80,15 @@ public class LogController {
     private List<Course> courses;
 
     /**
-     * A list of the raw logs unfiltered by dates or PrimeFaces.
+     * Criteria for the logs shown, the filters of the data table are
+     * applied on top of them.
      */
-    private List<Log> rawLogs = null;
+    private LogFilter logFilter = new LogFilter();
 
     /**
-     * The list of all logs of the course.
+     * The lazily loaded logs of the course.
      */
-    private List<Log> logs = new ArrayList<>();
-
-    /**
-     * The filtered list of logs for PrimeFaces datatable filtering.
-     */
-    private List<Log> filteredLogs;
+    private LogDataModel logs;
 
     /**
      * Beginning date for filtering logs by date.
@@ -115,6 +110,7 @@ public class LogController {
      */
     @PostConstruct
     public void init() {
+        logs = new LogDataModel(logService, logFilter);
         FacesContext facesContext = FacesContext.getCurrentInstance();
         ExternalContext exContext = facesContext.getExternalContext();
 
@@ -124,7 +120,6 @@ public class LogController {
         user = (User) exContext.getSessionMap().get("user");
         if (user.hasGlobalRole(GlobalRole.ADMIN)) {
             courses = courseService.listCourses();
-            rawLogs = logService.listLogs();
 
             resetDateRange();
             return;
@@ -141,7 +136,7 @@ public class LogController {
         }
 
         if (userService.hasCourseRole(user, Role.LECTURER, course)) {
-            rawLogs = logService.getLogFromCourse(course);
+            logFilter.setCourseId(course.getCourseId());
         } else {
             try {
                 res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
@@ -158,18 +153,10 @@ public class LogController {
      * Deletes the logs in the currently selected range.
      */
     public void deleteLogRange() {
-        ListIterator<Log> it = logs.listIterator();
-
-
-        while (it.hasNext()) {
-            Log cl = it.next();
-            log.debug("Removing log with id " + cl.getLogId());
-
-            rawLogs.remove(cl);
-            logService.remove(cl);
-
-            it.remove();
-        }
+        int deleted = logService.deleteLogs(logFilter.getCourseId(),
+                beginDate, endDate);
+        log.debug("Removed " + deleted + " logs");
+        logs.reset();
 
         FacesContext facesContext = FacesContext.getCurrentInstance();
         ResourceBundle bundle = ResourceBundle.getBundle("messages",
@@ -189,10 +176,13 @@ public class LogController {
      */
     public void setDefaultDateRange() {
         log.debug("setDefaultDateRange()");
-        //Assuming the logs are sorted by date with newest date first
-        beginDate = (rawLogs.isEmpty())
+        LogFilter courseFilter = new LogFilter();
+        courseFilter.setCourseId(logFilter.getCourseId());
+
+        Date first = logService.getFirstLogDate(courseFilter);
+        beginDate = (first == null)
                 ? DateUtil.getDateTime()
-                : DateUtil.removeTime(rawLogs.get(rawLogs.size() - 1).getDate());
+                : DateUtil.removeTime(first);
         endDate = DateUtil.getDateTime();
 
         log.debug("Begin date:" + beginDate);
@@ -200,15 +190,13 @@ public class LogController {
     }
 
     /**
-     * Filters the raw logs by the start and stop dates.
+     * Filters the logs by the start and stop dates. The logs are filtered
+     * by the database when the data table loads the next page.
      */
     public void filterByDates() {
         log.debug("filterByDates() called");
-        logs = rawLogs.stream()
-                .filter(log -> log.getDate().after(beginDate)
-                        && log.getDate().before(endDate))
-                .collect(Collectors.toList());
-        log.debug("logs size: " + logs.size());
+        logFilter.setFrom(beginDate);
+        logFilter.setTo(endDate);
     }
 
     /**
@@ -239,22 +227,10 @@ public class LogController {
         this.logService = service;
     }
 
-    public List<Log> getLogs() {
+    public LazyDataModel<Log> getLogs() {
         return logs;
     }
 
-    public void setLogs(List<Log> logs) {
-        this.logs = logs;
-    }
-
-    public List<Log> getFilteredLogs() {
-        return filteredLogs;
-    }
-
-    public void setFilteredLogs(List<Log> filteredLogs) {
-        this.filteredLogs = filteredLogs;
-    }
-
     public Course getCourse() {
         return course;
     }
@@ -0,0 +1,170 @@
+package de.unibremen.opensores.controller.settings;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.Log;
+import de.unibremen.opensores.service.LogFilter;
+import de.unibremen.opensores.service.LogService;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortOrder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazy data model loading the logs shown in a PrimeFaces data table page by
+ * page. Moving to the next or previous page continues after the last or
+ * before the first log of the current page, pages close to the end are read
+ * in reverse order, so only pages in the middle of a large table require
+ * skipping rows.
+ */
+public class LogDataModel extends LazyDataModel<Log> {
+
+    private static final long serialVersionUID = 4018218342683457617L;
+
+    /**
+     * LogService for loading the logs.
+     */
+    private final transient LogService logService;
+
+    /**
+     * Criteria set by the controller, the table filters are added to them.
+     */
+    private final LogFilter baseFilter;
+
+    /**
+     * Filter the current page was loaded with or null if nothing was loaded.
+     */
+    private LogFilter filter;
+
+    /**
+     * Order the current page was loaded with.
+     */
+    private boolean ascending;
+
+    /**
+     * Index of the first row of the current page.
+     */
+    private int pageFirst;
+
+    /**
+     * Logs of the current page or null if nothing was loaded.
+     */
+    private transient List<Log> page;
+
+    /**
+     * Creates a new model.
+     *
+     * @param logService LogService for loading the logs.
+     * @param baseFilter Criteria all logs have to match. Changes to it are
+     *                   applied when the next page is loaded.
+     */
+    public LogDataModel(LogService logService, LogFilter baseFilter) {
+        this.logService = logService;
+        this.baseFilter = baseFilter;
+    }
+
+    @Override
+    public List<Log> load(int first, int pageSize, String sortField,
+                          SortOrder sortOrder, Map<String, Object> filters) {
+        LogFilter newFilter = createFilter(filters);
+        boolean newAscending = sortOrder == SortOrder.ASCENDING;
+
+        boolean continued = newFilter.equals(filter) && newAscending == ascending
+            && page != null && !page.isEmpty() && page.size() == pageSize;
+        if (!newFilter.equals(filter)) {
+            setRowCount(logService.countLogs(newFilter));
+        }
+
+        List<Log> logs;
+        int remaining = getRowCount() - first;
+        if (continued && first == pageFirst + pageSize) {
+            logs = logService.findLogs(newFilter, newAscending,
+                    page.get(page.size() - 1), 0, pageSize);
+        } else if (continued && first == pageFirst - pageSize) {
+            logs = logService.findLogs(newFilter, !newAscending,
+                    page.get(0), 0, pageSize);
+            Collections.reverse(logs);
+        } else if (first > remaining) {
+            int count = Math.min(pageSize, remaining);
+            logs = logService.findLogs(newFilter, !newAscending, null,
+                    remaining - count, count);
+            Collections.reverse(logs);
+        } else {
+            logs = logService.findLogs(newFilter, newAscending, null,
+                    first, pageSize);
+        }
+
+        filter = newFilter;
+        ascending = newAscending;
+        pageFirst = first;
+        page = logs;
+        return logs;
+    }
+
+    /**
+     * Forces the row count to be updated when the next page is loaded, for
+     * instance after logs have been deleted.
+     */
+    public void reset() {
+        filter = null;
+        page = null;
+    }
+
+    /**
+     * Combines the base filter with the filters of the data table.
+     *
+     * @param filters Filters of the data table by field name.
+     * @return Combined filter.
+     */
+    private LogFilter createFilter(Map<String, Object> filters) {
+        LogFilter combined = new LogFilter(baseFilter);
+        combined.setUser(getText(filters, "loggedInUser"));
+        combined.setAction(getText(filters, "actionDescription"));
+
+        Object course = filters.get("courseId");
+        if (course instanceof Course) {
+            combined.setCourseId(((Course) course).getCourseId());
+        } else if (course != null && !course.toString().trim().isEmpty()) {
+            try {
+                combined.setCourseId(Long.valueOf(course.toString().trim()));
+            } catch (NumberFormatException e) {
+                combined.setCourseId(-1L);
+            }
+        }
+
+        return combined;
+    }
+
+    /**
+     * Returns the trimmed text of a filter or null if it is empty.
+     */
+    private static String getText(Map<String, Object> filters, String key) {
+        Object value = filters.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return null;
+        }
+
+        return value.toString().trim();
+    }
+
+    @Override
+    public Object getRowKey(Log log) {
+        return log.getLogId();
+    }
+
+    @Override
+    public Log getRowData(String rowKey) {
+        if (page == null) {
+            return null;
+        }
+
+        for (Log log : page) {
+            if (String.valueOf(log.getLogId()).equals(rowKey)) {
+                return log;
+            }
+        }
+
+        return null;
+    }
+}
@@ -46,10 +46,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -269,9 +270,30 @@ public class PaboController {
         }
 
         log.debug("Storing locally suceeded");
-        List<PaboData> rawParsedData = null;
+        final Map<String, Deque<Student>> unmatchedStudents
+                = getStudentsByMatriculation(course.getStudents());
+        final List<Student> matchedStudents = new ArrayList<>();
+        final List<PaboData> notMatchedData = new ArrayList<>();
+        final List<PaboErrorMsg> errorMsgs = new ArrayList<>();
         try {
-            rawParsedData = PaboParser.parsePaboUpload(localUploadedCSVFile);
+            PaboParser.parsePaboUpload(localUploadedCSVFile, (line, data) -> {
+                if (!data.isValdid()) {
+                    PaboErrorMsg errorMsg = getPaboErrorMsg(data, line);
+                    if (errorMsg != null) {
+                        errorMsgs.add(errorMsg);
+                    }
+                    return;
+                }
+
+                Deque<Student> students = unmatchedStudents.get(data.getMatriculation());
+                Student student = students == null ? null : students.poll();
+                if (student == null) {
+                    notMatchedData.add(data);
+                } else {
+                    student.setPaboData(data);
+                    matchedStudents.add(student);
+                }
+            });
         } catch (IOException e) {
             log.error(e);
             addErrorMessage(bundle.getString("course.paboFile.messageErrorParsing"));
@@ -280,24 +302,13 @@ public class PaboController {
 
         uploadFileName = event.getFile().getFileName();
         logFileUploaded(uploadFileName);
-        List<PaboData> dataCopy = new ArrayList<>(rawParsedData);
-        log.debug("Size of raw parsed data: " + rawParsedData.size());
+        log.debug("Matched pabo students size: " + matchedStudents.size());
 
-        paboErrorMsgs = getPaboErrorsFromPaboData(dataCopy);
-        matchedPaboStudents = matchPaboDataToStudents(rawParsedData, course.getStudents());
+        paboErrorMsgs = errorMsgs;
+        matchedPaboStudents = matchedStudents;
+        notMatchedValidPaboData = notMatchedData;
         notMatchedPaboStudents = course.getStudents().stream()
                 .filter(s -> s.getPaboData() == null).collect(Collectors.toList());
-
-        List<PaboData> matchedPaboData = matchedPaboStudents.stream()
-                .map(s -> s.getPaboData()).collect(Collectors.toList());
-        log.debug("Mathced pabo students size: " + matchedPaboStudents.size());
-        log.debug("Matched pabo data");
-        matchedPaboData.forEach(d -> log.debug((d.getMatriculation())));
-        log.debug("Size of matched pabo data:  " + matchedPaboData.size());
-        log.debug("Size of data copy: " + dataCopy.size());
-        notMatchedValidPaboData = dataCopy.stream()
-                .filter(d -> d.isValdid() && !matchedPaboData.contains(d))
-                .collect(Collectors.toList());
         uploadAndParseSucceeded = true;
     }
 
@@ -476,38 +487,24 @@ public class PaboController {
     }
 
     /**
-     * Creates a list of students which got matched valid pabo data.
-     * @param paboDataList a list of pabo data.
-     * @return The list of students which got valid pabo data.
+     * Groups students by their matriculation number, so that uploaded pabo data
+     * can be matched without searching all students. Students without
+     * matriculation number are left out.
+     * @param allStudents The students to be grouped.
+     * @return A map from the matriculation numbers to the students in the order
+     *         of the list.
      */
-    private List<Student> matchPaboDataToStudents(List<PaboData> paboDataList,
-                                                  List<Student> allStudents) {
-        log.debug("matchPaboDataToStudents called");
-        List<PaboData> validPaboList = paboDataList.stream()
-                .filter(paboData -> paboData.isValdid()).collect(Collectors.toList());
-        List<Student> matchedStudents = new ArrayList<>(allStudents.size());
-
+    private Map<String, Deque<Student>> getStudentsByMatriculation(
+            List<Student> allStudents) {
+        Map<String, Deque<Student>> students = new HashMap<>();
         for (Student student: allStudents) {
             String studentMatr = student.getUser().getMatriculationNumber();
-            log.debug("Trying to match student with matri" + studentMatr);
             if (studentMatr != null && !studentMatr.trim().isEmpty()) {
-                Iterator<PaboData> paboDataIterator = validPaboList.iterator();
-                while (paboDataIterator.hasNext()) {
-                    PaboData data = paboDataIterator.next();
-                    if (data.getMatriculation().equals(studentMatr)) {
-                        log.debug(String.format("Matriculation numbers "
-                                        + "matched; Student: %s Pabo: %s",
-                                studentMatr, data.getMatriculation()));
-                        student.setPaboData(data);
-                        matchedStudents.add(student);
-                        paboDataIterator.remove();
-                        break;
-                    }
-                }
+                students.computeIfAbsent(studentMatr, matr -> new ArrayDeque<>())
+                        .add(student);
             }
         }
-        log.debug(" matched pabo students size: " + matchedStudents);
-        return matchedStudents;
+        return students;
     }
 
 
@@ -537,52 +534,35 @@ public class PaboController {
 
 
     /**
-     * Gets a map of the row indexes of invalid pabo data descriptions.
-     * and error strings describing the fault of the data. The map stores the row of the data.
-     * The first row of the file gets thrown away, so the index i of the faulty data
-     * is the and for the user rows start with one, the row index is i+2.
+     * Gets an error message describing the fault of invalid pabo data.
      * @see PaboParser
      * @see PaboData
-     * @return The map of the row indexes and invalid pabo data descriptions.
-     */
-    private List<PaboErrorMsg> getPaboErrorsFromPaboData(List<PaboData> dataList) {
-        List<PaboErrorMsg> paboErrorMsgs = new ArrayList<>();
-        int rowIdx = 2; // Starting with the first row
-        for (PaboData data: dataList) {
-            if (data.isValdid()) {
-                rowIdx++;
-                continue;
-            }
-            switch (data.getValidationId()) {
-                case PaboData.VALID:
-                    log.error("The PaboData validId is valid but the boolean says its not");
-                    break;
-                case PaboData.INVALID_MATRICULATION:
-                    paboErrorMsgs.add(new PaboErrorMsg(rowIdx,
-                            bundle.getString("course.paboFile.invalidMatriculation")));
-                    break;
-                case PaboData.INVALID_ATTEMPT:
-                    paboErrorMsgs.add(new PaboErrorMsg(rowIdx,
-                            bundle.getString("course.paboFile.invalidAttempts")));
-                    break;
-                case PaboData.INVALID_EXAM_NAME:
-                    paboErrorMsgs.add(new PaboErrorMsg(rowIdx,
-                            bundle.getString("course.paboFile.invalidExamName")));
-                    break;
-                case PaboData.INVALID_MAJOR:
-                    paboErrorMsgs.add(new PaboErrorMsg(rowIdx,
-                            bundle.getString("course.paboFile.invalidMajor")));
-                    break;
-                case PaboData.INVALID_ALL_EMPTY:
-                    paboErrorMsgs.add(new PaboErrorMsg(rowIdx,
-                            bundle.getString("course.paboFile.invalidRowSyntax")));
-                    break;
-                default:
-                    break;
-            }
-            rowIdx++;
+     * @param data The pabo data of a row.
+     * @param line The line of the row in the file.
+     * @return The error message or null if the data is valid.
+     */
+    private PaboErrorMsg getPaboErrorMsg(PaboData data, int line) {
+        switch (data.getValidationId()) {
+            case PaboData.VALID:
+                return null;
+            case PaboData.INVALID_MATRICULATION:
+                return new PaboErrorMsg(line,
+                        bundle.getString("course.paboFile.invalidMatriculation"));
+            case PaboData.INVALID_ATTEMPT:
+                return new PaboErrorMsg(line,
+                        bundle.getString("course.paboFile.invalidAttempts"));
+            case PaboData.INVALID_EXAM_NAME:
+                return new PaboErrorMsg(line,
+                        bundle.getString("course.paboFile.invalidExamName"));
+            case PaboData.INVALID_MAJOR:
+                return new PaboErrorMsg(line,
+                        bundle.getString("course.paboFile.invalidMajor"));
+            case PaboData.INVALID_ALL_EMPTY:
+                return new PaboErrorMsg(line,
+                        bundle.getString("course.paboFile.invalidRowSyntax"));
+            default:
+                return null;
         }
-        return paboErrorMsgs;
     }
 
 
@@ -8,6 +8,7 @@ import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.StudentService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.DateUtil;
@@ -42,9 +43,12 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * The Backing Bean of the Course create page 'Participants'.
@@ -63,6 +67,11 @@ public class StudentImportController {
      */
     private static final int RESET_TOKEN_EXPIRATION = 14 * 24;
 
+    /**
+     * The number of parsed users which are added to the course at once.
+     */
+    private static final int IMPORT_BATCH_SIZE = 500;
+
     /**
      * List of uploaded files by the user.
      */
@@ -93,6 +102,11 @@ public class StudentImportController {
      */
     private UserService userService;
 
+    /**
+     * StudentService for persisting the imported students.
+     */
+    private StudentService studentService;
+
     /**
      * Messages ResourceBundle for localised text.
      */
@@ -120,6 +134,11 @@ public class StudentImportController {
 
     private List<Student> studentsToBeAdded;
 
+    /**
+     * The lower case emails of all users imported so far.
+     */
+    private Set<String> importedEmails;
+
     /**
      * Initialises the StudentImportController Bean.
      * Gets the fileupload path from config.properties and tries to create the
@@ -142,6 +161,7 @@ public class StudentImportController {
 
         usersToBeCreated = new ArrayList<>();
         studentsToBeAdded = new ArrayList<>();
+        importedEmails = new HashSet<>();
 
         //Properties
         Properties properties = null;
@@ -210,18 +230,23 @@ public class StudentImportController {
     public void executeImport() {
         log.debug("executeImport called");
         List<File> storedFiles = storeFilesOnServer();
-        List<User> importedUsers = new ArrayList<>();
+        final List<User> importedUsers = new ArrayList<>(IMPORT_BATCH_SIZE);
         for (File f : storedFiles) {
             try {
-                importedUsers.addAll(StudIpParser.parseCSV(f));
+                StudIpParser.parseCSV(f, (line, user) -> {
+                    importedUsers.add(user);
+                    if (importedUsers.size() >= IMPORT_BATCH_SIZE) {
+                        addUsersToCourse(importedUsers);
+                        importedUsers.clear();
+                    }
+                });
             } catch (IOException | IllegalArgumentException ex) {
                 log.error(ex);
             }
         }
+        addUsersToCourse(importedUsers);
 
         log.debug("Total Number of newly to be created Users: " + usersToBeCreated.size());
-
-        addUsersToCourse(importedUsers);
     }
 
     private List<File> storeFilesOnServer() {
@@ -252,16 +277,28 @@ public class StudentImportController {
     /**
      * Adds given Users to the to be created course. Users without existing
      * account will be added to the 'usersToBeCreated' list of the FlowController.
+     * The existing accounts of all users are looked up at once, users already
+     * imported by a previous row are skipped.
      *
      * @param users list of users which should be added as participants
      *              to the course
      */
     private void addUsersToCourse(List<User> users) {
         checkCourseIsNull();
+        List<String> emails = new ArrayList<>(users.size());
         for (User u : users) {
-            User dbUser = userService.findByEmail(u.getEmail());
+            emails.add(u.getEmail());
+        }
+        Map<String, User> dbUsers = userService.findByEmails(emails);
+
+        for (User u : users) {
+            String email = u.getEmail().toLowerCase();
+            if (!importedEmails.add(email)) {
+                continue;
+            }
 
             //Existing user check via email
+            User dbUser = dbUsers.get(email);
             if (dbUser == null) {
                 usersToBeCreated.add(u);
             } else {
@@ -311,40 +348,58 @@ public class StudentImportController {
             return;
         }
 
-        //persist new users
-        usersToBeCreated.stream().forEach(this::createNewUser);
+        //persist new users in batches and notify them afterwards
+        usersToBeCreated.stream().forEach(this::initNewUser);
+        userService.persistAll(usersToBeCreated);
+        List<Log> logs = new ArrayList<>();
+        for (User newUser : usersToBeCreated) {
+            logs.add(Log.from(loggedInUser, course.getCourseId(),
+                    String.format("Created user %s by Stud IP Import.", newUser)));
+            notifyNewUser(newUser);
+        }
 
         //set default ParticipationType and add all students
         //which are not already in the course
         ParticipationType defaultParttype = course.getDefaultParticipationType();
+        Set<Long> participants = courseService.findParticipantUserIds(course);
+        List<Student> newStudents = new ArrayList<>(studentsToBeAdded.size());
         for (Student s : studentsToBeAdded) {
-            if (!course.containsUser(s.getUser())) {
+            if (participants.add(s.getUser().getUserId())) {
                 s.setParticipationType(defaultParttype);
-                defaultParttype.getStudents().add(s);
-                course.getStudents().add(s);
-                logService.persist(Log.from(loggedInUser, course.getCourseId(),
+                newStudents.add(s);
+                logs.add(Log.from(loggedInUser, course.getCourseId(),
                         String.format("Creating the student for user " + s.getUser())));
             }
         }
 
-        courseService.update(course);
+        studentService.persistAll(newStudents);
+        for (Student s : newStudents) {
+            defaultParttype.getStudents().add(s);
+            course.getStudents().add(s);
+        }
+        logService.persistAll(logs);
         studentsToBeAdded.clear();
         usersToBeCreated.clear();
+        importedEmails.clear();
     }
 
     /**
-     * Created a new User in the system and tries to send an password reset
-     * mail to him/her.
+     * Prepares a new User for being persisted by creating its password
+     * reset token.
      * @param newUser User object to be persisted
      */
-    private void createNewUser(User newUser) {
+    private void initNewUser(User newUser) {
         PasswordReset passwordReset = userService
                 .initPasswordReset(newUser, RESET_TOKEN_EXPIRATION);
         newUser.setToken(passwordReset);
         newUser.setLastActivity(DateUtil.getDateTime());
-        logService.persist(Log.from(loggedInUser, course.getCourseId(),
-                String.format("Created user %s by Stud IP Import.", newUser)));
-        userService.persist(newUser);
+    }
+
+    /**
+     * Tries to send an password reset mail to a persisted new User.
+     * @param newUser User object which has been persisted
+     */
+    private void notifyNewUser(User newUser) {
         try {
             sendRegistrationMail(newUser);
         } catch (IOException | MessagingException ex) {
@@ -423,6 +478,15 @@ public class StudentImportController {
         this.userService = userService;
     }
 
+    /**
+     * Injects the student service to the bean.
+     * @param studentService The student service to be injected to the bean.
+     */
+    @EJB
+    public void setStudentService(StudentService studentService) {
+        this.studentService = studentService;
+    }
+
     /**
      * Injects the course service to the ExamController.
      * @param courseService The course service to be injected to the bean.
@@ -21,6 +21,7 @@ import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.StudentService;
 import de.unibremen.opensores.service.TutorialService;
 import de.unibremen.opensores.service.PrivilegedUserService;
+import de.unibremen.opensores.service.MailService;
 import de.unibremen.opensores.service.MailTemplateService;
 
 import java.util.List;
@@ -39,7 +40,6 @@ import javax.faces.bean.ViewScoped;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.ValidationException;
-import javax.mail.MessagingException;
 
 /**
  * Controller for managing tutorials.
@@ -84,6 +84,12 @@ public class TutorialController {
     @EJB
     private MailTemplateService mailTemplateService;
 
+    /**
+     * The MailService for queueing the mails.
+     */
+    @EJB
+    private MailService mailService;
+
     /**
      * The student service for connection to the database.
      */
@@ -235,8 +241,8 @@ public class TutorialController {
         tutorial.setName(tutorialName);
 
         tutorial = updateTutors(tutorial);
+        tutorialService.persist(tutorial);
         course.getTutorials().add(tutorial);
-        course = courseService.update(course);
 
         this.tutorialName = null;
         tutorialTutors = new DualListModel<>(courseService.findPrivUsers(course),
@@ -434,8 +440,8 @@ public class TutorialController {
         if (group != null && group.getStudents() != null) {
             for (Student student : group.getStudents()) {
                 student.setGroup(null);
-                studentService.update(student);
             }
+            studentService.updateParticipations(group.getStudents());
 
             logService.persist(Log.from(user, course.getCourseId(),
                     String.format("Removed group %s in tutorial %s.",
@@ -483,6 +489,7 @@ public class TutorialController {
         }
 
         List<Student> students = new ArrayList<>();
+        List<Student> changed = new ArrayList<>();
         for (Student student : tutorial.getStudents()) {
             if (newMembers.contains(student)) {
                 if (student.getGroup() != null) {
@@ -490,14 +497,14 @@ public class TutorialController {
                 }
 
                 student.setGroup(group);
-                studentService.update(student);
+                changed.add(student);
 
                 log.debug(String.format("Added student with email %s to group %s",
                     student.getUser().getEmail(), group.getName()));
                 students.add(student);
             } else {
                 student.setGroup(null);
-                studentService.update(student);
+                changed.add(student);
 
                 log.debug(String.format("Removed student with email %s from group %s",
                     student.getUser().getEmail(), group.getName()));
@@ -505,6 +512,7 @@ public class TutorialController {
             }
         }
 
+        studentService.updateParticipations(changed);
         group.setStudents(students);
         logService.persist(Log.from(user, course.getCourseId(),
                 String.format("Edited the group members of group %s in tutorial %s.",
@@ -532,8 +540,8 @@ public class TutorialController {
             s.setTutorial(tutorial);
         }
 
+        studentService.updateParticipations(tutorialStudents.getTarget());
         tutorial.setStudents(tutorialStudents.getTarget());
-        tutorial = tutorialService.update(tutorial);
         logService.persist(Log.from(user, course.getCourseId(),
                 String.format("Updated the students of tutorial %s.",
                         tutorial.getName())));
@@ -568,11 +576,9 @@ public class TutorialController {
         }
 
         tutorial.getStudents().remove(student);
-        tutorial = tutorialService.update(tutorial);
-
         student.setGroup(null);
         student.setTutorial(null);
-        student = studentService.update(student);
+        studentService.updateParticipation(student);
 
         course = student.getCourse();
         logService.persist(Log.from(user, course.getCourseId(),
@@ -634,17 +640,10 @@ public class TutorialController {
             return;
         }
 
-        log.debug("Sending mails to tutorial " + tutorial.getName());
-        try {
-            template.issue(tutorial.getStudents());
-        } catch (IOException | MessagingException e) {
-            String msg = bundle.getString("mailtemplates.fail");
-            facesContext.addMessage(null, new FacesMessage(FacesMessage
-                .SEVERITY_FATAL, bundle.getString("common.error"), msg));
-            return;
-        }
+        log.debug("Queueing mails to tutorial " + tutorial.getName());
+        mailService.enqueue(template.createJobs(tutorial.getStudents()));
 
-        String msg = bundle.getString("mailtemplates.success");
+        String msg = bundle.getString("mailtemplates.queued");
         facesContext.addMessage(null, new FacesMessage(FacesMessage
             .SEVERITY_INFO, bundle.getString("common.success"), msg));
     }
@@ -8,6 +8,7 @@ import de.unibremen.opensores.model.TutorialEvent;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.TutorialEventService;
 import de.unibremen.opensores.service.TutorialService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.util.Constants;
@@ -16,8 +17,6 @@ import org.apache.logging.log4j.Logger;
 import org.primefaces.event.ScheduleEntryMoveEvent;
 import org.primefaces.event.ScheduleEntryResizeEvent;
 import org.primefaces.event.SelectEvent;
-import org.primefaces.model.DefaultScheduleModel;
-import org.primefaces.model.ScheduleEvent;
 import org.primefaces.model.ScheduleModel;
 
 import javax.annotation.PostConstruct;
@@ -81,6 +80,11 @@ public class TutorialEventController {
      */
     private TutorialService tutorialService;
 
+    /**
+     * The TutorialEventService for database transactions related to tutorial events.
+     */
+    private TutorialEventService tutorialEventService;
+
     /**
      * The CourseService for database transactions related to courses.
      */
@@ -138,9 +142,6 @@ public class TutorialEventController {
     @PostConstruct
     public void init() {
         log.debug("init() called");
-        if (tutorialEventModel == null) {
-            tutorialEventModel = new DefaultScheduleModel();
-        }
         HttpServletRequest req =
                 (HttpServletRequest) FacesContext.getCurrentInstance()
                         .getExternalContext().getRequest();
@@ -188,11 +189,9 @@ public class TutorialEventController {
 
         mailList = getMailList();
 
-        for (TutorialEvent event: tutorial.getEvents()) {
-            if (isUserTutor && loggedInUser.getUserId() == event.getCreatorId()) {
-                event.setEditable(true);
-            }
-            tutorialEventModel.addEvent(event);
+        if (tutorialEventModel == null) {
+            tutorialEventModel = new TutorialEventModel(tutorialEventService,
+                    tutorial, isUserTutor ? loggedInUser.getUserId() : null);
         }
 
         dateFormatter = new SimpleDateFormat("dd.MM.yyyy' 'HH:mm");
@@ -206,12 +205,15 @@ public class TutorialEventController {
      */
     public void addEvent(ActionEvent actionEvent) {
         log.debug("addEvent called with " + actionEvent);
+        event.setEditable(false);
         if (event.getId() == null) {
             tutorialEventModel.addEvent(event);
+            tutorialEventService.persist(event);
             log.debug("Event gets added");
             logEventCreated(event);
         } else {
             tutorialEventModel.updateEvent(event);
+            tutorialEventService.update(event);
             log.debug("Event gets updated");
             if (event.getStartDate() != oldEventStartDate
                     || event.getEndDate() != oldEventEndDate) {
@@ -222,7 +224,7 @@ public class TutorialEventController {
                 logEventUpdated(event);
             }
         }
-        updateTutorialEvents();
+        event.setEditable(canUserEditEvent(event));
         event = new TutorialEvent();
     }
 
@@ -237,9 +239,9 @@ public class TutorialEventController {
         } else if (tutorialEventModel.getEvents().contains(event)) {
             log.debug("Removing the event from the EventModel");
             tutorialEventModel.deleteEvent(event);
+            tutorialEventService.remove(event);
             logEventRemoved(event);
         }
-        updateTutorialEvents();
         event = new TutorialEvent();
     }
 
@@ -444,23 +446,6 @@ public class TutorialEventController {
                 || loggedInUser.getUserId() == event.getCreatorId());
     }
 
-    /**
-     * Updates the events of the tutorial in the database.
-     */
-    private void updateTutorialEvents() {
-        tutorial.getEvents().clear();
-        for (ScheduleEvent event: tutorialEventModel.getEvents()) {
-            TutorialEvent tutEvent = (TutorialEvent) event;
-            tutEvent.setEditable(false);
-            tutorial.getEvents().add(tutEvent);
-        }
-        tutorial = tutorialService.update(tutorial);
-        for (ScheduleEvent scheduleEvent: tutorialEventModel.getEvents()) {
-            TutorialEvent tutEvent = (TutorialEvent) scheduleEvent;
-            tutEvent.setEditable(canUserEditEvent(tutEvent));
-        }
-    }
-
     /*
      * Getters and Setters
      */
@@ -470,6 +455,11 @@ public class TutorialEventController {
         this.tutorialService = tutorialService;
     }
 
+    @EJB
+    public void setTutorialEventService(TutorialEventService tutorialEventService) {
+        this.tutorialEventService = tutorialEventService;
+    }
+
     @EJB
     public void setLogService(LogService logService) {
         this.logService = logService;
@@ -0,0 +1,62 @@
+package de.unibremen.opensores.controller.tutorial;
+
+import de.unibremen.opensores.model.Tutorial;
+import de.unibremen.opensores.model.TutorialEvent;
+import de.unibremen.opensores.service.TutorialEventService;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.primefaces.model.LazyScheduleModel;
+
+import java.util.Date;
+
+/**
+ * Lazy schedule model loading the events of a tutorial which overlap the
+ * range shown by the PrimeFaces scheduler. The scheduler fetches the events
+ * with an AJAX request whenever the range changes, so only the events of the
+ * visible month or week are loaded.
+ */
+public class TutorialEventModel extends LazyScheduleModel {
+
+    private static final long serialVersionUID = -2781609476402537160L;
+
+    /**
+     * TutorialEventService for loading the events.
+     */
+    private final transient TutorialEventService tutorialEventService;
+
+    /**
+     * The tutorial which events are shown.
+     */
+    @SuppressFBWarnings(value = "SE_BAD_FIELD")
+    private final Tutorial tutorial;
+
+    /**
+     * Id of the user whose events are editable or null if no event is.
+     */
+    private final Long editorId;
+
+    /**
+     * Creates a new model.
+     *
+     * @param tutorialEventService TutorialEventService for loading the events.
+     * @param tutorial The tutorial which events are shown.
+     * @param editorId Id of the user whose created events are editable,
+     *                 null if no event is editable.
+     */
+    public TutorialEventModel(TutorialEventService tutorialEventService,
+                              Tutorial tutorial, Long editorId) {
+        this.tutorialEventService = tutorialEventService;
+        this.tutorial = tutorial;
+        this.editorId = editorId;
+    }
+
+    @Override
+    public void loadEvents(Date start, Date end) {
+        for (TutorialEvent event
+                : tutorialEventService.findEventsBetween(tutorial, start, end)) {
+            if (editorId != null && editorId == event.getCreatorId()) {
+                event.setEditable(true);
+            }
+            addEvent(event);
+        }
+    }
+}
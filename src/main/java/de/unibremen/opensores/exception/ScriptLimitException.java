@@ -0,0 +1,46 @@
+package de.unibremen.opensores.exception;
+
+/**
+ * Exception thrown if a grade script was stopped because it exceeded one
+ * of the limits of the PythonService or could not be run at all.
+ */
+public class ScriptLimitException extends Exception {
+
+    /**
+     * The limits a script can exceed.
+     */
+    public enum Limit {
+        /**
+         * The script used more CPU time or took longer than allowed.
+         */
+        TIME,
+
+        /**
+         * The script allocated more memory than allowed.
+         */
+        MEMORY,
+
+        /**
+         * All script threads were busy and no more runs could be queued.
+         */
+        CAPACITY
+    }
+
+    /**
+     * The exceeded limit.
+     */
+    private final Limit limit;
+
+    /**
+     * Constructor for a ScriptLimitException.
+     * @param limit The exceeded limit, can't be null.
+     */
+    public ScriptLimitException(final Limit limit) {
+        super(limit.name());
+        this.limit = limit;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+}
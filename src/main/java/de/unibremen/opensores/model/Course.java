@@ -1,5 +1,7 @@
 package de.unibremen.opensores.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Type;
 
 import javax.persistence.CascadeType;
@@ -105,9 +107,11 @@ public class Course {
     private List<PrivilegedUser> tutors = new ArrayList<>();
 
     @OneToMany(mappedBy = "course", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<ParticipationType> participationTypes = new ArrayList<>();
 
     @OneToMany(mappedBy = "course", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Exam> exams = new ArrayList<>();
 
     @OneToMany(mappedBy = "course", cascade = CascadeType.MERGE, orphanRemoval = true)
@@ -8,9 +8,11 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.Lob;
+import javax.persistence.Table;
 
 import java.io.Serializable;
 import java.util.Date;
@@ -19,9 +21,13 @@ import java.util.Date;
  * The Default Event for events in the PrimeFaces scheduler used in the exmatrikulator.
  * Implements ScheduleEvent of PrimeFaces and acts as a persistable DefaultScheduleEvent.
  * http://grepcode.com/file/repository.primefaces.org/org.primefaces/primefaces/2.1/org/primefaces/model/DefaultScheduleEvent.java
+ * The index backs the date range queries loading the visible range of a
+ * calendar, the tutorial or exam of the events is narrowed down by the
+ * foreign key index of the subclass table.
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@Table(indexes = {@Index(columnList = "startDate, endDate")})
 public class DefaultEvent implements ScheduleEvent, Serializable {
 
     /**
@@ -2,6 +2,7 @@ package de.unibremen.opensores.model;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
@@ -12,6 +13,7 @@ import javax.persistence.Table;
  * Entity bean for the Lecturer class.
  */
 @Entity
+@EntityListeners(MembershipListener.class)
 @Table(name = "LECTURERS")
 public class Lecturer {
 
@@ -6,6 +6,7 @@ import de.unibremen.opensores.util.DateUtil;
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedEntityGraph;
@@ -15,14 +16,21 @@ import javax.persistence.NamedEntityGraph;
  */
 import javax.persistence.Entity;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 
 /**
  * This is a basic idea for an entity which logs the actions in the Exmatrikulator.
+ * The indexes back the paginated log queries of the LogService, which are
+ * ordered by date and usually restricted to a course or user.
  */
 @Entity
+@Table(indexes = {
+        @Index(columnList = "date, logId"),
+        @Index(columnList = "courseId, date, logId"),
+        @Index(columnList = "loggedInUser_userId, date, logId")})
 public class Log {
 
     /**
@@ -0,0 +1,41 @@
+package de.unibremen.opensores.model;
+
+/**
+ * Enumeration with all states a queued mail can be in. An element has an
+ * unique id to be easily stored in the database.
+ */
+public enum MailStatus {
+    PENDING(0, "mailqueue.pending"), SENDING(1, "mailqueue.sending"),
+    SENT(2, "mailqueue.sent"), FAILED(3, "mailqueue.failed");
+
+    private Integer id;
+    private String message;
+
+    MailStatus(Integer id, String message) {
+        this.id = id;
+        this.message = message;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns a specific mail status identified by the id.
+     * @param id Id to check for
+     * @return MailStatus object
+     */
+    public static MailStatus valueOf(Integer id) {
+        for (MailStatus s : MailStatus.values()) {
+            if (s.getId().equals(id)) {
+                return s;
+            }
+        }
+
+        throw new IllegalArgumentException();
+    }
+}
@@ -1,20 +1,21 @@
 package de.unibremen.opensores.model;
 
 import de.unibremen.opensores.util.mail.MailJob;
-import de.unibremen.opensores.util.mail.Mail;
 
 import com.github.mustachejava.MustacheFactory;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -23,7 +24,6 @@ import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.ManyToOne;
 import javax.persistence.JoinColumn;
-import javax.mail.MessagingException;
 import javax.mail.internet.AddressException;
 
 /**
@@ -32,6 +32,8 @@ import javax.mail.internet.AddressException;
  * @author Lorenz Huether
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "MAIL_TEMPLATES")
 public class MailTemplate {
 
@@ -161,14 +163,12 @@ public class MailTemplate {
     }
 
     /**
-     * Issues the mail for a list of students.
+     * Creates the mail jobs for a list of students.
      *
      * @param students the list of students.
-     * @throws IOException If an IO error occured while sending the mail.
-     * @throws MessagingException If the mail couldn't be send.
+     * @return One mail job per student.
      */
-    public void issue(List<Student> students)
-            throws IOException, MessagingException {
+    public MailJob[] createJobs(List<Student> students) {
         List<MailJob> jobs = new ArrayList<>();
         for (Student s : students) {
             String mail = s.getUser().getEmail();
@@ -179,6 +179,6 @@ public class MailTemplate {
         }
 
         MailJob[] jobArray = new MailJob[jobs.size()];
-        new Mail().issue(jobs.toArray(jobArray));
+        return jobs.toArray(jobArray);
     }
 }
@@ -0,0 +1,48 @@
+package de.unibremen.opensores.model;
+
+import de.unibremen.opensores.util.MembershipCache;
+import de.unibremen.opensores.util.TransactionHooks;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener for students, tutors and lecturers which evicts the
+ * course memberships of the affected user from the MembershipCache.
+ */
+public class MembershipListener {
+
+    /**
+     * Evicts the memberships of the user of the given participation, once
+     * immediately and once more after the transaction has completed.
+     *
+     * @param entity Changed Student, PrivilegedUser or Lecturer.
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void participationChanged(Object entity) {
+        User user;
+        if (entity instanceof Student) {
+            user = ((Student) entity).getUser();
+        } else if (entity instanceof PrivilegedUser) {
+            user = ((PrivilegedUser) entity).getUser();
+        } else if (entity instanceof Lecturer) {
+            user = ((Lecturer) entity).getUser();
+        } else {
+            return;
+        }
+
+        if (user == null || user.getUserId() == null) {
+            MembershipCache.clear();
+            return;
+        }
+
+        final Long userId = user.getUserId();
+        MembershipCache.evict(userId);
+
+        TransactionHooks.afterCompletion(TransactionHooks.lookupRegistry(),
+            status -> MembershipCache.evict(userId));
+    }
+}
@@ -1,5 +1,9 @@
 package de.unibremen.opensores.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -20,6 +24,8 @@ import java.util.List;
  * Entity bean for the ParticipationType class.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "PARTICIPATIONTYPES")
 public class ParticipationType {
 
@@ -5,6 +5,7 @@ import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -21,6 +22,7 @@ import java.util.List;
  * Entity bean for the PrivilegedUser class.
  */
 @Entity
+@EntityListeners(MembershipListener.class)
 @Table(name = "PRIVUSERS")
 public class PrivilegedUser {
 
@@ -0,0 +1,165 @@
+package de.unibremen.opensores.model;
+
+import de.unibremen.opensores.util.DateUtil;
+import de.unibremen.opensores.util.mail.MailJob;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Entity bean for a mail waiting in the outbound mail queue. Mails are
+ * stored in the database so they survive a restart of the server and are
+ * sent in the background by the MailDispatcher.
+ */
+@Entity
+@Table(name = "QUEUED_MAILS", indexes = {
+        @Index(columnList = "status, nextAttempt")})
+public class QueuedMail {
+
+    /**
+     * Separator of the addresses in the addresses column.
+     */
+    private static final String ADDRESS_SEPARATOR = ",";
+
+    @Id
+    @GeneratedValue
+    private Long mailId;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(nullable = false, columnDefinition = "CLOB")
+    private String addresses;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(nullable = false, columnDefinition = "CLOB")
+    private String text;
+
+    /**
+     * Id of the MailStatus of this mail.
+     */
+    @Column(nullable = false)
+    private Integer status;
+
+    /**
+     * Number of failed attempts to send this mail.
+     */
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private Date created;
+
+    /**
+     * The mail is not sent before this date, used for the retry backoff.
+     */
+    @Column(nullable = false)
+    private Date nextAttempt;
+
+    @Column(nullable = true)
+    private Date sent;
+
+    @Column(nullable = true)
+    private String lastError;
+
+    /**
+     * Empty constructor for an entity bean.
+     */
+    public QueuedMail() {}
+
+    /**
+     * Static constructor method to create a pending mail from a mail job.
+     * @param job The mail job which should be queued.
+     * @return The pending mail, which may be sent right away.
+     */
+    public static QueuedMail from(MailJob job) {
+        if (job == null) {
+            throw new IllegalArgumentException("The mail job can't be null");
+        }
+
+        QueuedMail mail = new QueuedMail();
+        mail.addresses = String.join(ADDRESS_SEPARATOR, job.getAddresses());
+        mail.subject = job.getSubject();
+        mail.text = job.getText();
+        mail.status = MailStatus.PENDING.getId();
+        mail.attempts = 0;
+        mail.created = DateUtil.getDateTime();
+        mail.nextAttempt = mail.created;
+        return mail;
+    }
+
+    /**
+     * Creates the mail job which can be issued by the Mail class.
+     * @return The mail job of this mail.
+     */
+    public MailJob toMailJob() {
+        return new MailJob(addresses.split(ADDRESS_SEPARATOR), subject, text);
+    }
+
+    public Long getMailId() {
+        return mailId;
+    }
+
+    public String getAddresses() {
+        return addresses;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public MailStatus getStatus() {
+        return MailStatus.valueOf(status);
+    }
+
+    public void setStatus(MailStatus status) {
+        this.status = status.getId();
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getCreated() {
+        return new Date(created.getTime());
+    }
+
+    public Date getNextAttempt() {
+        return new Date(nextAttempt.getTime());
+    }
+
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = new Date(nextAttempt.getTime());
+    }
+
+    public Date getSent() {
+        return sent == null ? null : new Date(sent.getTime());
+    }
+
+    public void setSent(Date sent) {
+        this.sent = sent == null ? null : new Date(sent.getTime());
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -1,6 +1,8 @@
 package de.unibremen.opensores.model;
 
 import de.unibremen.opensores.exception.SemesterFormatException;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -8,6 +10,7 @@ import java.text.ParseException;
 import java.util.Date;
 import java.util.Calendar;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -18,6 +21,8 @@ import javax.persistence.Table;
  * Entity bean for the Semester class.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "SEMESTERS")
 public class Semester {
 
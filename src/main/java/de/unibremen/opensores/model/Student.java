@@ -6,6 +6,7 @@ import javax.persistence.Basic;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -23,6 +24,7 @@ import java.util.List;
  * Entity bean for the Student class.
  */
 @Entity
+@EntityListeners(MembershipListener.class)
 @Table(name = "STUDENTS")
 public class Student {
 
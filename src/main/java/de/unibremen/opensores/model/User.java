@@ -12,6 +12,7 @@ import javax.persistence.CollectionTable;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.OneToOne;
 import javax.persistence.CascadeType;
 import javax.mail.internet.AddressException;
@@ -26,6 +27,7 @@ import java.io.IOException;
  * Entity bean of the User class.
  */
 @Entity
+@EntityListeners(UserSearchListener.class)
 @Table(name = "USERS")
 public class User {
 
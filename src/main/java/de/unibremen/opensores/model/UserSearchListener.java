@@ -0,0 +1,55 @@
+package de.unibremen.opensores.model;
+
+import de.unibremen.opensores.util.TransactionHooks;
+import de.unibremen.opensores.util.UserSearchIndex;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.transaction.Status;
+
+/**
+ * Entity listener for users which keeps the UserSearchIndex up to date.
+ * Changes are applied once the transaction has been committed, so that
+ * searches never find users which have been rolled back.
+ */
+public class UserSearchListener {
+
+    /**
+     * Indexes a new or changed user.
+     *
+     * @param user Persisted or updated user.
+     */
+    @PostPersist
+    @PostUpdate
+    public void userChanged(User user) {
+        afterCommit(() -> UserSearchIndex.put(user));
+    }
+
+    /**
+     * Removes a deleted user from the index.
+     *
+     * @param user Removed user.
+     */
+    @PostRemove
+    public void userRemoved(User user) {
+        final Long userId = user.getUserId();
+        afterCommit(() -> UserSearchIndex.remove(userId));
+    }
+
+    /**
+     * Runs the given change after the current transaction has been
+     * committed, or immediately if there is no active transaction.
+     */
+    private void afterCommit(Runnable change) {
+        boolean registered = TransactionHooks.afterCompletion(
+            TransactionHooks.lookupRegistry(), status -> {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            });
+        if (!registered) {
+            change.run();
+        }
+    }
+}
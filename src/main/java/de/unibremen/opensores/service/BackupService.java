@@ -1,19 +1,28 @@
 package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.Backup;
+import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.ServerProperties;
 import de.unibremen.opensores.util.DateUtil;
+import de.unibremen.opensores.util.backup.ChunkStore;
+import de.unibremen.opensores.util.backup.RetentionPolicy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.TimeZone;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -37,13 +46,44 @@ public class BackupService extends GenericService<Backup> {
     private final String dirPropertyKey = "exmatrikulator.backup.dir";
     private final String dtePropertyKey = "exmatrikulator.backup.dateForm";
 
+    private static final String CHUNK_SIZE_KEY = "exmatrikulator.backup.chunkSize";
+    private static final String KEEP_HOURS_KEY = "exmatrikulator.backup.keepHours";
+    private static final String KEEP_DAYS_KEY = "exmatrikulator.backup.keepDays";
+    private static final String KEEP_WEEKS_KEY = "exmatrikulator.backup.keepWeeks";
+
+    /**
+     * Chunk size used if none is configured, a multiple of all Derby page
+     * sizes.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Suffix of the manifest files in the backup directory.
+     */
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    /**
+     * Name of backups created by the timer.
+     */
+    private static final String SCHEDULED_NAME = "ScheduledBackup";
+
+    /**
+     * Guards the chunk store, so that chunks of a backup which is being
+     * stored aren't swept.
+     */
+    private static final Object STORE_LOCK = new Object();
+
     /**
      * Creates a Backup of the Database in the directory specified in
-     * config.properties.
+     * config.properties. Derby writes a full copy of the database to a
+     * staging directory, which is then added to the chunk store and
+     * removed again. Only chunks which changed since a previous backup
+     * take up additional space.
      *
      * @param name the name of the Backup.
      *
-     * @return Backup entinty.
+     * @return Backup entinty, its size is the number of bytes added to
+     *         the chunk store.
      *
      * @throws QueryTimeoutException if the query should fail.
      * @throws PersistenceException if persisting should fail.
@@ -64,9 +104,66 @@ public class BackupService extends GenericService<Backup> {
         query.execute();
         log.debug("Backup query executed!");
 
-        Backup backup =  generateBackup(name, path, date, getDirectorySize(new File(path)));
+        String manifest = path + MANIFEST_SUFFIX;
+        long written;
+        synchronized (STORE_LOCK) {
+            written = getChunkStore().store(Paths.get(path), Paths.get(manifest));
+        }
+        deleteFolder(new File(path));
+        log.debug("Added " + written + " bytes to the backup store");
 
-        return backup;
+        return generateBackup(name, manifest, date, written);
+    }
+
+    /**
+     * Returns the chunk store in the backup directory.
+     *
+     * @return ChunkStore for backups.
+     * @throws IOException if config.properties is not readable.
+     */
+    private ChunkStore getChunkStore() throws IOException {
+        Properties props = ServerProperties.getProperties();
+        return new ChunkStore(Paths.get(props.getProperty(dirPropertyKey)),
+                Math.max(1, ServerProperties.getInt(CHUNK_SIZE_KEY,
+                        DEFAULT_CHUNK_SIZE)));
+    }
+
+    /**
+     * Returns true if the given backup is stored in the chunk store, false
+     * if it is a plain copy of the database created by an older version.
+     *
+     * @param backup Backup to check.
+     * @return True if the backup path refers to a manifest.
+     */
+    private boolean isStored(Backup backup) {
+        return backup.getPath().endsWith(MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Recreates the database files of the given backup, so that they can be
+     * copied back by the restore script.
+     *
+     * @param backup Backup to extract.
+     * @return Directory containing the database files.
+     * @throws IOException if reading the store or writing the files fails.
+     */
+    public File extractBackup(Backup backup) throws IOException {
+        if (!isStored(backup)) {
+            return new File(backup.getPath());
+        }
+
+        String manifest = backup.getPath();
+        Path target = Paths.get(manifest.substring(0,
+                manifest.length() - MANIFEST_SUFFIX.length()));
+        if (Files.exists(target)) {
+            deleteFolder(target.toFile());
+        }
+
+        synchronized (STORE_LOCK) {
+            getChunkStore().restore(Paths.get(manifest), target);
+        }
+
+        return target.toFile();
     }
 
     /**
@@ -107,45 +204,21 @@ public class BackupService extends GenericService<Backup> {
     }
 
     /**
-     * Calculates the Size of a backup.
-     *
-     * @param folder File object of the parent directory of the backup.
-     *
-     * @return long size of the specified backup.
+     * Used for scheduled backups, configured in ejb-jar.xml. Afterwards
+     * the scheduled backups are thinned out according to the retention
+     * policy.
      *
-     * @throws IOException if something is not readable.
-     */
-    private long getDirectorySize(File folder) throws IOException {
-        long size = 0;
-
-        if (folder.isDirectory()) {
-            File[] files = folder.listFiles();
-            if (files == null) {
-                throw new IOException();
-            }
-            for (File file : files) {
-                if (file.isFile()) {
-                    size += file.length();
-                } else {
-                    size += getDirectorySize(file);
-                }
-            }
-        } else {
-            size += folder.length();
-        }
-        return size;
-    }
-
-    /**
-     * Used for scheduled backups, configured in config.properties.
-     *
-     * @throws IOException if Propertiesfile cannot be opened.
+     * @param timer The timer which triggered the backup.
      */
     public void scheduledBackup(Timer timer) {
         try {
-            Backup backup = runBackup("ScheduledBackup");
+            Backup backup = runBackup(SCHEDULED_NAME);
             em.persist(backup);
             log.debug("Scheduled backup executed successfully.");
+
+            for (Backup expired : getExpiredBackups()) {
+                deleteBackup(expired);
+            }
         } catch (PersistenceException | IOException e) {
             log.error(e);
         }
@@ -242,32 +315,74 @@ public class BackupService extends GenericService<Backup> {
     }
 
     /**
-     * Removes a collection of entities.
+     * Removes a backup from the database and its files from disk. Chunks
+     * which are no longer referenced by any backup are deleted as well.
      *
-     * @param backup a list of backups.
+     * @param backup the backup to delete.
      */
     public void deleteBackup(Backup backup) {
+        remove(backup);
         try {
-            deleteFolder(new File(backup.getPath()));
+            if (!isStored(backup)) {
+                deleteFolder(new File(backup.getPath()));
+                return;
+            }
+
+            Files.deleteIfExists(Paths.get(backup.getPath()));
+            synchronized (STORE_LOCK) {
+                ChunkStore store = getChunkStore();
+                int deleted = store.sweep(listManifests());
+                log.debug("Deleted " + deleted + " unreferenced backup chunks");
+            }
         } catch (IOException e) {
             log.error(e);
         }
-        em.remove(backup);
     }
 
     /**
-     * Gets all backups older than ten years.
+     * Lists all manifests in the backup directory.
+     *
+     * @return List of manifest paths.
+     * @throws IOException if the directory is not readable.
+     */
+    private List<Path> listManifests() throws IOException {
+        Properties props = ServerProperties.getProperties();
+        List<Path> manifests = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                Paths.get(props.getProperty(dirPropertyKey)),
+                "*" + MANIFEST_SUFFIX)) {
+            stream.forEach(manifests::add);
+        }
+
+        return manifests;
+    }
+
+    /**
+     * Gets all backups which expired. Scheduled backups are thinned out
+     * according to the retention policy configured in config.properties,
+     * manual backups expire after ten years.
      *
      * @return List a list of backups.
      */
-    public List<Backup> getOldBackups() {
-        List<Backup> backups = em.createQuery(
+    public List<Backup> getExpiredBackups() {
+        RetentionPolicy policy = new RetentionPolicy(
+                ServerProperties.getInt(KEEP_HOURS_KEY, 24),
+                ServerProperties.getInt(KEEP_DAYS_KEY, 7),
+                ServerProperties.getInt(KEEP_WEEKS_KEY, 8),
+                TimeZone.getTimeZone(Constants.SYSTEM_TIMEZONE));
+
+        List<Backup> expired = policy.expired(
+                listBackupsByName(SCHEDULED_NAME), Backup::getDate,
+                DateUtil.getDateTime());
+        expired.addAll(em.createQuery(
                 "SELECT DISTINCT b "
                 + "FROM Backup b "
-                + "WHERE b.date <= :date", Backup.class)
+                + "WHERE b.date <= :date "
+                + "AND b.name <> :scheduled", Backup.class)
                 .setParameter("date", DateUtil.tenYearsAgo())
-                .getResultList();
+                .setParameter("scheduled", SCHEDULED_NAME)
+                .getResultList());
 
-        return backups;
+        return expired;
     }
 }
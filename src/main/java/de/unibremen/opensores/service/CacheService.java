@@ -0,0 +1,78 @@
+package de.unibremen.opensores.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service for inspecting and clearing the Hibernate second-level cache,
+ * whose regions are configured in ehcache.xml.
+ */
+@Stateless
+public class CacheService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Returns the statistics of the persistence unit, including the hits and
+     * misses of the query cache.
+     *
+     * @return Statistics, empty while they are disabled.
+     */
+    public Statistics getStatistics() {
+        return getSessionFactory().getStatistics();
+    }
+
+    /**
+     * Enables or disables collecting statistics, which is off by default
+     * (hibernate.generate_statistics) since it costs some time on every
+     * query and cache access. The setting is kept until the next restart.
+     *
+     * @param enabled Whether statistics should be collected.
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        getStatistics().setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Returns the hits, misses and sizes of all second-level cache regions.
+     *
+     * @return Statistics by region name, ordered by name.
+     */
+    public Map<String, SecondLevelCacheStatistics> getRegionStatistics() {
+        Statistics statistics = getStatistics();
+        Map<String, SecondLevelCacheStatistics> regions = new TreeMap<>();
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            regions.put(name, statistics.getSecondLevelCacheStatistics(name));
+        }
+
+        return regions;
+    }
+
+    /**
+     * Resets all counters of the statistics.
+     */
+    public void clearStatistics() {
+        getStatistics().clear();
+    }
+
+    /**
+     * Removes all entities, collections and query results from the cache,
+     * for instance after the database has been changed by hand.
+     */
+    public void evictAll() {
+        getSessionFactory().getCache().evictAllRegions();
+    }
+
+    private SessionFactory getSessionFactory() {
+        return em.unwrap(Session.class).getSessionFactory();
+    }
+}
@@ -0,0 +1,230 @@
+package de.unibremen.opensores.service;
+
+import org.python.antlr.PythonTree;
+import org.python.antlr.Visitor;
+import org.python.antlr.ast.BinOp;
+import org.python.antlr.ast.Call;
+import org.python.antlr.ast.List;
+import org.python.antlr.ast.Name;
+import org.python.antlr.ast.Num;
+import org.python.antlr.ast.Str;
+import org.python.antlr.ast.Tuple;
+import org.python.antlr.ast.UnaryOp;
+import org.python.antlr.ast.operatorType;
+import org.python.antlr.ast.unaryopType;
+import org.python.antlr.base.expr;
+import org.python.core.Py;
+import org.python.core.PyInteger;
+import org.python.core.PyLong;
+import org.python.core.PyObject;
+
+import java.math.BigInteger;
+
+/**
+ * Rejects scripts computing huge constants, like 2 ** (10 ** 9) or
+ * 'x' * 10 ** 10. Such an expression is a single operation, which runs for
+ * minutes or fills the heap before the ScriptBudget is called again, so it
+ * has to be caught before the script is run. Constants are integer
+ * literals and arithmetic of constants, values computed at runtime are only
+ * limited by the ScriptBudget.
+ */
+final class ConstantSizeCheck extends Visitor {
+
+    /**
+     * Maximum number of bits of a constant integer.
+     */
+    static final int MAX_BITS = 1 << 20;
+
+    /**
+     * Maximum length of a sequence created by repeating a constant sequence
+     * or by range with constant arguments.
+     */
+    static final long MAX_LENGTH = 10L * 1000L * 1000L;
+
+    private ConstantSizeCheck() {
+    }
+
+    /**
+     * Checks all expressions of a parsed script.
+     *
+     * @param tree Parsed script.
+     * @throws org.python.core.PyException ValueError if the script computes
+     *                                     a constant which is too large.
+     */
+    static void check(PythonTree tree) {
+        try {
+            new ConstantSizeCheck().traverse(tree);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Object visitBinOp(BinOp node) throws Exception {
+        if (node.getInternalOp() == operatorType.Mult) {
+            long length = Math.max(repeatedLength(node.getInternalLeft(),
+                    node.getInternalRight()), repeatedLength(node.getInternalRight(),
+                    node.getInternalLeft()));
+            if (length > MAX_LENGTH) {
+                throw tooLarge(node);
+            }
+        }
+
+        value(node);
+        return super.visitBinOp(node);
+    }
+
+    @Override
+    public Object visitCall(Call node) throws Exception {
+        if (node.getInternalFunc() instanceof Name && node.getInternalKeywords().isEmpty()
+                && node.getInternalStarargs() == null && node.getInternalKwargs() == null) {
+            String function = ((Name) node.getInternalFunc()).getInternalId();
+            java.util.List<expr> args = node.getInternalArgs();
+            if ("pow".equals(function) && args.size() == 2) {
+                checkPow(node, value(args.get(0)), value(args.get(1)));
+            } else if (("range".equals(function) || "xrange".equals(function))
+                    && !args.isEmpty()) {
+                checkRange(node, args);
+            }
+        }
+
+        return super.visitCall(node);
+    }
+
+    /**
+     * Returns the value of a constant integer expression.
+     *
+     * @return The value or null if the expression isn't a constant integer.
+     * @throws org.python.core.PyException If the value is too large.
+     */
+    private BigInteger value(expr node) {
+        if (node instanceof Num) {
+            Object number = ((Num) node).getInternalN();
+            if (number instanceof PyInteger) {
+                return BigInteger.valueOf(((PyInteger) number).getValue());
+            } else if (number instanceof PyLong) {
+                return ((PyLong) number).getValue();
+            }
+            return null;
+        } else if (node instanceof UnaryOp) {
+            UnaryOp unary = (UnaryOp) node;
+            BigInteger operand = value(unary.getInternalOperand());
+            if (operand == null) {
+                return null;
+            } else if (unary.getInternalOp() == unaryopType.USub) {
+                return operand.negate();
+            } else if (unary.getInternalOp() == unaryopType.UAdd) {
+                return operand;
+            }
+            return null;
+        } else if (!(node instanceof BinOp)) {
+            return null;
+        }
+
+        BinOp binOp = (BinOp) node;
+        BigInteger left = value(binOp.getInternalLeft());
+        BigInteger right = value(binOp.getInternalRight());
+        if (left == null || right == null) {
+            return null;
+        }
+
+        operatorType op = binOp.getInternalOp();
+        if (op == operatorType.Add) {
+            return left.add(right);
+        } else if (op == operatorType.Sub) {
+            return left.subtract(right);
+        } else if (op == operatorType.Mult) {
+            if ((long) left.bitLength() + right.bitLength() > MAX_BITS) {
+                throw tooLarge(node);
+            }
+            return left.multiply(right);
+        } else if (op == operatorType.Pow) {
+            return checkPow(node, left, right);
+        } else if (op == operatorType.LShift) {
+            if (right.signum() >= 0 && left.signum() != 0
+                    && right.compareTo(BigInteger.valueOf(MAX_BITS - left.bitLength())) > 0) {
+                throw tooLarge(node);
+            }
+            return right.signum() >= 0 ? left.shiftLeft(right.intValue()) : null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks the size of base ** exponent and returns it.
+     *
+     * @return The power or null if it isn't a constant integer.
+     */
+    private BigInteger checkPow(PythonTree node, BigInteger base, BigInteger exponent) {
+        if (base == null || exponent == null || exponent.signum() < 0) {
+            return null;
+        }
+        if (base.abs().compareTo(BigInteger.ONE) <= 0) {
+            return exponent.signum() == 0 ? BigInteger.ONE
+                    : (exponent.testBit(0) ? base : base.abs());
+        }
+        if (exponent.bitLength() > Integer.SIZE - 1
+                || (long) base.bitLength() * exponent.longValue() > MAX_BITS) {
+            throw tooLarge(node);
+        }
+
+        return base.pow(exponent.intValue());
+    }
+
+    /**
+     * Checks the length of a list created by range with constant arguments.
+     */
+    private void checkRange(Call node, java.util.List<expr> args) {
+        BigInteger start = args.size() > 1 ? value(args.get(0)) : BigInteger.ZERO;
+        BigInteger stop = value(args.get(args.size() > 1 ? 1 : 0));
+        if (start != null && stop != null && args.size() <= 2
+                && stop.subtract(start).compareTo(BigInteger.valueOf(MAX_LENGTH)) > 0) {
+            throw tooLarge(node);
+        }
+    }
+
+    /**
+     * Returns the length of a constant sequence repeated by a constant count.
+     *
+     * @return The length or 0 if the expressions aren't constant.
+     */
+    private long repeatedLength(expr sequence, expr count) {
+        long length = sequenceLength(sequence);
+        BigInteger times = value(count);
+        if (length <= 0 || times == null || times.signum() <= 0) {
+            return 0;
+        }
+
+        BigInteger total = times.multiply(BigInteger.valueOf(length));
+        return total.bitLength() < Long.SIZE ? total.longValue() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the length of a string, list or tuple literal.
+     *
+     * @return The length or 0 if the expression isn't such a literal.
+     */
+    private long sequenceLength(expr node) {
+        if (node instanceof Str) {
+            return ((PyObject) ((Str) node).getInternalS()).__len__();
+        } else if (node instanceof List) {
+            return ((List) node).getInternalElts().size();
+        } else if (node instanceof Tuple) {
+            return ((Tuple) node).getInternalElts().size();
+        } else if (node instanceof BinOp && ((BinOp) node).getInternalOp() == operatorType.Mult) {
+            BinOp binOp = (BinOp) node;
+            return Math.max(repeatedLength(binOp.getInternalLeft(), binOp.getInternalRight()),
+                    repeatedLength(binOp.getInternalRight(), binOp.getInternalLeft()));
+        }
+
+        return 0;
+    }
+
+    private static RuntimeException tooLarge(PythonTree node) {
+        return Py.ValueError("The grade script computes a constant which is too large "
+                + "in line " + node.getLine());
+    }
+}
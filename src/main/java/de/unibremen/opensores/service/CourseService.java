@@ -8,11 +8,18 @@ import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.util.Constants;
 import de.unibremen.opensores.util.DateUtil;
+import org.hibernate.Hibernate;
 
 import javax.ejb.Stateless;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service class for the Course model class.
@@ -56,6 +63,26 @@ public class CourseService extends GenericService<Course> {
         return privUsers;
     }
 
+    /**
+     * Finds the ids of all users taking part in a course as student, tutor or
+     * lecturer, including deleted participations.
+     *
+     * @param course Course to look at.
+     * @return Set of user ids.
+     */
+    public Set<Long> findParticipantUserIds(Course course) {
+        Set<Long> userIds = new HashSet<>();
+        for (String entity : PARTICIPATIONS) {
+            userIds.addAll(em.createQuery(
+                    "SELECT p.user.userId FROM " + entity + " p "
+                    + "WHERE p.course.courseId = :id", Long.class)
+                .setParameter("id", course.getCourseId())
+                .getResultList());
+        }
+
+        return userIds;
+    }
+
     /**
      * Find course using the course name.
      *
@@ -191,62 +218,54 @@ public class CourseService extends GenericService<Course> {
     }
 
     /**
-     * Gets a list of Student participation types where the user is participating
-     * as a user and the lecturer is one of the lecturers of the courses.
-     * The course parameter will be excluded from this list.
-     * @param studentUser The user which other student relations of courses in which the lecturer
-     *             was one of the lecturer should be got.
+     * Gets the student relations of the given users in other courses of the
+     * lecturer, excluding the given course, for all users at once. Only
+     * confirmed and undeleted students of undeleted courses are returned.
+     * The gradings of the students and the exams of their courses are
+     * loaded with them, as grade formulas need both.
+     * @param studentUsers The users which other student relations should be got.
      * @param lecturerUser The user of this lecturer must be one of the lecturers
-     *                 of the other courses in which the student was participating in.
-     * @param excludingCourse This course is the course which should be exlucded
-     *                        from the result list.
-     * @return The List of Student relations of courses in which the user was
-     *          participating as student and the lecturer was one of the lecturers,
-     *          excluding one specified course.
+     *                 of the other courses.
+     * @param excludingCourse This course is excluded from the result.
+     * @return Map from the user ids to the other student relations of the user,
+     *         users without other relations are not contained.
      */
-    public List<Student> getOtherStudentsFromStudentAndLecturer(User studentUser, User lecturerUser,
-                                                                Course excludingCourse) {
-        return em.createQuery(
+    public Map<Long, List<Student>> getOtherStudentsFromStudentsAndLecturer(
+            Collection<User> studentUsers, User lecturerUser, Course excludingCourse) {
+        List<Long> ids = new ArrayList<>(studentUsers.size());
+        for (User user : studentUsers) {
+            ids.add(user.getUserId());
+        }
+
+        List<Student> rows = findInChunks(ids, chunk -> em.createQuery(
                 "SELECT s FROM Student s "
-                    + " JOIN s.course AS c"
+                    + " JOIN FETCH s.course AS c"
+                    + " LEFT JOIN FETCH s.gradings AS g"
+                    + " LEFT JOIN FETCH g.grade"
+                    + " LEFT JOIN FETCH g.exam"
                     + " JOIN c.lecturers AS l"
-                    + " WHERE s.user.userId = :userId"
+                    + " WHERE s.user.userId IN :userIds"
                     + " AND c.courseId != :courseId"
                     + " AND l.user.userId = :lUserId"
                     + " AND c.deleted = false"
                     + " AND s.isConfirmed = true"
                     + " AND s.isDeleted = false", Student.class)
-                .setParameter("userId", studentUser.getUserId())
+                .setParameter("userIds", chunk)
                 .setParameter("courseId", excludingCourse.getCourseId())
                 .setParameter("lUserId", lecturerUser.getUserId())
-                .getResultList();
-    }
-
-
-    /**
-     * Deletes the course with its associations.
-     * @param course The course which should be deleted with its associations.
-     * @return The
-     */
-    public Course deleteCourseWithAssociatons(Course course) {
-        course.setDeleted(true);
-        for (Student student: course.getStudents()) {
-            student.setDeleted(true);
-        }
+                .getResultList());
 
-        for (PrivilegedUser privilegedUser: course.getTutors()) {
-            privilegedUser.setDeleted(true);
+        Map<Long, List<Student>> others = new HashMap<>();
+        for (Student student : new LinkedHashSet<>(rows)) {
+            Hibernate.initialize(student.getCourse().getExams());
+            Long userId = student.getUser().getUserId();
+            others.computeIfAbsent(userId, id -> new ArrayList<>()).add(student);
         }
 
-        for (Lecturer lecturer: course.getLecturers()) {
-            lecturer.setDeleted(true);
-        }
-
-        course.setDeleted(true);
-        course.setCreated(DateUtil.tenYearsLater());
-        return update(course);
+        return others;
     }
 
+
     /**
      * Find privileged user for this course using an email.
      *
@@ -308,6 +327,59 @@ public class CourseService extends GenericService<Course> {
         return (privUsers.isEmpty()) ? null : privUsers.get(0);
     }
 
+    /**
+     * Finds the students of this course with the given emails, with one
+     * query per QUERY_CHUNK_SIZE emails.
+     *
+     * @param course Course to look at.
+     * @param emails Emails associated with the students.
+     * @return Students with these emails, their users are fetched.
+     */
+    public List<Student> findStudentsByEmail(Course course, Collection<String> emails) {
+        return findInChunks(emails, chunk -> em.createQuery(
+                "SELECT DISTINCT s FROM Student s"
+                + " JOIN FETCH s.user AS u"
+                + " WHERE s.course.courseId = :courseId"
+                + " AND u.email IN :emails", Student.class)
+            .setParameter("courseId", course.getCourseId())
+            .setParameter("emails", chunk)
+            .getResultList());
+    }
+
+    /**
+     * Finds the tutors of this course with the given emails, with one query
+     * per QUERY_CHUNK_SIZE emails.
+     *
+     * @param course Course to look at.
+     * @param emails Emails associated with the tutors.
+     * @return Tutors with these emails, their users are fetched.
+     */
+    public List<PrivilegedUser> findTutorsByEmail(Course course, Collection<String> emails) {
+        return findInChunks(emails, chunk -> em.createQuery(
+                "SELECT DISTINCT p FROM PrivilegedUser p"
+                + " JOIN FETCH p.user AS u"
+                + " WHERE p.course.courseId = :courseId"
+                + " AND p.isSecretary = false"
+                + " AND u.email IN :emails", PrivilegedUser.class)
+            .setParameter("courseId", course.getCourseId())
+            .setParameter("emails", chunk)
+            .getResultList());
+    }
+
+    /**
+     * Finds the courses with the given ids, with one query per
+     * QUERY_CHUNK_SIZE ids.
+     *
+     * @param courseIds Ids of the courses.
+     * @return Courses with these ids.
+     */
+    public List<Course> findCoursesById(Collection<Long> courseIds) {
+        return findInChunks(courseIds, chunk -> em.createQuery(
+                "SELECT c FROM Course c WHERE c.courseId IN :ids", Course.class)
+            .setParameter("ids", chunk)
+            .getResultList());
+    }
+
     /**
      * Returns list of students without a tutorial.
      *
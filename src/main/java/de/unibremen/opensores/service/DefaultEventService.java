@@ -0,0 +1,42 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.DefaultEvent;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Abstract class for the services of the events shown in a calendar.
+ *
+ * @param <T> The event class.
+ */
+public abstract class DefaultEventService<T extends DefaultEvent>
+        extends GenericService<T> {
+
+    /**
+     * Gets the events of an owner, e.g. a tutorial, which overlap the given
+     * time range. An event without an end date overlaps the range if it
+     * starts within the range.
+     * @param eventClass The class of the events.
+     * @param ownerId Path of the id of the owner in the event, e.g.
+     *                "tutorial.tutorialId".
+     * @param id The id of the owner.
+     * @param start The start of the range.
+     * @param end The end of the range, exclusive.
+     * @return The events overlapping the range, ordered by their start date.
+     */
+    protected List<T> findEventsBetween(Class<T> eventClass, String ownerId,
+                                        Long id, Date start, Date end) {
+        return em.createQuery(
+                "SELECT e FROM " + eventClass.getSimpleName() + " e"
+                + " WHERE e." + ownerId + " = :ownerId"
+                + " AND e.startDate < :end"
+                + " AND (e.endDate >= :start"
+                + " OR (e.endDate IS NULL AND e.startDate >= :start))"
+                + " ORDER BY e.startDate", eventClass)
+                .setParameter("ownerId", id)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList();
+    }
+}
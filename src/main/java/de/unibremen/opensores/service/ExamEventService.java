@@ -5,13 +5,14 @@ import de.unibremen.opensores.model.ExamEvent;
 import de.unibremen.opensores.model.Student;
 
 import javax.ejb.Stateless;
+import java.util.Date;
 import java.util.List;
 
 /**
  * Service class for database transactions related to Exam Events.
  */
 @Stateless
-public class ExamEventService extends GenericService<ExamEvent> {
+public class ExamEventService extends DefaultEventService<ExamEvent> {
 
     /**
      * Gets a list of students which have not registered to an exam event of this
@@ -31,4 +32,36 @@ public class ExamEventService extends GenericService<ExamEvent> {
                 .getResultList();
         return students;
     }
+
+    /**
+     * Gets the events of an exam which overlap the given time range, used for
+     * loading the visible range of the exam calendar.
+     * @param exam The exam of the events.
+     * @param start The start of the range.
+     * @param end The end of the range.
+     * @return The events overlapping the range, ordered by their start date.
+     */
+    public List<ExamEvent> findEventsBetween(Exam exam, Date start, Date end) {
+        return findEventsBetween(ExamEvent.class, "exam.examId",
+                exam.getExamId(), start, end);
+    }
+
+    /**
+     * Gets the event of an exam the student is examined in.
+     * @param exam The exam of the event.
+     * @param student The examined student.
+     * @return The event of the student or null if the student has none.
+     */
+    public ExamEvent findEventOfStudent(Exam exam, Student student) {
+        List<ExamEvent> events = em.createQuery(
+                "SELECT e FROM ExamEvent e"
+                + " JOIN e.examinedStudents s"
+                + " WHERE e.exam.examId = :examId"
+                + " AND s.studentId = :studentId", ExamEvent.class)
+                .setParameter("examId", exam.getExamId())
+                .setParameter("studentId", student.getStudentId())
+                .setMaxResults(1)
+                .getResultList();
+        return events.isEmpty() ? null : events.get(0);
+    }
 }
@@ -0,0 +1,230 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the students whose gradings changed and recomputes their final
+ * grades in the background. The queue is drained periodically (see
+ * ejb-jar.xml), so a student whose gradings change several times in between
+ * is graded only once. A participation type whose formula keeps failing
+ * is parked until its formula is changed.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class FinalGradeQueue {
+
+    private static Logger log = LogManager.getLogger(FinalGradeQueue.class);
+
+    /**
+     * FinalGradeService which recomputes the final grades.
+     */
+    @EJB
+    private FinalGradeService finalGradeService;
+
+    /**
+     * Ids of the students waiting for the recomputation.
+     */
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of failed recomputations in a row after which a participation
+     * type is parked.
+     */
+    private static final int MAX_FAILURES = 3;
+
+    /**
+     * Failed recomputations in a row by participation type id.
+     */
+    private final Map<Long, Integer> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Parked participation types by id.
+     */
+    private final Map<Long, Parked> parked = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the queue is being drained.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Adds students to the queue.
+     *
+     * @param studentIds Ids of the students whose gradings changed.
+     */
+    public void enqueue(Collection<Long> studentIds) {
+        pending.addAll(studentIds);
+    }
+
+    /**
+     * Used for the periodic recomputation, configured in ejb-jar.xml.
+     *
+     * @param timer The timer which triggered the recomputation.
+     */
+    public void scheduledRecompute(Timer timer) {
+        drain();
+    }
+
+    /**
+     * Recomputes the final grades of the queued students, one participation
+     * type after another. Does nothing if the queue is drained already, the
+     * students are left for the next run. Students whose recomputation
+     * failed are queued again, the students of parked participation types
+     * are kept until the formula of their type is changed.
+     *
+     * @return The number of changed final grades.
+     */
+    public int drain() {
+        if (pending.isEmpty() || !draining.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        try {
+            for (Iterator<Long> it = pending.iterator(); it.hasNext();) {
+                ids.add(it.next());
+                it.remove();
+            }
+
+            Map<Long, List<Long>> idsByType = finalGradeService.groupFormulaGraded(ids);
+            int changed = 0;
+            for (Map.Entry<Long, List<Long>> entry : idsByType.entrySet()) {
+                Set<Long> studentIds = unpark(entry.getKey(), entry.getValue());
+                if (studentIds != null) {
+                    changed += recompute(entry.getKey(), studentIds);
+                }
+            }
+
+            if (changed > 0) {
+                log.debug("Recomputed " + changed + " final grades of "
+                        + ids.size() + " changed students");
+            }
+            return changed;
+        } catch (RuntimeException e) {
+            log.error("Couldn't recompute the final grades", e);
+            pending.addAll(ids);
+            return 0;
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Returns the students of a participation type to recompute. If the
+     * type is parked and its formula is unchanged, the students are kept
+     * with the parked ones instead.
+     *
+     * @return The students, together with the formerly parked ones, or null
+     *         if the type is still parked.
+     */
+    private Set<Long> unpark(Long partTypeId, List<Long> studentIds) {
+        Set<Long> ids = new LinkedHashSet<>(studentIds);
+        Parked type = parked.get(partTypeId);
+        if (type == null) {
+            return ids;
+        }
+
+        if (type.formulaId.equals(finalGradeService.getLatestFormulaId(partTypeId))) {
+            type.studentIds.addAll(ids);
+            return null;
+        }
+
+        parked.remove(partTypeId);
+        ids.addAll(type.studentIds);
+        log.debug("The formula of participation type " + partTypeId
+                + " changed, its final grades are recomputed again");
+        return ids;
+    }
+
+    /**
+     * Recomputes the final grades of students of a participation type. If
+     * the formula failed, the students are queued again or the type is
+     * parked.
+     *
+     * @return The number of changed final grades.
+     */
+    private int recompute(Long partTypeId, Set<Long> studentIds) {
+        try {
+            int changed = finalGradeService.recompute(partTypeId, studentIds);
+            failures.remove(partTypeId);
+            return changed;
+        } catch (ScriptLimitException e) {
+            if (e.getLimit() == ScriptLimitException.Limit.CAPACITY) {
+                // The formula didn't run, so it hasn't failed.
+                pending.addAll(studentIds);
+                return 0;
+            }
+            failed(partTypeId, studentIds, "exceeded its limit " + e.getLimit());
+        } catch (RuntimeException e) {
+            failed(partTypeId, studentIds, "failed with " + e);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Queues the students of a failed recomputation again, or parks their
+     * participation type after MAX_FAILURES failures in a row.
+     */
+    private void failed(Long partTypeId, Set<Long> studentIds, String reason) {
+        int count = failures.merge(partTypeId, 1, Integer::sum);
+        if (count < MAX_FAILURES) {
+            log.debug("The formula of participation type " + partTypeId + " "
+                    + reason + " while recomputing final grades");
+            pending.addAll(studentIds);
+            return;
+        }
+
+        failures.remove(partTypeId);
+        Long formulaId = finalGradeService.getLatestFormulaId(partTypeId);
+        if (formulaId != null) {
+            Parked type = new Parked(formulaId);
+            type.studentIds.addAll(studentIds);
+            parked.put(partTypeId, type);
+        }
+        log.warn("The formula of participation type " + partTypeId + " "
+                + reason + " while recomputing final grades " + count
+                + " times, the final grades are recomputed once the formula"
+                + " is changed");
+    }
+
+    /**
+     * A participation type whose formula failed, with the students waiting
+     * for a new formula.
+     */
+    private static final class Parked {
+        /**
+         * Id of the failed formula.
+         */
+        private final Long formulaId;
+
+        /**
+         * Ids of the waiting students.
+         */
+        private final Set<Long> studentIds = new LinkedHashSet<>();
+
+        private Parked(Long formulaId) {
+            this.formulaId = formulaId;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException;
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.GradeFormula;
+import de.unibremen.opensores.model.Log;
+import de.unibremen.opensores.model.PaboGrade;
+import de.unibremen.opensores.model.ParticipationType;
+import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.util.Constants;
+import org.apache.commons.io.output.NullOutputStream;
+import org.hibernate.Hibernate;
+import org.python.core.PyException;
+import org.python.util.PythonInterpreter;
+
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Service recomputing the final grades of single students with the latest
+ * grade formula of their participation type, after their gradings changed.
+ * Final grades which were set by hand are kept.
+ */
+@Stateless
+public class FinalGradeService extends GenericService<Student> {
+
+    /**
+     * PythonService providing the interpreters and running the formulas.
+     */
+    @EJB
+    private PythonService pythonService;
+
+    /**
+     * CourseService for loading the students of other courses.
+     */
+    @EJB
+    private CourseService courseService;
+
+    /**
+     * StudentService for loading all students of a course.
+     */
+    @EJB
+    private StudentService studentService;
+
+    /**
+     * The LogService for creating Exmatrikulator business domain logs.
+     */
+    @EJB
+    private LogService logService;
+
+    /**
+     * Groups the students whose final grade was set by a formula by their
+     * participation type. As formulas get the grades of the other courses of
+     * a student, the other student relations of their users are contained
+     * as well.
+     * @param studentIds Ids of the students whose gradings changed.
+     * @return Ids of the formula graded students by the id of their
+     *         participation type.
+     */
+    public Map<Long, List<Long>> groupFormulaGraded(Collection<Long> studentIds) {
+        Map<Long, List<Long>> idsByType = new LinkedHashMap<>();
+        for (Student student : getFormulaGradedStudents(studentIds)) {
+            Long typeId = student.getParticipationType().getPartTypeId();
+            idsByType.computeIfAbsent(typeId, t -> new ArrayList<>())
+                    .add(student.getStudentId());
+        }
+        return idsByType;
+    }
+
+    /**
+     * Recomputes the final grades of students of a participation type in a
+     * transaction of its own. If the formula grades all students at once,
+     * all formula graded students of the participation type are graded
+     * again, as their grades may depend on each other. A final grade which
+     * was changed while the formula ran, e.g. set by hand, is kept.
+     * @param partTypeId Id of the participation type of the students.
+     * @param studentIds Ids of formula graded students of the type.
+     * @return Number of changed final grades.
+     * @throws ScriptLimitException If the formula exceeded its limits.
+     * @throws PyException If the formula failed.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int recompute(long partTypeId, Collection<Long> studentIds)
+            throws ScriptLimitException {
+        ParticipationType type = em.find(ParticipationType.class, partTypeId);
+        GradeFormula formula = type == null ? null : type.getLatestFormula();
+        if (formula == null || !formula.isValid()) {
+            return 0;
+        }
+
+        Course course = type.getCourse();
+        PythonInterpreter interpreter = pythonService.acquire();
+        interpreter.setOut(NullOutputStream.NULL_OUTPUT_STREAM);
+        interpreter.setErr(NullOutputStream.NULL_OUTPUT_STREAM);
+        GradeFormulaEvaluator evaluator = new GradeFormulaEvaluator(interpreter,
+                pythonService);
+        ScriptBudget execBudget = pythonService.createBudget();
+        ScriptBudget gradeBudget = pythonService.createBudget();
+        try {
+            evaluator.setUp();
+            final String source = formula.getFormula();
+            Callable<Boolean> exec = () -> execFormula(evaluator, source);
+            boolean batch = pythonService.execute(execBudget, exec);
+
+            final List<Student> graded = batch
+                    ? filterFormulaGraded(studentService
+                        .getUndeletedAndConfirmedStudentsOf(course).get(type))
+                    : getStudentsWithGradings(partTypeId, studentIds);
+            final Map<Long, List<Student>> otherStudents
+                    = loadOtherStudents(course, graded, formula.getEditor());
+            Callable<PaboGrade[]> grading = () -> evaluator.evaluate(course,
+                    graded, otherStudents);
+            PaboGrade[] grades = pythonService.execute(gradeBudget, grading);
+            if (grades == null) {
+                return 0;
+            }
+
+            int changed = 0;
+            for (int i = 0; i < graded.size(); i++) {
+                Student student = graded.get(i);
+                if (grades[i] != null
+                        && !grades[i].name().equals(student.getPaboGrade())
+                        && updateFinalGrade(student, grades[i], source)) {
+                    changed++;
+                }
+            }
+
+            if (changed > 0 && formula.getEditor() != null) {
+                logService.persist(Log.from(formula.getEditor(),
+                        course.getCourseId(), "recomputed the final grades of "
+                        + changed + " students of " + type.getName()
+                        + " after changed gradings"));
+            }
+            return changed;
+        } finally {
+            if (!execBudget.isCancelled() && !gradeBudget.isCancelled()) {
+                pythonService.release(interpreter);
+            }
+        }
+    }
+
+    /**
+     * Sets the final grade of a student, if it is still the one the formula
+     * was run with. The student is locked and reloaded first, so a final
+     * grade set in the meantime isn't overwritten. The formula is a CLOB,
+     * which Derby can't compare in a query, so the comparison is done here.
+     * @return Whether the final grade was set.
+     */
+    private boolean updateFinalGrade(Student student, PaboGrade grade,
+                                     String formula) {
+        String oldGrade = student.getPaboGrade();
+        String oldFormula = student.getPaboGradeFormula();
+        em.refresh(student, LockModeType.PESSIMISTIC_WRITE);
+        if (!Objects.equals(oldGrade, student.getPaboGrade())
+                || !Objects.equals(oldFormula, student.getPaboGradeFormula())) {
+            return false;
+        }
+
+        student.setPaboGrade(grade.name());
+        student.setPaboGradeFormula(formula);
+        return true;
+    }
+
+    /**
+     * Returns the id of the latest formula of a participation type.
+     * @param partTypeId Id of the participation type.
+     * @return The id or null if the type has no formula.
+     */
+    public Long getLatestFormulaId(long partTypeId) {
+        ParticipationType type = em.find(ParticipationType.class, partTypeId);
+        GradeFormula formula = type == null ? null : type.getLatestFormula();
+        return formula == null ? null : formula.getFormulaId();
+    }
+
+    /**
+     * Executes a formula and checks if it grades all students at once. Runs
+     * on the script threads.
+     */
+    private static boolean execFormula(GradeFormulaEvaluator evaluator,
+                                       String formula) {
+        evaluator.execFormula(formula);
+        return evaluator.isBatch();
+    }
+
+    /**
+     * Loads the other student relations of the students in the courses of
+     * the editor of the formula, who is the lecturer the formula was run by.
+     */
+    private Map<Long, List<Student>> loadOtherStudents(Course course,
+            List<Student> students, User editor) {
+        Hibernate.initialize(course.getExams());
+        if (editor == null) {
+            return new HashMap<>();
+        }
+
+        List<User> users = new ArrayList<>();
+        for (Student student : students) {
+            users.add(student.getUser());
+        }
+        return courseService.getOtherStudentsFromStudentsAndLecturer(users,
+                editor, course);
+    }
+
+    /**
+     * Gets the undeleted and confirmed students of the users of the given
+     * students, in all courses, whose final grade was set by a formula.
+     */
+    private List<Student> getFormulaGradedStudents(Collection<Long> studentIds) {
+        // Users with students in several chunks are found once per chunk.
+        List<Student> rows = findInChunks(studentIds, chunk -> em.createQuery(
+                "SELECT s FROM Student s"
+                + " JOIN FETCH s.user"
+                + " JOIN FETCH s.participationType"
+                + " JOIN FETCH s.course"
+                + " WHERE s.user.userId IN (SELECT c.user.userId"
+                + " FROM Student c WHERE c.studentId IN :ids)"
+                + " AND s.isConfirmed = true"
+                + " AND s.isDeleted = false"
+                + " AND s.paboGradeFormula IS NOT NULL", Student.class)
+                .setParameter("ids", chunk)
+                .getResultList());
+
+        return filterFormulaGraded(new ArrayList<>(new LinkedHashSet<>(rows)));
+    }
+
+    /**
+     * Gets the formula graded students with the given ids and the given
+     * participation type with everything the formula reads, so it doesn't
+     * load anything while it runs on the script threads.
+     */
+    private List<Student> getStudentsWithGradings(long partTypeId,
+                                                  Collection<Long> studentIds) {
+        // The fetched gradings repeat each student once per grading.
+        List<Student> rows = findInChunks(studentIds, chunk -> em.createQuery(
+                "SELECT s FROM Student s"
+                + " JOIN FETCH s.user"
+                + " JOIN FETCH s.participationType AS p"
+                + " JOIN FETCH s.course"
+                + " LEFT JOIN FETCH s.gradings AS g"
+                + " LEFT JOIN FETCH g.grade"
+                + " LEFT JOIN FETCH g.exam"
+                + " WHERE s.studentId IN :ids"
+                + " AND p.partTypeId = :partTypeId"
+                + " AND s.isConfirmed = true"
+                + " AND s.isDeleted = false", Student.class)
+                .setParameter("ids", chunk)
+                .setParameter("partTypeId", partTypeId)
+                .getResultList());
+
+        return filterFormulaGraded(new ArrayList<>(new LinkedHashSet<>(rows)));
+    }
+
+    /**
+     * Returns the students whose final grade was set by a formula, keeping
+     * their order.
+     */
+    private static List<Student> filterFormulaGraded(List<Student> students) {
+        List<Student> graded = new ArrayList<>();
+        if (students == null) {
+            return graded;
+        }
+
+        for (Student student : students) {
+            String formula = student.getPaboGradeFormula();
+            if (formula != null
+                    && !formula.startsWith(Constants.MANUAL_GRADE_FORMULA_PREFIX)) {
+                graded.add(student);
+            }
+        }
+        return graded;
+    }
+}
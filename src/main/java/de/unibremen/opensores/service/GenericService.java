@@ -4,8 +4,12 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * Abstract class for services.
@@ -14,6 +18,24 @@ import java.util.Iterator;
  * @author Sören Tempel
  */
 public abstract class GenericService<T> {
+    /**
+     * Number of entities inserted with a single statement, see
+     * hibernate.jdbc.batch_size in persistence.xml.
+     */
+    protected static final int BATCH_SIZE = 50;
+
+    /**
+     * Maximum number of values passed to a single IN parameter, see
+     * findInChunks.
+     */
+    protected static final int QUERY_CHUNK_SIZE = 500;
+
+    /**
+     * Names of the entities relating users to courses.
+     */
+    protected static final List<String> PARTICIPATIONS = Collections.unmodifiableList(
+            Arrays.asList("Student", "PrivilegedUser", "Lecturer"));
+
     @PersistenceContext
     protected EntityManager em;
 
@@ -29,6 +51,26 @@ public abstract class GenericService<T> {
         return entity;
     }
 
+    /**
+     * Persists the given new entities. The inserts are flushed in batches of
+     * BATCH_SIZE and the persistence context is cleared after each batch,
+     * so entities they reference have to be persisted already.
+     *
+     * @param entities Entities to be persisted.
+     * @return The persisted entities.
+     */
+    public List<T> persistAll(List<T> entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            em.persist(entities.get(i));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+
+        return entities;
+    }
+
     /**
      * Updates an entity from the database.
      * With em.update an entity, which is already in the database, gets updated
@@ -83,4 +125,41 @@ public abstract class GenericService<T> {
         return em.find(entityClass, primaryKey);
     }
 
+    /**
+     * Returns a reference to the managed copy of an entity, without loading
+     * it, so a detached entity can be assigned to a managed one.
+     *
+     * @param entityClass Class of the entity.
+     * @param entity Persisted entity or null.
+     * @param <E> Type of the entity.
+     * @return Reference to the managed entity or null if entity is null.
+     */
+    protected <E> E reference(Class<E> entityClass, E entity) {
+        if (entity == null) {
+            return null;
+        }
+
+        return em.getReference(entityClass, em.getEntityManagerFactory()
+                .getPersistenceUnitUtil().getIdentifier(entity));
+    }
+
+    /**
+     * Runs a query with an IN parameter once per QUERY_CHUNK_SIZE values,
+     * as the number of values in a single statement is limited.
+     *
+     * @param values Values of the IN parameter.
+     * @param query Runs the query with a chunk of the values.
+     * @return The results of all chunks, in the order of the chunks.
+     */
+    protected static <V, R> List<R> findInChunks(Collection<V> values,
+            Function<List<V>, List<R>> query) {
+        List<V> list = new ArrayList<>(values);
+        List<R> results = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += QUERY_CHUNK_SIZE) {
+            results.addAll(query.apply(list.subList(i,
+                    Math.min(i + QUERY_CHUNK_SIZE, list.size()))));
+        }
+
+        return results;
+    }
 }
@@ -0,0 +1,603 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.Exam;
+import de.unibremen.opensores.model.Grade;
+import de.unibremen.opensores.model.GradeType;
+import de.unibremen.opensores.model.Grading;
+import de.unibremen.opensores.model.PaboGrade;
+import de.unibremen.opensores.model.Semester;
+import de.unibremen.opensores.model.Student;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.python.core.Py;
+import org.python.core.PyBoolean;
+import org.python.core.PyDictionary;
+import org.python.core.PyException;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PySystemState;
+import org.python.core.PyTuple;
+import org.python.util.PythonInterpreter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates grade formulas with a python interpreter. The formula is
+ * executed first and defines set_final_grade or set_final_grades, which is
+ * then called with the grades of the students converted to python objects.
+ * Used by the GradeScriptController to test formulas and by the
+ * FinalGradeService to recompute final grades after grades have changed.
+ * Callers should run the evaluation with PythonService.execute, since the
+ * formulas are written by lecturers.
+ */
+public class GradeFormulaEvaluator {
+
+    private static Logger log = LogManager.getLogger(GradeFormulaEvaluator.class);
+
+    /**
+     * The class name of the decimal object representing BigDecimals in Python.
+     * See http://www.jython.org/docs/library/decimal.html
+     */
+    private static final String PY_DECIMAL_CLASS_NAME = "Decimal";
+
+    /**
+     * The number of numbers decimal places in the python environment.
+     */
+    private static final int PY_DECIMAL_PRECISION = 1000;
+
+    /**
+     * Path to the model directory, must be loaded in the namespace
+     * of the python interpreter.
+     */
+    private static final String PATH_MODEL
+            = "src/main/java/de/unibremen/opensores/model";
+
+    /**
+     * The keys of student infos in the student dict.
+     */
+    private static final String KEY_STUDENT_INFO_FIRST_NAME = "first_name";
+    private static final String KEY_STUDENT_INFO_LAST_NAME = "last_name";
+    private static final String KEY_STUDENT_INFO_EMAIL = "email";
+    private static final String KEY_STUDENT_INFO_MATR = "matriculation";
+    private static final String KEY_STUDENT_INFO_PART_TYPE = "part_type";
+    /**
+     * The imports which get executed after resetting the locals before a script
+     * gets executed.
+     */
+    private static final String[] PY_IMPORTS = {
+        "import de.unibremen.opensores.model.PaboGrade as PaboGrade",
+        "from decimal import *",
+        "import inspect",
+        "import sys",
+        "import json",
+        "import codecs"
+    };
+
+    /**
+     * Sets up the precision in the python environment.
+     */
+    private static final String PY_SET_DECIMAL_PRECISION =
+            "getcontext().prec = " + PY_DECIMAL_PRECISION;
+
+
+    /**
+     * Sets the encoding of the stout to utf8.
+     */
+    private static final String PY_SET_UTF_8_TO_STDOUT_STDERR =
+            "\nsys.stdout = codecs.getwriter('utf8')(sys.stdout)\n"
+                    + "sys.stderr = codecs.getwriter('utf8')(sys.stderr)\n";
+
+
+    /**
+     * An array of protected local fields which should not be set to null when
+     * the python interpreter gets reset.
+     */
+    private static final String[] PY_PROTECTED_LOCALS = {
+        "__name__", "__builtins__", "__doc__", "__package__", "sys"
+    };
+
+
+    /**
+     * The name of the method which is used to grade students.
+     */
+    public static final String PY_GRADE_METHOD_NAME = "set_final_grade";
+
+    /**
+     * The name of the optional method which grades all students of a
+     * participation type in one call.
+     */
+    public static final String PY_BATCH_GRADE_METHOD_NAME = "set_final_grades";
+
+    /**
+     * Python method which checks if a method has been supplied with exactly
+     * three arguments. Takes the parameter dir which is a list the names of
+     * the local namespace. Format argument is the name of the method.
+     */
+    private static final String PY_INIT_CHECK_METHOD_FORMAT =
+            "%ndef check_%1$s_method(dir):%n"
+                    + "    return \"%1$s\" in dir and "
+                    + "len(inspect.getargspec(%1$s)[0]) == 3%n";
+
+    /**
+     * Python method which checks if the method for setting final grades
+     * "set_final_grade" has been supplied with exactly three arguments.
+     */
+    private static final String PY_INIT_CHECK_SET_FINAL_GRADE_METHOD =
+            String.format(PY_INIT_CHECK_METHOD_FORMAT, PY_GRADE_METHOD_NAME);
+
+    /**
+     * Python method which checks if the batch method "set_final_grades" has
+     * been supplied with exactly three arguments.
+     */
+    private static final String PY_INIT_CHECK_SET_FINAL_GRADES_METHOD =
+            String.format(PY_INIT_CHECK_METHOD_FORMAT, PY_BATCH_GRADE_METHOD_NAME);
+
+    /**
+     * Calls the method check_set_final_grade_method too check if the method
+     * which is called to set the grades is in the namespace and takes three arguments
+     * Returns a PyBoolean which is true if the method exists and takes one
+     * parameter and false otherwise.
+     */
+    private static final String PY_CALL_CHECK_SET_FINAL_GRADE_METHOD =
+            String.format("check_%s_method(dir())", PY_GRADE_METHOD_NAME);
+
+    /**
+     * Calls the method check_set_final_grades_method to check if the batch
+     * method is in the namespace and takes three arguments.
+     */
+    private static final String PY_CALL_CHECK_SET_FINAL_GRADES_METHOD =
+            String.format("check_%s_method(dir())", PY_BATCH_GRADE_METHOD_NAME);
+
+    /**
+     * Python variable name of a list of pyTuple of student arguments.
+     */
+    private static final String PY_VAR_STUDENT_ARGS_LIST = "student_args_list";
+
+    /**
+     * Python variable name of the dict from the exam shortcuts to the lists
+     * of the grades of all students.
+     */
+    private static final String PY_VAR_GRADE_COLUMNS = "grade_columns";
+
+    /**
+     * Python variable name of the list of the student info dicts.
+     */
+    private static final String PY_VAR_STUDENT_INFOS = "student_infos";
+
+    /**
+     * Python variable name of the list of the other grades dicts.
+     */
+    private static final String PY_VAR_OTHER_GRADES = "other_grades";
+
+    /**
+     * Python variable name of the list of returned final grades.
+     */
+    private static final String PY_VAR_FINAL_GRADES = "final_grades";
+
+    /**
+     * Name of a single python tuple representing the method arguments of a student.
+     */
+    private static final String PY_VAR_STUDENT_ARG = "student_arg";
+
+    /**
+     * Executes set_final_grade for every student object and collects the
+     * results in a list.
+     */
+    private static final String PY_EXEC_SET_FINAL_GRADES
+            = String.format("%s = [%s(*%s) for %3$s in %s]",
+            PY_VAR_FINAL_GRADES, PY_GRADE_METHOD_NAME, PY_VAR_STUDENT_ARG,
+            PY_VAR_STUDENT_ARGS_LIST);
+
+    /**
+     * Executes set_final_grades once with the grades of all students.
+     */
+    private static final String PY_EXEC_SET_FINAL_GRADES_BATCH
+            = String.format("%s = list(%s(%s, %s, %s))",
+            PY_VAR_FINAL_GRADES, PY_BATCH_GRADE_METHOD_NAME, PY_VAR_GRADE_COLUMNS,
+            PY_VAR_STUDENT_INFOS, PY_VAR_OTHER_GRADES);
+
+
+    /**
+     * The python interpreter the formulas are executed with.
+     */
+    private final PythonInterpreter pyInterpreter;
+
+    /**
+     * PythonService compiling the formulas.
+     */
+    private final PythonService pythonService;
+
+    /**
+     * The Decimal class of the interpreter while the grade method is evaluated.
+     */
+    private PyObject pyDecimalClass;
+
+    /**
+     * The python decimals of the grade values converted while the grade method
+     * is evaluated, by their values.
+     */
+    private final Map<BigDecimal, PyObject> pyDecimals = new HashMap<>();
+
+    /**
+     * Creates an evaluator using the given interpreter.
+     * @param pyInterpreter The interpreter, used by this evaluator only.
+     * @param pythonService The PythonService compiling the formulas.
+     */
+    public GradeFormulaEvaluator(PythonInterpreter pyInterpreter,
+                                 PythonService pythonService) {
+        this.pyInterpreter = pyInterpreter;
+        this.pythonService = pythonService;
+    }
+
+    /**
+     * Prepares the interpreter. Adds the model directory to the python path,
+     * imports the PaboGrade Enum class and the other modules available to the
+     * formulas and sets the encoding of the output, which has to be set before.
+     */
+    public void setUp() {
+        PySystemState sys = pyInterpreter.getSystemState();
+        PyString modelPath = new PyString(PATH_MODEL);
+        if (!sys.path.contains(modelPath)) {
+            sys.path.append(modelPath);
+        }
+        execPySetup();
+        pyInterpreter.exec(PY_SET_UTF_8_TO_STDOUT_STDERR);
+    }
+
+    /**
+     * Resets the interpreter and executes a formula, which defines the grade
+     * methods.
+     * @param formula The source of the formula.
+     * @throws PyException If the formula isn't valid python or raised an error.
+     */
+    public void execFormula(String formula) {
+        pyInterpreter.cleanup();
+        resetPyInterpreterLocals();
+        pyInterpreter.exec(pythonService.compile(formula));
+    }
+
+    /**
+     * Checks if the executed formula grades all students at once.
+     * @return True if the formula defines set_final_grades with three arguments.
+     */
+    public boolean isBatch() {
+        return isPyMethodSet(PY_CALL_CHECK_SET_FINAL_GRADES_METHOD);
+    }
+
+    /**
+     * Executes python strings for imports, settings in the environment.
+     */
+    private void execPySetup() {
+        for (String importStr: PY_IMPORTS) {
+            pyInterpreter.exec(importStr);
+        }
+        pyInterpreter.exec(PY_SET_DECIMAL_PRECISION);
+        pyInterpreter.exec(PY_INIT_CHECK_SET_FINAL_GRADE_METHOD);
+        pyInterpreter.exec(PY_INIT_CHECK_SET_FINAL_GRADES_METHOD);
+    }
+
+    /**
+     * Calls the grade method of the executed script for the students.
+     * If the script defines set_final_grades, it is called once with a
+     * dictionary from the exam shortcuts to lists of the grades of all
+     * students, the list of the student infos and the list of the other
+     * grades of the students, and returns the final grades as one list in the
+     * order of the students. Otherwise set_final_grade is called for each
+     * student with the three dictionaries of the student. The formula has to
+     * be executed before.
+     * @param course The course of the students.
+     * @param students The students which should be graded.
+     * @param otherStudents The other student relations by user id, see
+     *                      CourseService.getOtherStudentsFromStudentsAndLecturer.
+     * @return The PaboGrades returned for the students in the order of the
+     *         list, null for every student without a valid result, or null
+     *         if the script defines none of the grade methods with three
+     *         arguments.
+     * @throws PyException If the script raises an error while grading.
+     */
+    public PaboGrade[] evaluate(Course course, List<Student> students,
+                                Map<Long, List<Student>> otherStudents) {
+        boolean batch = isPyMethodSet(PY_CALL_CHECK_SET_FINAL_GRADES_METHOD);
+        if (!batch && !isPyMethodSet(PY_CALL_CHECK_SET_FINAL_GRADE_METHOD)) {
+            return null;
+        }
+
+        pyDecimalClass = pyInterpreter.get(PY_DECIMAL_CLASS_NAME);
+        try {
+            PyObject[] studentInfos = new PyObject[students.size()];
+            PyObject[] otherGrades = new PyObject[students.size()];
+            for (int i = 0; i < students.size(); i++) {
+                Student student = students.get(i);
+                List<Student> others = otherStudents.get(student.getUser().getUserId());
+                studentInfos[i] = createStudentInfoDict(student);
+                otherGrades[i] = createOtherStudentGradesDict(course,
+                        others == null ? new ArrayList<>() : others);
+            }
+
+            if (batch) {
+                pyInterpreter.set(PY_VAR_GRADE_COLUMNS,
+                        createPyGradeColumns(course.getExams(), students));
+                pyInterpreter.set(PY_VAR_STUDENT_INFOS, new PyList(studentInfos));
+                pyInterpreter.set(PY_VAR_OTHER_GRADES, new PyList(otherGrades));
+                pyInterpreter.exec(pythonService.compile(PY_EXEC_SET_FINAL_GRADES_BATCH));
+            } else {
+                PyObject[] studentArgs = new PyObject[students.size()];
+                for (int i = 0; i < students.size(); i++) {
+                    studentArgs[i] = new PyTuple(
+                            createPyGradeDict(course.getExams(), students.get(i)),
+                            studentInfos[i], otherGrades[i]);
+                }
+                pyInterpreter.set(PY_VAR_STUDENT_ARGS_LIST, new PyList(studentArgs));
+                pyInterpreter.exec(pythonService.compile(PY_EXEC_SET_FINAL_GRADES));
+            }
+        } finally {
+            pyDecimalClass = null;
+            pyDecimals.clear();
+        }
+
+        PaboGrade[] finalGrades = new PaboGrade[students.size()];
+        PyObject result = pyInterpreter.get(PY_VAR_FINAL_GRADES);
+        if (result instanceof PyList) {
+            PyList resultList = (PyList) result;
+            for (int i = 0; i < Math.min(finalGrades.length, resultList.size()); i++) {
+                Object paboGradeObj = resultList.__getitem__(i).__tojava__(PaboGrade.class);
+                if (paboGradeObj instanceof PaboGrade) {
+                    finalGrades[i] = (PaboGrade) paboGradeObj;
+                }
+            }
+        }
+
+        return finalGrades;
+    }
+
+    /**
+     * Checks if the executed script defines a grade method with three arguments.
+     * @param checkCall The python call of the check method of the grade method.
+     * @return True if the method is defined, false otherwise or if the check
+     *         failed.
+     */
+    private boolean isPyMethodSet(String checkCall) {
+        try {
+            PyObject methodSet = pyInterpreter.eval(checkCall);
+            return methodSet instanceof PyBoolean && ((PyBoolean) methodSet).getBooleanValue();
+        } catch (PyException e) {
+            log.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Sets up a python dictionary from the shortcuts of the exams to lists of
+     * the grades of all students in the order of the students. The grades are
+     * converted like in createPyGradeDict.
+     * @param exams The list of exams which should be included in the dict.
+     * @param students The students which gradings should be put in the lists.
+     * @return The Python dictionary of the exam shortcuts.
+     */
+    private PyDictionary createPyGradeColumns(List<Exam> exams, List<Student> students) {
+        PyDictionary pyGradeColumns = new PyDictionary();
+        for (Exam exam: exams) {
+            PyObject[] column = new PyObject[students.size()];
+            for (int i = 0; i < students.size(); i++) {
+                Grading grading = students.get(i).getGradingFromExam(exam);
+                column[i] = gradeValueToPyObject((grading == null) ? null : grading.getGrade());
+            }
+            pyGradeColumns.put(new PyString(exam.getShortcut()), new PyList(column));
+        }
+        return pyGradeColumns;
+    }
+
+    /**
+     * Sets up a python dictionary of the students gradings of the exams.
+     * The shortcut of a exam of the grading gets put as key of the dictionary,
+     * the value of the grade of the grading gets put as value depending of
+     * the grade type(see gradeValueToPyObject).
+     * @param exams The list of exams for which should be included in the grade dict.
+     * @param student The student which gradings should be put in the dict.
+     * @return The Python dictionary of the exam shortcuts.
+     */
+    private PyDictionary createPyGradeDict(List<Exam> exams, Student student) {
+        PyDictionary pyGradeDict = new PyDictionary();
+        for (Exam exam: exams) {
+            Grading grading = student.getGradingFromExam(exam);
+            pyGradeDict.put(new PyString(exam.getShortcut()),
+                    gradeValueToPyObject((grading == null) ? null : grading.getGrade()));
+        }
+        return pyGradeDict;
+    }
+
+    /**
+     * Converts a grade value of the exmatrikulator system in a python representation
+     * depending of the gradeType and value of the grade. The following mappings
+     * take place:
+     *  * GradeType.Boolean will be represented as PyBoolean
+     *    for passed(true)
+     *    / not passed(false)
+     *    / none if the error doesnt represent a boolean.
+     *  * GradeType.Numeric and GradeType.Percent will be represented as python
+     *    Decimals with the numeric or percent values.
+     *  * GradeType.Point will be represented as tuple of the reached and max
+     *    points.
+     *  * If the grade has no value (no grade has been given): The grade will be None.
+     * @param grade The grade object representing the grade object.
+     * @return The Python object representation of the grade value.
+     */
+    private PyObject gradeValueToPyObject(Grade grade) {
+        if (grade == null || grade.getValue() == null) {
+            return Py.None;
+        }
+        if (GradeType.Boolean.getId().equals(grade.getGradeType())) {
+            return booleanGradeToPyBoolean(grade);
+        } else if (GradeType.Numeric.getId().equals(grade.getGradeType())
+                || GradeType.Percent.getId().equals(grade.getGradeType())) {
+            return pyDecimalFromBigDecimal(grade.getValue());
+        } else if (GradeType.Point.getId().equals(grade.getGradeType())) {
+            return pyTupleFromPointGrade(grade);
+        } else {
+            throw new IllegalStateException(
+                    "Grade was not a Boolean, Numeric nor PointGrade");
+        }
+    }
+
+    /**
+     * Converts a grade of the type boolean grade to a Python Boolean object.
+     * @param grade A grade of the type GradeType.Boolean. It must have as value
+     *              either "0" for not passed or "1" for passed.
+     *              If the gradeType is not a boolean grade or the value of the
+     *              grade does not match, an None gets returned;
+     * @return A PyBoolean which is true if the grade has a value of 1, or false
+     *         if the grade has a value of 0.
+     */
+    private PyObject booleanGradeToPyBoolean(Grade grade) {
+        if (grade.getValue().compareTo(BigDecimal.ONE) == 0) {
+            return Py.True;
+        } else if (grade.getValue().compareTo(BigDecimal.ZERO) == 0) {
+            return Py.False;
+        } else {
+            log.error("Grade had a GradeType of boolean, but didnt have the right values");
+            return Py.None;
+        }
+    }
+
+    /**
+     * Creates a python decimal object from a java BigDecimal object.
+     * Python decimals are immutable, so every value is converted only once
+     * during an evaluation of the grade method.
+     * @param bigDecimal The BigDecimal object from which the python decimal
+     *                   object should be created from.
+     * @return A pyObject representing the python decimal.
+     */
+    private PyObject pyDecimalFromBigDecimal(BigDecimal bigDecimal) {
+        PyObject pyDecimal = pyDecimals.get(bigDecimal);
+        if (pyDecimal == null) {
+            PyObject decimalClass = pyDecimalClass == null
+                    ? pyInterpreter.get(PY_DECIMAL_CLASS_NAME) : pyDecimalClass;
+            pyDecimal = decimalClass.__call__(new PyString(bigDecimal.toString()));
+            pyDecimals.put(bigDecimal, pyDecimal);
+        }
+        return pyDecimal;
+    }
+
+    /**
+     * Creates a python tuple from a point grade representing the reached and
+     * max points of the grade. The first part of the tuple are the reached points,
+     * the second part are the maximal points of the exam. Both points are
+     * represented as python decimals.
+     * @param grade The grade with type PointGrade with which the
+     * @return A tuple representing the reached points and the maximal points
+     *         of the grade.
+     */
+    private PyTuple pyTupleFromPointGrade(Grade grade) {
+        return new PyTuple(pyDecimalFromBigDecimal(grade.getValue()),
+                pyDecimalFromBigDecimal(grade.getMaxPoints()));
+    }
+
+    /**
+     * Creates a PyDictionary about infos about the student. The infos and their
+     * stored keys
+     * first_name: FirstName of the student
+     * last_name: LastName of the student
+     * email: email of the student
+     * matriculation: Matriculation number of the student.
+     * part_type: participation type of the student.
+     * @param student The student which infos should be put in the py Dict.
+     * @return The PyDict with student infos.
+     */
+    private PyDictionary createStudentInfoDict(Student student) {
+        log.debug("createStudentInfoDict called with student " + student.getUser());
+        PyDictionary studentDict = new PyDictionary();
+
+        studentDict.put(new PyString(KEY_STUDENT_INFO_MATR),
+                student.getUser().getMatriculationNumber() == null
+                        ? new PyString("")
+                        : new PyString(student.getUser().getMatriculationNumber()));
+
+        studentDict.put(new PyString(KEY_STUDENT_INFO_FIRST_NAME),
+                new PyString(student.getUser().getFirstName()));
+        studentDict.put(new PyString(KEY_STUDENT_INFO_LAST_NAME),
+                new PyString(student.getUser().getLastName()));
+        studentDict.put(new PyString(KEY_STUDENT_INFO_EMAIL),
+                new PyString(student.getUser().getEmail()));
+        studentDict.put(new PyString(KEY_STUDENT_INFO_PART_TYPE),
+                new PyString(student.getParticipationType().getName()));
+
+
+        return studentDict;
+    }
+
+    /**
+     * Creates a python dictionary of the other student relations of a student
+     * in which the currently logged in user is lecturer.
+     * The dictionary has as the first index the semester in which the courses were
+     * located, which points to a dictionary of courses during this semester.
+     * This dictionary uses the shortcut of a course to get a grade dictionary
+     * of the student in that course.
+     * @param course The course which is excluded from the dictionary.
+     * @param otherStudentRelations The other student relations which should create
+     *                            the Python Dictionary
+     * @return The python dictionary with other grades indexed by semester
+     *         and course shortcut.
+     */
+    private PyDictionary createOtherStudentGradesDict(Course course,
+                                                      List<Student> otherStudentRelations) {
+        List<Semester> semesters = new ArrayList<>();
+        PyDictionary semesterDict = new PyDictionary();
+
+        for (Student otherStudent: otherStudentRelations) {
+            Semester semester = otherStudent.getCourse().getSemester();
+
+            if (!semesters.contains(semester)) {
+                semesters.add(otherStudent.getCourse().getSemester());
+                semesterDict.put(new PyString(semester.toString()), new PyDictionary());
+            }
+
+            if (!otherStudent.getCourse().equals(course)) {
+                PyDictionary courseDict = (PyDictionary)
+                        semesterDict.get(new PyString(semester.toString()));
+
+                courseDict.put(new PyString(otherStudent.getCourse().getIdentifier()),
+                        createPyGradeDict(otherStudent.getCourse().getExams(), otherStudent));
+            }
+        }
+
+        return semesterDict;
+    }
+
+    /**
+     * Resets the python interpreter locales which got imported while running
+     * a grade script.
+     */
+    private void resetPyInterpreterLocals() {
+        List<String> scriptLocals = new ArrayList<>();
+        PyObject locals = pyInterpreter.getLocals();
+        for (PyObject item : locals.__iter__().asIterable()) {
+            scriptLocals.add(item.toString());
+        }
+        for (String local : scriptLocals) {
+            if (!isProtectedPyLocal(local)) {
+                pyInterpreter.set(local, null);
+            }
+        }
+        execPySetup();
+    }
+
+    /**
+     * Checks if a string of the name of a local is of a protected local.
+     * @param local The string of a python local.
+     * @return True if the string local is a protected local, false otherwise.
+     */
+    private boolean isProtectedPyLocal(String local) {
+        for (String protectedLocal: PY_PROTECTED_LOCALS) {
+            if (protectedLocal.equals(local)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -13,13 +13,22 @@ import de.unibremen.opensores.model.PaboGrade;
 import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.util.Constants;
+import de.unibremen.opensores.util.TransactionHooks;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.NoResultException;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -56,6 +65,18 @@ public class GradingService extends GenericService<Grading> {
     @EJB
     private LogService logService;
 
+    /**
+     * FinalGradeQueue for recomputing the final grades of graded students.
+     */
+    @EJB
+    private FinalGradeQueue finalGradeQueue;
+
+    /**
+     * Registry for queueing the recomputation after the commit.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
     /**
      * Lists all gradings of the GRADINGS table.
      * @return List of all gradings or an empty list if no gradings were found.
@@ -218,6 +239,65 @@ public class GradingService extends GenericService<Grading> {
         return m;
     }
 
+    /**
+     * Returns the gradings of all students a corrector may see in a course,
+     * indexed by student id and exam id. Lecturers get the gradings of every
+     * confirmed student, tutors only those of their tutorial students. The
+     * grades, exams and students are fetched along with the gradings so the
+     * whole grading table can be rendered without a query per student.
+     * @param course Course to load the gradings for
+     * @param corrector Corrector who wants to see the gradings
+     * @return Map from student id to a map from exam id to grading; students
+     *         without any gradings are not contained
+     */
+    public Map<Long, Map<Long, Grading>> getGradingMatrix(Course course,
+                                                         User corrector) {
+        List<Grading> gradings;
+
+        if (userService.hasCourseRole(corrector, "LECTURER", course)) {
+            gradings = em.createQuery("SELECT g "
+                            + "FROM Grading g "
+                            + "JOIN FETCH g.grade "
+                            + "JOIN FETCH g.exam "
+                            + "JOIN FETCH g.student AS s "
+                            + "JOIN FETCH s.user "
+                            + "WHERE s.course.courseId = :courseId "
+                            + "AND s.isConfirmed = true",
+                        Grading.class)
+                    .setParameter("courseId", course.getCourseId())
+                    .getResultList();
+        } else {
+            gradings = em.createQuery("SELECT g "
+                            + "FROM Grading g "
+                            + "JOIN FETCH g.grade "
+                            + "JOIN FETCH g.exam "
+                            + "JOIN FETCH g.student AS s "
+                            + "JOIN FETCH s.user "
+                            + "JOIN s.tutorial.tutors AS t "
+                            + "WHERE s.course.courseId = :courseId "
+                            + "AND s.isConfirmed = true "
+                            + "AND t.user.userId = :correctorId",
+                        Grading.class)
+                    .setParameter("courseId", course.getCourseId())
+                    .setParameter("correctorId", corrector.getUserId())
+                    .getResultList();
+        }
+
+        Map<Long, Map<Long, Grading>> matrix = new HashMap<>();
+        for (Grading g : gradings) {
+            Long studentId = g.getStudent().getStudentId();
+            Map<Long, Grading> m = matrix.get(studentId);
+
+            if (m == null) {
+                m = new HashMap<>();
+                matrix.put(studentId, m);
+            }
+            m.put(g.getExam().getExamId(), g);
+        }
+
+        return matrix;
+    }
+
     /**
      * Searches for a student via the name, email or matriculation number.
      * @param course Course to search in
@@ -303,7 +383,7 @@ public class GradingService extends GenericService<Grading> {
         /*
         Change the formula so the student knows it wasn't used for him/her.
          */
-        student.setPaboGradeFormula("Manually set by "
+        student.setPaboGradeFormula(Constants.MANUAL_GRADE_FORMULA_PREFIX
                 + corrector.getFirstName() + " "
                 + corrector.getLastName());
 
@@ -348,6 +428,7 @@ public class GradingService extends GenericService<Grading> {
 
         logService.persist(Log.from(corrector,
                 student.getCourse().getCourseId(), description));
+        recomputeFinalGrades(Collections.singletonList(student.getStudentId()));
     }
 
     /**
@@ -386,6 +467,7 @@ public class GradingService extends GenericService<Grading> {
 
         logService.persist(Log.from(corrector,
                 student.getCourse().getCourseId(), description));
+        recomputeFinalGrades(Collections.singletonList(student.getStudentId()));
     }
 
     /**
@@ -566,40 +648,282 @@ public class GradingService extends GenericService<Grading> {
             throw new IllegalAccessException("NOT_GRADABLE");
         }
         /*
-        Check if there is already a grading for any of the students
+        Store the gradings of all students of the group at once
          */
-        List<Student> students = group.getStudents();
-        Map<Student, Grading> gradings = new HashMap<>();
+        Map<Student, BigDecimal> values = new LinkedHashMap<>();
+        for (Student s : group.getStudents()) {
+            values.put(s, value);
+        }
 
-        for (Student s : students) {
-            Grading grading = this.getGrading(s, exam);
+        this.persistGrades(course, corrector, exam, values, privateComment,
+                publicComment, overwrite);
+    }
 
-            if (grading != null && !overwrite) {
-                throw new AlreadyGradedException();
-            } else {
-                gradings.put(s, grading);
+    /**
+     * Stores the grades of many students for a single exam, e.g. from an
+     * uploaded CSV file.
+     * @param course Course that contains the exam and students
+     * @param corrector User who entered the grades
+     * @param exam Exam to grade
+     * @param values Grading values by student
+     * @param privateComment Private comment
+     * @param publicComment Public comment
+     * @param overwrite Flag if existing grades shall be overwritten
+     * @return Number of stored gradings
+     * @throws IllegalAccessException Thrown if user may not grade one of
+     *                                the students
+     * @throws InvalidGradeException Thrown if one of the values is invalid
+     * @throws AlreadyGradedException Thrown if one of the students is
+     *                                already graded and overwrite isn't set
+     */
+    public int storeGrades(final Course course, final User corrector,
+                           final Exam exam, final Map<Student, BigDecimal> values,
+                           final String privateComment,
+                           final String publicComment, final boolean overwrite)
+            throws IllegalAccessException, InvalidGradeException,
+            AlreadyGradedException {
+        /*
+        Check if the user is a lecturer or tutors
+         */
+        boolean lecturer = userService.hasCourseRole(corrector, "LECTURER", course);
+        if (!lecturer && !userService.hasCourseRole(corrector,
+                "PRIVILEGED_USER", course)) {
+            throw new IllegalAccessException("NO_ACCESS");
+        }
+        /*
+        If the user is a tutor, check if he may grade all students
+         */
+        if (!lecturer) {
+            if (!exam.isGradableByTutors()) {
+                throw new IllegalAccessException("NOT_GRADABLE");
+            }
+
+            for (Student s : values.keySet()) {
+                if (s.getTutorial() == null || !this.mayGrade(corrector, s)) {
+                    throw new IllegalAccessException("NOT_GRADABLE");
+                }
             }
         }
+
+        return this.persistGrades(course, corrector, exam, values,
+                privateComment, publicComment, overwrite);
+    }
+
+    /**
+     * Stores the grades of many students for a single exam. Existing
+     * gradings are loaded with a few queries, new and changed gradings are
+     * written in JDBC batches and a single log entry is created for all of
+     * them. The permissions of the corrector have to be checked before.
+     * @param course Course that contains the exam and students
+     * @param corrector User who entered the grades
+     * @param exam Exam to grade
+     * @param values Grading values by student
+     * @param privateComment Private comment
+     * @param publicComment Public comment
+     * @param overwrite Flag if existing grades shall be overwritten
+     * @return Number of stored gradings
+     * @throws InvalidGradeException Thrown if one of the values is invalid
+     * @throws AlreadyGradedException Thrown if one of the students is
+     *                                already graded and overwrite isn't set
+     */
+    private int persistGrades(Course course, User corrector, Exam exam,
+                              Map<Student, BigDecimal> values,
+                              String privateComment, String publicComment,
+                              boolean overwrite)
+            throws InvalidGradeException, AlreadyGradedException {
         /*
-        Check if the grading is valid
+        Check if the gradings are valid
          */
-        if (!exam.isValidGrading(value)) {
-            throw new InvalidGradeException("INVALID_GRADE");
+        for (BigDecimal value : values.values()) {
+            if (!exam.isValidGrading(value)) {
+                throw new InvalidGradeException("INVALID_GRADE");
+            }
         }
         /*
-        Store the grading
+        Check if there is already a grading for any of the students
          */
-        for (Student s : students) {
-            Grading grading = gradings.get(s);
+        Map<Long, Grading> gradings = this.getGradings(exam, values.keySet());
+        if (!overwrite && !gradings.isEmpty()) {
+            throw new AlreadyGradedException();
+        }
+        /*
+        Store the gradings, the inserts and updates are flushed in batches
+         */
+        int added = 0;
+        for (Map.Entry<Student, BigDecimal> entry : values.entrySet()) {
+            Grading grading = gradings.get(entry.getKey().getStudentId());
+            Grade grade;
 
             if (grading == null) {
-                this.persistGrade(corrector, s, exam, value,
-                        privateComment, publicComment);
+                grade = new Grade();
+                grading = new Grading();
+                grading.setExam(exam);
+                grading.setStudent(entry.getKey());
+                grading.setGrade(grade);
+                added++;
             } else {
-                this.persistGrade(corrector, grading, value,
-                        privateComment, publicComment);
+                grade = grading.getGrade();
+            }
+
+            grade.setGradeType(exam.getGradeType());
+            grade.setValue(entry.getValue());
+            grade.setMaxPoints(exam.getMaxPoints());
+            grading.setCorrector(corrector);
+            grading.setPublicComment(publicComment);
+            grading.setPrivateComment(privateComment);
+
+            if (grading.getGradingId() == null) {
+                em.persist(grading);
+            }
+        }
+        /*
+        Log the change
+         */
+        if (!values.isEmpty()) {
+            logService.persist(Log.from(corrector, course.getCourseId(),
+                    "stored gradings of " + values.size() + " students for "
+                    + exam.getName() + " (" + added + " added, "
+                    + (values.size() - added) + " changed)"));
+
+            List<Long> studentIds = new ArrayList<>();
+            for (Student student : values.keySet()) {
+                studentIds.add(student.getStudentId());
             }
+            recomputeFinalGrades(studentIds);
+        }
+
+        return values.size();
+    }
+
+    /**
+     * Queues the recomputation of the final grades of the given students
+     * once the current transaction has been committed, so that the new
+     * gradings are visible to it.
+     * @param studentIds Ids of the graded students
+     */
+    private void recomputeFinalGrades(final List<Long> studentIds) {
+        boolean registered = TransactionHooks.afterCompletion(registry, status -> {
+            if (status == Status.STATUS_COMMITTED) {
+                finalGradeQueue.enqueue(studentIds);
+            }
+        });
+        if (!registered) {
+            finalGradeQueue.enqueue(studentIds);
+        }
+    }
+
+    /**
+     * Returns the existing gradings of the given students for an exam.
+     * @param exam Exam whose gradings are searched
+     * @param students Students whose gradings are searched
+     * @return Map from student id to grading, students without grading
+     *         are missing
+     */
+    public Map<Long, Grading> getGradings(Exam exam,
+                                          Collection<Student> students) {
+        List<Long> ids = new ArrayList<>(students.size());
+        for (Student s : students) {
+            ids.add(s.getStudentId());
+        }
+
+        List<Grading> rows = findInChunks(ids, chunk -> em.createQuery("SELECT g "
+                        + "FROM Grading g "
+                        + "JOIN FETCH g.grade "
+                        + "WHERE g.exam.examId = :eid "
+                        + "AND g.student.studentId IN :sids",
+                    Grading.class)
+                .setParameter("eid", exam.getExamId())
+                .setParameter("sids", chunk)
+                .getResultList());
+
+        Map<Long, Grading> gradings = new HashMap<>();
+        for (Grading g : rows) {
+            gradings.put(g.getStudent().getStudentId(), g);
+        }
+
+        return gradings;
+    }
+
+    /**
+     * Returns the students of a course with the given matriculation numbers.
+     * @param course Course to search in
+     * @param matriculations Matriculation numbers of the students
+     * @return Map from matriculation number to student, unknown numbers
+     *         are missing
+     */
+    public Map<String, Student> findStudentsByMatriculation(Course course,
+            Collection<String> matriculations) {
+        List<Student> rows = findInChunks(matriculations, chunk -> em.createQuery("SELECT s "
+                        + "FROM Student s "
+                        + "JOIN FETCH s.user AS u "
+                        + "WHERE s.course.courseId = :cid "
+                        + "AND s.isDeleted = false "
+                        + "AND u.matriculationNumber IN :numbers",
+                    Student.class)
+                .setParameter("cid", course.getCourseId())
+                .setParameter("numbers", chunk)
+                .getResultList());
+
+        Map<String, Student> students = new HashMap<>();
+        for (Student s : rows) {
+            students.put(s.getUser().getMatriculationNumber(), s);
+        }
+
+        return students;
+    }
+
+    /**
+     * Returns the next page of the students of a course with their gradings,
+     * ordered by student id. The students are loaded together with the data
+     * shown in the course export, so that pages can be written one after
+     * another without loading the whole course.
+     * @param course Course whose students are loaded
+     * @param after Last student of the previous page or null for the first
+     *              page
+     * @return Map from student to its gradings by exam, empty if there are
+     *         no more students
+     */
+    public Map<Student, Map<Exam, Grading>> getStudentGradingsPage(
+            Course course, Student after) {
+        List<Student> students = em.createQuery("SELECT s "
+                        + "FROM Student s "
+                        + "JOIN FETCH s.user "
+                        + "JOIN FETCH s.participationType "
+                        + "LEFT JOIN FETCH s.tutorial "
+                        + "LEFT JOIN FETCH s.group "
+                        + "WHERE s.course.courseId = :cid "
+                        + "AND s.studentId > :after "
+                        + "ORDER BY s.studentId",
+                    Student.class)
+                .setParameter("cid", course.getCourseId())
+                .setParameter("after", after == null
+                        ? Long.valueOf(-1) : after.getStudentId())
+                .setMaxResults(QUERY_CHUNK_SIZE)
+                .getResultList();
+
+        Map<Student, Map<Exam, Grading>> page = new LinkedHashMap<>();
+        for (Student s : students) {
+            page.put(s, new HashMap<>());
+        }
+        if (students.isEmpty()) {
+            return page;
+        }
+
+        List<Grading> gradings = em.createQuery("SELECT g "
+                        + "FROM Grading g "
+                        + "JOIN FETCH g.grade "
+                        + "JOIN FETCH g.exam "
+                        + "LEFT JOIN FETCH g.corrector "
+                        + "WHERE g.student IN :students",
+                    Grading.class)
+                .setParameter("students", students)
+                .getResultList();
+
+        for (Grading g : gradings) {
+            page.get(g.getStudent()).put(g.getExam(), g);
         }
+
+        return page;
     }
 
     /**
@@ -644,24 +968,6 @@ public class GradingService extends GenericService<Grading> {
         }
     }
 
-    /**
-     * Returns a List of Gradings where the given user is corrector of.
-     * @param corrector User whose created gradings should be queried
-     * @return List of gradings with the given user as creator or empty list
-     */
-    public List<Grading> getGradingsByCorrector(User corrector) {
-        if (corrector == null || corrector.getUserId() == null) {
-            throw new IllegalArgumentException(
-                    "The corrector can't be null and must have a valid user id");
-        }
-        return em.createQuery("SELECT DISTINCT g "
-                        + "FROM Grading g "
-                        + "WHERE g.corrector.id = :uid",
-                Grading.class)
-                .setParameter("uid", corrector.getUserId())
-                .getResultList();
-    }
-
     /**
      * Returns if a tutor may grade a student.
      * @param tutor Tutor who grades
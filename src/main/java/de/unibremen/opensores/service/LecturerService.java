@@ -8,4 +8,23 @@ import javax.ejb.Stateless;
  * The service class for database transactions for lecturers.
  */
 @Stateless
-public class LecturerService extends GenericService<Lecturer> {}
+public class LecturerService extends GenericService<Lecturer> {
+
+    /**
+     * Writes whether the given lecturer is deleted. Only the lecturer is
+     * updated, unlike merging the course, which walks all of its
+     * participants.
+     *
+     * @param lecturer Persisted lecturer whose participation changed.
+     * @throws IllegalArgumentException If the lecturer doesn't exist.
+     */
+    public void updateParticipation(Lecturer lecturer) {
+        Lecturer managed = em.find(Lecturer.class, lecturer.getLecturerId());
+        if (managed == null) {
+            throw new IllegalArgumentException("The lecturer "
+                    + lecturer.getLecturerId() + " doesn't exist");
+        }
+
+        managed.setDeleted(lecturer.isDeleted());
+    }
+}
@@ -0,0 +1,134 @@
+package de.unibremen.opensores.service;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Criteria for querying logs with the LogService. Criteria which are null
+ * aren't applied.
+ */
+public class LogFilter implements Serializable {
+
+    private static final long serialVersionUID = -4376193465217395614L;
+
+    /**
+     * Id of the course the logs belong to.
+     */
+    private Long courseId;
+
+    /**
+     * Id of the user who committed the logged actions.
+     */
+    private Long userId;
+
+    /**
+     * Only logs after this date are matched.
+     */
+    private Date from;
+
+    /**
+     * Only logs before this date are matched.
+     */
+    private Date to;
+
+    /**
+     * Text the name of the user has to contain, ignoring case.
+     */
+    private String user;
+
+    /**
+     * Text the action description has to contain, ignoring case.
+     */
+    private String action;
+
+    /**
+     * Creates an empty filter matching all logs.
+     */
+    public LogFilter() {
+    }
+
+    /**
+     * Creates a copy of the given filter.
+     *
+     * @param other Filter to copy.
+     */
+    public LogFilter(LogFilter other) {
+        courseId = other.courseId;
+        userId = other.userId;
+        from = other.from;
+        to = other.to;
+        user = other.user;
+        action = other.action;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Date getFrom() {
+        return (from == null) ? null : new Date(from.getTime());
+    }
+
+    public void setFrom(Date from) {
+        this.from = (from == null) ? null : new Date(from.getTime());
+    }
+
+    public Date getTo() {
+        return (to == null) ? null : new Date(to.getTime());
+    }
+
+    public void setTo(Date to) {
+        this.to = (to == null) ? null : new Date(to.getTime());
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof LogFilter)) {
+            return false;
+        }
+
+        LogFilter other = (LogFilter) obj;
+        return Objects.equals(courseId, other.courseId)
+            && Objects.equals(userId, other.userId)
+            && Objects.equals(from, other.from)
+            && Objects.equals(to, other.to)
+            && Objects.equals(user, other.user)
+            && Objects.equals(action, other.action);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courseId, userId, from, to, user, action);
+    }
+}
@@ -2,9 +2,18 @@ package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.Log;
-import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.util.ServerProperties;
+import de.unibremen.opensores.util.TransactionHooks;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -13,6 +22,118 @@ import java.util.List;
  */
 @Stateless
 public class LogService extends GenericService<Log> {
+
+    /**
+     * Key of the property setting the number of logs written in one batch.
+     */
+    private static final String BATCH_SIZE_KEY = "exmatrikulator.log.batchSize";
+
+    /**
+     * Key of the buffer of the current transaction in the registry.
+     */
+    private static final String BUFFER_KEY = LogService.class.getName() + ".buffer";
+
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /**
+     * Maximum number of logs buffered before they are written, logs are
+     * written immediately if it is one or less.
+     */
+    private int batchSize;
+
+    /**
+     * Reads the batch size from the server properties.
+     */
+    @PostConstruct
+    public void init() {
+        batchSize = ServerProperties.getInt(BATCH_SIZE_KEY, 50);
+    }
+
+    /**
+     * Buffers a log of the current transaction. Buffered logs are persisted
+     * and flushed together once the buffer is full and when the transaction
+     * commits, so Hibernate inserts them in JDBC batches (see
+     * hibernate.jdbc.batch_size). They are never lost on commit and are
+     * rolled back with the transaction. Without a transaction the log is
+     * persisted immediately.
+     *
+     * @param log Log to insert, can't be null.
+     * @return The given log. Its id is only set once it has been written.
+     */
+    @Override
+    public Log persist(Log log) {
+        List<Log> buffer = getBuffer();
+        if (buffer == null) {
+            return super.persist(log);
+        }
+
+        buffer.add(log);
+        if (buffer.size() >= batchSize) {
+            write(buffer);
+        }
+
+        return log;
+    }
+
+    /**
+     * Inserts all given logs in the current transaction.
+     *
+     * @param logs Logs to insert.
+     * @return The given logs.
+     */
+    @Override
+    public List<Log> persistAll(List<Log> logs) {
+        for (Log log : logs) {
+            persist(log);
+        }
+
+        return logs;
+    }
+
+    /**
+     * Returns the log buffer of the current transaction, registering a
+     * synchronization writing it before the commit if it is created.
+     *
+     * @return The buffer or null if there is no active transaction or
+     *         logs aren't buffered.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Log> getBuffer() {
+        if (batchSize <= 1 || registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return null;
+        }
+
+        List<Log> buffer = (List<Log>) registry.getResource(BUFFER_KEY);
+        if (buffer == null) {
+            final List<Log> created = new ArrayList<>(batchSize);
+            registry.putResource(BUFFER_KEY, created);
+            TransactionHooks.register(registry, () -> {
+                if (!created.isEmpty()
+                        && registry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+                    write(created);
+                }
+            }, status -> created.clear());
+            buffer = created;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Persists the given logs, flushes them in JDBC batches and clears the
+     * list.
+     *
+     * @param logs Logs to insert.
+     */
+    private void write(final List<Log> logs) {
+        for (Log log : logs) {
+            super.persist(log);
+        }
+        em.flush();
+        logs.clear();
+    }
+
     /**
      * Gets all the logs related to a course.
      * @param course The course from which all logs should be queried.
@@ -36,37 +157,166 @@ public class LogService extends GenericService<Log> {
     }
 
     /**
-     * Gets all the logs related to a user.
-     * @param user The user from which all logs should be queried.
-     * @return A list of all logs of the user, sorted by newest date.
-     *         The list is empty if the user has created no logs.
-     * @throws IllegalArgumentException If the user is null or has no user id.
+     * Returns a page of the logs matching the given filter, ordered by date.
+     * If a boundary log is given, only logs after it in the given order are
+     * returned, so that consecutive pages can be read using the indexes on
+     * the date instead of skipping all previous rows.
      *
+     * @param filter Criteria the logs have to match.
+     * @param ascending True to return the oldest logs first.
+     * @param boundary Last log of the previous page or null.
+     * @param offset Number of logs to skip.
+     * @param limit Maximum number of logs to return.
+     * @return List of matching logs.
      */
-    public List<Log> getLogFromUser(User user) {
-        if (user == null || user.getUserId() == null) {
-            throw new IllegalArgumentException(
-                    "The user can't be null and must have a valid user id");
+    public List<Log> findLogs(LogFilter filter, boolean ascending,
+                              Log boundary, int offset, int limit) {
+        String order = ascending ? "ASC" : "DESC";
+        StringBuilder jpql = new StringBuilder(
+                "SELECT l FROM Log l LEFT JOIN FETCH l.loggedInUser u");
+        appendConditions(jpql, filter);
+        if (boundary != null) {
+            String cmp = ascending ? ">" : "<";
+            jpql.append(" AND (l.date ").append(cmp).append(" :boundaryDate")
+                .append(" OR (l.date = :boundaryDate AND l.logId ")
+                .append(cmp).append(" :boundaryId))");
         }
-        return em.createQuery(
-                "SELECT l "
-                        + "FROM Log l WHERE "
-                        + "l.loggedInUser.id = :id "
-                        + "ORDER BY l.date DESC", Log.class)
-                .setParameter("id", user.getUserId())
-                .getResultList();
+        jpql.append(" ORDER BY l.date ").append(order)
+            .append(", l.logId ").append(order);
+
+        TypedQuery<Log> query = em.createQuery(jpql.toString(), Log.class);
+        setParameters(query, filter);
+        if (boundary != null) {
+            query.setParameter("boundaryDate", boundary.getDate());
+            query.setParameter("boundaryId", boundary.getLogId());
+        }
+
+        return query.setFirstResult(offset)
+            .setMaxResults(limit)
+            .getResultList();
     }
 
     /**
-     * Lists all logs from the logs table.
+     * Counts the logs matching the given filter.
      *
-     * @return A list of all existing logs.
+     * @param filter Criteria the logs have to match.
+     * @return Number of matching logs.
      */
-    public List<Log> listLogs() {
-        List<Log> logList = em.createQuery(
-                "SELECT DISTINCT l FROM Log l ORDER BY l.date DESC", Log.class)
-            .getResultList();
+    public int countLogs(LogFilter filter) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT COUNT(l) FROM Log l LEFT JOIN l.loggedInUser u");
+        appendConditions(jpql, filter);
+
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        setParameters(query, filter);
+        return query.getSingleResult().intValue();
+    }
+
+    /**
+     * Returns the date of the oldest log matching the given filter.
+     *
+     * @param filter Criteria the logs have to match.
+     * @return Date of the oldest log or null if there is none.
+     */
+    public Date getFirstLogDate(LogFilter filter) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT MIN(l.date) FROM Log l LEFT JOIN l.loggedInUser u");
+        appendConditions(jpql, filter);
+
+        TypedQuery<Date> query = em.createQuery(jpql.toString(), Date.class);
+        setParameters(query, filter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * Deletes the logs of the given course in the given date range.
+     *
+     * @param courseId Id of the course or null for logs of all courses.
+     * @param from Logs after this date are deleted.
+     * @param to Logs before this date are deleted.
+     * @return Number of deleted logs.
+     */
+    public int deleteLogs(Long courseId, Date from, Date to) {
+        String jpql = "DELETE FROM Log l WHERE l.date > :from AND l.date < :to";
+        if (courseId != null) {
+            jpql += " AND l.courseId = :courseId";
+        }
+
+        Query query = em.createQuery(jpql)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (courseId != null) {
+            query.setParameter("courseId", courseId);
+        }
+
+        return query.executeUpdate();
+    }
+
+    /**
+     * Appends the where clause for the given filter to the given query.
+     *
+     * @param jpql Query to append to, selecting from Log l joined with
+     *             its user u.
+     * @param filter Criteria the logs have to match.
+     */
+    private void appendConditions(StringBuilder jpql, LogFilter filter) {
+        jpql.append(" WHERE 1 = 1");
+        if (filter.getCourseId() != null) {
+            jpql.append(" AND l.courseId = :courseId");
+        }
+        if (filter.getUserId() != null) {
+            jpql.append(" AND u.userId = :userId");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND l.date > :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND l.date < :to");
+        }
+        if (filter.getUser() != null) {
+            jpql.append(" AND LOWER(CONCAT(CONCAT(u.firstName, ' '), u.lastName))"
+                + " LIKE :user ESCAPE '\\'");
+        }
+        if (filter.getAction() != null) {
+            jpql.append(" AND LOWER(l.actionDescription) LIKE :action ESCAPE '\\'");
+        }
+    }
+
+    /**
+     * Sets the parameters of the where clause added by appendConditions.
+     *
+     * @param query Query to set the parameters of.
+     * @param filter Criteria the logs have to match.
+     */
+    private void setParameters(Query query, LogFilter filter) {
+        if (filter.getCourseId() != null) {
+            query.setParameter("courseId", filter.getCourseId());
+        }
+        if (filter.getUserId() != null) {
+            query.setParameter("userId", filter.getUserId());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", filter.getTo());
+        }
+        if (filter.getUser() != null) {
+            query.setParameter("user", toPattern(filter.getUser()));
+        }
+        if (filter.getAction() != null) {
+            query.setParameter("action", toPattern(filter.getAction()));
+        }
+    }
 
-        return logList;
+    /**
+     * Creates a LIKE pattern matching strings which contain the given text.
+     *
+     * @param text Text to search for.
+     * @return Lower case pattern.
+     */
+    private static String toPattern(String text) {
+        return "%" + text.toLowerCase().replace("\\", "\\\\")
+            .replace("%", "\\%").replace("_", "\\_") + "%";
     }
 }
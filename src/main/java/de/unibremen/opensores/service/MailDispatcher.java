@@ -0,0 +1,122 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.util.ServerProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timer;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Drains the outbound mail queue. The queue is checked periodically (see
+ * ejb-jar.xml) and due mails are handed in batches to a bounded number of
+ * asynchronous MailWorker invocations.
+ */
+@Singleton
+@Startup
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class MailDispatcher {
+
+    private static Logger log = LogManager.getLogger(MailDispatcher.class);
+
+    private static final String WORKERS_KEY
+            = "exmatrikulator.mail.queue.workers";
+
+    private static final String BATCH_SIZE_KEY
+            = "exmatrikulator.mail.queue.batchSize";
+
+    /**
+     * MailService for claiming due mails.
+     */
+    @EJB
+    private MailService mailService;
+
+    /**
+     * MailWorker which sends the claimed mails.
+     */
+    @EJB
+    private MailWorker mailWorker;
+
+    /**
+     * Batches which are currently being sent.
+     */
+    private final List<Future<Integer>> running = new ArrayList<>();
+
+    /**
+     * Maximum number of batches sent at the same time.
+     */
+    private int workers;
+
+    /**
+     * Maximum number of mails sent over a single connection.
+     */
+    private int batchSize;
+
+    /**
+     * Reads the configuration and puts the mails which were being sent when
+     * the server went down back into the queue.
+     */
+    @PostConstruct
+    public void init() {
+        workers = Math.max(1, ServerProperties.getInt(WORKERS_KEY, 4));
+        batchSize = Math.max(1, ServerProperties.getInt(BATCH_SIZE_KEY, 50));
+
+        int released = mailService.releaseClaimed();
+        if (released > 0) {
+            log.info("Put " + released + " unsent mails back into the queue");
+        }
+    }
+
+    /**
+     * Used for the periodic queue check, configured in ejb-jar.xml.
+     *
+     * @param timer The timer which triggered the check.
+     */
+    public void scheduledDispatch(Timer timer) {
+        dispatch();
+    }
+
+    /**
+     * Starts sending due mails as long as there are less than the
+     * configured number of batches running.
+     *
+     * @return The number of batches started.
+     */
+    public int dispatch() {
+        running.removeIf(Future::isDone);
+
+        int started = 0;
+        while (running.size() < workers) {
+            List<Long> ids = mailService.claimDue(batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            running.add(mailWorker.send(ids));
+            started++;
+        }
+
+        if (started > 0) {
+            log.debug("Started " + started + " mail batches");
+        }
+        return started;
+    }
+
+    /**
+     * Returns the number of batches which are currently being sent.
+     *
+     * @return Number of running batches.
+     */
+    public int getRunningBatches() {
+        running.removeIf(Future::isDone);
+        return running.size();
+    }
+}
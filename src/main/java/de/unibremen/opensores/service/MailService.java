@@ -0,0 +1,233 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.MailStatus;
+import de.unibremen.opensores.model.QueuedMail;
+import de.unibremen.opensores.util.DateUtil;
+import de.unibremen.opensores.util.ServerProperties;
+import de.unibremen.opensores.util.mail.MailJob;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.Stateless;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Service class for the outbound mail queue. Mails are only stored by this
+ * service, they are sent in the background by the MailDispatcher.
+ */
+@Stateless
+public class MailService extends GenericService<QueuedMail> {
+
+    private static Logger log = LogManager.getLogger(MailService.class);
+
+    /**
+     * Maximum length of the stored error message of a failed mail.
+     */
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final String MAX_ATTEMPTS_KEY
+            = "exmatrikulator.mail.queue.maxAttempts";
+
+    private static final String RETRY_DELAY_KEY
+            = "exmatrikulator.mail.queue.retryDelay";
+
+    /**
+     * Adds mail jobs to the outbound mail queue.
+     *
+     * @param jobs The mail jobs to send.
+     * @return The number of queued mails.
+     */
+    public int enqueue(MailJob[] jobs) {
+        for (MailJob j : jobs) {
+            em.persist(QueuedMail.from(j));
+        }
+
+        log.debug("Queued " + jobs.length + " mails");
+        return jobs.length;
+    }
+
+    /**
+     * Claims pending mails which are due for sending by setting their status
+     * to sending. The oldest mails are claimed first.
+     *
+     * @param limit The maximum number of mails to claim.
+     * @return The ids of the claimed mails, empty if no mail is due.
+     */
+    public List<Long> claimDue(int limit) {
+        List<QueuedMail> mails = em.createQuery(
+                "SELECT m "
+                + "FROM QueuedMail m "
+                + "WHERE m.status = :pending "
+                + "AND m.nextAttempt <= :now "
+                + "ORDER BY m.nextAttempt", QueuedMail.class)
+                .setParameter("pending", MailStatus.PENDING.getId())
+                .setParameter("now", DateUtil.getDateTime())
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<Long> ids = new ArrayList<>();
+        for (QueuedMail m : mails) {
+            m.setStatus(MailStatus.SENDING);
+            ids.add(m.getMailId());
+        }
+
+        return ids;
+    }
+
+    /**
+     * Finds the mails with the given ids.
+     *
+     * @param ids The ids of the mails.
+     * @return The mails, ordered by id.
+     */
+    public List<QueuedMail> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return em.createQuery(
+                "SELECT m "
+                + "FROM QueuedMail m "
+                + "WHERE m.mailId IN :ids "
+                + "ORDER BY m.mailId", QueuedMail.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Marks mails as successfully sent.
+     *
+     * @param ids The ids of the sent mails.
+     * @return The number of updated mails.
+     */
+    public int markSent(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        return em.createQuery(
+                "UPDATE QueuedMail m "
+                + "SET m.status = :sent, m.sent = :now "
+                + "WHERE m.mailId IN :ids")
+                .setParameter("sent", MailStatus.SENT.getId())
+                .setParameter("now", DateUtil.getDateTime())
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed attempt to send a mail. The mail is retried later
+     * with an exponentially growing delay until the maximum number of
+     * attempts is reached, after that it is marked as failed.
+     *
+     * @param id The id of the mail which couldn't be sent.
+     * @param error The reason why the mail couldn't be sent.
+     */
+    public void markFailed(Long id, String error) {
+        QueuedMail mail = em.find(QueuedMail.class, id);
+        if (mail == null) {
+            return;
+        }
+
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(error == null || error.length() <= MAX_ERROR_LENGTH
+                ? error : error.substring(0, MAX_ERROR_LENGTH));
+
+        if (attempts >= ServerProperties.getInt(MAX_ATTEMPTS_KEY, 5)) {
+            mail.setStatus(MailStatus.FAILED);
+            log.error("Giving up on mail " + id + ": " + error);
+        } else {
+            long delay = ServerProperties.getInt(RETRY_DELAY_KEY, 60) * 1000L
+                    * (1L << (attempts - 1));
+            mail.setNextAttempt(new Date(DateUtil.getDateTime().getTime()
+                    + delay));
+            mail.setStatus(MailStatus.PENDING);
+            log.debug("Retrying mail " + id + " in " + delay + "ms");
+        }
+    }
+
+    /**
+     * Puts mails which were being sent back into the queue. Used after a
+     * restart of the server, when no mail can be sent anymore.
+     *
+     * @return The number of mails put back into the queue.
+     */
+    public int releaseClaimed() {
+        return em.createQuery(
+                "UPDATE QueuedMail m "
+                + "SET m.status = :pending "
+                + "WHERE m.status = :sending")
+                .setParameter("pending", MailStatus.PENDING.getId())
+                .setParameter("sending", MailStatus.SENDING.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Puts all failed mails back into the queue, so that they are sent
+     * again as soon as possible.
+     *
+     * @return The number of mails put back into the queue.
+     */
+    public int retryFailed() {
+        return em.createQuery(
+                "UPDATE QueuedMail m "
+                + "SET m.status = :pending, m.attempts = 0, "
+                + "m.nextAttempt = :now "
+                + "WHERE m.status = :failed")
+                .setParameter("pending", MailStatus.PENDING.getId())
+                .setParameter("now", DateUtil.getDateTime())
+                .setParameter("failed", MailStatus.FAILED.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Removes all successfully sent mails from the queue.
+     *
+     * @return The number of removed mails.
+     */
+    public int deleteSent() {
+        return em.createQuery(
+                "DELETE FROM QueuedMail m "
+                + "WHERE m.status = :sent")
+                .setParameter("sent", MailStatus.SENT.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Counts the mails with the given status.
+     *
+     * @param status The status of the mails.
+     * @return The number of mails with this status.
+     */
+    public long countByStatus(MailStatus status) {
+        return em.createQuery(
+                "SELECT COUNT(m) "
+                + "FROM QueuedMail m "
+                + "WHERE m.status = :status", Long.class)
+                .setParameter("status", status.getId())
+                .getSingleResult();
+    }
+
+    /**
+     * Lists the mails with the given status, oldest first.
+     *
+     * @param status The status of the mails.
+     * @param limit The maximum number of mails to list.
+     * @return List of mails with the status.
+     */
+    public List<QueuedMail> listByStatus(MailStatus status, int limit) {
+        return em.createQuery(
+                "SELECT m "
+                + "FROM QueuedMail m "
+                + "WHERE m.status = :status "
+                + "ORDER BY m.created", QueuedMail.class)
+                .setParameter("status", status.getId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -2,6 +2,7 @@ package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.MailTemplate;
+import org.hibernate.annotations.QueryHints;
 
 import java.util.List;
 import javax.ejb.Stateless;
@@ -27,6 +28,7 @@ public class MailTemplateService extends GenericService<MailTemplate> {
                 + " JOIN m.course AS c WITH c.courseId = :courseId",
                         MailTemplate.class)
                             .setParameter("courseId", course.getCourseId())
+                            .setHint(QueryHints.CACHEABLE, true)
                             .getResultList();
         return mailTemplates;
     }
@@ -62,6 +64,7 @@ public class MailTemplateService extends GenericService<MailTemplate> {
                 + " WHERE m.mailTemplateId = :templateId", MailTemplate.class)
                         .setParameter("courseId", course.getCourseId())
                         .setParameter("templateId", Long.parseLong(templateId))
+                        .setHint(QueryHints.CACHEABLE, true)
                         .getResultList();
 
         return (mailTemplates.isEmpty()) ? null : mailTemplates.get(0);
@@ -81,6 +84,7 @@ public class MailTemplateService extends GenericService<MailTemplate> {
                 + " WITH c.courseId = :courseId"
                 + " WHERE m.isDefault = true", MailTemplate.class)
                         .setParameter("courseId", course.getCourseId())
+                        .setHint(QueryHints.CACHEABLE, true)
                         .getResultList();
 
         return (mailTemplates.isEmpty()) ? null : mailTemplates.get(0);
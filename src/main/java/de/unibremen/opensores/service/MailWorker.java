@@ -0,0 +1,101 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.QueuedMail;
+import de.unibremen.opensores.util.mail.Mail;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Sends batches of queued mails in the background. No transaction is held
+ * while talking to the mail server, the state of each mail is stored by the
+ * MailService in its own transaction.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class MailWorker {
+
+    private static Logger log = LogManager.getLogger(MailWorker.class);
+
+    /**
+     * MailService for storing the state of the sent mails.
+     */
+    @EJB
+    private MailService mailService;
+
+    /**
+     * Sends a batch of claimed mails over a single connection to the mail
+     * server. Mails which couldn't be sent are scheduled for a retry.
+     *
+     * @param ids The ids of the mails claimed by the MailDispatcher.
+     * @return The number of successfully sent mails.
+     */
+    @Asynchronous
+    public Future<Integer> send(List<Long> ids) {
+        List<QueuedMail> mails = mailService.findByIds(ids);
+        List<Long> sent = new ArrayList<>();
+        int processed = 0;
+
+        Transport transport = null;
+        try {
+            Mail mail = new Mail();
+            transport = mail.connect();
+
+            for (QueuedMail m : mails) {
+                if (!transport.isConnected()) {
+                    transport = mail.connect();
+                }
+
+                try {
+                    mail.send(transport, m.toMailJob());
+                    sent.add(m.getMailId());
+                } catch (MessagingException e) {
+                    log.debug("Could not send mail " + m.getMailId(), e);
+                    mailService.markFailed(m.getMailId(), e.getMessage());
+                }
+                processed++;
+            }
+        } catch (IOException | MessagingException e) {
+            log.error("Could not connect to the mail server", e);
+            for (QueuedMail m : mails.subList(processed, mails.size())) {
+                mailService.markFailed(m.getMailId(), e.getMessage());
+            }
+        } finally {
+            close(transport);
+            mailService.markSent(sent);
+        }
+
+        log.debug("Sent " + sent.size() + " of " + mails.size() + " mails");
+        return new AsyncResult<>(sent.size());
+    }
+
+    /**
+     * Closes the connection to the mail server, if there is one.
+     *
+     * @param transport The transport to close, may be null.
+     */
+    private void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.util.ServerProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mindrot.jbcrypt.BCrypt;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes passwords with BCrypt. Bulk hashing is spread over a bounded
+ * thread pool, since hashing dominates the time needed to import many
+ * users at once. Once the queue of the pool is full, the calling thread
+ * hashes the password itself, which slows down further submissions.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PasswordService {
+
+    private static Logger log = LogManager.getLogger(PasswordService.class);
+
+    private static final String COST_KEY = "exmatrikulator.bcrypt.cost";
+
+    private static final String THREADS_KEY = "exmatrikulator.bcrypt.threads";
+
+    /**
+     * Number of passwords waiting for a hashing thread per thread.
+     */
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+    /**
+     * Cost factor used if none is configured, same as BCrypt.gensalt().
+     */
+    private static final int DEFAULT_COST = 10;
+
+    /**
+     * Smallest and largest cost factor accepted by BCrypt.
+     */
+    private static final int MIN_COST = 4;
+    private static final int MAX_COST = 31;
+
+    /**
+     * Pool used for hashing many passwords at once.
+     */
+    private ThreadPoolExecutor pool;
+
+    /**
+     * Log2 of the number of BCrypt rounds.
+     */
+    private int cost;
+
+    /**
+     * Reads the configuration and starts the hashing pool.
+     */
+    @PostConstruct
+    public void init() {
+        cost = Math.min(MAX_COST, Math.max(MIN_COST,
+                ServerProperties.getInt(COST_KEY, DEFAULT_COST)));
+
+        int threads = ServerProperties.getInt(THREADS_KEY, 0);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "exmatrikulator-bcrypt");
+            thread.setDaemon(true);
+            return thread;
+        };
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD), factory,
+                PasswordService::runInCaller);
+        log.debug("Hashing passwords with cost " + cost + " on "
+                + threads + " threads");
+    }
+
+    /**
+     * Stops the hashing pool.
+     */
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Rejection policy of the pool, hashes the password in the submitting
+     * thread unless the pool has been shut down.
+     */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The hashing pool is shut down");
+        }
+        task.run();
+    }
+
+    /**
+     * Hashes a single password in the calling thread.
+     *
+     * @param password Plain text password.
+     * @return BCrypt hash of the password.
+     */
+    public String hash(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+    }
+
+    /**
+     * Hashes the given passwords in parallel.
+     *
+     * @param passwords Plain text passwords.
+     * @return BCrypt hashes in the same order as the given passwords.
+     * @throws IllegalStateException If hashing was interrupted.
+     */
+    public List<String> hashAll(List<String> passwords) {
+        List<Future<String>> futures = new ArrayList<>(passwords.size());
+        for (String password : passwords) {
+            futures.add(pool.submit(() -> hash(password)));
+        }
+
+        List<String> hashes = new ArrayList<>(passwords.size());
+        try {
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return hashes;
+    }
+}
@@ -3,9 +3,11 @@ package de.unibremen.opensores.service;
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 
 import javax.ejb.Stateless;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,4 +33,34 @@ public class PrivilegedUserService extends GenericService<PrivilegedUser> {
         return privUsers.isEmpty() ? null : privUsers.get(0);
     }
 
+    /**
+     * Writes the participation of the given privileged user: its privileges
+     * and whether it is a secretary and deleted. A deleted privileged user
+     * is removed from the tutors of its tutorials. Only the privileged user
+     * and its tutorials are updated, unlike merging the course, which walks
+     * all of its participants.
+     *
+     * @param privilegedUser Persisted privileged user whose participation
+     *                       changed.
+     * @throws IllegalArgumentException If the privileged user doesn't exist.
+     */
+    public void updateParticipation(PrivilegedUser privilegedUser) {
+        PrivilegedUser managed = em.find(PrivilegedUser.class,
+                privilegedUser.getPrivUserId());
+        if (managed == null) {
+            throw new IllegalArgumentException("The privileged user "
+                    + privilegedUser.getPrivUserId() + " doesn't exist");
+        }
+
+        managed.setPrivileges(new ArrayList<>(privilegedUser.getPrivileges()));
+        managed.setSecretary(privilegedUser.isSecretary());
+        managed.setDeleted(privilegedUser.isDeleted());
+        if (managed.isDeleted()) {
+            for (Tutorial tutorial : managed.getTutorials()) {
+                tutorial.getTutors().remove(managed);
+            }
+            managed.getTutorials().clear();
+        }
+    }
+
 }
\ No newline at end of file
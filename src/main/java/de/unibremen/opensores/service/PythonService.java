@@ -0,0 +1,421 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException;
+import de.unibremen.opensores.exception.ScriptLimitException.Limit;
+import de.unibremen.opensores.util.ServerProperties;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.python.antlr.base.mod;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.ParserFacade;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyList;
+import org.python.core.PyModule;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+import org.python.core.ThreadState;
+import org.python.util.PythonInterpreter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shares Jython interpreters and compiled scripts between requests.
+ * Creating a PythonInterpreter with its own PySystemState and importing
+ * the first modules takes seconds, so released interpreters are kept and
+ * handed out again. Each interpreter gets its own copy of the builtins, so
+ * changing __builtin__ doesn't affect the other interpreters, and its
+ * sys.modules, sys.path and builtins are reset to the state after its
+ * creation on release, so a script can't change what a script of another
+ * course sees. Scripts are compiled once and the compiled code is cached
+ * by source.
+ *
+ * <p>Grade scripts are written by lecturers and may loop forever or
+ * allocate huge amounts of memory, so they are run on a small bounded
+ * thread pool instead of the request threads, limited by a ScriptBudget
+ * and abandoned if they don't finish in time. A thread stuck in a script
+ * which doesn't notice the cancellation is replaced by a new one until the
+ * script returns. Scripts computing huge constants are rejected by the
+ * ConstantSizeCheck before they are run.</p>
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PythonService {
+
+    private static Logger log = LogManager.getLogger(PythonService.class);
+
+    private static final String POOL_SIZE_KEY = "exmatrikulator.python.poolSize";
+
+    private static final String CODE_CACHE_SIZE_KEY
+            = "exmatrikulator.python.codeCacheSize";
+
+    private static final String THREADS_KEY = "exmatrikulator.python.threads";
+
+    private static final String QUEUE_SIZE_KEY = "exmatrikulator.python.queueSize";
+
+    private static final String CPU_TIME_LIMIT_KEY
+            = "exmatrikulator.python.cpuTimeLimit";
+
+    private static final String WALL_TIME_LIMIT_KEY
+            = "exmatrikulator.python.wallTimeLimit";
+
+    private static final String ALLOCATION_LIMIT_KEY
+            = "exmatrikulator.python.allocationLimit";
+
+    /**
+     * File name shown in tracebacks of compiled scripts.
+     */
+    private static final String SCRIPT_NAME = "<formula>";
+
+    /**
+     * Idle interpreters ready to be acquired.
+     */
+    private BlockingQueue<PythonInterpreter> idle;
+
+    /**
+     * State of the interpreters' systems after their creation, restored on
+     * release.
+     */
+    private final Map<PythonInterpreter, SystemSnapshot> snapshots
+            = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Compiled code by source, least recently used first.
+     */
+    private Map<String, PyCode> codeCache;
+
+    /**
+     * Pool running the scripts.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Number of script threads configured.
+     */
+    private int threads;
+
+    /**
+     * Budgets of the abandoned runs which are still running and whose
+     * threads have been replaced. Changes of the pool size are guarded by it.
+     */
+    private final Set<ScriptBudget> replacedRuns = new HashSet<>();
+
+    /**
+     * CPU time a script may use in milliseconds.
+     */
+    private long cpuTimeLimit;
+
+    /**
+     * Time after which a script is abandoned in milliseconds, including the
+     * time it waited for a free thread.
+     */
+    private long wallTimeLimit;
+
+    /**
+     * Megabytes a script may allocate.
+     */
+    private long allocationLimit;
+
+    /**
+     * Reads the configuration.
+     */
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, ServerProperties.getInt(POOL_SIZE_KEY, 4));
+        final int cacheSize = Math.max(1,
+                ServerProperties.getInt(CODE_CACHE_SIZE_KEY, 64));
+
+        idle = new ArrayBlockingQueue<>(poolSize);
+        codeCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, PyCode>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PyCode> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+        log.debug("Keeping up to " + poolSize + " idle interpreters and "
+                + cacheSize + " compiled scripts");
+
+        threads = Math.max(1, ServerProperties.getInt(THREADS_KEY, 2));
+        final int queueSize = Math.max(1, ServerProperties.getInt(QUEUE_SIZE_KEY, 8));
+        cpuTimeLimit = 1000L * Math.max(1, ServerProperties.getInt(CPU_TIME_LIMIT_KEY, 20));
+        wallTimeLimit = 1000L * Math.max(1, ServerProperties.getInt(WALL_TIME_LIMIT_KEY, 60));
+        allocationLimit = Math.max(1, ServerProperties.getInt(ALLOCATION_LIMIT_KEY, 1024));
+
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "exmatrikulator-python");
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory);
+        log.debug("Running scripts on " + threads + " threads with "
+                + cpuTimeLimit + " ms CPU time and " + allocationLimit + " MB each");
+    }
+
+    /**
+     * Stops the script threads and closes all idle interpreters.
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        PythonInterpreter interpreter;
+        while ((interpreter = idle.poll()) != null) {
+            interpreter.close();
+        }
+        snapshots.clear();
+        codeCache.clear();
+    }
+
+    /**
+     * Returns an interpreter for exclusive use until it is released. Idle
+     * interpreters are reused, a new one is created if there is none.
+     *
+     * @return Interpreter with empty locals.
+     */
+    public PythonInterpreter acquire() {
+        PythonInterpreter interpreter = idle.poll();
+        if (interpreter == null) {
+            log.debug("Creating a new python interpreter");
+            PySystemState sys = new PySystemState();
+            sys.builtins = sys.builtins.invoke("copy");
+            sys.modules.__setitem__("__builtin__", new PyModule("__builtin__", sys.builtins));
+            interpreter = new PythonInterpreter(null, sys);
+            snapshots.put(interpreter, new SystemSnapshot(sys));
+        }
+
+        return interpreter;
+    }
+
+    /**
+     * Gives an acquired interpreter back. Its locals are cleared and its
+     * modules, path and builtins are reset, so that nothing of the previous
+     * scripts is visible to the next user, and it is closed if enough
+     * interpreters are idle already.
+     *
+     * @param interpreter Interpreter returned by acquire.
+     */
+    public void release(PythonInterpreter interpreter) {
+        if (interpreter == null) {
+            return;
+        }
+
+        SystemSnapshot snapshot = snapshots.get(interpreter);
+        if (snapshot == null) {
+            interpreter.close();
+            return;
+        }
+
+        interpreter.cleanup();
+        PyStringMap locals = new PyStringMap();
+        locals.__setitem__("__name__", new PyString("__main__"));
+        interpreter.setLocals(locals);
+        interpreter.setOut(NullOutputStream.NULL_OUTPUT_STREAM);
+        interpreter.setErr(NullOutputStream.NULL_OUTPUT_STREAM);
+        snapshot.restore(interpreter.getSystemState(), locals);
+
+        if (!idle.offer(interpreter)) {
+            snapshots.remove(interpreter);
+            interpreter.close();
+        }
+    }
+
+    /**
+     * Compiles a script, returning the cached code if the same source was
+     * compiled before.
+     *
+     * @param source Source of the script.
+     * @return Compiled code which can be executed by any interpreter.
+     * @throws org.python.core.PyException If the source isn't valid python
+     *                                     or computes a huge constant.
+     */
+    public PyCode compile(String source) {
+        PyCode code = codeCache.get(source);
+        if (code == null) {
+            CompilerFlags flags = new CompilerFlags();
+            mod tree = ParserFacade.parse(source, CompileMode.exec, SCRIPT_NAME, flags);
+            ConstantSizeCheck.check(tree);
+            code = Py.compile_flags(tree, SCRIPT_NAME, CompileMode.exec, flags);
+            codeCache.put(source, code);
+        }
+
+        return code;
+    }
+
+    /**
+     * Creates a budget with the configured limits for a script run.
+     *
+     * @return New budget, to be passed to execute.
+     */
+    public ScriptBudget createBudget() {
+        return new ScriptBudget(cpuTimeLimit, allocationLimit);
+    }
+
+    /**
+     * Runs a task using an interpreter on the script threads and waits for
+     * its result. The task is stopped when it exceeds the budget. If it
+     * doesn't finish within the wall time limit, it is cancelled and the
+     * interpreter must not be used or released anymore, since the script
+     * may still be running.
+     *
+     * @param budget Budget created by createBudget, used only once.
+     * @param task Task executing python code.
+     * @param <T> Type of the result.
+     * @return Result of the task.
+     * @throws ScriptLimitException If the script exceeded a limit or all
+     *                              script threads are busy.
+     * @throws org.python.core.PyException If the script raised an error.
+     */
+    public <T> T execute(ScriptBudget budget, Callable<T> task)
+            throws ScriptLimitException {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> runWithBudget(budget, task));
+        } catch (RejectedExecutionException e) {
+            log.warn("All script threads are busy");
+            throw new ScriptLimitException(Limit.CAPACITY);
+        }
+
+        try {
+            T result = future.get(wallTimeLimit, TimeUnit.MILLISECONDS);
+            if (budget.getExceeded() != null) {
+                throw new ScriptLimitException(budget.getExceeded());
+            }
+            return result;
+        } catch (TimeoutException e) {
+            log.warn("Cancelling a script after " + wallTimeLimit + " ms");
+            budget.cancel();
+            future.cancel(true);
+            replaceThreadOf(budget);
+            throw new ScriptLimitException(Limit.TIME);
+        } catch (InterruptedException e) {
+            budget.cancel();
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running a script", e);
+        } catch (ExecutionException e) {
+            if (budget.getExceeded() != null) {
+                throw new ScriptLimitException(budget.getExceeded());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Runs a task in the current thread with the budget as trace function.
+     * If the run has been abandoned meanwhile, the thread which replaced
+     * this one is given up again.
+     */
+    private <T> T runWithBudget(ScriptBudget budget, Callable<T> task)
+            throws Exception {
+        ThreadState state = Py.getThreadState();
+        budget.start();
+        state.tracefunc = budget;
+        try {
+            return task.call();
+        } finally {
+            state.tracefunc = null;
+            finishRun(budget);
+        }
+    }
+
+    /**
+     * Adds a thread to the pool if the script of an abandoned run is still
+     * running, since its thread is lost until the script notices the
+     * cancellation. At most as many threads as configured are added, so
+     * scripts stuck for good can't create threads without end.
+     *
+     * @param budget Budget of the abandoned run.
+     */
+    private void replaceThreadOf(ScriptBudget budget) {
+        synchronized (replacedRuns) {
+            if (!budget.abandon()) {
+                return;
+            }
+            if (replacedRuns.size() >= threads) {
+                log.warn("Not replacing a stuck script thread, "
+                        + replacedRuns.size() + " threads have been replaced already");
+                return;
+            }
+
+            log.warn("Replacing a script thread which didn't stop");
+            replacedRuns.add(budget);
+            executor.setMaximumPoolSize(threads + replacedRuns.size());
+            executor.setCorePoolSize(threads + replacedRuns.size());
+        }
+    }
+
+    /**
+     * Marks a run as finished. If its thread has been replaced, the pool is
+     * shrunk again, so one idle thread ends.
+     *
+     * @param budget Budget of the run.
+     */
+    private void finishRun(ScriptBudget budget) {
+        synchronized (replacedRuns) {
+            if (budget.finish() || !replacedRuns.remove(budget)) {
+                return;
+            }
+
+            log.info("An abandoned script returned after all");
+            executor.setCorePoolSize(threads + replacedRuns.size());
+            executor.setMaximumPoolSize(threads + replacedRuns.size());
+        }
+    }
+
+    /**
+     * Copies of the modules, path and builtins of a system state.
+     */
+    private static class SystemSnapshot {
+        private final PyObject modules;
+        private final PyList path;
+        private final PyObject builtins;
+
+        SystemSnapshot(PySystemState sys) {
+            modules = sys.modules.invoke("copy");
+            path = new PyList((PyObject) sys.path);
+            builtins = sys.builtins.invoke("copy");
+        }
+
+        /**
+         * Replaces the modules, path and builtins of the system state with
+         * fresh copies of the snapshot, with __main__ using the given locals.
+         */
+        void restore(PySystemState sys, PyObject locals) {
+            sys.builtins = builtins.invoke("copy");
+            sys.path = new PyList((PyObject) path);
+            sys.modules = modules.invoke("copy");
+            sys.modules.__setitem__("__builtin__", new PyModule("__builtin__", sys.builtins));
+            sys.modules.__setitem__("__main__", new PyModule("__main__", locals));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.util.DateUtil;
+import de.unibremen.opensores.util.MembershipCache;
+import de.unibremen.opensores.util.TransactionHooks;
+import de.unibremen.opensores.util.UserSearchIndex;
+import org.apache.commons.lang3.RandomStringUtils;
+
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service deleting expired courses and users with bulk statements, so that
+ * none of their participations has to be loaded. Each call runs in its own
+ * transaction, callers pass the ids in chunks.
+ *
+ * <p>Bulk statements bypass the entity listeners, so the MembershipCache
+ * and the UserSearchIndex are updated by this service instead.</p>
+ */
+@Stateless
+public class RetentionService extends GenericService<Course> {
+
+    /**
+     * Registry for clearing the caches once the changes are committed.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /**
+     * Returns the ids of undeleted courses created more than ten years ago.
+     *
+     * @param max Maximum number of ids.
+     * @return Ids of expired courses, ascending.
+     */
+    public List<Long> findExpiredCourseIds(int max) {
+        return em.createQuery(
+                "SELECT c.courseId FROM Course c"
+                + " WHERE c.deleted = false"
+                + " AND c.created <= :date"
+                + " ORDER BY c.courseId", Long.class)
+                .setParameter("date", DateUtil.tenYearsAgo())
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * Returns the ids of users who haven't been active for ten years and
+     * are not deleted yet.
+     *
+     * @param max Maximum number of ids.
+     * @return Ids of expired users, ascending.
+     */
+    public List<Long> findExpiredUserIds(int max) {
+        return em.createQuery(
+                "SELECT u.userId FROM User u"
+                + " WHERE u.lastActivity <= :date"
+                + " AND u.firstName != 'Deleted'"
+                + " AND u.password IS NOT NULL"
+                + " ORDER BY u.userId", Long.class)
+                .setParameter("date", DateUtil.tenYearsAgo())
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * Deletes the given courses with all of their students, tutors and
+     * lecturers. The courses are kept for another ten years, like courses
+     * deleted by hand.
+     *
+     * @param courseIds Ids of the courses, at most a few hundred.
+     * @return Number of deleted courses.
+     */
+    public int deleteCourses(List<Long> courseIds) {
+        if (courseIds.isEmpty()) {
+            return 0;
+        }
+
+        for (String participation : PARTICIPATIONS) {
+            em.createQuery("UPDATE " + participation + " p"
+                    + " SET p.isDeleted = true"
+                    + " WHERE p.course.courseId IN :ids")
+                    .setParameter("ids", courseIds)
+                    .executeUpdate();
+        }
+
+        int deleted = em.createQuery(
+                "UPDATE Course c SET c.deleted = true, c.created = :created"
+                + " WHERE c.courseId IN :ids")
+                .setParameter("created", DateUtil.tenYearsLater())
+                .setParameter("ids", courseIds)
+                .executeUpdate();
+
+        clearCachesOnCompletion();
+        return deleted;
+    }
+
+    /**
+     * Deletes the given users by removing them from all of their courses
+     * and overwriting their personal data, which keeps their gradings and
+     * logs intact.
+     *
+     * @param userIds Ids of the users, at most a few hundred.
+     * @return Number of deleted users.
+     */
+    public int deleteUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        for (String participation : PARTICIPATIONS) {
+            em.createQuery("UPDATE " + participation + " p"
+                    + " SET p.isDeleted = true"
+                    + " WHERE p.user.userId IN :ids")
+                    .setParameter("ids", userIds)
+                    .executeUpdate();
+        }
+
+        // The emails are unique, so every user gets its own statement.
+        int deleted = 0;
+        for (Long userId : userIds) {
+            deleted += em.createQuery(
+                    "UPDATE User u SET u.firstName = 'Deleted',"
+                    + " u.lastName = 'User', u.email = :email,"
+                    + " u.password = :password,"
+                    + " u.matriculationNumber = 'XXXXXX',"
+                    + " u.profileInfo = ''"
+                    + " WHERE u.userId = :userId")
+                    .setParameter("email", RandomStringUtils.randomAlphanumeric(10))
+                    .setParameter("password", RandomStringUtils.randomAlphanumeric(10))
+                    .setParameter("userId", userId)
+                    .executeUpdate();
+        }
+
+        evictUsersOnCompletion(userIds);
+        return deleted;
+    }
+
+    /**
+     * Clears the memberships once immediately and once more after the
+     * transaction has completed.
+     */
+    private void clearCachesOnCompletion() {
+        MembershipCache.clear();
+        TransactionHooks.afterCompletion(registry, status -> MembershipCache.clear());
+    }
+
+    /**
+     * Evicts the memberships of the given users once immediately and once
+     * more after the transaction has completed, and removes the users from
+     * the search index once it has been committed.
+     */
+    private void evictUsersOnCompletion(List<Long> userIds) {
+        final List<Long> ids = new ArrayList<>(userIds);
+        ids.forEach(MembershipCache::evict);
+        boolean registered = TransactionHooks.afterCompletion(registry, status -> {
+            ids.forEach(MembershipCache::evict);
+            if (status == Status.STATUS_COMMITTED) {
+                ids.forEach(UserSearchIndex::remove);
+            }
+        });
+        if (!registered) {
+            ids.forEach(UserSearchIndex::remove);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Backup;
+import de.unibremen.opensores.util.ServerProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes the courses and users which expired ten years ago and the expired
+ * backups. The sweep runs every night (see ejb-jar.xml) and can be started
+ * by an administrator. Courses and users are deleted in chunks, each in its
+ * own transaction, and the progress can be read while the sweep is running.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class RetentionSweep {
+
+    private static Logger log = LogManager.getLogger(RetentionSweep.class);
+
+    private static final String CHUNK_SIZE_KEY
+            = "exmatrikulator.retention.chunkSize";
+
+    /**
+     * RetentionService for the bulk deletions.
+     */
+    @EJB
+    private RetentionService retentionService;
+
+    /**
+     * BackupService for deleting the expired backups.
+     */
+    @EJB
+    private BackupService backupService;
+
+    /**
+     * Whether a sweep is running.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Progress of the running or last sweep.
+     */
+    private final AtomicInteger deletedCourses = new AtomicInteger();
+    private final AtomicInteger deletedUsers = new AtomicInteger();
+    private final AtomicInteger deletedBackups = new AtomicInteger();
+
+    /**
+     * Used for the nightly sweep, configured in ejb-jar.xml.
+     *
+     * @param timer The timer which triggered the sweep.
+     */
+    public void scheduledSweep(Timer timer) {
+        sweep();
+    }
+
+    /**
+     * Runs a sweep in the background.
+     */
+    @Asynchronous
+    public void start() {
+        sweep();
+    }
+
+    /**
+     * Deletes the expired courses, users and backups. Does nothing if a
+     * sweep is running already.
+     *
+     * @return False if a sweep is running already.
+     */
+    public boolean sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        deletedCourses.set(0);
+        deletedUsers.set(0);
+        deletedBackups.set(0);
+        try {
+            int chunkSize = Math.max(1, ServerProperties.getInt(CHUNK_SIZE_KEY, 200));
+
+            List<Long> ids = retentionService.findExpiredCourseIds(chunkSize);
+            while (!ids.isEmpty()) {
+                deletedCourses.addAndGet(retentionService.deleteCourses(ids));
+                ids = retentionService.findExpiredCourseIds(chunkSize);
+            }
+
+            ids = retentionService.findExpiredUserIds(chunkSize);
+            while (!ids.isEmpty()) {
+                deletedUsers.addAndGet(retentionService.deleteUsers(ids));
+                ids = retentionService.findExpiredUserIds(chunkSize);
+            }
+
+            for (Backup backup : backupService.getExpiredBackups()) {
+                backupService.deleteBackup(backup);
+                deletedBackups.incrementAndGet();
+            }
+
+            log.info("Deleted " + deletedCourses + " expired courses, "
+                    + deletedUsers + " users and " + deletedBackups + " backups");
+        } catch (RuntimeException e) {
+            log.error("The retention sweep failed after deleting "
+                    + deletedCourses + " courses and " + deletedUsers + " users", e);
+        } finally {
+            running.set(false);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a sweep is running.
+     *
+     * @return True if a sweep is running.
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Returns the number of courses deleted by the running or last sweep.
+     *
+     * @return Number of deleted courses.
+     */
+    public int getDeletedCourses() {
+        return deletedCourses.get();
+    }
+
+    /**
+     * Returns the number of users deleted by the running or last sweep.
+     *
+     * @return Number of deleted users.
+     */
+    public int getDeletedUsers() {
+        return deletedUsers.get();
+    }
+
+    /**
+     * Returns the number of backups deleted by the running or last sweep.
+     *
+     * @return Number of deleted backups.
+     */
+    public int getDeletedBackups() {
+        return deletedBackups.get();
+    }
+}
@@ -0,0 +1,240 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException.Limit;
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyObject;
+import org.python.core.TraceFunction;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Limits the CPU time and the memory a script may use while it is run by
+ * the PythonService. The budget is installed as trace function of the
+ * thread running the script, so Jython calls it before every line and
+ * call. Once a limit is exceeded or the run is cancelled, every further
+ * line raises a RuntimeError, which the script can't catch for good.
+ *
+ * <p>The budget also counts the students graded by the script, which can be
+ * shown as progress while the script is running: one for every call of
+ * set_final_grade and the length of the list returned by
+ * set_final_grades.</p>
+ */
+public class ScriptBudget extends TraceFunction {
+
+    /**
+     * Number of trace events after which the used CPU time is measured
+     * again. Measuring it is more expensive than reading the allocated
+     * bytes, which are checked on every event.
+     */
+    private static final int CPU_CHECK_INTERVAL = 1000;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * CPU time the script may use in nanoseconds.
+     */
+    private final long cpuTimeLimit;
+
+    /**
+     * Bytes the script may allocate.
+     */
+    private final long allocationLimit;
+
+    /**
+     * Students graded so far.
+     */
+    private final AtomicInteger graded = new AtomicInteger();
+
+    /**
+     * State of the run, shared by the thread running the script and the
+     * thread waiting for it.
+     */
+    private final AtomicReference<RunState> state
+            = new AtomicReference<>(RunState.QUEUED);
+
+    /**
+     * The exceeded limit or null.
+     */
+    private volatile Limit exceeded;
+
+    /**
+     * Whether the run has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Id of the thread running the script.
+     */
+    private long threadId;
+
+    /**
+     * CPU time and allocated bytes of the thread when the script started.
+     */
+    private long cpuTimeStart;
+    private long allocatedStart;
+
+    /**
+     * Trace events since the CPU time was measured.
+     */
+    private int events;
+
+    /**
+     * States of a run.
+     */
+    private enum RunState {
+        QUEUED, RUNNING, FINISHED, ABANDONED
+    }
+
+    /**
+     * Creates a new budget.
+     * @param cpuTimeLimit CPU time the script may use in milliseconds.
+     * @param allocationLimit Megabytes the script may allocate.
+     */
+    public ScriptBudget(long cpuTimeLimit, long allocationLimit) {
+        this.cpuTimeLimit = cpuTimeLimit * 1000L * 1000L;
+        this.allocationLimit = allocationLimit * 1024L * 1024L;
+    }
+
+    /**
+     * Starts measuring in the thread which runs the script.
+     */
+    void start() {
+        threadId = Thread.currentThread().getId();
+        cpuTimeStart = cpuTime();
+        allocatedStart = allocatedBytes();
+        state.compareAndSet(RunState.QUEUED, RunState.RUNNING);
+    }
+
+    /**
+     * Stops the script at its next line.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Gives up waiting for the script, called after it has been cancelled.
+     * @return True if the script is still running, so its thread is lost
+     *         until the script notices the cancellation.
+     */
+    boolean abandon() {
+        return state.compareAndSet(RunState.RUNNING, RunState.ABANDONED);
+    }
+
+    /**
+     * Marks the run as finished, called by the thread running the script.
+     * @return False if the run had been abandoned before.
+     */
+    boolean finish() {
+        return state.compareAndSet(RunState.RUNNING, RunState.FINISHED);
+    }
+
+    /**
+     * Returns the exceeded limit.
+     * @return The exceeded limit, TIME if the run was cancelled or null if
+     *         the script stayed within its limits.
+     */
+    public Limit getExceeded() {
+        return cancelled && exceeded == null ? Limit.TIME : exceeded;
+    }
+
+    /**
+     * Returns whether the run has been cancelled, in which case the script
+     * may still be running.
+     * @return True if the run has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of students graded so far.
+     * @return Number of graded students.
+     */
+    public int getGraded() {
+        return graded.get();
+    }
+
+    @Override
+    public TraceFunction traceCall(PyFrame frame) {
+        if (isFrameOf(frame, GradeFormulaEvaluator.PY_GRADE_METHOD_NAME)) {
+            graded.incrementAndGet();
+        }
+        check();
+        return this;
+    }
+
+    @Override
+    public TraceFunction traceReturn(PyFrame frame, PyObject ret) {
+        if (ret != null && ret.isSequenceType()
+                && isFrameOf(frame, GradeFormulaEvaluator.PY_BATCH_GRADE_METHOD_NAME)) {
+            graded.addAndGet(ret.__len__());
+        }
+        return this;
+    }
+
+    @Override
+    public TraceFunction traceLine(PyFrame frame, int line) {
+        check();
+        return this;
+    }
+
+    @Override
+    public TraceFunction traceException(PyFrame frame, PyException exc) {
+        return this;
+    }
+
+    /**
+     * Checks whether a frame is a call of the function with the given name.
+     */
+    private static boolean isFrameOf(PyFrame frame, String function) {
+        return frame.f_code != null && function.equals(frame.f_code.co_name);
+    }
+
+    /**
+     * Raises a RuntimeError in the script if it has been cancelled or has
+     * exceeded a limit. The allocated bytes are measured on every event,
+     * the CPU time every CPU_CHECK_INTERVAL events.
+     */
+    private void check() {
+        if (exceeded == null && allocatedBytes() - allocatedStart > allocationLimit) {
+            exceeded = Limit.MEMORY;
+        } else if (exceeded == null && ++events >= CPU_CHECK_INTERVAL) {
+            events = 0;
+            if (cpuTime() - cpuTimeStart > cpuTimeLimit) {
+                exceeded = Limit.TIME;
+            }
+        }
+
+        if (exceeded != null || cancelled) {
+            throw Py.RuntimeError("The grade script exceeded its limit: "
+                    + getExceeded());
+        }
+    }
+
+    /**
+     * Returns the CPU time used by the thread running the script, or 0 if
+     * the JVM doesn't measure it.
+     */
+    private long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported()
+                ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Returns the bytes allocated by the thread running the script, or 0 if
+     * the JVM doesn't measure them.
+     */
+    private long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS)
+                    .getThreadAllocatedBytes(threadId);
+        }
+        return 0;
+    }
+}
@@ -1,6 +1,7 @@
 package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.Semester;
+import org.hibernate.annotations.QueryHints;
 
 import java.util.Calendar;
 import java.util.List;
@@ -29,6 +30,7 @@ public class SemesterService extends GenericService<Semester> {
                 + "AND s.isWinter = :winter", Semester.class)
             .setParameter("year", year)
             .setParameter("winter", winter)
+            .setHint(QueryHints.CACHEABLE, true)
             .getResultList();
 
         return (semesters.isEmpty()) ? null : semesters.get(0);
@@ -41,7 +43,9 @@ public class SemesterService extends GenericService<Semester> {
     public List<Semester> listSemesters() {
         return em.createQuery(
                 "SELECT DISTINCT s "
-                        + "FROM Semester s ", Semester.class).getResultList();
+                        + "FROM Semester s ", Semester.class)
+                .setHint(QueryHints.CACHEABLE, true)
+                .getResultList();
     }
 
     /**
@@ -1,13 +1,18 @@
 package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.Group;
 import de.unibremen.opensores.model.ParticipationType;
 import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 
 import javax.ejb.Stateless;
-import javax.mail.Part;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +25,63 @@ import java.util.Map;
 @Stateless
 public class StudentService extends GenericService<Student> {
 
+    /**
+     * Writes the participation of the given student: its participation type,
+     * tutorial, group and whether it is confirmed, has accepted the
+     * invitation and is deleted. Only the row
+     * of the student is updated, unlike merging the course, which walks all
+     * of its participants.
+     *
+     * @param student Persisted student whose participation changed.
+     * @throws IllegalArgumentException If the student doesn't exist.
+     */
+    public void updateParticipation(Student student) {
+        updateParticipations(Collections.singletonList(student));
+    }
+
+    /**
+     * Writes the participations of the given students in one transaction,
+     * see updateParticipation.
+     *
+     * @param students Persisted students whose participations changed.
+     * @throws IllegalArgumentException If one of the students doesn't exist.
+     */
+    public void updateParticipations(Collection<Student> students) {
+        for (Student student : students) {
+            Student managed = em.find(Student.class, student.getStudentId());
+            if (managed == null) {
+                throw new IllegalArgumentException("The student "
+                        + student.getStudentId() + " doesn't exist");
+            }
+
+            managed.setParticipationType(reference(ParticipationType.class,
+                    student.getParticipationType()));
+            managed.setTutorial(reference(Tutorial.class, student.getTutorial()));
+            managed.setGroup(reference(Group.class, student.getGroup()));
+            managed.setConfirmed(student.isConfirmed());
+            managed.setAcceptedInvitation(student.hasAcceptedInvitation());
+            managed.setDeleted(student.isDeleted());
+        }
+    }
+
+    /**
+     * Saves the given students after they joined a course: new students are
+     * inserted, for returning ones only their participation is written.
+     *
+     * @param students New or returning students of a course.
+     */
+    public void saveParticipations(Collection<Student> students) {
+        List<Student> returning = new ArrayList<>();
+        for (Student student : students) {
+            if (student.getStudentId() == null) {
+                em.persist(student);
+            } else {
+                returning.add(student);
+            }
+        }
+
+        updateParticipations(returning);
+    }
 
     /**
      * Finds a student by its associated user and its course.
@@ -39,26 +101,50 @@ public class StudentService extends GenericService<Student> {
     }
 
     /**
-     * Gets a map of participation types types off all undeleted and confirmed students.
-     * @param participationTypes The list of participation types from which the
-     *                           undeleted and confirmed students should be got.
+     * Gets the undeleted and confirmed students of a course grouped by their
+     * participation type. The students are loaded with a single query
+     * together with their users, gradings, grades and graded exams, so
+     * walking their gradings doesn't cause further queries.
      *
-     * @return A map from the participation types to a list of the students.
+     * @param course The course from which the undeleted and confirmed
+     *               students should be got.
+     * @return A map from each participation type of the course to a list of
+     *         its students.
      */
     public Map<ParticipationType, List<Student>> getUndeletedAndConfirmedStudentsOf(
-            List<ParticipationType> participationTypes) {
-        if (participationTypes == null) {
-            throw new IllegalArgumentException("The List of ParticipatioNTypes cant be null");
+            Course course) {
+        if (course == null) {
+            throw new IllegalArgumentException("The course can't be null");
+        }
+
+        List<Student> rows = em.createQuery(
+                "SELECT s FROM Student s"
+                + " JOIN FETCH s.user"
+                + " JOIN FETCH s.participationType"
+                + " LEFT JOIN FETCH s.tutorial"
+                + " LEFT JOIN FETCH s.group"
+                + " LEFT JOIN FETCH s.gradings g"
+                + " LEFT JOIN FETCH g.grade"
+                + " LEFT JOIN FETCH g.exam"
+                + " LEFT JOIN FETCH g.corrector"
+                + " WHERE s.course.courseId = :courseId"
+                + " AND s.isConfirmed = true"
+                + " AND s.isDeleted = false", Student.class)
+                .setParameter("courseId", course.getCourseId())
+                .getResultList();
+
+        // The fetched gradings repeat each student once per grading.
+        Map<Long, List<Student>> studentsByType = new HashMap<>();
+        for (Student student : new LinkedHashSet<>(rows)) {
+            Long typeId = student.getParticipationType().getPartTypeId();
+            studentsByType.computeIfAbsent(typeId, id -> new ArrayList<>())
+                    .add(student);
         }
+
         Map<ParticipationType, List<Student>> partTypeStudents = new HashMap<>();
-        for (ParticipationType type: participationTypes) {
-            partTypeStudents.put(type, em.createQuery(
-                    "SELECT DISTINCT s FROM Student s"
-                    + " WHERE s.participationType.partTypeId = :typeId"
-                    + " AND s.isConfirmed = true"
-                    + " AND s.isDeleted = false", Student.class)
-                    .setParameter("typeId", type.getPartTypeId())
-                    .getResultList());
+        for (ParticipationType type : course.getParticipationTypes()) {
+            List<Student> students = studentsByType.get(type.getPartTypeId());
+            partTypeStudents.put(type, students == null ? new ArrayList<>() : students);
         }
         return partTypeStudents;
     }
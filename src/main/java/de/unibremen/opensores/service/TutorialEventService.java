@@ -1,14 +1,28 @@
 package de.unibremen.opensores.service;
 
+import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.TutorialEvent;
-import de.unibremen.opensores.service.GenericService;
 
 import javax.ejb.Stateless;
+import java.util.Date;
+import java.util.List;
 
 /**
  * The service class for the Tutorial Event Entity.
  */
 @Stateless
-public class TutorialEventService extends GenericService<TutorialEvent> {
+public class TutorialEventService extends DefaultEventService<TutorialEvent> {
 
+    /**
+     * Gets the events of a tutorial which overlap the given time range,
+     * used for loading the visible range of the tutorial calendar.
+     * @param tutorial The tutorial of the events.
+     * @param start The start of the range.
+     * @param end The end of the range.
+     * @return The events overlapping the range, ordered by their start date.
+     */
+    public List<TutorialEvent> findEventsBetween(Tutorial tutorial, Date start, Date end) {
+        return findEventsBetween(TutorialEvent.class, "tutorial.tutorialId",
+                tutorial.getTutorialId(), start, end);
+    }
 }
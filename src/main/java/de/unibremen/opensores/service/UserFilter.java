@@ -0,0 +1,74 @@
+package de.unibremen.opensores.service;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Criteria for querying users with the UserService. Each criterion is a text
+ * the corresponding field has to contain, ignoring case. Criteria which are
+ * null aren't applied.
+ */
+public class UserFilter implements Serializable {
+
+    private static final long serialVersionUID = 2911826617354017432L;
+
+    private String lastName;
+
+    private String firstName;
+
+    private String email;
+
+    private String matriculationNumber;
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getMatriculationNumber() {
+        return matriculationNumber;
+    }
+
+    public void setMatriculationNumber(String matriculationNumber) {
+        this.matriculationNumber = matriculationNumber;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof UserFilter)) {
+            return false;
+        }
+
+        UserFilter other = (UserFilter) obj;
+        return Objects.equals(lastName, other.lastName)
+            && Objects.equals(firstName, other.firstName)
+            && Objects.equals(email, other.email)
+            && Objects.equals(matriculationNumber, other.matriculationNumber);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastName, firstName, email, matriculationNumber);
+    }
+}
@@ -0,0 +1,73 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.GlobalRole;
+import de.unibremen.opensores.util.UserSearchIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fills the UserSearchIndex with all users on the first search. Loading is
+ * guarded by the write lock of this singleton, so the users are read only
+ * once while concurrent searches wait for the index.
+ */
+@Singleton
+public class UserSearchIndexLoader {
+
+    private static Logger log = LogManager.getLogger(UserSearchIndexLoader.class);
+
+    /**
+     * Number of users read with a single statement.
+     */
+    private static final int PAGE_SIZE = 5000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Fills the UserSearchIndex with all users if this hasn't been done yet.
+     * Only the indexed columns are read, in pages of PAGE_SIZE users.
+     */
+    @Lock(LockType.WRITE)
+    public void load() {
+        if (UserSearchIndex.isLoaded()) {
+            return;
+        }
+
+        log.debug("Loading the user search index");
+        Set<Long> lecturerIds = new HashSet<>(em.createQuery(
+                "SELECT u.userId FROM User u JOIN u.roles r WHERE r = :role",
+                Long.class)
+                .setParameter("role", GlobalRole.LECTURER.getId())
+                .getResultList());
+
+        long after = -1;
+        List<Object[]> rows;
+        do {
+            rows = em.createQuery(
+                    "SELECT u.userId, u.firstName, u.lastName, u.email, "
+                    + "u.matriculationNumber FROM User u "
+                    + "WHERE u.userId > :after ORDER BY u.userId", Object[].class)
+                    .setParameter("after", after)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            for (Object[] row : rows) {
+                Long userId = (Long) row[0];
+                UserSearchIndex.add(userId, (String) row[1], (String) row[2],
+                        (String) row[3], (String) row[4],
+                        lecturerIds.contains(userId));
+                after = userId;
+            }
+        } while (rows.size() == PAGE_SIZE);
+
+        UserSearchIndex.setLoaded();
+    }
+}
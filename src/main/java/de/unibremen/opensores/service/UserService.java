@@ -1,14 +1,13 @@
 package de.unibremen.opensores.service;
 
 import de.unibremen.opensores.model.PasswordReset;
-import de.unibremen.opensores.model.GlobalRole;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.model.Role;
 import de.unibremen.opensores.model.Course;
-import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.Lecturer;
-import de.unibremen.opensores.model.PrivilegedUser;
 import de.unibremen.opensores.util.DateUtil;
+import de.unibremen.opensores.util.MembershipCache;
+import de.unibremen.opensores.util.UserSearchIndex;
 
 import java.math.BigInteger;
 import java.net.MalformedURLException;
@@ -16,9 +15,19 @@ import java.security.SecureRandom;
 import java.sql.Time;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -42,6 +51,30 @@ public class UserService extends GenericService<User> {
      */
     private static final int TOKEN_RANDIX = 32;
 
+    /**
+     * Entities and their fields which reference the user whose rows are
+     * moved to another user by a merge, see mergeUsers.
+     */
+    private static final String[][] MERGED_REFERENCES = {
+        {"Student", "user"},
+        {"PrivilegedUser", "user"},
+        {"Lecturer", "user"},
+        {"Grading", "corrector"},
+        {"GradeFormula", "editor"},
+        {"Log", "loggedInUser"}};
+
+    /**
+     * RetentionService for deleting merged users.
+     */
+    @EJB
+    private RetentionService retentionService;
+
+    /**
+     * Loader filling the UserSearchIndex on the first search.
+     */
+    @EJB
+    private UserSearchIndexLoader searchIndexLoader;
+
     /**
      * Finds a user using a string id.
      *
@@ -76,6 +109,31 @@ public class UserService extends GenericService<User> {
         return (userList.isEmpty()) ? null : userList.get(0);
     }
 
+    /**
+     * Finds all users with one of the given emails.
+     *
+     * @param emails Emails to look up.
+     * @return Map from the lower case email to the user, containing only
+     *         the emails a user was found for.
+     */
+    public Map<String, User> findByEmails(Collection<String> emails) {
+        List<String> lowered = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            lowered.add(email.toLowerCase());
+        }
+
+        Map<String, User> users = new HashMap<>();
+        for (User user : findInChunks(lowered, chunk -> em.createQuery(
+                "SELECT DISTINCT u "
+              + "FROM User u "
+              + "WHERE u.email IN :emails", User.class)
+                .setParameter("emails", chunk).getResultList())) {
+            users.put(user.getEmail().toLowerCase(), user);
+        }
+
+        return users;
+    }
+
     /**
      * Checks if given email is already an registered account.
      * @param email email as typed in by the user
@@ -96,9 +154,9 @@ public class UserService extends GenericService<User> {
      *
      * @param user User to check.
      * @param course Course to check.
-     * @return True if he is, false otherwise.
+     * @return The lecturer if found, else null.
      */
-    private boolean isLecturer(User user, Course course) {
+    public Lecturer getLecturer(User user, Course course) {
         List<Lecturer> lecturers = em.createQuery(
                 "SELECT DISTINCT l FROM Lecturer l "
                 + "JOIN l.user    AS u WITH u.userId = :uid "
@@ -108,69 +166,83 @@ public class UserService extends GenericService<User> {
             .setParameter("cid", course.getCourseId())
             .getResultList();
 
-        return !lecturers.isEmpty();
+        return (lecturers.isEmpty()) ? null : lecturers.get(0);
     }
 
-
-
     /**
-     * Returns true if the given user is a lecturer in the given course.
+     * Returns the course memberships of the given user. The memberships are
+     * loaded with one query per participation type and then cached in the
+     * MembershipCache until a participation of the user changes.
      *
-     * @param user User to check.
-     * @param course Course to check.
-     * @return The lecturer if found, else null.
+     * @param userId Id of the user.
+     * @return Map from the id of every course the user takes part in to
+     *         the roles the user has in it, ignoring deleted participations.
      */
-    public Lecturer getLecturer(User user, Course course) {
-        List<Lecturer> lecturers = em.createQuery(
-                "SELECT DISTINCT l FROM Lecturer l "
-                + "JOIN l.user    AS u WITH u.userId = :uid "
-                + "JOIN l.course  AS c WITH c.courseId = :cid "
-                + "WHERE l.isDeleted = false", Lecturer.class)
-            .setParameter("uid", user.getUserId())
-            .setParameter("cid", course.getCourseId())
-            .getResultList();
+    public Map<Long, Set<Role>> getCourseMemberships(Long userId) {
+        Map<Long, Set<Role>> memberships = MembershipCache.get(userId);
+        if (memberships != null) {
+            return memberships;
+        }
 
-        return (lecturers.isEmpty()) ? null : lecturers.get(0);
+        final long generation = MembershipCache.generation();
+        memberships = new HashMap<>();
+        addMemberships(memberships, Role.STUDENT,
+                "SELECT s.course.courseId, s.isDeleted FROM Student s "
+                + "WHERE s.user.userId = :uid", userId);
+        addMemberships(memberships, Role.PRIVILEGED_USER,
+                "SELECT p.course.courseId, p.isDeleted FROM PrivilegedUser p "
+                + "WHERE p.user.userId = :uid", userId);
+        addMemberships(memberships, Role.LECTURER,
+                "SELECT l.course.courseId, l.isDeleted FROM Lecturer l "
+                + "WHERE l.user.userId = :uid", userId);
+
+        memberships.replaceAll((id, roles) -> Collections.unmodifiableSet(roles));
+        memberships = Collections.unmodifiableMap(memberships);
+        MembershipCache.put(userId, memberships, generation);
+        return memberships;
     }
 
     /**
-     * Returns true if the given user is a privileged user in the given course.
+     * Adds the participations selected by the given query to the given
+     * memberships.
      *
-     * @param user User to check.
-     * @param course Course to check.
-     * @return True if he is, false otherwise.
-     */
-    private boolean isPrivileged(User user, Course course) {
-        List<PrivilegedUser> privUsers = em.createQuery(
-                "SELECT DISTINCT p FROM PrivilegedUser p "
-                + "JOIN p.user    AS u WITH u.userId = :uid "
-                + "JOIN p.course  AS c WITH c.courseId = :cid "
-                + "WHERE p.isDeleted = false", PrivilegedUser.class)
-            .setParameter("uid", user.getUserId())
-            .setParameter("cid", course.getCourseId())
-            .getResultList();
+     * @param memberships Memberships to add to.
+     * @param role Role of the participations.
+     * @param query Query selecting the course id and deleted flag of the
+     *              participations of the user.
+     * @param userId Id of the user.
+     */
+    private void addMemberships(Map<Long, Set<Role>> memberships, Role role,
+                                String query, Long userId) {
+        List<Object[]> rows = em.createQuery(query, Object[].class)
+                .setParameter("uid", userId)
+                .getResultList();
 
-        return !privUsers.isEmpty();
+        for (Object[] row : rows) {
+            Long courseId = (Long) row[0];
+            Set<Role> roles = memberships.get(courseId);
+            if (roles == null) {
+                roles = EnumSet.noneOf(Role.class);
+                memberships.put(courseId, roles);
+            }
+
+            if (!Boolean.TRUE.equals(row[1])) {
+                roles.add(role);
+            }
+        }
     }
 
     /**
-     * Returns true if the given user is a student in the given course.
+     * Returns true if the user takes or took part in the given course,
+     * including deleted participations.
      *
      * @param user User to check.
-     * @param course Course to check.
-     * @return True if he is, false otherwise.
-     */
-    private boolean isStudent(User user, Course course) {
-        List<Student> students = em.createQuery(
-                "SELECT DISTINCT s FROM Student s "
-                + "JOIN s.user    AS u WITH u.userId = :uid "
-                + "JOIN s.course  AS c WITH c.courseId = :cid "
-                + "WHERE s.isDeleted = false", Student.class)
-            .setParameter("uid", user.getUserId())
-            .setParameter("cid", course.getCourseId())
-            .getResultList();
-
-        return !students.isEmpty();
+     * @param courseId Id of the course.
+     * @return True if the user is a member of the course.
+     */
+    public boolean isCourseMember(User user, Long courseId) {
+        return user != null && user.getUserId() != null
+            && getCourseMemberships(user.getUserId()).containsKey(courseId);
     }
 
     /**
@@ -182,16 +254,13 @@ public class UserService extends GenericService<User> {
      * @return True if the user has the given role, false otherwise.
      */
     public boolean hasCourseRole(User user, Role role, Course course) {
-        switch (role) {
-            case LECTURER:
-                return isLecturer(user, course);
-            case PRIVILEGED_USER:
-                return isPrivileged(user, course);
-            case STUDENT:
-                return isStudent(user, course);
-            default:
-                return false;
+        if (user == null || user.getUserId() == null || course == null) {
+            return false;
         }
+
+        Set<Role> roles = getCourseMemberships(user.getUserId())
+                .get(course.getCourseId());
+        return roles != null && roles.contains(role);
     }
 
     /**
@@ -282,9 +351,9 @@ public class UserService extends GenericService<User> {
     }
 
     /**
-     * Searches for users by their email, firstName, lastName or a combination
-     * of their first and last name. One of these options should be passed as
-     * searchInput parameter string.
+     * Searches for users by their email, firstName, lastName, matriculation
+     * number or a combination of their first and last name. Returns all
+     * matching users, see searchForUsers(String, int, int).
      * @param searchInput The search input, representing only the
      *                    email, firstName, lastName or a combination of the
      *                    first and last name of the user.
@@ -292,41 +361,30 @@ public class UserService extends GenericService<User> {
      *         the searchInput is null or empty.
      */
     public List<User> searchForUsers(String searchInput) {
-        if (searchInput == null || searchInput.trim().isEmpty()) {
-            return new ArrayList<>();
-        }
-        final String trimSearchInput = searchInput.trim().toLowerCase();
-        if (trimSearchInput.contains(" ") && trimSearchInput.split(" ").length >= 2) {
-            final String[] names = trimSearchInput.split(" ");
-            return em.createQuery(
-                "SELECT DISTINCT u FROM User u WHERE "
-                + "(TRIM(LOWER(u.firstName)) LIKE :firstNameSplit "
-                     + "AND TRIM(LOWER(u.lastName)) LIKE :lastNameSplit) "
-                + "OR TRIM(LOWER(u.firstName)) LIKE :searchInput "
-                + "OR TRIM(LOWER(u.lastName)) LIKE :searchInput "
-                + "OR TRIM(LOWER(u.email)) LIKE :searchInput "
-                + "OR TRIM(LOWER(u.matriculationNumber)) LIKE :searchInput", User.class)
-                .setParameter("firstNameSplit", names[0])
-                .setParameter("lastNameSplit", names[1])
-                .setParameter("searchInput", trimSearchInput)
-                .getResultList();
-        } else {
-            return em.createQuery(
-                "SELECT DISTINCT u FROM User u WHERE "
-                        + "TRIM(LOWER(u.email)) LIKE :searchInput "
-                        + "OR TRIM(LOWER(u.firstName)) LIKE :searchInput "
-                        + "OR TRIM(LOWER(u.lastName)) LIKE :searchInput "
-                        + "OR TRIM(LOWER(u.matriculationNumber)) LIKE :searchInput", User.class)
-                .setParameter("searchInput", trimSearchInput + "%")
-                .getResultList();
-        }
+        return searchForUsers(searchInput, 0, Integer.MAX_VALUE);
     }
 
+    /**
+     * Searches for users using the UserSearchIndex. Each word of the search
+     * input has to be the beginning of the email, firstName, lastName or
+     * matriculation number of a user. Exact matches come first, followed by
+     * users whose name starts with the input.
+     * @param searchInput The search input.
+     * @param offset Number of results to skip, for pagination.
+     * @param limit Maximum number of results.
+     * @return A list of users which match the search input in ranked order.
+     *         An empty List if the searchInput is null or empty.
+     */
+    public List<User> searchForUsers(String searchInput, int offset, int limit) {
+        loadSearchIndex();
+        return findByIdsInOrder(UserSearchIndex.search(searchInput, false,
+                offset, limit));
+    }
 
     /**
      * Searches for lecturers by their email, firstName, lastName or a combination
-     * of their first and last name. One of these options should be passed as
-     * searchInput parameter string.
+     * of their first and last name. Returns all matching lecturers, see
+     * searchForLecturers(String, int, int).
      * @param searchInput The search input, representing only the
      *                    email, firstName, lastName or a combination of the
      *                    first and last name of the user.
@@ -334,36 +392,60 @@ public class UserService extends GenericService<User> {
      *         the searchInput is null or empty.
      */
     public List<User> searchForLecturers(String searchInput) {
-        if (searchInput == null || searchInput.trim().isEmpty()) {
+        return searchForLecturers(searchInput, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for users with the global lecturer role, like
+     * searchForUsers(String, int, int).
+     * @param searchInput The search input.
+     * @param offset Number of results to skip, for pagination.
+     * @param limit Maximum number of results.
+     * @return A list of lecturers which match the search input in ranked
+     *         order. An empty List if the searchInput is null or empty.
+     */
+    public List<User> searchForLecturers(String searchInput, int offset, int limit) {
+        loadSearchIndex();
+        return findByIdsInOrder(UserSearchIndex.search(searchInput, true,
+                offset, limit));
+    }
+
+    /**
+     * Fills the UserSearchIndex with all users if this hasn't been done yet.
+     */
+    private void loadSearchIndex() {
+        if (!UserSearchIndex.isLoaded()) {
+            searchIndexLoader.load();
+        }
+    }
+
+    /**
+     * Finds users by their ids, keeping the order of the given ids.
+     * @param userIds Ids of the users.
+     * @return Found users in the order of the ids.
+     */
+    private List<User> findByIdsInOrder(List<Long> userIds) {
+        if (userIds.isEmpty()) {
             return new ArrayList<>();
         }
-        final String trimSearchInput = searchInput.trim().toLowerCase();
-        if (trimSearchInput.contains(" ") && trimSearchInput.split(" ").length >= 2) {
-            final String[] names = trimSearchInput.split(" ");
-            return em.createQuery(
-                    "SELECT DISTINCT u FROM User u WHERE "
-                            + GlobalRole.LECTURER.getId() + " IN elements(u.roles) AND"
-                            + "((TRIM(LOWER(u.firstName)) LIKE :firstNameSplit "
-                            + "AND TRIM(LOWER(u.lastName)) LIKE :lastNameSplit) "
-                            + "OR TRIM(LOWER(u.firstName)) LIKE :searchInput "
-                            + "OR TRIM(LOWER(u.lastName)) LIKE :searchInput "
-                            + "OR TRIM(LOWER(u.email)) LIKE : searchInput)", User.class)
-                    .setParameter("firstNameSplit", names[0])
-                    .setParameter("lastNameSplit", names[1])
-                    .setParameter("searchInput", trimSearchInput)
-                    .getResultList();
-        } else {
-            return em.createQuery(
-                    "SELECT DISTINCT u FROM User u WHERE "
-                            + GlobalRole.LECTURER.getId() + " IN elements(u.roles) AND"
-                            + "(TRIM(LOWER(u.email)) LIKE :searchInput "
-                            + "OR TRIM(LOWER(u.firstName)) LIKE :searchInput "
-                            + "OR TRIM(LOWER(u.lastName)) LIKE :searchInput "
-                            + "OR TRIM(LOWER(u.email)) LIKE :searchInput)", User.class)
-                    .setParameter("searchInput", trimSearchInput + "%")
-                    .getResultList();
+
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : em.createQuery(
+                "SELECT u FROM User u WHERE u.userId IN :ids", User.class)
+                .setParameter("ids", userIds)
+                .getResultList()) {
+            byId.put(user.getUserId(), user);
         }
 
+        List<User> users = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            User user = byId.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+
+        return users;
     }
 
     /**
@@ -418,15 +500,160 @@ public class UserService extends GenericService<User> {
     }
 
     /**
-     * Returns a list of all users ordered by the last name.
-     * @return List of users
+     * Returns a page of the users matching the given filter, ordered by the
+     * given field and the user id. If a boundary user is given, only users
+     * after it in the given order are returned, so that consecutive pages
+     * don't have to skip all previous rows.
+     *
+     * @param filter Criteria the users have to match.
+     * @param sortField Field to order by, one of lastName, firstName, email
+     *                  and matriculationNumber. Null orders by lastName.
+     * @param ascending True to return the users in ascending order.
+     * @param boundary Last user of the previous page or null.
+     * @param offset Number of users to skip.
+     * @param limit Maximum number of users to return.
+     * @return List of matching users.
      */
-    public List<User> getUsers() {
-        return em.createQuery(
-                    "SELECT DISTINCT u FROM User u "
-                        + "ORDER BY u.lastName ASC",
-                    User.class)
-                .getResultList();
+    public List<User> findUsers(UserFilter filter, String sortField,
+                                boolean ascending, User boundary,
+                                int offset, int limit) {
+        String order = ascending ? "ASC" : "DESC";
+        String sortExpression = getSortExpression(sortField);
+        StringBuilder jpql = new StringBuilder("SELECT u FROM User u");
+        appendConditions(jpql, filter);
+        if (boundary != null) {
+            String cmp = ascending ? ">" : "<";
+            jpql.append(" AND (").append(sortExpression).append(' ').append(cmp)
+                .append(" :boundaryValue OR (").append(sortExpression)
+                .append(" = :boundaryValue AND u.userId ").append(cmp)
+                .append(" :boundaryId))");
+        }
+        jpql.append(" ORDER BY ").append(sortExpression).append(' ').append(order)
+            .append(", u.userId ").append(order);
+
+        TypedQuery<User> query = em.createQuery(jpql.toString(), User.class);
+        setParameters(query, filter);
+        if (boundary != null) {
+            query.setParameter("boundaryValue", getSortValue(boundary, sortField));
+            query.setParameter("boundaryId", boundary.getUserId());
+        }
+
+        return query.setFirstResult(offset)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /**
+     * Counts the users matching the given filter.
+     *
+     * @param filter Criteria the users have to match.
+     * @return Number of matching users.
+     */
+    public int countUsers(UserFilter filter) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(u) FROM User u");
+        appendConditions(jpql, filter);
+
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        setParameters(query, filter);
+        return query.getSingleResult().intValue();
+    }
+
+    /**
+     * Returns the expression users are ordered by for the given field. The
+     * matriculation number is optional, missing ones are ordered as empty
+     * strings so that they can be compared with the boundary of a page.
+     *
+     * @param sortField Name of the field or null.
+     * @return JPQL expression.
+     */
+    private static String getSortExpression(String sortField) {
+        if ("firstName".equals(sortField)) {
+            return "u.firstName";
+        } else if ("email".equals(sortField)) {
+            return "u.email";
+        } else if ("matriculationNumber".equals(sortField)) {
+            return "COALESCE(u.matriculationNumber, '')";
+        }
+
+        return "u.lastName";
+    }
+
+    /**
+     * Returns the value of the user the expression of getSortExpression
+     * evaluates to.
+     *
+     * @param user User to get the value of.
+     * @param sortField Name of the field or null.
+     * @return Value of the field.
+     */
+    private static String getSortValue(User user, String sortField) {
+        if ("firstName".equals(sortField)) {
+            return user.getFirstName();
+        } else if ("email".equals(sortField)) {
+            return user.getEmail();
+        } else if ("matriculationNumber".equals(sortField)) {
+            return user.getMatriculationNumber() == null
+                ? "" : user.getMatriculationNumber();
+        }
+
+        return user.getLastName();
+    }
+
+    /**
+     * Appends the where clause for the given filter to a query selecting
+     * users as u.
+     *
+     * @param jpql Query to append the conditions to.
+     * @param filter Criteria the users have to match.
+     */
+    private void appendConditions(StringBuilder jpql, UserFilter filter) {
+        jpql.append(" WHERE 1 = 1");
+        if (filter.getLastName() != null) {
+            jpql.append(" AND LOWER(u.lastName) LIKE :lastName ESCAPE '\\'");
+        }
+        if (filter.getFirstName() != null) {
+            jpql.append(" AND LOWER(u.firstName) LIKE :firstName ESCAPE '\\'");
+        }
+        if (filter.getEmail() != null) {
+            jpql.append(" AND LOWER(u.email) LIKE :email ESCAPE '\\'");
+        }
+        if (filter.getMatriculationNumber() != null) {
+            jpql.append(" AND LOWER(u.matriculationNumber) LIKE :matriculationNumber"
+                + " ESCAPE '\\'");
+        }
+    }
+
+    /**
+     * Sets the parameters of the where clause added by appendConditions.
+     *
+     * @param query Query to set the parameters of.
+     * @param filter Criteria the users have to match.
+     */
+    private void setParameters(Query query, UserFilter filter) {
+        if (filter.getLastName() != null) {
+            query.setParameter("lastName", toPattern(filter.getLastName()));
+        }
+        if (filter.getFirstName() != null) {
+            query.setParameter("firstName", toPattern(filter.getFirstName()));
+        }
+        if (filter.getEmail() != null) {
+            query.setParameter("email", toPattern(filter.getEmail()));
+        }
+        if (filter.getMatriculationNumber() != null) {
+            query.setParameter("matriculationNumber",
+                    toPattern(filter.getMatriculationNumber()));
+        }
+    }
+
+    /**
+     * Creates a LIKE pattern matching strings which contain the given text.
+     *
+     * @param text Text to search for.
+     * @return Lower case pattern.
+     */
+    private static String toPattern(String text) {
+        return "%" + text.toLowerCase().replace("\\", "\\\\")
+            .replace("%", "\\%").replace("_", "\\_") + "%";
     }
 
     /**
@@ -446,4 +673,96 @@ public class UserService extends GenericService<User> {
 
         return users;
     }
+
+    /**
+     * Counts the rows which a merge of the given user would move to another
+     * user, without changing anything.
+     *
+     * @param merged User which would be merged into another one.
+     * @return Number of rows by entity name, in the order of the merge.
+     */
+    public Map<String, Long> countMergedRows(User merged) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String[] reference : MERGED_REFERENCES) {
+            counts.put(reference[0], em.createQuery(
+                    "SELECT COUNT(r) FROM " + reference[0] + " r"
+                    + " WHERE r." + reference[1] + ".userId = :userId", Long.class)
+                    .setParameter("userId", merged.getUserId())
+                    .getSingleResult());
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the names of the courses both users participate in, deleted
+     * participations included. Users with common courses can't be merged.
+     *
+     * @param user First user.
+     * @param other Second user.
+     * @return Names of the common courses, ordered by name.
+     */
+    public List<String> findCommonCourseNames(User user, User other) {
+        return em.createQuery(
+                "SELECT c.name FROM Course c WHERE ("
+                + participatesIn("first") + ") AND (" + participatesIn("second")
+                + ") ORDER BY c.name", String.class)
+                .setParameter("first", user.getUserId())
+                .setParameter("second", other.getUserId())
+                .getResultList();
+    }
+
+    /**
+     * Merges a user into another one. The participations, gradings,
+     * formulas and logs of the merged user are moved to the kept user with
+     * one bulk statement each, the kept user gets the global roles of the
+     * merged user and the merged user is deleted afterwards. Everything
+     * happens in a single transaction. The users must not have common
+     * courses, see findCommonCourseNames.
+     *
+     * @param kept User which is kept.
+     * @param merged User which is merged into the kept one and deleted.
+     * @return Number of moved rows.
+     * @throws IllegalArgumentException If both users are the same.
+     */
+    public int mergeUsers(User kept, User merged) {
+        if (kept.getUserId().equals(merged.getUserId())) {
+            throw new IllegalArgumentException("A user can't be merged into itself");
+        }
+
+        User keptUser = em.find(User.class, kept.getUserId());
+        User mergedUser = em.find(User.class, merged.getUserId());
+        for (Integer role : mergedUser.getRoles()) {
+            if (!keptUser.getRoles().contains(role)) {
+                keptUser.getRoles().add(role);
+            }
+        }
+
+        int moved = 0;
+        for (String[] reference : MERGED_REFERENCES) {
+            moved += em.createQuery(
+                    "UPDATE " + reference[0] + " r SET r." + reference[1] + " = :kept"
+                    + " WHERE r." + reference[1] + ".userId = :merged")
+                    .setParameter("kept", keptUser)
+                    .setParameter("merged", mergedUser.getUserId())
+                    .executeUpdate();
+        }
+
+        retentionService.deleteUsers(Collections.singletonList(mergedUser.getUserId()));
+        return moved;
+    }
+
+    /**
+     * Returns the JPQL condition whether the user with the given parameter
+     * participates in the course c.
+     */
+    private static String participatesIn(String userParameter) {
+        List<String> conditions = new ArrayList<>();
+        for (String participation : PARTICIPATIONS) {
+            conditions.add("EXISTS (SELECT p FROM " + participation + " p"
+                    + " WHERE p.course = c AND p.user.userId = :" + userParameter + ")");
+        }
+
+        return String.join(" OR ", conditions);
+    }
 }
@@ -111,6 +111,11 @@ public final class Constants {
      */
     public static final int LIVE_SEARCH_THRESHOLD = 3;
 
+    /**
+     * Maximum number of users shown as results of a live search.
+     */
+    public static final int LIVE_SEARCH_LIMIT = 50;
+
     /**
      * String for deleted string values.
      */
@@ -144,4 +149,10 @@ public final class Constants {
      */
     public static final String DEFAULT_SCRIPT_EDIT_MESSAGE =
             "Initialized default grade script";
+
+    /**
+     * Prefix of the formula of final grades which were set by hand, so they
+     * are not overwritten by the grade formula.
+     */
+    public static final String MANUAL_GRADE_FORMULA_PREFIX = "Manually set by ";
 }
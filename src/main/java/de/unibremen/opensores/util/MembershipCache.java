@@ -0,0 +1,91 @@
+package de.unibremen.opensores.util;
+
+import de.unibremen.opensores.model.Role;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the course memberships of users. For every user the map contains
+ * all courses the user takes part in, mapped to the roles the user has in
+ * that course. A course mapped to an empty set means that the user only
+ * has deleted participations in it.
+ *
+ * <p>Entries are evicted by the MembershipListener whenever a student,
+ * tutor or lecturer is changed. Since a user might be loaded while such
+ * a change is being committed, entries are only stored if nothing has
+ * been evicted in the meantime.</p>
+ */
+public final class MembershipCache {
+
+    /**
+     * Memberships by user id.
+     */
+    private static final Map<Long, Map<Long, Set<Role>>> cache
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every eviction.
+     */
+    private static final AtomicLong generation = new AtomicLong();
+
+    private MembershipCache() {
+    }
+
+    /**
+     * Returns the cached memberships of the given user.
+     *
+     * @param userId Id of the user.
+     * @return Memberships by course id or null if they aren't cached.
+     */
+    public static Map<Long, Set<Role>> get(Long userId) {
+        return cache.get(userId);
+    }
+
+    /**
+     * Returns the current generation, which has to be passed to put.
+     * Needs to be called before loading the memberships.
+     *
+     * @return Current generation.
+     */
+    public static long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Stores the memberships of the given user, unless something has
+     * been evicted since they were loaded.
+     *
+     * @param userId Id of the user.
+     * @param memberships Memberships by course id.
+     * @param loadedAt Generation before the memberships were loaded.
+     */
+    public static void put(Long userId, Map<Long, Set<Role>> memberships,
+                           long loadedAt) {
+        cache.put(userId, memberships);
+        if (generation.get() != loadedAt) {
+            cache.remove(userId, memberships);
+        }
+    }
+
+    /**
+     * Evicts the memberships of the given user.
+     *
+     * @param userId Id of the user.
+     */
+    public static void evict(Long userId) {
+        generation.incrementAndGet();
+        cache.remove(userId);
+    }
+
+    /**
+     * Evicts all memberships, used after bulk changes which bypass the
+     * entity listeners.
+     */
+    public static void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+}
@@ -1,5 +1,8 @@
 package de.unibremen.opensores.util;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -11,6 +14,8 @@ import java.util.Properties;
  * @author Lorenz Hüther
  */
 public class ServerProperties {
+    private static Logger log = LogManager.getLogger(ServerProperties.class);
+
     /**
      * Properties singleton.
      */
@@ -40,4 +45,21 @@ public class ServerProperties {
 
         return props;
     }
+
+    /**
+     * Reads an integer from the server properties.
+     *
+     * @param key The key of the property.
+     * @param fallback Value used if the property is missing or invalid.
+     * @return The value of the property or the fallback.
+     */
+    public static int getInt(String key, int fallback) {
+        try {
+            return Integer.parseInt(getProperties().getProperty(key,
+                    String.valueOf(fallback)).trim());
+        } catch (IOException | NumberFormatException e) {
+            log.error(e);
+            return fallback;
+        }
+    }
 }
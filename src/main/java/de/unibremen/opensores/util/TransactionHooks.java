@@ -0,0 +1,94 @@
+package de.unibremen.opensores.util;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs code at the end of the current JTA transaction, e.g. to update a
+ * cache once the changes are committed.
+ */
+public final class TransactionHooks {
+
+    /**
+     * JNDI name of the registry, for callers which can't inject it, like
+     * entity listeners.
+     */
+    private static final String REGISTRY_NAME
+            = "java:comp/TransactionSynchronizationRegistry";
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Looks up the TransactionSynchronizationRegistry.
+     *
+     * @return The registry or null if it isn't available, e.g. outside of
+     *         the application server.
+     */
+    public static TransactionSynchronizationRegistry lookupRegistry() {
+        try {
+            return (TransactionSynchronizationRegistry) new InitialContext()
+                    .lookup(REGISTRY_NAME);
+        } catch (NamingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calls the action with the status of the current transaction once it
+     * has completed.
+     *
+     * @param registry Registry of the transaction, may be null.
+     * @param action Action to be called with the status, e.g.
+     *               Status.STATUS_COMMITTED.
+     * @return Whether the action was registered, false if there is no active
+     *         transaction.
+     */
+    public static boolean afterCompletion(TransactionSynchronizationRegistry registry,
+                                          IntConsumer action) {
+        return register(registry, null, action);
+    }
+
+    /**
+     * Calls the first action right before the current transaction
+     * completes and the second one with its status once it has completed.
+     *
+     * @param registry Registry of the transaction, may be null.
+     * @param before Action to be called before the completion or null.
+     * @param after Action to be called with the status or null.
+     * @return Whether the actions were registered, false if there is no
+     *         active transaction.
+     */
+    public static boolean register(TransactionSynchronizationRegistry registry,
+                                   Runnable before, IntConsumer after) {
+        try {
+            if (registry == null
+                    || registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+                return false;
+            }
+
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    if (before != null) {
+                        before.run();
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (after != null) {
+                        after.accept(status);
+                    }
+                }
+            });
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package de.unibremen.opensores.util;
+
+import de.unibremen.opensores.model.GlobalRole;
+import de.unibremen.opensores.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In memory index for searching users by name, email and matriculation
+ * number. Every user is indexed under the lower case values of these fields
+ * and the single words of the names, a search looks up all users with a
+ * token starting with each word of the query in a sorted map, so it doesn't
+ * depend on the number of users which don't match.
+ *
+ * <p>The index is filled by the UserSearchIndexLoader on the first search
+ * and kept up to date by the UserSearchListener. Users changed or removed
+ * while it is being filled take precedence over the loaded data.</p>
+ */
+public final class UserSearchIndex {
+
+    /**
+     * Indexed users by user id.
+     */
+    private static final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the users indexed under a token, sorted by token.
+     */
+    private static final ConcurrentNavigableMap<String, Set<Long>> tokens
+            = new ConcurrentSkipListMap<>();
+
+    /**
+     * Ids of users removed while the index isn't loaded yet.
+     */
+    private static final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lock for changes of the index, searches don't need to hold it.
+     */
+    private static final Object lock = new Object();
+
+    private static volatile boolean loaded;
+
+    private UserSearchIndex() {
+    }
+
+    /**
+     * Checks whether all users have been added to the index.
+     *
+     * @return True if the index has been loaded.
+     */
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Marks the index as loaded, called after all users have been added.
+     */
+    public static void setLoaded() {
+        loaded = true;
+        removed.clear();
+    }
+
+    /**
+     * Adds a user read while loading the index. Users which have been
+     * indexed or removed since the load started are skipped.
+     *
+     * @param userId Id of the user.
+     * @param firstName First name of the user.
+     * @param lastName Last name of the user.
+     * @param email Email of the user.
+     * @param matriculation Matriculation number of the user, may be null.
+     * @param lecturer Whether the user has the global lecturer role.
+     */
+    public static void add(Long userId, String firstName, String lastName,
+                           String email, String matriculation,
+                           boolean lecturer) {
+        synchronized (lock) {
+            if (!entries.containsKey(userId) && !removed.contains(userId)) {
+                index(new Entry(userId, firstName, lastName, email,
+                        matriculation, lecturer));
+            }
+        }
+    }
+
+    /**
+     * Adds a new user or replaces the indexed data of a changed user.
+     *
+     * @param user Persisted user.
+     */
+    public static void put(User user) {
+        Entry entry = new Entry(user.getUserId(), user.getFirstName(),
+                user.getLastName(), user.getEmail(),
+                user.getMatriculationNumber(),
+                user.hasGlobalRole(GlobalRole.LECTURER));
+        synchronized (lock) {
+            unindex(entries.get(entry.userId));
+            index(entry);
+        }
+    }
+
+    /**
+     * Removes a user from the index.
+     *
+     * @param userId Id of the removed user.
+     */
+    public static void remove(Long userId) {
+        synchronized (lock) {
+            if (!loaded) {
+                removed.add(userId);
+            }
+            unindex(entries.get(userId));
+        }
+    }
+
+    /**
+     * Removes all users and marks the index as not loaded, so that it gets
+     * loaded again on the next search.
+     */
+    public static void clear() {
+        synchronized (lock) {
+            loaded = false;
+            entries.clear();
+            tokens.clear();
+            removed.clear();
+        }
+    }
+
+    /**
+     * Searches users. Every word of the query has to be the beginning of
+     * the first name, the last name, a word of the names, the email or the
+     * matriculation number of a user. Users with a field equal to the query
+     * come first, followed by users whose name starts with the query, ties
+     * are ordered by last and first name.
+     *
+     * @param query The search input.
+     * @param lecturersOnly Whether only users with the global lecturer role
+     *                      should be returned.
+     * @param offset Number of results to skip.
+     * @param limit Maximum number of results.
+     * @return Ids of the found users in ranked order.
+     */
+    public static List<Long> search(String query, boolean lecturersOnly,
+                                    int offset, int limit) {
+        final String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> candidates = null;
+        for (String word : normalized.split("\\s+")) {
+            Set<Long> ids = findByPrefix(word);
+            if (candidates == null) {
+                candidates = ids;
+            } else {
+                candidates.retainAll(ids);
+            }
+        }
+
+        List<Entry> found = new ArrayList<>();
+        for (Long userId : candidates) {
+            Entry entry = entries.get(userId);
+            if (entry != null && (!lecturersOnly || entry.lecturer)) {
+                found.add(entry);
+            }
+        }
+
+        found.sort(Comparator.comparingInt((Entry entry) -> entry.rank(normalized))
+                .thenComparing(entry -> entry.lastName)
+                .thenComparing(entry -> entry.firstName)
+                .thenComparing(entry -> entry.userId));
+
+        List<Long> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (int i = Math.max(offset, 0); i < found.size() && result.size() < limit; i++) {
+            result.add(found.get(i).userId);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the ids of all users with a token starting with the prefix.
+     */
+    private static Set<Long> findByPrefix(String prefix) {
+        Set<Long> ids = new HashSet<>();
+        for (Set<Long> tokenIds : tokens.subMap(prefix, true,
+                prefix + Character.MAX_VALUE, false).values()) {
+            ids.addAll(tokenIds);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Adds an entry to the maps, has to be called holding the lock.
+     */
+    private static void index(Entry entry) {
+        entries.put(entry.userId, entry);
+        for (String token : entry.tokens()) {
+            tokens.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet())
+                    .add(entry.userId);
+        }
+    }
+
+    /**
+     * Removes an entry from the maps, has to be called holding the lock.
+     */
+    private static void unindex(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+
+        entries.remove(entry.userId);
+        for (String token : entry.tokens()) {
+            Set<Long> ids = tokens.get(token);
+            if (ids != null) {
+                ids.remove(entry.userId);
+                if (ids.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the trimmed lower case value or an empty string for null.
+     */
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    /**
+     * Normalized data of an indexed user.
+     */
+    private static final class Entry {
+
+        private final Long userId;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String matriculation;
+        private final boolean lecturer;
+
+        private Entry(Long userId, String firstName, String lastName,
+                      String email, String matriculation, boolean lecturer) {
+            this.userId = userId;
+            this.firstName = normalize(firstName);
+            this.lastName = normalize(lastName);
+            this.email = normalize(email);
+            this.matriculation = normalize(matriculation);
+            this.lecturer = lecturer;
+        }
+
+        /**
+         * Returns the tokens the user is indexed under.
+         */
+        private Set<String> tokens() {
+            Set<String> result = new HashSet<>();
+            Collections.addAll(result, firstName, lastName, email, matriculation);
+            Collections.addAll(result, firstName.split("[\\s-]+"));
+            Collections.addAll(result, lastName.split("[\\s-]+"));
+            result.remove("");
+            return result;
+        }
+
+        /**
+         * Returns 0 if a field equals the query, 1 if a name starts with it
+         * and 2 otherwise.
+         */
+        private int rank(String query) {
+            String fullName = firstName + " " + lastName;
+            if (query.equals(email) || query.equals(matriculation)
+                    || query.equals(firstName) || query.equals(lastName)
+                    || query.equals(fullName)) {
+                return 0;
+            } else if (fullName.startsWith(query) || lastName.startsWith(query)) {
+                return 1;
+            }
+
+            return 2;
+        }
+    }
+}
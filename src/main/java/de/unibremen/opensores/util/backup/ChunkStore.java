@@ -0,0 +1,328 @@
+package de.unibremen.opensores.util.backup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content addressed store for backups. Files are split into chunks of a
+ * fixed size, every chunk is stored gzip compressed under its SHA-256
+ * hash and only once, no matter how many backups contain it. A backup is
+ * described by a manifest listing the chunks of each of its files.
+ *
+ * <p>Derby database files consist of fixed size pages, so a chunk only
+ * changes if one of its pages was modified. Storing a backup therefore
+ * only writes the chunks which changed since any previous backup.</p>
+ */
+public class ChunkStore {
+
+    /**
+     * First line of every manifest.
+     */
+    private static final String MANIFEST_HEADER = "exmatrikulator-backup 1";
+
+    /**
+     * Name of the directory containing the chunks.
+     */
+    private static final String CHUNK_DIR = "chunks";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Root directory of the store.
+     */
+    private final Path root;
+
+    /**
+     * Size of a single chunk in bytes.
+     */
+    private final int chunkSize;
+
+    /**
+     * Creates a store in the given directory.
+     *
+     * @param root Directory containing the chunks.
+     * @param chunkSize Size of a single chunk in bytes.
+     */
+    public ChunkStore(Path root, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+
+        this.root = root;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Stores all files below the given directory and writes a manifest
+     * describing them.
+     *
+     * @param source Directory to store.
+     * @param manifest Path of the manifest to write.
+     * @return Number of compressed bytes newly written to the store.
+     * @throws IOException If reading or writing fails.
+     */
+    public long store(Path source, Path manifest) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(source)) {
+            paths = walk.filter(p -> !p.equals(source))
+                .sorted().collect(Collectors.toList());
+        }
+
+        MessageDigest digest = newDigest();
+        byte[] buf = new byte[chunkSize];
+        long written = 0;
+
+        Path tmp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)),
+                StandardCharsets.UTF_8))) {
+            writer.write(MANIFEST_HEADER + "\n");
+            for (Path path : paths) {
+                String name = source.relativize(path).toString()
+                    .replace(path.getFileSystem().getSeparator(), "/");
+                if (Files.isDirectory(path)) {
+                    writer.write("D\t" + name + "\n");
+                    continue;
+                }
+
+                List<String> hashes = new ArrayList<>();
+                long size = 0;
+                try (InputStream in = Files.newInputStream(path)) {
+                    int len;
+                    while ((len = readChunk(in, buf)) > 0) {
+                        digest.update(buf, 0, len);
+                        String hash = toHex(digest.digest());
+                        written += writeChunk(hash, buf, len);
+                        hashes.add(hash);
+                        size += len;
+                    }
+                }
+
+                writer.write("F\t" + name + "\t" + size + "\t"
+                        + String.join(",", hashes) + "\n");
+            }
+        }
+
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Recreates the files described by the given manifest.
+     *
+     * @param manifest Manifest of the backup.
+     * @param target Directory to recreate the files in.
+     * @throws IOException If reading or writing fails or a chunk is missing.
+     */
+    public void restore(Path manifest, Path target) throws IOException {
+        Files.createDirectories(target);
+        byte[] buf = new byte[chunkSize];
+
+        try (BufferedReader reader = openManifest(manifest)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                Path path = target.resolve(fields[1]).normalize();
+                if (!path.startsWith(target)) {
+                    throw new IOException("Invalid path in manifest: " + fields[1]);
+                }
+
+                if (fields[0].equals("D")) {
+                    Files.createDirectories(path);
+                    continue;
+                }
+
+                Path parent = path.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+
+                try (OutputStream out = Files.newOutputStream(path)) {
+                    for (String hash : parseHashes(fields[3])) {
+                        try (InputStream in = new GZIPInputStream(
+                                Files.newInputStream(chunkDir(hash).resolve(hash)))) {
+                            int len;
+                            while ((len = in.read(buf)) > 0) {
+                                out.write(buf, 0, len);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the hashes of all chunks referenced by the given manifest.
+     *
+     * @param manifest Manifest of a backup.
+     * @return Set of chunk hashes.
+     * @throws IOException If the manifest can't be read.
+     */
+    public Set<String> chunks(Path manifest) throws IOException {
+        Set<String> hashes = new HashSet<>();
+        try (BufferedReader reader = openManifest(manifest)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields[0].equals("F")) {
+                    hashes.addAll(parseHashes(fields[3]));
+                }
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Deletes all chunks which aren't referenced by any of the given
+     * manifests.
+     *
+     * @param manifests Manifests of all remaining backups.
+     * @return Number of deleted chunks.
+     * @throws IOException If reading a manifest or deleting a chunk fails.
+     */
+    public int sweep(Collection<Path> manifests) throws IOException {
+        Set<String> live = new HashSet<>();
+        for (Path manifest : manifests) {
+            live.addAll(chunks(manifest));
+        }
+
+        Path chunkDir = root.resolve(CHUNK_DIR);
+        if (!Files.isDirectory(chunkDir)) {
+            return 0;
+        }
+
+        int deleted = 0;
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(chunkDir)) {
+            for (Path prefix : prefixes) {
+                try (DirectoryStream<Path> chunks = Files.newDirectoryStream(prefix)) {
+                    for (Path chunk : chunks) {
+                        if (!live.contains(String.valueOf(chunk.getFileName()))) {
+                            Files.delete(chunk);
+                            deleted++;
+                        }
+                    }
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Writes a chunk unless it is already stored.
+     *
+     * @return Number of compressed bytes written.
+     */
+    private long writeChunk(String hash, byte[] buf, int len)
+            throws IOException {
+        Path dir = chunkDir(hash);
+        Path path = dir.resolve(hash);
+        if (Files.exists(path)) {
+            return 0;
+        }
+
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, hash, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(
+                    Files.newOutputStream(tmp))) {
+                out.write(buf, 0, len);
+            }
+
+            long size = Files.size(tmp);
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another backup.
+            return 0;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path chunkDir(String hash) {
+        return root.resolve(CHUNK_DIR).resolve(hash.substring(0, 2));
+    }
+
+    private BufferedReader openManifest(Path manifest) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(manifest)),
+                StandardCharsets.UTF_8));
+        if (!MANIFEST_HEADER.equals(reader.readLine())) {
+            reader.close();
+            throw new IOException("Not a backup manifest: " + manifest);
+        }
+
+        return reader;
+    }
+
+    private static List<String> parseHashes(String field) {
+        List<String> hashes = new ArrayList<>();
+        for (String hash : field.split(",")) {
+            if (!hash.isEmpty()) {
+                hashes.add(hash);
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends.
+     *
+     * @return Number of bytes read.
+     */
+    private static int readChunk(InputStream in, byte[] buf) throws IOException {
+        int off = 0;
+        int len;
+        while (off < buf.length && (len = in.read(buf, off, buf.length - off)) > 0) {
+            off += len;
+        }
+
+        return off;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+}
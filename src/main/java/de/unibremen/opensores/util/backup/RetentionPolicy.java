@@ -0,0 +1,128 @@
+package de.unibremen.opensores.util.backup;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.function.Function;
+
+/**
+ * Thins out a series of backups. All backups of the last hours are kept,
+ * older ones only once per day for a number of days and then once per
+ * week for a number of weeks. Everything older expires.
+ */
+public class RetentionPolicy {
+
+    private static final long HOUR_MILLIS = 60L * 60 * 1000;
+
+    /**
+     * Number of hours in which all backups are kept.
+     */
+    private final int hours;
+
+    /**
+     * Number of days, including today, of which the newest backup is kept.
+     */
+    private final int days;
+
+    /**
+     * Number of weeks, including the current one, of which the newest
+     * backup is kept.
+     */
+    private final int weeks;
+
+    /**
+     * Time zone used to determine days and weeks.
+     */
+    private final TimeZone timeZone;
+
+    /**
+     * Creates a new retention policy.
+     *
+     * @param hours Number of hours in which all backups are kept.
+     * @param days Number of days of which the newest backup is kept.
+     * @param weeks Number of weeks of which the newest backup is kept.
+     * @param timeZone Time zone used to determine days and weeks.
+     */
+    public RetentionPolicy(int hours, int days, int weeks, TimeZone timeZone) {
+        this.hours = Math.max(0, hours);
+        this.days = Math.max(0, days);
+        this.weeks = Math.max(0, weeks);
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Returns the backups which expired according to this policy.
+     *
+     * @param backups Backups to check.
+     * @param dateOf Function returning the date of a backup.
+     * @param now The current date.
+     * @param <T> Backup type.
+     * @return Expired backups, newest first.
+     */
+    public <T> List<T> expired(Collection<T> backups,
+                               Function<T, Date> dateOf, Date now) {
+        List<T> sorted = new ArrayList<>(backups);
+        sorted.sort((lhs, rhs) -> dateOf.apply(rhs).compareTo(dateOf.apply(lhs)));
+
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.setTime(now);
+        truncateToDay(cal);
+        cal.add(Calendar.DAY_OF_YEAR, 1 - days);
+        long dailyLimit = cal.getTimeInMillis();
+
+        cal.setTime(now);
+        truncateToWeek(cal);
+        cal.add(Calendar.WEEK_OF_YEAR, 1 - weeks);
+        long weeklyLimit = cal.getTimeInMillis();
+
+        long hourlyLimit = now.getTime() - hours * HOUR_MILLIS;
+        Set<Long> keptDays = new HashSet<>();
+        Set<Long> keptWeeks = new HashSet<>();
+        List<T> expired = new ArrayList<>();
+
+        for (T backup : sorted) {
+            long time = dateOf.apply(backup).getTime();
+            if (time > hourlyLimit) {
+                continue;
+            }
+
+            cal.setTimeInMillis(time);
+            truncateToDay(cal);
+            long day = cal.getTimeInMillis();
+            truncateToWeek(cal);
+            long week = cal.getTimeInMillis();
+
+            // A backup kept for its day also counts for its week.
+            boolean keep;
+            if (day >= dailyLimit && keptDays.add(day)) {
+                keptWeeks.add(week);
+                keep = true;
+            } else {
+                keep = week >= weeklyLimit && keptWeeks.add(week);
+            }
+
+            if (!keep) {
+                expired.add(backup);
+            }
+        }
+
+        return expired;
+    }
+
+    private static void truncateToDay(Calendar cal) {
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+    }
+
+    private static void truncateToWeek(Calendar cal) {
+        truncateToDay(cal);
+        cal.set(Calendar.DAY_OF_WEEK, cal.getFirstDayOfWeek());
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains the deduplicating backup store and the backup retention policy.
+ */
+package de.unibremen.opensores.util.backup;
@@ -18,11 +18,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.RegEx;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Parses information about course data in a csv file.
@@ -67,57 +69,61 @@ public final class CourseDataParser {
 
 
     /**
-     * Parses the data of a course (the students, gradings, tutorials etc.) into
-     * a csv file.
-     * The CSV File has the matriculation number, the tutorial, the group and
+     * Writes the data of a course (the students, gradings, tutorials etc.)
+     * as csv to a stream.
+     * The CSV data has the matriculation number, the tutorial, the group and
      * every grading of the student. If the user is not a lecturer, only the data
      * the privileged user has access to (gradings, tutorial, groups) get displayed.
      * If the data is not available, an empty string gets placed in the data.
      * If the user has no access to the data, a question mark ('?') gets displayed
      * instead of the data.
-     * The data is in .csv file format.
+     * The students are requested page by page, so only one page has to be
+     * held in memory at a time.
      * @param course the course from which the data should be parsed.
      * @param isLecturer Whether the user is a lecturer.
      * @param privUser The privileged user when the user is not a lecturer. Should
      *                 be null if the user is lecturer, shouldn't be when he is not.
-     * @throws IllegalArgumentException If the course, dirPath, or fileName is null.
+     * @param output The stream the csv data is written to, it is not closed.
+     * @param pages Function returning the students following the given student
+     *              (null for the first page) with their gradings by exam. An
+     *              empty map ends the export.
+     * @throws IllegalArgumentException If the course, output or pages is null.
      *                                  If the user is not a lecturer but the privUser
      *                                  is null.
-     * @throws IOException If the parsing the file goes wrong.
-     *
+     * @throws IOException If writing to the stream goes wrong.
      */
-    public static File parseCourseToCSV(Course course, boolean isLecturer,
-                                        PrivilegedUser privUser, String dirPath,
-                                        String fileName) throws IOException {
-        if (dirPath == null || fileName == null || course == null) {
-            throw new IllegalArgumentException("The course, dir path and file name cant "
+    public static void writeCourseToCSV(Course course, boolean isLecturer,
+            PrivilegedUser privUser, OutputStream output,
+            Function<Student, Map<Student, Map<Exam, Grading>>> pages)
+            throws IOException {
+        if (course == null || output == null || pages == null) {
+            throw new IllegalArgumentException("The course, output and pages cant "
                     + " be null.");
         }
         if (!isLecturer && privUser == null) {
             throw new IllegalArgumentException("When the user is not a lecturer "
                     + " the priv user cant be null.");
         }
-        File csv = new File(dirPath, fileName);
 
-        log.debug("Ceating the csv writer");
-        CSVWriter writer = new CSVWriter(new OutputStreamWriter(
-                new FileOutputStream(csv), Charsets.UTF_8),
-                SEPARATOR, QUOTE_CHAR);
-
-        log.debug("Writing header line");
+        CSVWriter writer = new CSVWriter(new OutputStreamWriter(output,
+                Charsets.UTF_8), SEPARATOR, QUOTE_CHAR);
         writer.writeNext(getHeader(course));
 
-        log.debug("Writing the data of students");
-        for (Student student: course.getStudents()) {
-            log.debug("Writing for "  + student.getUser());
-            writer.writeNext(getStudentDataRow(student, isLecturer, privUser));
+        Student last = null;
+        Map<Student, Map<Exam, Grading>> page = pages.apply(null);
+        while (!page.isEmpty()) {
+            for (Map.Entry<Student, Map<Exam, Grading>> entry : page.entrySet()) {
+                last = entry.getKey();
+                writer.writeNext(getStudentDataRow(last, course.getExams(),
+                        entry.getValue(), isLecturer, privUser));
+            }
+            page = pages.apply(last);
         }
 
-        log.debug("Trying to flush");
         writer.flush();
-        log.debug("Trying to close");
-        writer.close();
-        return csv;
+        if (writer.checkError()) {
+            throw new IOException("Error writing the course data");
+        }
     }
 
     /**
@@ -154,15 +160,18 @@ public final class CourseDataParser {
     /**
      * Writes the data of a student to a csv line. Uses a string array for the data.
      * @param student The student which data should be written in the line.
+     * @param exams The exams of the course in the order of the header.
+     * @param gradings The gradings of the student by exam.
      * @param isLecturer Wheter the logged in user was a lecturer.
      * @param privilegedUser If the logged user is not a lecturer, use the privileged
      *                       usr to check to which data the user has the rights to view.
      * @return The line of th csv file as string array.
      */
-    private static String[] getStudentDataRow(Student student,
+    private static String[] getStudentDataRow(Student student, List<Exam> exams,
+                                                    Map<Exam, Grading> gradings,
                                                     boolean isLecturer,
                                                     PrivilegedUser privilegedUser) {
-        int numHeaders = NUM_COLS_WO_EXAMS + student.getCourse().getExams().size();
+        int numHeaders = NUM_COLS_WO_EXAMS + exams.size();
 
         String[] row = new String[numHeaders];
         row[COL_MATR] = getMatriculationString(student);
@@ -172,25 +181,18 @@ public final class CourseDataParser {
         row[COL_GROUP] = getGroupString(student.getGroup(), isLecturer, privilegedUser);
 
         int colIdxExam = NUM_COLS_WO_EXAMS;
-        for (Exam exam: student.getCourse().getExams()) {
-            String foundGradingStr = null;
-            for (Grading grading: student.getGradings()) {
-                if (grading != null && grading.getExam() != null
-                        && grading.getExam().equals(exam)) {
-                    Grade grade = grading.getGrade();
-                    if (grade != null && grade.getValue() != null) {
-                        if (isLecturer || grading.getCorrector()
-                                .equals(privilegedUser.getUser())) {
-                            foundGradingStr = grading.getGrade().getValue().toString();
-                        } else {
-                            foundGradingStr = HIDDEN;
-                        }
-                    }
+        for (Exam exam: exams) {
+            String foundGradingStr = "";
+            Grading grading = gradings.get(exam);
+            Grade grade = grading == null ? null : grading.getGrade();
+            if (grade != null && grade.getValue() != null) {
+                if (isLecturer || privilegedUser.getUser()
+                        .equals(grading.getCorrector())) {
+                    foundGradingStr = grade.getValue().toString();
+                } else {
+                    foundGradingStr = HIDDEN;
                 }
             }
-            if (foundGradingStr == null) {
-                foundGradingStr = "";
-            }
             row[colIdxExam] = foundGradingStr;
             colIdxExam++;
         }
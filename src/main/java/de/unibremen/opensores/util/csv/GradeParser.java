@@ -0,0 +1,115 @@
+package de.unibremen.opensores.util.csv;
+
+import com.opencsv.CSVReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class for parsing CSV files containing the grades of an exam. Each row
+ * consists of the matriculation number of a student and the grade, e.g.
+ * <code>1234567;12,5</code>. A header row is skipped.
+ */
+public final class GradeParser {
+
+    /**
+     * The separator used in grade csv files.
+     */
+    private static final char SEPARATOR = ';';
+
+    /**
+     * The quote char used in grade csv files.
+     */
+    private static final char QUOTE_CHAR = '\"';
+
+    /**
+     * The column index of the matriculation number (indexes start with 0).
+     */
+    private static final int COL_MATRICULATION = 0;
+
+    /**
+     * The column index of the grade (indexes start with 0).
+     */
+    private static final int COL_GRADE = 1;
+
+    /**
+     * Empty constructor for no object creation.
+     */
+    private GradeParser() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Parses a grade csv file. Empty rows are ignored, the first row is
+     * treated as header if it doesn't contain a valid grade. Decimal commas
+     * are accepted.
+     *
+     * @param reader Reader of the csv file, it is not closed.
+     * @return Map from matriculation number to grade, in the order of the
+     *         rows of the file.
+     * @throws IOException If the file can't be read, a row has no valid grade
+     *         or a matriculation number occurs twice.
+     */
+    public static Map<String, BigDecimal> parseGrades(Reader reader)
+            throws IOException {
+        CSVReader csvReader = new CSVReader(reader, SEPARATOR, QUOTE_CHAR);
+        Map<String, BigDecimal> grades = new LinkedHashMap<>();
+
+        String[] row;
+        int line = 0;
+        while ((row = csvReader.readNext()) != null) {
+            line++;
+            if (isEmpty(row)) {
+                continue;
+            }
+
+            BigDecimal grade = (row.length > COL_GRADE)
+                    ? parseGrade(row[COL_GRADE]) : null;
+            String matriculation = row[COL_MATRICULATION].trim();
+
+            if (grade == null && line == 1) {
+                continue;
+            } else if (grade == null || matriculation.isEmpty()) {
+                throw new IOException("Invalid row " + line);
+            } else if (grades.put(matriculation, grade) != null) {
+                throw new IOException("Duplicated matriculation number "
+                        + matriculation + " in row " + line);
+            }
+        }
+
+        return grades;
+    }
+
+    /**
+     * Parses a grade, accepting decimal commas.
+     *
+     * @param value The string to parse.
+     * @return The grade or null if it isn't a number.
+     */
+    private static BigDecimal parseGrade(String value) {
+        try {
+            return new BigDecimal(value.trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if all columns of a row are empty.
+     *
+     * @param row The row to check.
+     * @return True if the row contains no value.
+     */
+    private static boolean isEmpty(String[] row) {
+        for (String col : row) {
+            if (col != null && !col.trim().isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
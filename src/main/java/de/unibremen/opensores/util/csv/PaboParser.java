@@ -16,6 +16,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -155,74 +156,96 @@ public final class PaboParser {
      *         the syntax of the file is wrong).
      */
     public static List<PaboData> parsePaboUpload(File paboCSVFile) throws IOException {
+        List<PaboData> parsedData = new ArrayList<>();
+        parsePaboUpload(paboCSVFile, (line, data) -> parsedData.add(data));
+        return parsedData;
+    }
+
+    /**
+     * Parses a Pabo CSV import file row by row. Each row is passed to the
+     * consumer as soon as it is read, as in parsePaboUpload(File) rows which
+     * aren't parsed correctly are passed as pabo data with an invalid id.
+     * @see PaboData
+     * @param paboCSVFile The csv file which is a csv import.
+     * @param consumer The consumer receiving the pabo data of each row.
+     * @throws IOException If the import goes wrong (e.g. the file is not a csv file,
+     *         the syntax of the file is wrong) or the consumer fails.
+     */
+    public static void parsePaboUpload(File paboCSVFile, RecordConsumer<PaboData> consumer)
+            throws IOException {
         if (paboCSVFile == null) {
             throw new IOException("The parameter studIpCSVFile must be a valid CSV File");
         }
 
-        final CSVReader reader = new CSVReader(new InputStreamReader(
-                new FileInputStream(paboCSVFile.getPath()),
-                LATIN_ONE_ENCODING), SEPARATOR, QUOTE_CHAR, SKIPPED_LINES);
-        final List<String[]> rows =  reader.readAll();
-
-        List<PaboData> parsedData = new ArrayList<>(rows.size());
-
-        int rowIdx = 0;
-        for (String[] row: rows) {
-            if (row == null || row.length != NUM_COLS) {
-                if (row != null) {
-                    log.error("The length of row " + (rowIdx + 1)
-                            + " of the file equals " + row.length);
-                }
-                parsedData = addInvalidPaboData(PaboData.INVALID_ALL_EMPTY, parsedData);
-                rowIdx++;
-                continue;
-            }
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(paboCSVFile.getPath()), LATIN_ONE_ENCODING)) {
+            parsePaboUpload(reader, consumer);
+        }
+    }
 
+    /**
+     * Parses a Pabo CSV import row by row, see parsePaboUpload(File, RecordConsumer).
+     * @param reader The reader of the csv import, it is not closed.
+     * @param consumer The consumer receiving the pabo data of each row.
+     * @throws IOException If reading goes wrong or the consumer fails.
+     */
+    public static void parsePaboUpload(Reader reader, RecordConsumer<PaboData> consumer)
+            throws IOException {
+        final CSVReader csvReader = new CSVReader(reader, SEPARATOR, QUOTE_CHAR,
+                SKIPPED_LINES);
+
+        String[] row;
+        int line = SKIPPED_LINES;
+        while ((row = csvReader.readNext()) != null) {
+            line++;
+            consumer.accept(line, parseRow(row, line));
+        }
+    }
 
-            if (emptyString(row[COL_MATRICULATION])) {
-                parsedData = addInvalidPaboData(PaboData.INVALID_MATRICULATION, parsedData);
-                rowIdx++;
-                continue;
-            }
+    /**
+     * Parses a row of a Pabo CSV import file.
+     * @param row The columns of the row.
+     * @param line The line of the row, used for logging.
+     * @return The pabo data of the row, with an invalid id if it isn't valid.
+     */
+    private static PaboData parseRow(String[] row, int line) {
+        if (row.length != NUM_COLS) {
+            log.error("The length of row " + line + " of the file equals " + row.length);
+            return createInvalidPaboData(PaboData.INVALID_ALL_EMPTY);
+        }
 
-            int attempts = -1;
-            try {
-                attempts = Integer.parseInt(row[COL_EXAM_TRIES]);
-            } catch (NumberFormatException e) {
-                // Do nothing, a check for attempts < 0 gets done later.
-            }
+        if (emptyString(row[COL_MATRICULATION])) {
+            return createInvalidPaboData(PaboData.INVALID_MATRICULATION);
+        }
 
-            if (attempts < 0) {
-                parsedData = addInvalidPaboData(PaboData.INVALID_ATTEMPT, parsedData);
-                rowIdx++;
-                continue;
-            }
+        int attempts = -1;
+        try {
+            attempts = Integer.parseInt(row[COL_EXAM_TRIES]);
+        } catch (NumberFormatException e) {
+            // Do nothing, a check for attempts < 0 gets done later.
+        }
 
-            if (emptyString(row[COL_EXAM_NAME])) {
-                parsedData = addInvalidPaboData(PaboData.INVALID_EXAM_NAME, parsedData);
-                rowIdx++;
-                continue;
-            }
+        if (attempts < 0) {
+            return createInvalidPaboData(PaboData.INVALID_ATTEMPT);
+        }
 
-            if (emptyString(row[COL_MAJOR])) {
-                parsedData = addInvalidPaboData(PaboData.INVALID_MAJOR, parsedData);
-                rowIdx++;
-                continue;
-            }
+        if (emptyString(row[COL_EXAM_NAME])) {
+            return createInvalidPaboData(PaboData.INVALID_EXAM_NAME);
+        }
 
-            PaboData data = new PaboData();
-            data.setMajor(row[COL_MAJOR]);
-            data.setExamName(row[COL_EXAM_NAME]);
-            data.setMatriculation(row[COL_MATRICULATION]);
-            data.setValidationId(PaboData.VALID);
-            data.setPaboFirstName(row[COL_FIRST_NAME]);
-            data.setPaboLastName(row[COL_LAST_NAME]);
-            data.setAttempt(attempts);
-            parsedData.add(data);
-            rowIdx++;
+        if (emptyString(row[COL_MAJOR])) {
+            return createInvalidPaboData(PaboData.INVALID_MAJOR);
         }
-        reader.close();
-        return parsedData;
+
+        PaboData data = new PaboData();
+        data.setMajor(row[COL_MAJOR]);
+        data.setExamName(row[COL_EXAM_NAME]);
+        data.setMatriculation(row[COL_MATRICULATION]);
+        data.setValidationId(PaboData.VALID);
+        data.setPaboFirstName(row[COL_FIRST_NAME]);
+        data.setPaboLastName(row[COL_LAST_NAME]);
+        data.setAttempt(attempts);
+        return data;
     }
 
 
@@ -291,17 +314,15 @@ public final class PaboParser {
     }
 
     /**
-     * Adds a new invalid pabo data object to the list.
+     * Creates a new invalid pabo data object.
      * @param invalidIdx The invalid idx of the pabo data.
-     * @param dataList The list to which the object  should be added.
      * @see PaboData
-     * @return The list with the data appended.
+     * @return The invalid pabo data.
      */
-    private static List<PaboData> addInvalidPaboData(int invalidIdx, List<PaboData> dataList) {
+    private static PaboData createInvalidPaboData(int invalidIdx) {
         PaboData data = new PaboData();
         data.setValidationId(invalidIdx);
-        dataList.add(data);
-        return dataList;
+        return data;
     }
 
     /**
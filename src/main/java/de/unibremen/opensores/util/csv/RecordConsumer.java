@@ -0,0 +1,21 @@
+package de.unibremen.opensores.util.csv;
+
+import java.io.IOException;
+
+/**
+ * Receives the records of a csv file one at a time while the file is parsed,
+ * so that large files don't have to be held in memory.
+ * @param <T> The type of the parsed records.
+ */
+@FunctionalInterface
+public interface RecordConsumer<T> {
+
+    /**
+     * Called for each record in the order of the file.
+     * @param line The line of the record in the file, starting with 1.
+     * @param record The parsed record.
+     * @throws IOException If the record can't be processed, parsing stops
+     *         and the exception is passed on.
+     */
+    void accept(int line, T record) throws IOException;
+}
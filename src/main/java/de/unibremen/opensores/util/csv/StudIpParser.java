@@ -11,6 +11,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -105,23 +106,55 @@ public final class StudIpParser {
      */
     public static List<User> parseCSV(final File studIpCSVFile)
             throws IOException {
+        final List<User> users = new ArrayList<>();
+        parseCSV(studIpCSVFile, (line, user) -> users.add(user));
+        return users;
+    }
 
+    /**
+     * Parses a Stud IP course export csv file row by row and passes a user with
+     * the first name, last name and email of each valid row to the consumer as
+     * soon as the row is read. Invalid rows are skipped.
+     * @param studIpCSVFile The stud ip CSV File. It shouldnt be altered after
+     *                      downloading from stud ip.
+     * @param consumer The consumer receiving the users, which are neither
+     *                 registered in the database nor have any other fields.
+     * @throws IOException If the Parameter @studIpCSVFile is null, the file
+     *         can't be opened, parsing goes wrong or the consumer fails.
+     */
+    public static void parseCSV(final File studIpCSVFile,
+                                final RecordConsumer<User> consumer)
+            throws IOException {
         if (studIpCSVFile == null) {
             throw new IOException(
                     "The parameter studIpCSVFile must be a valid CSV File");
         }
 
-        final CSVReader reader = new CSVReader(new InputStreamReader(
-                new FileInputStream(studIpCSVFile.getPath()),
-                LATIN_ONE_ENCODING), SEPARATOR, QUOTE_CHAR, SKIPPED_LINES);
-        final List<String[]> rows =  reader.readAll();
-
-        final List<User> users = new ArrayList<>(rows.size());
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(studIpCSVFile.getPath()), LATIN_ONE_ENCODING)) {
+            parseCSV(reader, consumer);
+        }
+    }
 
-        for (String[] row: rows) {
-            if (row == null || row.length != NUM_COLS) {
-                log.error("Skipping row, the row is either null "
-                         + "or  its length is not as expected");
+    /**
+     * Parses a Stud IP course export row by row, see parseCSV(File, RecordConsumer).
+     * @param reader The reader of the course export, it is not closed.
+     * @param consumer The consumer receiving the users of the valid rows.
+     * @throws IOException If reading goes wrong or the consumer fails.
+     */
+    public static void parseCSV(final Reader reader,
+                                final RecordConsumer<User> consumer)
+            throws IOException {
+        final CSVReader csvReader = new CSVReader(reader, SEPARATOR, QUOTE_CHAR,
+                SKIPPED_LINES);
+
+        String[] row;
+        int line = SKIPPED_LINES;
+        while ((row = csvReader.readNext()) != null) {
+            line++;
+            if (row.length != NUM_COLS) {
+                log.error("Skipping row " + line
+                         + ", its length is not as expected");
                 continue;
             }
             final String firstName = row[COL_FIRST_NAME];
@@ -140,10 +173,8 @@ public final class StudIpParser {
             user.setEmail(email);
             user.setFirstName(firstName);
             user.setLastName(lastName);
-            users.add(user);
+            consumer.accept(line, user);
         }
-
-        return users;
     }
 
     /**
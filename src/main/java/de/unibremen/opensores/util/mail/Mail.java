@@ -27,6 +27,11 @@ public final class Mail {
      */
     private Properties props = null;
 
+    /**
+     * Mail session, created once per Mail object.
+     */
+    private Session session = null;
+
     /**
      * Loads the properties file.
      *
@@ -34,11 +39,22 @@ public final class Mail {
      */
     public Mail() throws IOException {
         props = ServerProperties.getProperties();
+
+        String user = props.getProperty("exmatrikulator.mail.user");
+        String pass = props.getProperty("exmatrikulator.mail.pass");
+        session = Session.getInstance(props,
+                new javax.mail.Authenticator() {
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        return new PasswordAuthentication(user, pass);
+                    }
+                }
+        );
     }
 
     /**
      * Issues mails, supporting starttls only at the moment,
-     * uses BCC should there be more than one recipient.
+     * uses BCC should there be more than one recipient. All mails
+     * are sent over a single connection to the mail server.
      *
      * @param jobs list for the mail jobs.
      * @throws AddressException if something with the adress is wrong.
@@ -46,41 +62,76 @@ public final class Mail {
      */
     public void issue(final MailJob[] jobs) throws AddressException,
             MessagingException {
-        String user = props.getProperty("exmatrikulator.mail.user");
-        String pass = props.getProperty("exmatrikulator.mail.pass");
-        String from = props.getProperty("exmatrikulator.mail.from");
+        Transport transport = connect();
+        try {
+            for (MailJob j : jobs) {
+                send(transport, j);
+            }
+        } finally {
+            transport.close();
+        }
+    }
 
-        Session session = Session.getInstance(props,
-                new javax.mail.Authenticator() {
-                    protected PasswordAuthentication getPasswordAuthentication() {
-                        return new PasswordAuthentication(user, pass);
-                    }
-                }
-        );
+    /**
+     * Opens a connection to the configured mail server. The caller is
+     * responsible for closing the returned transport.
+     *
+     * @return Connected transport.
+     * @throws MessagingException if the connection cannot be established.
+     */
+    public Transport connect() throws MessagingException {
+        Transport transport = session.getTransport();
+        transport.connect();
+        return transport;
+    }
 
-        for (MailJob j : jobs) {
-            StringJoiner sj = new StringJoiner(",");
-            for (String mail : j.getAddresses()) {
-                sj.add(mail);
-            }
+    /**
+     * Sends a single mail job over an already connected transport.
+     *
+     * @param transport Transport returned by {@link #connect()}.
+     * @param job Mail job to send.
+     * @throws AddressException if something with the adress is wrong.
+     * @throws MessagingException if the mail cannot be sent.
+     */
+    public void send(Transport transport, MailJob job)
+            throws AddressException, MessagingException {
+        MimeMessage msg = createMessage(job);
+        transport.sendMessage(msg, msg.getAllRecipients());
+    }
 
-            Address[] addr = InternetAddress.parse(sj.toString());
-            MimeMessage msg = new MimeMessage(session);
+    /**
+     * Creates the message for a mail job.
+     *
+     * @param job Mail job to create the message for.
+     * @return The message, ready to be sent.
+     * @throws AddressException if something with the adress is wrong.
+     * @throws MessagingException if the message cannot be created.
+     */
+    private MimeMessage createMessage(MailJob job) throws AddressException,
+            MessagingException {
+        StringJoiner sj = new StringJoiner(",");
+        for (String mail : job.getAddresses()) {
+            sj.add(mail);
+        }
 
-            if (addr.length > 1) {
-                msg.setRecipients(Message.RecipientType.BCC,
-                        addr);
-            } else {
-                msg.setRecipients(Message.RecipientType.TO,
-                        addr);
-            }
+        Address[] addr = InternetAddress.parse(sj.toString());
+        MimeMessage msg = new MimeMessage(session);
 
-            msg.setSubject(j.getSubject());
-            msg.setText(j.getText());
-            msg.setFrom(new InternetAddress(from));
-            msg.setSentDate(new Date());
-            msg.saveChanges();
-            Transport.send(msg);
+        if (addr.length > 1) {
+            msg.setRecipients(Message.RecipientType.BCC,
+                    addr);
+        } else {
+            msg.setRecipients(Message.RecipientType.TO,
+                    addr);
         }
+
+        msg.setSubject(job.getSubject());
+        msg.setText(job.getText());
+        msg.setFrom(new InternetAddress(
+                props.getProperty("exmatrikulator.mail.from")));
+        msg.setSentDate(new Date());
+        msg.saveChanges();
+
+        return msg;
     }
 }
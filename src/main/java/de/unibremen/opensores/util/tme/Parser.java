@@ -4,6 +4,9 @@ import java.util.List;
 import java.util.ArrayList;
 import java.text.ParseException;
 import java.net.URLDecoder;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 
 /**
@@ -43,6 +46,29 @@ public class Parser {
         parse();
     }
 
+    /**
+     * Creates a new parser object reading the data from the given reader.
+     * The data is tokenized while parsing, without a separate thread and
+     * without reading the whole input into memory first.
+     *
+     * @param reader Reader providing the data which should be parsed.
+     * @throws IOException If the data couldn't be read.
+     * @throws InterruptedException If thread was interrupted during execution.
+     * @throws ParseException If the input couldn't be parsed.
+     */
+    public Parser(final Reader reader) throws IOException,
+           InterruptedException, ParseException {
+        this.nodes = new ArrayList<>();
+        this.lexer = new Scanner(reader);
+
+        this.peekToken = null;
+        try {
+            parse();
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     /**
      * Returns the next token and advances the cursor position.
      *
@@ -259,10 +285,12 @@ public class Parser {
         String v = val.getText();
         switch (val.getType()) {
             case IDENTIFIER:
-                try {
-                    v = URLDecoder.decode(val.getText(), "utf-8");
-                } catch (final UnsupportedEncodingException e) {
-                    v = val.getText();
+                if (v.indexOf('%') >= 0 || v.indexOf('+') >= 0) {
+                    try {
+                        v = URLDecoder.decode(val.getText(), "utf-8");
+                    } catch (final UnsupportedEncodingException e) {
+                        v = val.getText();
+                    }
                 }
 
                 if (v.equals("false") || v.equals("true")) {
@@ -1,12 +1,23 @@
 package de.unibremen.opensores.util.tme;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Scanner which can be used to tokenize TME files.
  *
+ * <p>
+ * A scanner created from a string tokenizes the whole input in a separate
+ * thread. A scanner created from a reader tokenizes the input on demand in
+ * the calling thread and only keeps the currently scanned token in memory.
+ * </p>
+ *
  * @author Sören Tempel
  */
 class Scanner {
@@ -15,15 +26,30 @@ class Scanner {
      */
     private static final int EOF = -1;
 
+    /**
+     * Initial size of the input buffer when reading from a reader.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Queue containing scanned items.
      */
-    private BlockingQueue<Token> tokens;
+    private Queue<Token> tokens;
+
+    /**
+     * Reader the input is read from, null if the whole input is buffered.
+     */
+    private final Reader reader;
 
     /**
-     * The line of text being scanned currently.
+     * Buffer containing the input which is being scanned currently.
      */
-    private String input;
+    private char[] input;
+
+    /**
+     * Number of valid characters in the input buffer.
+     */
+    private int limit;
 
     /**
      * The next lexing function to enter.
@@ -58,6 +84,14 @@ class Scanner {
         public State lex(final Scanner sc);
     }
 
+    /**
+     * Lexing functions, created once so that changing the state doesn't
+     * allocate a new function object.
+     */
+    private final State anyState = this::lexAny;
+    private final State numberState = this::lexNumber;
+    private final State identifierState = this::lexIdentifier;
+
     /**
      * Creates a new Lexer for the given data.
      *
@@ -65,25 +99,53 @@ class Scanner {
      */
     public Scanner(final String data) {
         line = 1;
-        input = data;
+        reader = null;
+        input = data.toCharArray();
+        limit = input.length;
 
         tokens = new LinkedBlockingQueue<>();
         new Thread(this::run).start();
     }
 
+    /**
+     * Creates a new Lexer reading the data from the given reader. The data
+     * is tokenized in the thread calling nextToken.
+     *
+     * @param reader Reader providing the data which should be tokenized.
+     */
+    public Scanner(final Reader reader) {
+        line = 1;
+        this.reader = reader;
+        input = new char[BUFFER_SIZE];
+        limit = 0;
+
+        state = anyState;
+        tokens = new ArrayDeque<>();
+    }
+
     /**
      * Returns the next token.
      *
      * @return Next token.
      * @throws InterruptedException If thread was interrupted during execution.
      * @throws NoSuchElementException If there is no next token.
+     * @throws UncheckedIOException If the data couldn't be read.
      */
     public Token nextToken() throws InterruptedException {
         if (tokens == null) {
             throw new NoSuchElementException();
         }
 
-        final Token t = tokens.take();
+        final Token t;
+        if (reader == null) {
+            t = ((BlockingQueue<Token>) tokens).take();
+        } else {
+            while (tokens.isEmpty()) {
+                step();
+            }
+            t = tokens.remove();
+        }
+
         if (t.getType() == TokenType.EOF) {
             tokens = null;
         }
@@ -91,18 +153,74 @@ class Scanner {
         return t;
     }
 
+    /**
+     * Enters the next lexing function or emits EOF if there is none.
+     */
+    private void step() {
+        if (state == null) {
+            tokens.add(new Token(TokenType.EOF, line, "EOF"));
+        } else {
+            state = state.lex(this);
+        }
+    }
+
+    /**
+     * Reads more data from the reader into the input buffer. Data before the
+     * currently processed token is discarded, the buffer is only enlarged if
+     * the current token doesn't fit into it.
+     *
+     * @return False if there is no more data, true otherwise.
+     * @throws UncheckedIOException If the data couldn't be read.
+     */
+    private boolean fill() {
+        if (reader == null) {
+            return false;
+        }
+
+        if (start > 0) {
+            System.arraycopy(input, start, input, 0, limit - start);
+            limit -= start;
+            pos -= start;
+            start = 0;
+        }
+
+        if (limit == input.length) {
+            final char[] buf = new char[input.length * 2];
+            System.arraycopy(input, 0, buf, 0, limit);
+            input = buf;
+        }
+
+        final int n;
+        try {
+            n = reader.read(input, limit, input.length - limit);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (n <= 0) {
+            return false;
+        }
+
+        limit += n;
+        return true;
+    }
+
     /**
      * Returns the next character.
      *
      * @return Next UTF32 character.
      */
     private int next() {
-        if (pos >= input.length()) {
+        if (pos >= limit && !fill()) {
             width = 0;
             return EOF;
         }
 
-        final int c = input.codePointAt(pos);
+        if (Character.isHighSurrogate(input[pos]) && pos + 1 >= limit) {
+            fill();
+        }
+
+        final int c = Character.codePointAt(input, pos, limit);
         width = Character.charCount(c);
 
         pos += width;
@@ -144,16 +262,39 @@ class Scanner {
             line++;
         }
 
-        final String s = input.substring(start, pos);
-        tokens.add(new Token(tt, line, s));
+        tokens.add(new Token(tt, line, text(tt)));
         start = pos;
     }
 
+    /**
+     * Returns the text of the currently processed token. Tokens consisting
+     * of a single fixed character share their text.
+     *
+     * @param tt TokenType of the token.
+     * @return Text of the token.
+     */
+    private String text(final TokenType tt) {
+        switch (tt) {
+            case NEWLINE:
+                return "\n";
+            case ASSIGN:
+                return "=";
+            case COMMA:
+                return ",";
+            case LEFTCURLY:
+                return "{";
+            case RIGHTCURLY:
+                return "}";
+            default:
+                return new String(input, start, pos - start);
+        }
+    }
+
     /**
      * Starts the tokenizer thread.
      */
     private void run() {
-        for (state = this::lexAny; state != null;) {
+        for (state = anyState; state != null;) {
             state = state.lex(this);
         }
 
@@ -199,13 +340,13 @@ class Scanner {
             if (isSep(c)) {
                 sc.emit((isDecimal) ? TokenType.DECIMAL : TokenType.NUMBER);
             } else {
-                return this::lexIdentifier;
+                return identifierState;
             }
 
             break;
         }
 
-        return this::lexAny;
+        return anyState;
     }
 
     /**
@@ -225,7 +366,7 @@ class Scanner {
             }
         }
 
-        return this::lexAny;
+        return anyState;
     }
 
     /**
@@ -240,26 +381,26 @@ class Scanner {
             return null;
         } else if (c == '\n') {
             sc.emit(TokenType.NEWLINE);
-            return this::lexAny;
+            return anyState;
         } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
             sc.ignore();
-            return this::lexAny;
+            return anyState;
         } else if (c == '=') {
             sc.emit(TokenType.ASSIGN);
-            return this::lexAny;
+            return anyState;
         } else if (c == ',') {
             sc.emit(TokenType.COMMA);
-            return this::lexAny;
+            return anyState;
         } else if (c == '{') {
             sc.emit(TokenType.LEFTCURLY);
-            return this::lexAny;
+            return anyState;
         } else if (c == '}') {
             sc.emit(TokenType.RIGHTCURLY);
-            return this::lexAny;
+            return anyState;
         } else if (Character.isDigit(c)) {
-            return this::lexNumber;
+            return numberState;
         } else {
-            return this::lexIdentifier;
+            return identifierState;
         }
     }
 }
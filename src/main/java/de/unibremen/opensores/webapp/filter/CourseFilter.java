@@ -3,6 +3,7 @@ package de.unibremen.opensores.webapp.filter;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.model.Course;
 import de.unibremen.opensores.service.CourseService;
+import de.unibremen.opensores.service.UserService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -50,6 +51,12 @@ public class CourseFilter implements Filter {
     @EJB
     private CourseService courseService;
 
+    /**
+     * The user service for looking up course memberships.
+     */
+    @EJB
+    private UserService userService;
+
     @Override
     public void doFilter(ServletRequest req, ServletResponse res,
                          FilterChain filterChain) throws IOException, ServletException {
@@ -83,15 +90,24 @@ public class CourseFilter implements Filter {
             return;
         }
 
+        Long courseId;
+        try {
+            courseId = Integer.valueOf(idStr).longValue();
+        } catch (NumberFormatException e) {
+            courseId = null;
+        }
+
+        // Members are looked up in the membership cache, the course itself
+        // is only loaded to tell unknown courses from forbidden ones.
+        if (courseId != null && userService.isCourseMember(user, courseId)) {
+            filterChain.doFilter(req, res);
+            return;
+        }
+
         Course course = courseService.findCourseById(idStr);
         if (course == null) {
             log.debug("Course not found, sending bad request");
             hres.sendError(HttpServletResponse.SC_NOT_FOUND);
-            return;
-        }
-
-        if (course.containsUser(user)) {
-            filterChain.doFilter(req, res);
         } else {
             hres.sendError(HttpServletResponse.SC_UNAUTHORIZED);
         }
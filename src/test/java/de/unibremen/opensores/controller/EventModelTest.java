@@ -0,0 +1,133 @@
+package de.unibremen.opensores.controller;
+
+import de.unibremen.opensores.controller.settings.ExamEventModel;
+import de.unibremen.opensores.controller.tutorial.TutorialEventModel;
+import de.unibremen.opensores.model.Exam;
+import de.unibremen.opensores.model.ExamEvent;
+import de.unibremen.opensores.model.Tutorial;
+import de.unibremen.opensores.model.TutorialEvent;
+import de.unibremen.opensores.service.ExamEventService;
+import de.unibremen.opensores.service.TutorialEventService;
+import de.unibremen.opensores.testutil.DataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests if the lazy schedule models of the exam and tutorial calendars load
+ * the events of the range shown by the scheduler.
+ */
+public class EventModelTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Date start;
+
+    private Date end;
+
+    @Before
+    public void setUp() {
+        start = new Date(1000 * HOUR);
+        end = new Date(start.getTime() + 7 * 24 * HOUR);
+    }
+
+    /**
+     * Tests if the exam events of the range are loaded in the order of the
+     * service.
+     */
+    @Test
+    public void testExamEventsLoadedForRange() {
+        Exam exam = new Exam();
+        exam.setExamId(DataHelper.EXAM_ID);
+        ExamEvent first = new ExamEvent(exam, start, new Date(start.getTime() + HOUR));
+        ExamEvent later = new ExamEvent(exam, new Date(start.getTime() + HOUR),
+                new Date(start.getTime() + 2 * HOUR));
+
+        ExamEventService serviceMock = Mockito.mock(ExamEventService.class);
+        when(serviceMock.findEventsBetween(exam, start, end))
+                .thenReturn(Arrays.asList(first, later));
+
+        ExamEventModel model = new ExamEventModel(serviceMock, exam);
+        model.loadEvents(start, end);
+
+        verify(serviceMock).findEventsBetween(exam, start, end);
+        assertEquals(2, model.getEventCount());
+        assertSame(first, model.getEvents().get(0));
+        assertSame(later, model.getEvents().get(1));
+    }
+
+    /**
+     * Tests if an empty range leaves the exam model empty.
+     */
+    @Test
+    public void testNoExamEventsInRange() {
+        Exam exam = new Exam();
+        ExamEventService serviceMock = Mockito.mock(ExamEventService.class);
+        when(serviceMock.findEventsBetween(exam, start, end))
+                .thenReturn(Collections.emptyList());
+
+        ExamEventModel model = new ExamEventModel(serviceMock, exam);
+        model.loadEvents(start, end);
+
+        assertEquals(0, model.getEventCount());
+    }
+
+    /**
+     * Tests if the tutorial events of the range are loaded and only the
+     * events created by the editor are editable.
+     */
+    @Test
+    public void testTutorialEventsEditableByCreator() {
+        Tutorial tutorial = new Tutorial();
+        long editorId = DataHelper.getNewObjectId();
+        TutorialEvent own = new TutorialEvent(tutorial, editorId, start,
+                new Date(start.getTime() + HOUR));
+        own.setEditable(false);
+        TutorialEvent other = new TutorialEvent(tutorial, DataHelper.getNewObjectId(),
+                start, new Date(start.getTime() + HOUR));
+        other.setEditable(false);
+
+        TutorialEventService serviceMock = Mockito.mock(TutorialEventService.class);
+        when(serviceMock.findEventsBetween(tutorial, start, end))
+                .thenReturn(Arrays.asList(own, other));
+
+        TutorialEventModel model = new TutorialEventModel(serviceMock, tutorial, editorId);
+        model.loadEvents(start, end);
+
+        assertEquals(2, model.getEventCount());
+        assertTrue(own.isEditable());
+        assertFalse(other.isEditable());
+    }
+
+    /**
+     * Tests if no tutorial event is editable without an editor.
+     */
+    @Test
+    public void testTutorialEventsWithoutEditor() {
+        Tutorial tutorial = new Tutorial();
+        TutorialEvent event = new TutorialEvent(tutorial, DataHelper.getNewObjectId(),
+                start, new Date(start.getTime() + HOUR));
+        event.setEditable(false);
+
+        TutorialEventService serviceMock = Mockito.mock(TutorialEventService.class);
+        when(serviceMock.findEventsBetween(tutorial, start, end))
+                .thenReturn(Collections.singletonList(event));
+
+        TutorialEventModel model = new TutorialEventModel(serviceMock, tutorial, null);
+        model.loadEvents(start, end);
+
+        assertEquals(1, model.getEventCount());
+        assertFalse(event.isEditable());
+    }
+}
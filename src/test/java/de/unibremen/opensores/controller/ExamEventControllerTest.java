@@ -47,6 +47,7 @@ import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -275,7 +276,7 @@ public class ExamEventControllerTest {
     /**
      * Tests if events with no PrimeFaces Ids get added to the ExamEventModel.
      * Tests if events with PrimeFaces Ids get updated in the ExamEventModel.
-     * Tests if the exam gets updated its events from the ExamEventModel.
+     * Tests if the events get persisted or updated without updating the exam.
      */
     @Test
     public void testAddEvent() {
@@ -288,7 +289,7 @@ public class ExamEventControllerTest {
         examEventController.onEventSelect(selectEvent);
         examEventController.addEvent(null);
         Assert.assertSame(event, examEventController.getExamEventModel().getEvents().get(0));
-        verify(examServiceMock, times(1)).update(exam);
+        verify(examEventServiceMock, never()).update(event);
         verify(examEventServiceMock,times(1)).persist(event);
 
         examEventController.getExamEventModel().getEvents().clear();
@@ -299,16 +300,16 @@ public class ExamEventControllerTest {
         examEventController.setExamEvent(event);
         examEventController.addEvent(null);
 
-        verify(examServiceMock, times(2)).update(exam);
+        verify(examEventServiceMock, times(1)).update(event);
         verify(examEventServiceMock,times(1)).persist(event);
+        verify(examServiceMock, never()).update(exam);
         Assert.assertTrue(examEventController.getExamEventModel().getEvents().isEmpty());
 
     }
 
     /**
-     * Tests if the event is removed from the event model, the exam is updated
-     * from the event model, the examiner doesnht have the event saved in his
-     * events any more.
+     * Tests if the event is removed from the event model and the database,
+     * the examiner doesnht have the event saved in his events any more.
      */
     @Test
     public void testRemoveEvent() {
@@ -322,14 +323,14 @@ public class ExamEventControllerTest {
         examEventController.onEventSelect(selectEvent);
         examEventController.addEvent(null);
         Assert.assertSame(event, examEventController.getExamEventModel().getEvents().get(0));
-        verify(examServiceMock, times(1)).update(exam);
+        verify(examEventServiceMock, never()).update(event);
         verify(examEventServiceMock,times(1)).persist(event);
 
         examEventController.onEventSelect(selectEvent);
         examEventController.removeEvent(null);
         Assert.assertTrue(examEventController.getExamEventModel().getEvents().isEmpty());
         assertFalse(privilegedUser.getExamEvents().contains(event));
-        verify(examServiceMock, times(2)).update(exam);
+        verify(examEventServiceMock, times(1)).remove(event);
         verify(privilegedUserService, times(1)).update(privilegedUser);
     }
     /**
@@ -133,8 +133,7 @@ public class GradeScriptControllerTest {
         scriptController.setCourseService(courseServiceMock);
 
         studentServiceMock = MockHelper.mockStudentService();
-        when(studentServiceMock.getUndeletedAndConfirmedStudentsOf
-                (course.getParticipationTypes()))
+        when(studentServiceMock.getUndeletedAndConfirmedStudentsOf(course))
                 //TODO
                 .thenReturn(new HashMap<>());
         scriptController.setStudentService(studentServiceMock);
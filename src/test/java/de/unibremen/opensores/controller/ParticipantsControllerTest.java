@@ -11,6 +11,7 @@ import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
+import de.unibremen.opensores.service.LecturerService;
 import de.unibremen.opensores.service.LogService;
 import de.unibremen.opensores.service.PrivilegedUserService;
 import de.unibremen.opensores.service.StudentService;
@@ -42,6 +43,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
@@ -108,6 +110,12 @@ public class ParticipantsControllerTest {
     @Mock
     private LogService logServiceMock;
 
+    /**
+     * A mock of the LecturerService to persist changes of lecturers.
+     */
+    @Mock
+    private LecturerService lecturerServiceMock;
+
     /**
      * The course object used for tests.
      */
@@ -158,6 +166,9 @@ public class ParticipantsControllerTest {
         studentServiceMock = Mockito.mock(StudentService.class);
         participantsController.setStudentService(studentServiceMock);
 
+        lecturerServiceMock = Mockito.mock(LecturerService.class);
+        participantsController.setLecturerService(lecturerServiceMock);
+
         uiComponentMock = Mockito.mock(UIComponent.class);
 
         participantsController.init();
@@ -405,7 +416,8 @@ public class ParticipantsControllerTest {
         assertTrue(createdPrivUser.hasPrivilege(Privilege.ExportData.name()));
         assertTrue(createdPrivUser.hasPrivilege(Privilege.GenerateCredits.name()));
 
-        verify(courseServiceMock, times(1)).update(course);
+        verify(privilegedUserService, times(1)).persist(createdPrivUser);
+        verify(courseServiceMock, times(0)).update(course);
         verify(userServiceMock, times(1)).initPasswordReset(eq(user), anyInt());
     }
 
@@ -432,7 +444,8 @@ public class ParticipantsControllerTest {
 
         assertNotNull(user.getToken());
         assertNull(user.getPassword());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(studentServiceMock, times(1)).persist(any(Student.class));
+        verify(courseServiceMock, times(0)).update(course);
         verify(userServiceMock, times(1)).initPasswordReset(eq(user), anyInt());
 
         final int newStudentsCount = course.getStudents().size();
@@ -455,7 +468,7 @@ public class ParticipantsControllerTest {
         participantsController.onDeleteStudentDialogCalled(student);
         participantsController.deleteSelectedParticipation();
         assertTrue(student.isDeleted());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(studentServiceMock, times(1)).updateParticipation(student);
         testResetValues();
     }
 
@@ -472,7 +485,7 @@ public class ParticipantsControllerTest {
         participantsController.onDeleteLecturerDialogCalled(lecturer);
         participantsController.deleteSelectedParticipation();
         assertTrue(lecturer.isDeleted());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(lecturerServiceMock, times(1)).updateParticipation(lecturer);
         testResetValues();
     }
 
@@ -489,7 +502,7 @@ public class ParticipantsControllerTest {
         participantsController.onDeletePrivilegedUserDialogCalled(privUser);
         participantsController.deleteSelectedParticipation();
         assertTrue(privUser.isDeleted());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(privilegedUserService, times(1)).updateParticipation(privUser);
         testResetValues();
     }
 
@@ -526,7 +539,8 @@ public class ParticipantsControllerTest {
         assertTrue(privUser.isDeleted());
         assertFalse(student.isDeleted());
         assertSame(defaultType, student.getParticipationType());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(studentServiceMock, times(1)).updateParticipation(student);
+        verify(privilegedUserService, times(1)).updateParticipation(privUser);
     }
 
     /**
@@ -549,7 +563,8 @@ public class ParticipantsControllerTest {
         participantsController.setPrivilegeExams(true);
         participantsController.setPrivilegeFormula(true);
         participantsController.saveEditChanges();
-        verify(courseServiceMock, times(1)).update(course);
+        verify(studentServiceMock, times(1)).updateParticipation(student);
+        verify(privilegedUserService, times(1)).updateParticipation(privUser);
         assertTrue(student.isDeleted());
         assertFalse(privUser.isDeleted());
         assertTrue(privUser.isSecretary());
@@ -573,7 +588,7 @@ public class ParticipantsControllerTest {
         student.setConfirmed(false);
         participantsController.confirmStudent(student);
         assertTrue(student.isConfirmed());
-        verify(courseServiceMock, times(1)).update(course);
+        verify(studentServiceMock, times(1)).updateParticipation(student);
     }
 
     /**
@@ -587,7 +602,7 @@ public class ParticipantsControllerTest {
         student.setConfirmed(true);
         participantsController.confirmStudent(student);
         assertTrue(student.isConfirmed());
-        verify(courseServiceMock, times(0)).update(course);
+        verify(studentServiceMock, times(0)).updateParticipation(student);
     }
 
     /**
@@ -10,6 +10,7 @@ import de.unibremen.opensores.model.TutorialEvent;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.service.CourseService;
 import de.unibremen.opensores.service.LogService;
+import de.unibremen.opensores.service.TutorialEventService;
 import de.unibremen.opensores.service.TutorialService;
 import de.unibremen.opensores.service.UserService;
 import de.unibremen.opensores.testutil.ContextMocker;
@@ -38,6 +39,8 @@ import static junit.framework.TestCase.assertNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -55,6 +58,12 @@ public class TutorialEventControllerTest {
     @Mock
     private TutorialService tutorialServiceMock;
 
+    /**
+     * A mock of the TutorialEventService.
+     */
+    @Mock
+    private TutorialEventService tutorialEventServiceMock;
+
 
     /**
      * A mock of the LogService.
@@ -157,6 +166,9 @@ public class TutorialEventControllerTest {
 
         tutEventController.setTutorialService(tutorialServiceMock);
 
+        tutorialEventServiceMock = Mockito.mock(TutorialEventService.class);
+        tutEventController.setTutorialEventService(tutorialEventServiceMock);
+
         logServiceMock = Mockito.mock(LogService.class);
         tutEventController.setLogService(logServiceMock);
 
@@ -184,7 +196,7 @@ public class TutorialEventControllerTest {
      * Tests if an event with no PrimeFaces id gets added to the event model.
      * Tests if an event with PrimeFaces id gets updated, and not added to the
      * event model.
-     * Tests if the tutorial gets updated after every call of the method.
+     * Tests if the event gets persisted or updated.
      */
     @Test
     public void testAddEventNewEvent() {
@@ -195,7 +207,7 @@ public class TutorialEventControllerTest {
         tutEventController.setEvent(event);
         tutEventController.addEvent(null);
         assertSame(event, tutEventController.getTutorialEventModel().getEvents().get(0));
-        verify(tutorialServiceMock, times(1)).update(tutorial);
+        verify(tutorialEventServiceMock, times(1)).persist(event);
 
         event.setId("1");
         event.setStartDate(new Date());
@@ -206,7 +218,8 @@ public class TutorialEventControllerTest {
         tutEventController.onEventSelect(selectEvent);;
         tutEventController.addEvent(null);
         assertTrue(tutEventController.getTutorialEventModel().getEvents().isEmpty());
-        verify(tutorialServiceMock, times(2)).update(tutorial);
+        verify(tutorialEventServiceMock, times(1)).persist(event);
+        verify(tutorialEventServiceMock, times(1)).update(event);
 
     }
 
@@ -215,13 +228,13 @@ public class TutorialEventControllerTest {
      * Tests if no events gets removed if the selected event is null or has no
      * Primafaces id.
      * Tests if the selected event is removed from the event model if it is not null.
-     * Tests if the tutorial gets updated according to the updated event model.
+     * Tests if only the removed event gets removed from the database.
      */
     @Test
     public void testRemoveEvent() {
         tutEventController.removeEvent(null);
         assertTrue(tutEventController.getTutorialEventModel().getEvents().isEmpty());
-        verify(tutorialServiceMock, times(1)).update(tutorial);
+        verify(tutorialEventServiceMock, never()).remove(any(TutorialEvent.class));
 
         //Check if an event without primefaces id doesnt get
         TutorialEvent event = new TutorialEvent();
@@ -230,13 +243,13 @@ public class TutorialEventControllerTest {
         tutEventController.getTutorialEventModel().getEvents().add(event);
         tutEventController.setEvent(event);
         tutEventController.removeEvent(null);
-        verify(tutorialServiceMock, times(2)).update(tutorial);
+        verify(tutorialEventServiceMock, never()).remove(any(TutorialEvent.class));
         assertSame(event, tutEventController.getTutorialEventModel().getEvents().get(0));
 
         event.setId("1");
         tutEventController.setEvent(event);
         tutEventController.removeEvent(null);
-        verify(tutorialServiceMock, times(3)).update(tutorial);
+        verify(tutorialEventServiceMock, times(1)).remove(event);
         assertTrue(tutEventController.getTutorialEventModel().getEvents().isEmpty());
     }
 
@@ -0,0 +1,164 @@
+package de.unibremen.opensores.controller.common.converter;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.service.CourseService;
+import de.unibremen.opensores.testutil.ContextMocker;
+import de.unibremen.opensores.testutil.DataHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import javax.faces.component.UIInput;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+import javax.faces.convert.ConverterException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests if the caching converters resolve all values submitted for a
+ * component with a single query and answer later lookups from their cache.
+ */
+public class CachingConverterTest {
+
+    @Mock
+    private CourseService courseServiceMock;
+
+    @Mock
+    private UIInput componentMock;
+
+    @Mock
+    private UIViewRoot viewRootMock;
+
+    private FacesContext context;
+
+    private Course course;
+
+    private Map<String, Object> attributes;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        context = ContextMocker.mockBasicFacesContext();
+        when(context.getViewRoot()).thenReturn(viewRootMock);
+        when(viewRootMock.getLocale()).thenReturn(Locale.ENGLISH);
+
+        course = DataHelper.createBasicCourse();
+        attributes = new HashMap<>();
+        attributes.put("course", course);
+        when(componentMock.getAttributes()).thenReturn(attributes);
+    }
+
+    @After
+    public void tearDown() {
+        context.release();
+    }
+
+    /**
+     * Tests if all students of a pick list are loaded with one query and
+     * converting them again doesn't query the database.
+     */
+    @Test
+    public void testStudentsLoadedOnce() {
+        List<Student> students = Arrays.asList(createStudent("a@uni-bremen.de"),
+                createStudent("b@uni-bremen.de"), createStudent("c@uni-bremen.de"));
+        when(courseServiceMock.findStudentsByEmail(eq(course), anyCollectionOf(String.class)))
+                .thenReturn(students);
+        when(componentMock.getSubmittedValue()).thenReturn(new Object[] {
+            new String[] {"a@uni-bremen.de"},
+            new String[] {"b@uni-bremen.de", "c@uni-bremen.de"}});
+
+        StudentConverter converter = new StudentConverter();
+        Whitebox.setInternalState(converter, "courseService", courseServiceMock);
+        for (int run = 0; run < 2; run++) {
+            for (Student student : students) {
+                assertSame(student, converter.getAsObject(context, componentMock,
+                        student.getUser().getEmail()));
+            }
+        }
+
+        ArgumentCaptor<Collection> emails = ArgumentCaptor.forClass(Collection.class);
+        verify(courseServiceMock, times(1)).findStudentsByEmail(eq(course), emails.capture());
+        assertEquals(new HashSet<>(Arrays.asList("a@uni-bremen.de", "b@uni-bremen.de",
+                "c@uni-bremen.de")), new HashSet<>(emails.getValue()));
+    }
+
+    /**
+     * Tests if a value without a student is rejected and not looked up
+     * again.
+     */
+    @Test
+    public void testUnknownStudentCached() {
+        when(courseServiceMock.findStudentsByEmail(eq(course), anyCollectionOf(String.class)))
+                .thenReturn(Collections.emptyList());
+
+        StudentConverter converter = new StudentConverter();
+        Whitebox.setInternalState(converter, "courseService", courseServiceMock);
+        for (int run = 0; run < 2; run++) {
+            try {
+                converter.getAsObject(context, componentMock, "unknown@uni-bremen.de");
+                fail("An unknown student should be rejected");
+            } catch (ConverterException e) {
+                // Expected for every run.
+            }
+        }
+
+        verify(courseServiceMock, times(1)).findStudentsByEmail(any(Course.class),
+                anyCollectionOf(String.class));
+    }
+
+    /**
+     * Tests if the submitted courses are loaded with one query, skipping
+     * values which aren't ids.
+     */
+    @Test
+    public void testCoursesLoadedOnce() {
+        Course other = new Course();
+        other.setCourseId(DataHelper.getNewObjectId());
+        when(courseServiceMock.findCoursesById(anyCollectionOf(Long.class)))
+                .thenReturn(Arrays.asList(course, other));
+        String courseId = course.getCourseId().toString();
+        String otherId = other.getCourseId().toString();
+        when(componentMock.getSubmittedValue()).thenReturn(
+                new String[] {courseId, "invalid", otherId});
+
+        CourseConverter converter = new CourseConverter();
+        Whitebox.setInternalState(converter, "courseService", courseServiceMock);
+        assertSame(course, converter.getAsObject(context, componentMock, courseId));
+        assertSame(other, converter.getAsObject(context, componentMock, otherId));
+        assertSame(course, converter.getAsObject(context, componentMock, courseId));
+
+        ArgumentCaptor<Collection> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(courseServiceMock, times(1)).findCoursesById(ids.capture());
+        assertEquals(new HashSet<>(Arrays.asList(course.getCourseId(), other.getCourseId())),
+                new HashSet<>(ids.getValue()));
+    }
+
+    private Student createStudent(String email) {
+        User user = DataHelper.createBasicUserWithNewId();
+        user.setEmail(email);
+        return DataHelper.createStudentWith(course, user);
+    }
+}
@@ -0,0 +1,79 @@
+package de.unibremen.opensores.service;
+
+import org.junit.Test;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.ParserFacade;
+import org.python.core.PyException;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Tests if the ConstantSizeCheck rejects scripts computing huge constants
+ * and accepts ordinary formulas.
+ */
+public class ConstantSizeCheckTest {
+
+    @Test
+    public void testHugePower() {
+        assertRejected("x = 2 ** (10 ** 9)");
+    }
+
+    @Test
+    public void testHugePowBuiltin() {
+        assertRejected("x = pow(10, 10 ** 8)");
+    }
+
+    @Test
+    public void testHugeShift() {
+        assertRejected("x = 1 << 10 ** 9");
+    }
+
+    @Test
+    public void testHugeStringRepetition() {
+        assertRejected("x = 'x' * 10 ** 10");
+    }
+
+    @Test
+    public void testHugeNestedListRepetition() {
+        assertRejected("x = [0] * 100000 * 100000");
+    }
+
+    @Test
+    public void testHugeRange() {
+        assertRejected("for i in range(10 ** 9):\n    pass\n");
+    }
+
+    @Test
+    public void testHugeExpressionInFunction() {
+        assertRejected("def set_final_grade(grades, info, other):\n"
+                + "    return -(2 ** 2 ** 30)\n");
+    }
+
+    @Test
+    public void testOrdinaryFormula() {
+        check("def set_final_grade(grades, info, other):\n"
+                + "    points = grades['E1'][0] * 2 ** 3 + 10 ** 2\n"
+                + "    bonus = [0] * 10 + list(range(100))\n"
+                + "    return pow(2, 10) + 2 ** 0.5 + (-1) ** (10 ** 20) + 0 ** (10 ** 20)\n");
+    }
+
+    @Test
+    public void testValuesComputedAtRuntime() {
+        check("n = 10\nx = 2 ** n\ny = 'x' * n\n");
+    }
+
+    private static void assertRejected(String script) {
+        try {
+            check(script);
+            fail("The script should have been rejected");
+        } catch (PyException e) {
+            return;
+        }
+    }
+
+    private static void check(String script) {
+        ConstantSizeCheck.check(ParserFacade.parse(script, CompileMode.exec,
+                "<test>", new CompilerFlags()));
+    }
+}
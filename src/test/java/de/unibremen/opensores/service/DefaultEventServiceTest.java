@@ -0,0 +1,112 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Exam;
+import de.unibremen.opensores.model.ExamEvent;
+import de.unibremen.opensores.model.Tutorial;
+import de.unibremen.opensores.model.TutorialEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the range query shared by the exam and tutorial event services on a
+ * mocked EntityManager.
+ */
+public class DefaultEventServiceTest {
+
+    @Mock
+    private EntityManager emMock;
+
+    @Mock
+    private TypedQuery<ExamEvent> examQueryMock;
+
+    @Mock
+    private TypedQuery<TutorialEvent> tutorialQueryMock;
+
+    private Date start;
+
+    private Date end;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(emMock.createQuery(anyString(), eq(ExamEvent.class))).thenReturn(examQueryMock);
+        when(examQueryMock.setParameter(anyString(), any())).thenReturn(examQueryMock);
+        when(emMock.createQuery(anyString(), eq(TutorialEvent.class)))
+                .thenReturn(tutorialQueryMock);
+        when(tutorialQueryMock.setParameter(anyString(), any())).thenReturn(tutorialQueryMock);
+        start = new Date(0);
+        end = new Date(7 * 24 * 60 * 60 * 1000L);
+    }
+
+    /**
+     * Tests if the events of an exam are selected by the exam and the range.
+     */
+    @Test
+    public void testExamEventsBetween() {
+        ExamEventService service = new ExamEventService();
+        Whitebox.setInternalState(service, "em", emMock);
+        Exam exam = new Exam();
+        exam.setExamId(42L);
+
+        service.findEventsBetween(exam, start, end);
+
+        ArgumentCaptor<String> query = ArgumentCaptor.forClass(String.class);
+        verify(emMock).createQuery(query.capture(), eq(ExamEvent.class));
+        assertRangeQuery(query.getValue(), "ExamEvent", "e.exam.examId");
+        verify(examQueryMock).setParameter("ownerId", 42L);
+        verify(examQueryMock).setParameter("start", start);
+        verify(examQueryMock).setParameter("end", end);
+    }
+
+    /**
+     * Tests if the events of a tutorial are selected by the tutorial and the
+     * range.
+     */
+    @Test
+    public void testTutorialEventsBetween() {
+        TutorialEventService service = new TutorialEventService();
+        Whitebox.setInternalState(service, "em", emMock);
+        Tutorial tutorial = new Tutorial();
+        tutorial.setTutorialId(7L);
+
+        service.findEventsBetween(tutorial, start, end);
+
+        ArgumentCaptor<String> query = ArgumentCaptor.forClass(String.class);
+        verify(emMock).createQuery(query.capture(), eq(TutorialEvent.class));
+        assertRangeQuery(query.getValue(), "TutorialEvent", "e.tutorial.tutorialId");
+        verify(tutorialQueryMock).setParameter("ownerId", 7L);
+        verify(tutorialQueryMock).setParameter("start", start);
+        verify(tutorialQueryMock).setParameter("end", end);
+    }
+
+    /**
+     * Asserts that the query selects the events of the owner which start
+     * before the end of the range and end within or after it, or start
+     * within it if they have no end date.
+     */
+    private static void assertRangeQuery(String query, String entity, String owner) {
+        assertTrue(query, query.startsWith("SELECT e FROM " + entity + " e WHERE "
+                + owner + " = :ownerId"));
+        assertTrue(query, query.contains(" AND e.startDate < :end"));
+        assertTrue(query, query.contains(" AND (e.endDate >= :start"
+                + " OR (e.endDate IS NULL AND e.startDate >= :start))"));
+        assertEquals(query.length() - " ORDER BY e.startDate".length(),
+                query.indexOf(" ORDER BY e.startDate"));
+    }
+}
@@ -0,0 +1,202 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests if the FinalGradeQueue recomputes the final grades by participation
+ * type, keeps the students whose recomputation failed and parks formulas
+ * which keep failing.
+ */
+public class FinalGradeQueueTest {
+
+    private static final long TYPE_ID = 1L;
+
+    private static final long OTHER_TYPE_ID = 2L;
+
+    @Mock
+    private FinalGradeService finalGradeServiceMock;
+
+    private FinalGradeQueue queue;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        queue = new FinalGradeQueue();
+        Whitebox.setInternalState(queue, "finalGradeService", finalGradeServiceMock);
+    }
+
+    /**
+     * Tests if the students are recomputed per participation type and left
+     * the queue afterwards.
+     */
+    @Test
+    public void testDrainRecomputesByType() throws Exception {
+        mockGroups();
+        when(finalGradeServiceMock.recompute(TYPE_ID, ids(1L, 2L))).thenReturn(2);
+        when(finalGradeServiceMock.recompute(OTHER_TYPE_ID, ids(3L)))
+                .thenReturn(1);
+
+        queue.enqueue(Arrays.asList(1L, 2L, 3L));
+        assertEquals(3, queue.drain());
+        assertEquals(0, queue.drain());
+        verify(finalGradeServiceMock).recompute(TYPE_ID, ids(1L, 2L));
+        verify(finalGradeServiceMock).recompute(OTHER_TYPE_ID, ids(3L));
+    }
+
+    /**
+     * Tests if the students of a participation type whose formula exceeded
+     * its limits are queued again, while the others are done.
+     */
+    @Test
+    public void testDrainRequeuesFailedType() throws Exception {
+        mockGroups();
+        when(finalGradeServiceMock.recompute(TYPE_ID, ids(1L, 2L)))
+                .thenThrow(new ScriptLimitException(ScriptLimitException.Limit.TIME));
+        when(finalGradeServiceMock.recompute(OTHER_TYPE_ID, ids(3L)))
+                .thenReturn(1);
+
+        queue.enqueue(Arrays.asList(1L, 2L, 3L));
+        assertEquals(1, queue.drain());
+
+        Map<Long, List<Long>> retry = new LinkedHashMap<>();
+        retry.put(TYPE_ID, Arrays.asList(1L, 2L));
+        when(finalGradeServiceMock.groupFormulaGraded(anyCollectionOf(Long.class)))
+                .thenReturn(retry);
+        doReturn(2).when(finalGradeServiceMock).recompute(TYPE_ID, ids(1L, 2L));
+
+        assertEquals(2, queue.drain());
+        verify(finalGradeServiceMock).groupFormulaGraded(Arrays.asList(1L, 2L));
+    }
+
+    /**
+     * Tests if a failing formula, which throws a RuntimeException through
+     * the EJB container, leaves its students in the queue.
+     */
+    @Test
+    public void testDrainRequeuesFailedFormula() throws Exception {
+        mockGroups();
+        when(finalGradeServiceMock.recompute(anyLong(), anyCollectionOf(Long.class)))
+                .thenThrow(new IllegalStateException("formula failed"));
+
+        queue.enqueue(Arrays.asList(1L, 2L, 3L));
+        assertEquals(0, queue.drain());
+        assertEquals(0, queue.drain());
+        verify(finalGradeServiceMock, times(2)).recompute(TYPE_ID, ids(1L, 2L));
+    }
+
+    /**
+     * Tests if a formula which didn't run because no script could be
+     * started doesn't count as failed.
+     */
+    @Test
+    public void testDrainDoesntParkOnCapacity() throws Exception {
+        mockGroups();
+        when(finalGradeServiceMock.recompute(anyLong(), anyCollectionOf(Long.class)))
+                .thenThrow(new ScriptLimitException(ScriptLimitException.Limit.CAPACITY));
+
+        queue.enqueue(Arrays.asList(1L, 2L, 3L));
+        for (int i = 0; i < 5; i++) {
+            queue.drain();
+        }
+
+        verify(finalGradeServiceMock, times(5)).recompute(TYPE_ID, ids(1L, 2L));
+        verify(finalGradeServiceMock, never()).getLatestFormulaId(anyLong());
+    }
+
+    /**
+     * Tests if a participation type is parked after its formula failed
+     * three times in a row, and its students are recomputed once its
+     * formula is changed.
+     */
+    @Test
+    public void testDrainParksFailedTypeUntilFormulaChanges() throws Exception {
+        Map<Long, List<Long>> groups = new LinkedHashMap<>();
+        groups.put(TYPE_ID, Arrays.asList(1L, 2L));
+        when(finalGradeServiceMock.groupFormulaGraded(anyCollectionOf(Long.class)))
+                .thenReturn(groups);
+        when(finalGradeServiceMock.getLatestFormulaId(TYPE_ID)).thenReturn(10L);
+        when(finalGradeServiceMock.recompute(anyLong(), anyCollectionOf(Long.class)))
+                .thenThrow(new ScriptLimitException(ScriptLimitException.Limit.TIME));
+
+        queue.enqueue(Arrays.asList(1L, 2L));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, queue.drain());
+        }
+        verify(finalGradeServiceMock, times(3)).recompute(TYPE_ID, ids(1L, 2L));
+
+        Map<Long, List<Long>> changed = new LinkedHashMap<>();
+        changed.put(TYPE_ID, Collections.singletonList(3L));
+        doReturn(changed).when(finalGradeServiceMock)
+                .groupFormulaGraded(anyCollectionOf(Long.class));
+        queue.enqueue(Collections.singletonList(3L));
+        assertEquals(0, queue.drain());
+        verify(finalGradeServiceMock, never()).recompute(TYPE_ID, ids(3L));
+
+        doReturn(11L).when(finalGradeServiceMock).getLatestFormulaId(TYPE_ID);
+        doReturn(3).when(finalGradeServiceMock).recompute(TYPE_ID, ids(3L, 1L, 2L));
+        queue.enqueue(Collections.singletonList(3L));
+        assertEquals(3, queue.drain());
+        assertEquals(0, queue.drain());
+    }
+
+    /**
+     * Tests if all students are queued again if they can't be grouped.
+     */
+    @Test
+    public void testDrainRequeuesIfGroupingFails() throws Exception {
+        when(finalGradeServiceMock.groupFormulaGraded(anyCollectionOf(Long.class)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        queue.enqueue(Collections.singletonList(1L));
+        assertEquals(0, queue.drain());
+
+        doReturn(new LinkedHashMap<>()).when(finalGradeServiceMock)
+                .groupFormulaGraded(anyCollectionOf(Long.class));
+        assertEquals(0, queue.drain());
+        verify(finalGradeServiceMock, times(2))
+                .groupFormulaGraded(Collections.singletonList(1L));
+        verify(finalGradeServiceMock, never()).recompute(anyLong(),
+                anyCollectionOf(Long.class));
+    }
+
+    /**
+     * Lets the students 1 and 2 have the first and the student 3 the other
+     * participation type.
+     */
+    private void mockGroups() {
+        Map<Long, List<Long>> groups = new LinkedHashMap<>();
+        groups.put(TYPE_ID, Arrays.asList(1L, 2L));
+        groups.put(OTHER_TYPE_ID, Collections.singletonList(3L));
+        when(finalGradeServiceMock.groupFormulaGraded(anyCollectionOf(Long.class)))
+                .thenReturn(groups);
+    }
+
+    /**
+     * Returns the ids as an ordered set, as passed to the service.
+     */
+    private static Set<Long> ids(Long... ids) {
+        return new LinkedHashSet<>(Arrays.asList(ids));
+    }
+}
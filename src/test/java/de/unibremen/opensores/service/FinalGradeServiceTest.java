@@ -0,0 +1,172 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.GradeFormula;
+import de.unibremen.opensores.model.PaboGrade;
+import de.unibremen.opensores.model.ParticipationType;
+import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.testutil.DataHelper;
+import de.unibremen.opensores.util.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the recomputation of final grades by the FinalGradeService with a
+ * real python interpreter and a mocked database.
+ */
+public class FinalGradeServiceTest {
+
+    private static final String OLD_FORMULA = "def set_final_grade(grades, info, other):\n"
+            + "    return PaboGrade.GRADE_5_0\n";
+
+    private static final String MANUAL_FORMULA
+            = Constants.MANUAL_GRADE_FORMULA_PREFIX + "Lecturer";
+
+    private static final String NEW_FORMULA = "def set_final_grade(grades, info, other):\n"
+            + "    return PaboGrade.GRADE_1_0\n";
+
+    @Mock
+    private EntityManager emMock;
+
+    @Mock
+    private TypedQuery<Student> studentQueryMock;
+
+    @Mock
+    private LogService logServiceMock;
+
+    private PythonService pythonService;
+
+    private FinalGradeService finalGradeService;
+
+    private ParticipationType type;
+
+    private Student ungraded;
+
+    private Student changedMeanwhile;
+
+    private Student unchanged;
+
+    /**
+     * Creates a participation type with a valid formula and three students
+     * graded by an older formula.
+     */
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        pythonService = new PythonService();
+        pythonService.init();
+
+        finalGradeService = new FinalGradeService();
+        Whitebox.setInternalState(finalGradeService, "em", emMock);
+        Whitebox.setInternalState(finalGradeService, "pythonService", pythonService);
+        Whitebox.setInternalState(finalGradeService, "logService", logServiceMock);
+
+        Course course = DataHelper.createBasicCourse();
+        type = course.getDefaultParticipationType();
+        GradeFormula formula = DataHelper.createGradeFormulaIn(type);
+        formula.setFormula(NEW_FORMULA);
+        formula.setValid(true);
+
+        ungraded = createStudent(course, null);
+        changedMeanwhile = createStudent(course, PaboGrade.GRADE_5_0.name());
+        unchanged = createStudent(course, PaboGrade.GRADE_1_0.name());
+
+        when(emMock.find(ParticipationType.class, type.getPartTypeId())).thenReturn(type);
+        when(emMock.createQuery(anyString(), eq(Student.class))).thenReturn(studentQueryMock);
+        when(studentQueryMock.setParameter(anyString(), any())).thenReturn(studentQueryMock);
+        when(studentQueryMock.getResultList()).thenReturn(
+                Arrays.asList(ungraded, changedMeanwhile, unchanged));
+    }
+
+    @After
+    public void tearDown() {
+        pythonService.destroy();
+    }
+
+    /**
+     * Tests if only final grades which are still the ones the formula was
+     * run with are set and counted.
+     */
+    @Test
+    public void testRecomputeKeepsGradesChangedMeanwhile() throws Exception {
+        // The final grade of the second student was set by hand meanwhile.
+        doAnswer(invocation -> {
+            changedMeanwhile.setPaboGrade(PaboGrade.GRADE_2_0.name());
+            changedMeanwhile.setPaboGradeFormula(MANUAL_FORMULA);
+            return null;
+        }).when(emMock).refresh(changedMeanwhile, LockModeType.PESSIMISTIC_WRITE);
+
+        int changed = finalGradeService.recompute(type.getPartTypeId(), Arrays.asList(
+                ungraded.getStudentId(), changedMeanwhile.getStudentId(),
+                unchanged.getStudentId()));
+
+        assertEquals(1, changed);
+        assertEquals(PaboGrade.GRADE_1_0.name(), ungraded.getPaboGrade());
+        assertEquals(NEW_FORMULA, ungraded.getPaboGradeFormula());
+        assertEquals(PaboGrade.GRADE_2_0.name(), changedMeanwhile.getPaboGrade());
+        assertEquals(MANUAL_FORMULA, changedMeanwhile.getPaboGradeFormula());
+        verify(emMock).refresh(ungraded, LockModeType.PESSIMISTIC_WRITE);
+        verify(emMock).refresh(changedMeanwhile, LockModeType.PESSIMISTIC_WRITE);
+        verify(emMock, never()).refresh(unchanged, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * Tests if no query compares the formula of a student, which is a CLOB
+     * Derby can't compare.
+     */
+    @Test
+    public void testRecomputeDoesntCompareFormulaColumn() throws Exception {
+        finalGradeService.groupFormulaGraded(Arrays.asList(ungraded.getStudentId()));
+        finalGradeService.recompute(type.getPartTypeId(), Arrays.asList(
+                ungraded.getStudentId(), changedMeanwhile.getStudentId()));
+
+        ArgumentCaptor<String> queries = ArgumentCaptor.forClass(String.class);
+        verify(emMock, atLeastOnce()).createQuery(queries.capture(), eq(Student.class));
+        verify(emMock, never()).createQuery(anyString());
+        for (String query : queries.getAllValues()) {
+            assertFalse(query, query.matches("(?s).*paboGradeFormula\\s*(=|!=|<>|IN\\b).*"));
+        }
+    }
+
+    /**
+     * Tests if nothing is recomputed if the latest formula isn't valid.
+     */
+    @Test
+    public void testRecomputeSkipsInvalidFormula() throws Exception {
+        type.getLatestFormula().setValid(false);
+
+        assertEquals(0, finalGradeService.recompute(type.getPartTypeId(),
+                Arrays.asList(ungraded.getStudentId())));
+        verify(emMock, never()).createQuery(anyString(), eq(Student.class));
+        verify(emMock, never()).createQuery(anyString());
+    }
+
+    private static Student createStudent(Course course, String paboGrade) {
+        Student student = DataHelper.createStudentWith(course,
+                DataHelper.createBasicUserWithNewId());
+        student.setPaboGrade(paboGrade);
+        student.setPaboGradeFormula(OLD_FORMULA);
+        return student;
+    }
+}
@@ -0,0 +1,132 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.Exam;
+import de.unibremen.opensores.model.Grade;
+import de.unibremen.opensores.model.GradeType;
+import de.unibremen.opensores.model.Grading;
+import de.unibremen.opensores.model.PaboGrade;
+import de.unibremen.opensores.model.Student;
+import de.unibremen.opensores.testutil.DataHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.python.util.PythonInterpreter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the GradeFormulaEvaluator with a real python interpreter.
+ */
+public class GradeFormulaEvaluatorTest {
+
+    /**
+     * Grades a single grade, shared by both formulas.
+     */
+    private static final String GRADE_OF =
+            "def grade_of(value):\n"
+            + "    if value is None:\n"
+            + "        return PaboGrade.GRADE_NEGLECTED\n"
+            + "    if value <= Decimal('2'):\n"
+            + "        return PaboGrade.GRADE_1_0\n"
+            + "    return PaboGrade.GRADE_5_0\n";
+
+    /**
+     * Formula grading one student per call.
+     */
+    private static final String PER_STUDENT_FORMULA = GRADE_OF
+            + "def set_final_grade(grades, info, other):\n"
+            + "    return grade_of(grades['E1'])\n";
+
+    /**
+     * Formula grading all students in one call.
+     */
+    private static final String BATCH_FORMULA = GRADE_OF
+            + "def set_final_grades(columns, infos, others):\n"
+            + "    return [grade_of(value) for value in columns['E1']]\n";
+
+    private PythonService pythonService;
+
+    private PythonInterpreter interpreter;
+
+    private GradeFormulaEvaluator evaluator;
+
+    private Course course;
+
+    private List<Student> students;
+
+    /**
+     * Creates a course with one exam and students with a good, a bad and
+     * no grade.
+     */
+    @Before
+    public void setUp() {
+        pythonService = new PythonService();
+        pythonService.init();
+        interpreter = pythonService.acquire();
+        evaluator = new GradeFormulaEvaluator(interpreter, pythonService);
+        evaluator.setUp();
+
+        course = DataHelper.createBasicCourse();
+        Exam exam = new Exam();
+        exam.setExamId(DataHelper.getNewObjectId());
+        exam.setName("Exam");
+        exam.setShortcut("E1");
+        exam.setGradeType(GradeType.Numeric.getId());
+        course.getExams().add(exam);
+
+        students = new ArrayList<>();
+        for (String value : Arrays.asList("1.3", "4.0", null)) {
+            Student student = DataHelper.createStudentWith(course,
+                    DataHelper.createBasicUserWithNewId());
+            if (value != null) {
+                Grade grade = new Grade();
+                grade.setGradeType(GradeType.Numeric.getId());
+                grade.setValue(new BigDecimal(value));
+                Grading grading = new Grading();
+                grading.setExam(exam);
+                grading.setStudent(student);
+                grading.setGrade(grade);
+                student.getGradings().add(grading);
+            }
+            students.add(student);
+        }
+    }
+
+    /**
+     * Releases the interpreter and stops the PythonService.
+     */
+    @After
+    public void tearDown() {
+        pythonService.release(interpreter);
+        pythonService.destroy();
+    }
+
+    /**
+     * Tests if set_final_grades returns the same grades for the students as
+     * calling set_final_grade for every student.
+     */
+    @Test
+    public void testBatchEqualsPerStudent() {
+        PaboGrade[] expected = {
+            PaboGrade.GRADE_1_0, PaboGrade.GRADE_5_0, PaboGrade.GRADE_NEGLECTED
+        };
+
+        evaluator.execFormula(PER_STUDENT_FORMULA);
+        PaboGrade[] perStudent = evaluator.evaluate(course, students, new HashMap<>());
+
+        evaluator.execFormula(BATCH_FORMULA);
+        assertTrue(evaluator.isBatch());
+        PaboGrade[] batch = evaluator.evaluate(course, students, new HashMap<>());
+
+        assertArrayEquals(expected, perStudent);
+        assertArrayEquals(perStudent, batch);
+    }
+}
@@ -0,0 +1,227 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.Course;
+import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.util.UserSearchIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests if the bulk statements of the RetentionService select and delete
+ * the same courses and users as the queries used by the admin's overview.
+ */
+public class RetentionServiceTest {
+
+    /**
+     * Maximum difference of two dates computed as "ten years ago" during a
+     * single test.
+     */
+    private static final long DATE_TOLERANCE = 60 * 1000L;
+
+    @Mock
+    private EntityManager emMock;
+
+    @Mock
+    private TypedQuery<Long> idQueryMock;
+
+    @Mock
+    private TypedQuery<Course> courseQueryMock;
+
+    @Mock
+    private TypedQuery<User> userQueryMock;
+
+    @Mock
+    private Query updateQueryMock;
+
+    @Mock
+    private TransactionSynchronizationRegistry registryMock;
+
+    private RetentionService retentionService;
+
+    private CourseService courseService;
+
+    private UserService userService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        retentionService = new RetentionService();
+        Whitebox.setInternalState(retentionService, "em", emMock);
+        Whitebox.setInternalState(retentionService, "registry", registryMock);
+        courseService = new CourseService();
+        Whitebox.setInternalState(courseService, "em", emMock);
+        userService = new UserService();
+        Whitebox.setInternalState(userService, "em", emMock);
+
+        when(registryMock.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        when(emMock.createQuery(anyString(), eq(Long.class))).thenReturn(idQueryMock);
+        when(emMock.createQuery(anyString(), eq(Course.class))).thenReturn(courseQueryMock);
+        when(emMock.createQuery(anyString(), eq(User.class))).thenReturn(userQueryMock);
+        when(emMock.createQuery(anyString())).thenReturn(updateQueryMock);
+        when(idQueryMock.setParameter(anyString(), any())).thenReturn(idQueryMock);
+        when(idQueryMock.setMaxResults(anyInt())).thenReturn(idQueryMock);
+        when(courseQueryMock.setParameter(anyString(), any())).thenReturn(courseQueryMock);
+        when(userQueryMock.setParameter(anyString(), any())).thenReturn(userQueryMock);
+        when(updateQueryMock.setParameter(anyString(), any())).thenReturn(updateQueryMock);
+    }
+
+    /**
+     * Tests if the expired courses are selected by the same conditions and
+     * date as the old courses of CourseService.getOldCourses.
+     */
+    @Test
+    public void testExpiredCoursesMatchOldCourses() {
+        courseService.getOldCourses();
+        retentionService.findExpiredCourseIds(100);
+
+        ArgumentCaptor<String> oldQuery = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> bulkQuery = ArgumentCaptor.forClass(String.class);
+        verify(emMock).createQuery(oldQuery.capture(), eq(Course.class));
+        verify(emMock).createQuery(bulkQuery.capture(), eq(Long.class));
+        assertEquals(conditions(oldQuery.getValue()), conditions(bulkQuery.getValue()));
+        assertSameDate(courseQueryMock, idQueryMock);
+    }
+
+    /**
+     * Tests if the expired users are selected by the same conditions and
+     * date as the old users of UserService.getOldUsers.
+     */
+    @Test
+    public void testExpiredUsersMatchOldUsers() {
+        userService.getOldUsers();
+        retentionService.findExpiredUserIds(100);
+
+        ArgumentCaptor<String> oldQuery = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> bulkQuery = ArgumentCaptor.forClass(String.class);
+        verify(emMock).createQuery(oldQuery.capture(), eq(User.class));
+        verify(emMock).createQuery(bulkQuery.capture(), eq(Long.class));
+        assertEquals(conditions(oldQuery.getValue()), conditions(bulkQuery.getValue()));
+        assertSameDate(userQueryMock, idQueryMock);
+    }
+
+    /**
+     * Tests if deleting courses flags the students, tutors and lecturers of
+     * the courses and the courses themselves.
+     */
+    @Test
+    public void testDeleteCoursesFlagsAllParticipations() {
+        List<Long> ids = Arrays.asList(1L, 2L);
+        retentionService.deleteCourses(ids);
+
+        Set<String> updated = updatedEntities();
+        assertEquals(new HashSet<>(Arrays.asList("student", "privilegeduser",
+                "lecturer", "course")), updated);
+        verify(updateQueryMock, times(4)).setParameter("ids", ids);
+    }
+
+    /**
+     * Tests if deleting users flags their participations and overwrites
+     * their personal data.
+     */
+    @Test
+    public void testDeleteUsersFlagsAllParticipations() {
+        retentionService.deleteUsers(Collections.singletonList(1L));
+
+        Set<String> updated = updatedEntities();
+        assertEquals(new HashSet<>(Arrays.asList("student", "privilegeduser",
+                "lecturer", "user")), updated);
+        verify(updateQueryMock).setParameter("userId", 1L);
+    }
+
+    /**
+     * Tests if deleting users removes only them from the search index
+     * instead of forcing a reload of the whole index.
+     */
+    @Test
+    public void testDeleteUsersRemovesThemFromSearchIndex() {
+        UserSearchIndex.clear();
+        UserSearchIndex.add(1L, "Anna", "Smith", "anna@uni-bremen.de", "111111", false);
+        UserSearchIndex.add(2L, "Bob", "Smith", "bob@uni-bremen.de", "222222", false);
+        UserSearchIndex.setLoaded();
+
+        try {
+            retentionService.deleteUsers(Collections.singletonList(1L));
+
+            assertTrue(UserSearchIndex.isLoaded());
+            assertEquals(Collections.singletonList(2L),
+                    UserSearchIndex.search("smith", false, 0, 10));
+        } finally {
+            UserSearchIndex.clear();
+        }
+    }
+
+    /**
+     * Returns the conditions of the WHERE clause of a query, ignoring case,
+     * whitespace, parentheses and their order.
+     */
+    private static Set<String> conditions(String query) {
+        String normalized = query.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        String where = normalized.substring(normalized.indexOf(" where ") + 7);
+        int orderBy = where.indexOf(" order by ");
+        if (orderBy >= 0) {
+            where = where.substring(0, orderBy);
+        }
+
+        Set<String> conditions = new HashSet<>();
+        for (String condition : where.replaceAll("[()]", "").split("\\band\\b")) {
+            conditions.add(condition.trim());
+        }
+        return conditions;
+    }
+
+    /**
+     * Asserts that both queries got the same "ten years ago" date.
+     */
+    private static void assertSameDate(Query oldQuery, Query bulkQuery) {
+        ArgumentCaptor<Object> oldDate = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Object> bulkDate = ArgumentCaptor.forClass(Object.class);
+        verify(oldQuery).setParameter(eq("date"), oldDate.capture());
+        verify(bulkQuery).setParameter(eq("date"), bulkDate.capture());
+        long difference = ((Date) bulkDate.getValue()).getTime()
+                - ((Date) oldDate.getValue()).getTime();
+        assertTrue(difference >= 0 && difference < DATE_TOLERANCE);
+    }
+
+    /**
+     * Returns the lower case names of the entities updated by the bulk
+     * statements.
+     */
+    private Set<String> updatedEntities() {
+        ArgumentCaptor<String> queries = ArgumentCaptor.forClass(String.class);
+        verify(emMock, atLeastOnce()).createQuery(queries.capture());
+        Set<String> entities = new HashSet<>();
+        for (String query : queries.getAllValues()) {
+            assertTrue(query.startsWith("UPDATE "));
+            entities.add(query.split(" ")[1].toLowerCase(Locale.ROOT));
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,162 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.exception.ScriptLimitException.Limit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PySystemState;
+import org.python.core.ThreadState;
+import org.python.util.PythonInterpreter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the limits and the progress counting of the ScriptBudget.
+ */
+public class ScriptBudgetTest {
+
+    private PythonInterpreter interpreter;
+
+    @Before
+    public void setUp() {
+        interpreter = new PythonInterpreter(null, new PySystemState());
+    }
+
+    @After
+    public void tearDown() {
+        interpreter.close();
+    }
+
+    /**
+     * Tests if a script looping forever is stopped once it has used up its
+     * CPU time.
+     */
+    @Test
+    public void testCpuTimeLimit() {
+        ScriptBudget budget = new ScriptBudget(100, 1024);
+        assertStopped(budget, "while True:\n    pass\n");
+        assertEquals(Limit.TIME, budget.getExceeded());
+        assertFalse(budget.isCancelled());
+    }
+
+    /**
+     * Tests if a script is stopped once it has allocated more memory than
+     * allowed.
+     */
+    @Test
+    public void testAllocationLimit() {
+        ScriptBudget budget = new ScriptBudget(60 * 1000, 1);
+        assertStopped(budget, "chunks = []\n"
+                + "while True:\n"
+                + "    chunks.append('x' * 1024)\n");
+        assertEquals(Limit.MEMORY, budget.getExceeded());
+    }
+
+    /**
+     * Tests if a script catching the RuntimeError of the budget is stopped
+     * at its next line anyway.
+     */
+    @Test
+    public void testLimitCantBeCaught() {
+        ScriptBudget budget = new ScriptBudget(100, 1024);
+        assertStopped(budget, "while True:\n"
+                + "    try:\n"
+                + "        while True:\n"
+                + "            pass\n"
+                + "    except:\n"
+                + "        pass\n");
+        assertEquals(Limit.TIME, budget.getExceeded());
+    }
+
+    /**
+     * Tests if a running script is stopped when the budget is cancelled by
+     * another thread.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        ScriptBudget budget = new ScriptBudget(60 * 1000, 1024);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            PythonInterpreter own = new PythonInterpreter(null, new PySystemState());
+            own.set("started", started);
+            try {
+                run(budget, own, "started.countDown()\nwhile True:\n    pass\n");
+            } catch (Throwable e) {
+                thrown.set(e);
+            } finally {
+                own.close();
+            }
+        });
+        thread.start();
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        budget.cancel();
+        thread.join(10 * 1000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(thrown.get() instanceof PyException);
+        assertTrue(budget.isCancelled());
+        assertEquals(Limit.TIME, budget.getExceeded());
+        assertFalse(budget.abandon());
+    }
+
+    /**
+     * Tests if a script within its limits runs to the end and its graded
+     * students are counted for set_final_grade and set_final_grades.
+     */
+    @Test
+    public void testCountsGradedStudents() {
+        ScriptBudget budget = new ScriptBudget(60 * 1000, 1024);
+        run(budget, interpreter, "def set_final_grade(grades, info, other):\n"
+                + "    return None\n"
+                + "def set_final_grades(columns, infos, others):\n"
+                + "    return [None] * len(infos)\n"
+                + "for i in range(3):\n"
+                + "    set_final_grade({}, {}, {})\n"
+                + "set_final_grades({}, [{}, {}], [{}, {}])\n");
+
+        assertNull(budget.getExceeded());
+        assertEquals(5, budget.getGraded());
+        assertFalse(budget.abandon());
+    }
+
+    /**
+     * Runs the script with the budget and asserts that it is stopped.
+     */
+    private void assertStopped(ScriptBudget budget, String script) {
+        try {
+            run(budget, interpreter, script);
+            fail("The script should have been stopped");
+        } catch (PyException e) {
+            assertTrue(budget.getExceeded() != null);
+        }
+    }
+
+    /**
+     * Runs a script in the current thread with the budget as trace
+     * function, like the PythonService does.
+     */
+    private static void run(ScriptBudget budget, PythonInterpreter interpreter,
+                            String script) {
+        ThreadState state = Py.getThreadState();
+        budget.start();
+        state.tracefunc = budget;
+        try {
+            interpreter.exec(script);
+        } finally {
+            state.tracefunc = null;
+            budget.finish();
+        }
+    }
+}
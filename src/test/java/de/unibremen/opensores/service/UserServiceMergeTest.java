@@ -0,0 +1,151 @@
+package de.unibremen.opensores.service;
+
+import de.unibremen.opensores.model.GlobalRole;
+import de.unibremen.opensores.model.User;
+import de.unibremen.opensores.testutil.DataHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests if merging users moves every reference to the merged user with a
+ * bulk statement and counts the same references beforehand.
+ */
+public class UserServiceMergeTest {
+
+    /**
+     * The references to a user moved by a merge, as entity and field.
+     */
+    private static final List<String> REFERENCES = Arrays.asList(
+            "Student r SET r.user", "PrivilegedUser r SET r.user",
+            "Lecturer r SET r.user", "Grading r SET r.corrector",
+            "GradeFormula r SET r.editor", "Log r SET r.loggedInUser");
+
+    @Mock
+    private EntityManager emMock;
+
+    @Mock
+    private Query updateQueryMock;
+
+    @Mock
+    private TypedQuery<Long> countQueryMock;
+
+    @Mock
+    private RetentionService retentionServiceMock;
+
+    private UserService userService;
+
+    private User kept;
+
+    private User merged;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userService = new UserService();
+        Whitebox.setInternalState(userService, "em", emMock);
+        Whitebox.setInternalState(userService, "retentionService", retentionServiceMock);
+
+        kept = DataHelper.createBasicUserWithNewId();
+        kept.addRole(GlobalRole.USER);
+        merged = DataHelper.createBasicUserWithNewId();
+        merged.addRole(GlobalRole.USER);
+        merged.addRole(GlobalRole.LECTURER);
+
+        when(emMock.find(User.class, kept.getUserId())).thenReturn(kept);
+        when(emMock.find(User.class, merged.getUserId())).thenReturn(merged);
+        when(emMock.createQuery(anyString())).thenReturn(updateQueryMock);
+        when(updateQueryMock.setParameter(anyString(), any())).thenReturn(updateQueryMock);
+        when(emMock.createQuery(anyString(), eq(Long.class))).thenReturn(countQueryMock);
+        when(countQueryMock.setParameter(anyString(), any())).thenReturn(countQueryMock);
+    }
+
+    /**
+     * Tests if every reference to the merged user is moved to the kept user,
+     * the kept user gets the roles of the merged one and the merged user is
+     * deleted.
+     */
+    @Test
+    public void testMergeMovesAllReferences() {
+        when(updateQueryMock.executeUpdate()).thenReturn(2);
+
+        assertEquals(2 * REFERENCES.size(), userService.mergeUsers(kept, merged));
+
+        ArgumentCaptor<String> updates = ArgumentCaptor.forClass(String.class);
+        verify(emMock, times(REFERENCES.size())).createQuery(updates.capture());
+        for (int i = 0; i < REFERENCES.size(); i++) {
+            String update = updates.getAllValues().get(i);
+            assertTrue(update, update.startsWith("UPDATE " + REFERENCES.get(i)));
+        }
+        verify(updateQueryMock, times(REFERENCES.size())).setParameter("kept", kept);
+        verify(updateQueryMock, times(REFERENCES.size()))
+                .setParameter("merged", merged.getUserId());
+        assertEquals(Arrays.asList(GlobalRole.USER.getId(), GlobalRole.LECTURER.getId()),
+                kept.getRoles());
+        verify(retentionServiceMock).deleteUsers(
+                Collections.singletonList(merged.getUserId()));
+    }
+
+    /**
+     * Tests if the rows counted for the preview are the ones a merge moves.
+     */
+    @Test
+    public void testCountMergedRows() {
+        when(countQueryMock.getSingleResult()).thenReturn(1L, 2L, 3L, 4L, 5L, 6L);
+
+        Map<String, Long> counts = userService.countMergedRows(merged);
+
+        assertEquals(Arrays.asList("Student", "PrivilegedUser", "Lecturer", "Grading",
+                "GradeFormula", "Log"), Arrays.asList(counts.keySet().toArray()));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L),
+                Arrays.asList(counts.values().toArray()));
+
+        ArgumentCaptor<String> queries = ArgumentCaptor.forClass(String.class);
+        verify(emMock, times(REFERENCES.size())).createQuery(queries.capture(),
+                eq(Long.class));
+        for (int i = 0; i < REFERENCES.size(); i++) {
+            String[] reference = REFERENCES.get(i).split(" SET ");
+            assertEquals("SELECT COUNT(r) FROM " + reference[0]
+                    + " WHERE " + reference[1] + ".userId = :userId",
+                    queries.getAllValues().get(i));
+        }
+        verify(countQueryMock, times(REFERENCES.size()))
+                .setParameter("userId", merged.getUserId());
+        verify(emMock, never()).createQuery(anyString());
+    }
+
+    /**
+     * Tests if a user can't be merged into itself, which would delete it.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeIntoItself() {
+        try {
+            userService.mergeUsers(kept, kept);
+        } finally {
+            verify(emMock, never()).createQuery(anyString());
+            verify(retentionServiceMock, never()).deleteUsers(anyListOf(Long.class));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.unibremen.opensores.util;
+
+import de.unibremen.opensores.model.Role;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the MembershipCache class.
+ */
+public class MembershipCacheTest {
+
+    private static final Long USER_ID = 42L;
+
+    private Map<Long, Set<Role>> memberships;
+
+    @Before
+    public void setUp() {
+        MembershipCache.clear();
+        memberships = Collections.singletonMap(1L,
+                EnumSet.of(Role.STUDENT));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        MembershipCache.put(USER_ID, memberships, MembershipCache.generation());
+        assertSame(memberships, MembershipCache.get(USER_ID));
+    }
+
+    @Test
+    public void testEvict() {
+        MembershipCache.put(USER_ID, memberships, MembershipCache.generation());
+        MembershipCache.evict(USER_ID);
+        assertNull(MembershipCache.get(USER_ID));
+    }
+
+    @Test
+    public void testPutAfterEviction() {
+        long generation = MembershipCache.generation();
+        MembershipCache.evict(USER_ID);
+        MembershipCache.put(USER_ID, memberships, generation);
+        assertNull(MembershipCache.get(USER_ID));
+    }
+
+    @Test
+    public void testClear() {
+        MembershipCache.put(USER_ID, memberships, MembershipCache.generation());
+        MembershipCache.clear();
+        assertNull(MembershipCache.get(USER_ID));
+    }
+}
@@ -0,0 +1,105 @@
+package de.unibremen.opensores.util;
+
+import de.unibremen.opensores.model.GlobalRole;
+import de.unibremen.opensores.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the UserSearchIndex class.
+ */
+public class UserSearchIndexTest {
+
+    @Before
+    public void setUp() {
+        UserSearchIndex.clear();
+        UserSearchIndex.add(1L, "Max", "Mustermann", "max@uni-bremen.de",
+                "1234567", false);
+        UserSearchIndex.add(2L, "Erika", "Mustermann", "erika@uni-bremen.de",
+                null, true);
+        UserSearchIndex.add(3L, "Maximilian", "Muster", "mm@uni-bremen.de",
+                "7654321", false);
+        UserSearchIndex.add(4L, "Anna", "Max-Weber", "anna@uni-bremen.de",
+                null, true);
+        UserSearchIndex.setLoaded();
+    }
+
+    @Test
+    public void testSearchRanksExactMatchesFirst() {
+        assertEquals(Arrays.asList(1L, 4L, 3L),
+                UserSearchIndex.search("max", false, 0, 10));
+    }
+
+    @Test
+    public void testSearchFullName() {
+        assertEquals(Collections.singletonList(2L),
+                UserSearchIndex.search(" Erika  Muster ", false, 0, 10));
+    }
+
+    @Test
+    public void testSearchEmailAndMatriculation() {
+        assertEquals(Collections.singletonList(3L),
+                UserSearchIndex.search("mm@", false, 0, 10));
+        assertEquals(Collections.singletonList(1L),
+                UserSearchIndex.search("1234567", false, 0, 10));
+    }
+
+    @Test
+    public void testSearchLecturersOnly() {
+        assertEquals(Arrays.asList(4L, 2L),
+                UserSearchIndex.search("m", true, 0, 10));
+    }
+
+    @Test
+    public void testSearchPagination() {
+        assertEquals(Arrays.asList(1L, 4L),
+                UserSearchIndex.search("max", false, 0, 2));
+        assertEquals(Collections.singletonList(3L),
+                UserSearchIndex.search("max", false, 2, 2));
+    }
+
+    @Test
+    public void testSearchEmptyInput() {
+        assertTrue(UserSearchIndex.search("  ", false, 0, 10).isEmpty());
+        assertTrue(UserSearchIndex.search(null, false, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testPutReplacesUser() {
+        User user = new User();
+        user.setUserId(1L);
+        user.setFirstName("Moritz");
+        user.setLastName("Mustermann");
+        user.setEmail("moritz@uni-bremen.de");
+        user.addRole(GlobalRole.LECTURER);
+        UserSearchIndex.put(user);
+
+        assertEquals(Arrays.asList(4L, 3L),
+                UserSearchIndex.search("max", false, 0, 10));
+        assertEquals(Collections.singletonList(1L),
+                UserSearchIndex.search("moritz", true, 0, 10));
+    }
+
+    @Test
+    public void testRemove() {
+        UserSearchIndex.remove(2L);
+        assertTrue(UserSearchIndex.search("erika", false, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testAddSkipsRemovedUsersWhileLoading() {
+        UserSearchIndex.clear();
+        UserSearchIndex.remove(1L);
+        UserSearchIndex.add(1L, "Max", "Mustermann", "max@uni-bremen.de",
+                null, false);
+        UserSearchIndex.setLoaded();
+
+        assertTrue(UserSearchIndex.search("max", false, 0, 10).isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package de.unibremen.opensores.util.backup;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the ChunkStore class.
+ */
+public class ChunkStoreTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChunkStore store;
+
+    private Path source;
+
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new ChunkStore(folder.newFolder("store").toPath(), CHUNK_SIZE);
+        source = folder.newFolder("source").toPath();
+
+        data = new byte[CHUNK_SIZE * 10 + 17];
+        new Random(42).nextBytes(data);
+
+        Files.createDirectories(source.resolve("db/seg0"));
+        Files.createDirectories(source.resolve("db/tmp"));
+        Files.write(source.resolve("db/seg0/c10.dat"), data);
+        Files.write(source.resolve("db/service.properties"), new byte[0]);
+    }
+
+    @Test
+    public void testStoreAndRestore() throws IOException {
+        Path manifest = folder.getRoot().toPath().resolve("a.manifest");
+        store.store(source, manifest);
+
+        Path target = folder.getRoot().toPath().resolve("restored");
+        store.restore(manifest, target);
+
+        assertArrayEquals(data, Files.readAllBytes(
+                target.resolve("db/seg0/c10.dat")));
+        assertEquals(0, Files.size(target.resolve("db/service.properties")));
+        assertTrue(Files.isDirectory(target.resolve("db/tmp")));
+    }
+
+    @Test
+    public void testUnchangedChunksAreNotWrittenAgain() throws IOException {
+        Path first = folder.getRoot().toPath().resolve("a.manifest");
+        assertTrue(store.store(source, first) > 0);
+
+        Path second = folder.getRoot().toPath().resolve("b.manifest");
+        assertEquals(0, store.store(source, second));
+
+        data[CHUNK_SIZE * 3] ^= 1;
+        Files.write(source.resolve("db/seg0/c10.dat"), data);
+
+        Path third = folder.getRoot().toPath().resolve("c.manifest");
+        assertTrue(store.store(source, third) > 0);
+
+        Set<String> changed = store.chunks(third);
+        changed.removeAll(store.chunks(first));
+        assertEquals(1, changed.size());
+    }
+
+    @Test
+    public void testSweep() throws IOException {
+        Path first = folder.getRoot().toPath().resolve("a.manifest");
+        store.store(source, first);
+
+        data[0] ^= 1;
+        Files.write(source.resolve("db/seg0/c10.dat"), data);
+        Path second = folder.getRoot().toPath().resolve("b.manifest");
+        store.store(source, second);
+
+        assertEquals(0, store.sweep(Arrays.asList(first, second)));
+        assertEquals(1, store.sweep(Collections.singletonList(second)));
+
+        Path target = folder.getRoot().toPath().resolve("restored");
+        store.restore(second, target);
+        assertArrayEquals(data, Files.readAllBytes(
+                target.resolve("db/seg0/c10.dat")));
+    }
+}
@@ -0,0 +1,90 @@
+package de.unibremen.opensores.util.backup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the RetentionPolicy class.
+ */
+public class RetentionPolicyTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private RetentionPolicy policy;
+
+    private Date now;
+
+    @Before
+    public void setUp() {
+        policy = new RetentionPolicy(24, 7, 4, UTC);
+
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.clear();
+        cal.set(2016, Calendar.MARCH, 16, 12, 30);
+        now = cal.getTime();
+    }
+
+    /**
+     * Returns hourly backups of the given number of hours before now.
+     */
+    private List<Date> hourlyBackups(int hours) {
+        List<Date> backups = new ArrayList<>();
+        for (int i = 0; i < hours; i++) {
+            backups.add(new Date(now.getTime() - i * 3600L * 1000));
+        }
+
+        return backups;
+    }
+
+    @Test
+    public void testKeepsRecentBackups() {
+        List<Date> backups = hourlyBackups(24);
+        assertTrue(policy.expired(backups, Function.identity(), now).isEmpty());
+    }
+
+    @Test
+    public void testThinsOutOlderBackups() {
+        List<Date> backups = hourlyBackups(24 * 60);
+        List<Date> expired = policy.expired(backups, Function.identity(), now);
+
+        int kept = backups.size() - expired.size();
+        // 24 hourly, at most 7 daily and at most 4 weekly backups.
+        assertTrue(kept > 24 + 5);
+        assertTrue(kept <= 24 + 7 + 4);
+        assertTrue(expired.contains(backups.get(backups.size() - 1)));
+    }
+
+    @Test
+    public void testKeepsNewestBackupOfDay() {
+        List<Date> backups = hourlyBackups(24 * 3);
+        List<Date> expired = policy.expired(backups, Function.identity(), now);
+
+        // 2016-03-14 23:30 is the newest backup of the 14th.
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.clear();
+        cal.set(2016, Calendar.MARCH, 14, 23, 30);
+        assertFalse(expired.contains(cal.getTime()));
+
+        cal.set(2016, Calendar.MARCH, 14, 22, 30);
+        assertTrue(expired.contains(cal.getTime()));
+    }
+
+    @Test
+    public void testNothingKept() {
+        RetentionPolicy none = new RetentionPolicy(0, 0, 0, UTC);
+        List<Date> backups = hourlyBackups(3);
+        backups.remove(0);
+        assertEquals(2, none.expired(backups, Function.identity(), now).size());
+    }
+}
@@ -14,14 +14,20 @@ import de.unibremen.opensores.model.Student;
 import de.unibremen.opensores.model.Tutorial;
 import de.unibremen.opensores.model.User;
 import de.unibremen.opensores.testutil.DataHelper;
-import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.python.bouncycastle.asn1.dvcs.Data;
 import org.python.core.util.FileUtil;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -33,53 +39,31 @@ import static org.junit.Assert.assertTrue;
 public class CourseDataParserTest {
 
 
-    /**
-     * The path which points to the directory in which the test files should be located.
-     */
-    private static final String PATH_TEST_RES_CSV_COURSE_DATA = "src/test/resources/csv/course_data/";
-
-
-    /**
-     * Tests if the lecturer can view all fields and the fields are valid.
-     */
-    private static final String FILE_NAME_TEST_LECTURER = "test_lecturer.csv";
-
-    /**
-     * Test file to check if the lecturer can view all fields and the fields are valid.
-     */
-    private static final String FILE_NAME_TEST_LECTURER_NULL_VALS = "test_lecturer_null_vals.csv";
-
-
-    /**
-     * Tests file to check a priv user cant view set fields which are not associated with him
-     */
-    private static final String FILE_NAME_TEST_PRIV_USER = "test_priv_user_hidden.csv";
-
     /**
      * Tests if an IllegalArgumentException is thrown if is the course null.
      */
     @Test(expected = IllegalArgumentException.class)
     public void testNullParamCourse() throws Exception {
-        CourseDataParser.parseCourseToCSV(null, true, new PrivilegedUser(),
-                "PATH_TEST_RES_CSV_COURSE_DATA","test.csv");
+        CourseDataParser.writeCourseToCSV(null, true, new PrivilegedUser(),
+                new ByteArrayOutputStream(), s -> Collections.emptyMap());
     }
 
     /**
-     * Tests if an IllegalArgumentException is thrown if the file name is null.
+     * Tests if an IllegalArgumentException is thrown if the output is null.
      */
     @Test(expected = IllegalArgumentException.class)
-    public void testNullParamFileName() throws Exception {
-        CourseDataParser.parseCourseToCSV(new Course(), true, new PrivilegedUser(),
-                "PATH_TEST_RES_CSV_COURSE_DATA",null);
+    public void testNullParamOutput() throws Exception {
+        CourseDataParser.writeCourseToCSV(new Course(), true, new PrivilegedUser(),
+                null, s -> Collections.emptyMap());
     }
 
     /**
-     * Tests if an IllegalArgumentException is thrown if the path is null.
+     * Tests if an IllegalArgumentException is thrown if the pages are null.
      */
     @Test(expected = IllegalArgumentException.class)
-    public void testNullParamDirPath() throws Exception {
-        CourseDataParser.parseCourseToCSV(new Course(), true, new PrivilegedUser(),
-                null,"test");
+    public void testNullParamPages() throws Exception {
+        CourseDataParser.writeCourseToCSV(new Course(), true, new PrivilegedUser(),
+                new ByteArrayOutputStream(), null);
     }
 
     /**
@@ -88,8 +72,8 @@ public class CourseDataParserTest {
      */
     @Test(expected = IllegalArgumentException.class)
     public void testNullParamPrivUser() throws Exception {
-        CourseDataParser.parseCourseToCSV(null, true, new PrivilegedUser(),
-                "PATH_TEST_RES_CSV_COURSE_DATA","test.csv");
+        CourseDataParser.writeCourseToCSV(new Course(), false, null,
+                new ByteArrayOutputStream(), s -> Collections.emptyMap());
     }
 
     /**
@@ -145,9 +129,7 @@ public class CourseDataParserTest {
         course.getStudents().add(student); //Two times the same students to test loop
 
         System.out.println("Students of course size " + course.getStudents());
-        File lecturerExample = CourseDataParser.parseCourseToCSV(course,
-                true, null, PATH_TEST_RES_CSV_COURSE_DATA,FILE_NAME_TEST_LECTURER);
-        List<String> lines = FileUtils.readLines(lecturerExample);
+        List<String> lines = writeCourse(course, true, null);
         assertTrue(lines.size() == 3);
         assertEquals("matr;tutorial;group;participation_type;final_grade;TestPointExam(Point max: 23.1);TestBooleanExam(Boolean)", lines.get(0));
         assertEquals("123456;TestTutorial;TestGroup;Defaultparticipationtype;1,3;10.25;1", lines.get(1));
@@ -187,9 +169,7 @@ public class CourseDataParserTest {
         course.getStudents().add(student); //Two times the same students to test loop
 
         System.out.println("Students of course size " + course.getStudents());
-        File lecturerExample = CourseDataParser.parseCourseToCSV(course,
-                true, null, PATH_TEST_RES_CSV_COURSE_DATA,FILE_NAME_TEST_LECTURER_NULL_VALS);
-        List<String> lines = FileUtils.readLines(lecturerExample);
+        List<String> lines = writeCourse(course, true, null);
     }
 
     /**
@@ -250,12 +230,79 @@ public class CourseDataParserTest {
         course.getExams().add(booleanExam);
 
         System.out.println("Students of course size " + course.getStudents());
-        File lecturerExample = CourseDataParser.parseCourseToCSV(course,
-                false, otherPrivUser, PATH_TEST_RES_CSV_COURSE_DATA,FILE_NAME_TEST_PRIV_USER);
-        List<String> lines = FileUtils.readLines(lecturerExample);
+        List<String> lines = writeCourse(course, false, otherPrivUser);
         assertTrue(lines.size() == 2);
         assertEquals("matr;tutorial;group;participation_type;final_grade;TestNumericGradeExam(Numeric);Prozentuebungsblatt(Percent)", lines.get(0));
         assertEquals("111111;?;?;Defaultparticipationtype;?;?;?", lines.get(1));
 
     }
+
+    /**
+     * Tests if the pages of students are written one after another and the
+     * next page is requested after the last student of the previous one.
+     */
+    @Test
+    public void testWriteCourseToCSVPaged() throws Exception {
+        Course course = DataHelper.createBasicCourse();
+        Exam exam = new Exam();
+        exam.setExamId(1L);
+        exam.setName("Exam");
+        exam.setGradeType(GradeType.Numeric.getId());
+        course.getExams().add(exam);
+
+        User firstUser = DataHelper.createBasicUserWithNewId();
+        firstUser.setMatriculationNumber("111111");
+        Student first = DataHelper.createStudentWith(course, firstUser);
+        User secondUser = DataHelper.createBasicUserWithNewId();
+        secondUser.setMatriculationNumber("222222");
+        Student second = DataHelper.createStudentWith(course, secondUser);
+
+        Grading grading = new Grading();
+        grading.setExam(exam);
+        Grade grade = new Grade();
+        grade.setValue(new BigDecimal("1.3"));
+        grading.setGrade(grade);
+        Map<Exam, Grading> gradings = new HashMap<>();
+        gradings.put(exam, grading);
+
+        Map<Student, Map<Student, Map<Exam, Grading>>> pages = new HashMap<>();
+        pages.put(null, Collections.singletonMap(first, gradings));
+        pages.put(first, Collections.singletonMap(second, new HashMap<>()));
+        pages.put(second, new LinkedHashMap<>());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CourseDataParser.writeCourseToCSV(course, true, null, output, pages::get);
+
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8)
+                .split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("matr;tutorial;group;participation_type;final_grade;Exam(Numeric)",
+                lines[0]);
+        assertEquals("111111;;;Defaultparticipationtype;;1.3", lines[1]);
+        assertEquals("222222;;;Defaultparticipationtype;;", lines[2]);
+    }
+
+    /**
+     * Writes the students of the course one page per student and returns
+     * the lines of the csv data.
+     */
+    private static List<String> writeCourse(Course course, boolean isLecturer,
+                                            PrivilegedUser privUser) throws Exception {
+        Iterator<Student> students = course.getStudents().iterator();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CourseDataParser.writeCourseToCSV(course, isLecturer, privUser, output, last -> {
+            if (!students.hasNext()) {
+                return Collections.emptyMap();
+            }
+            Student student = students.next();
+            Map<Exam, Grading> gradings = new HashMap<>();
+            for (Grading grading : student.getGradings()) {
+                gradings.put(grading.getExam(), grading);
+            }
+            return Collections.singletonMap(student, gradings);
+        });
+
+        return Arrays.asList(new String(output.toByteArray(), StandardCharsets.UTF_8)
+                .split("\n"));
+    }
 }
@@ -0,0 +1,67 @@
+package de.unibremen.opensores.util.csv;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the GradeParser class.
+ */
+public class GradeParserTest {
+
+    @Test
+    public void testParseGrades() throws IOException {
+        Map<String, BigDecimal> grades = GradeParser.parseGrades(
+                new StringReader("1234567;12,5\n7654321;3\n"));
+
+        assertEquals(2, grades.size());
+        assertEquals(new BigDecimal("12.5"), grades.get("1234567"));
+        assertEquals(new BigDecimal("3"), grades.get("7654321"));
+    }
+
+    @Test
+    public void testParseGradesKeepsOrder() throws IOException {
+        Map<String, BigDecimal> grades = GradeParser.parseGrades(
+                new StringReader("3;1\n1;1\n2;1\n"));
+
+        assertEquals(Arrays.asList("3", "1", "2"),
+                new ArrayList<>(grades.keySet()));
+    }
+
+    @Test
+    public void testParseGradesSkipsHeaderAndEmptyRows() throws IOException {
+        Map<String, BigDecimal> grades = GradeParser.parseGrades(
+                new StringReader("Matrnr;Punkte\n\n 1234567 ; 1.7 \n;\n"));
+
+        assertEquals(1, grades.size());
+        assertEquals(new BigDecimal("1.7"), grades.get("1234567"));
+    }
+
+    @Test
+    public void testParseGradesEmpty() throws IOException {
+        assertTrue(GradeParser.parseGrades(new StringReader("")).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testParseGradesInvalidGrade() throws IOException {
+        GradeParser.parseGrades(new StringReader("1234567;1\n7654321;x\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testParseGradesMissingGrade() throws IOException {
+        GradeParser.parseGrades(new StringReader("1234567;1\n7654321\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testParseGradesDuplicatedMatriculation() throws IOException {
+        GradeParser.parseGrades(new StringReader("1234567;1\n1234567;2\n"));
+    }
+}
@@ -14,6 +14,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -414,6 +415,31 @@ public final class PaboParserTest {
         }
     }
 
+    /**
+     * Tests if the rows of a pabo upload are passed to the consumer one by one
+     * with their line in the file.
+     */
+    @Test
+    public void testParsePaboUploadConsumer() throws IOException {
+        String csv = "Matrnr;Nachname;Vorname;Prfdatum;Note;Prfbem;Versuch;Teilprf;Studiengang;;;;\n"
+                + "123450;Nachname1;Vorname1;;;;2;Modulpruefung;Bachelor Informatik;;;;\n"
+                + ";;;;;;;;;;;;\n";
+        List<Integer> lines = new ArrayList<>();
+        List<PaboData> dataList = new ArrayList<>();
+
+        PaboParser.parsePaboUpload(new StringReader(csv), (line, data) -> {
+            lines.add(line);
+            dataList.add(data);
+        });
+
+        assertEquals(2, dataList.size());
+        assertEquals(Integer.valueOf(2), lines.get(0));
+        assertEquals(Integer.valueOf(3), lines.get(1));
+        assertTrue(dataList.get(0).isValdid());
+        assertEquals("123450", dataList.get(0).getMatriculation());
+        assertEquals(PaboData.INVALID_MATRICULATION, dataList.get(1).getValidationId());
+    }
+
     /**
      * Gets a specific test exam date.
      * @return The date objet of the specified date.
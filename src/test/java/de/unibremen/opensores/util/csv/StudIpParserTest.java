@@ -7,6 +7,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -238,4 +239,32 @@ public class StudIpParserTest {
         assertTrue(StudIpParser.parseCSV(noEmailFile).isEmpty());
     }
 
+    /**
+     * Tests if the users of the valid rows are passed to the consumer one by one
+     * and invalid rows are skipped.
+     */
+    @Test
+    public void testParseCSVConsumer() throws IOException {
+        String csv = "Titel;Vorname;Nachname;Titel2;Nutzernamen;Privatadr;Privatnr;"
+                + "E-Mail;Anmeldedatum;Studiengaenge;Bemerkung\n"
+                + "\"\";\"Max\";\"Mustermann\";\"\";\"max\";\"\";\"\";"
+                + "\"max@uni-bremen.de\";\"\";\"\";\"\"\n"
+                + "\"\";\"M4x\";\"Mustermann\";\"\";\"max\";\"\";\"\";"
+                + "\"max2@uni-bremen.de\";\"\";\"\";\"\"\n"
+                + "\"\";\"Erika\";\"Musterfrau\";\"\";\"erika\";\"\";\"\";"
+                + "\"erika@uni-bremen.de\";\"\";\"\";\"\"\n";
+        List<Integer> lines = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+
+        StudIpParser.parseCSV(new StringReader(csv), (line, user) -> {
+            lines.add(line);
+            users.add(user);
+        });
+
+        assertEquals(2, users.size());
+        assertEquals(Integer.valueOf(2), lines.get(0));
+        assertEquals(Integer.valueOf(4), lines.get(1));
+        assertEquals("max@uni-bremen.de", users.get(0).getEmail());
+        assertEquals("Musterfrau", users.get(1).getLastName());
+    }
 }
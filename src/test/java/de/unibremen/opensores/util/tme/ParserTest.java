@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 import static org.junit.matchers.JUnitMatchers.*;
 
 import org.junit.Test;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -187,6 +189,21 @@ public class ParserTest {
         assertEquals("b", o2.getString("a"));
     }
 
+    /**
+     * Test parsing multiple nodes from a reader.
+     */
+    @Test
+    public void testParseReader() throws IOException, InterruptedException,
+           ParseException {
+        final Parser p = new Parser(new StringReader(
+                    "bar 42 {\n a={1, 2} \n} \n baz 23 {\n a=%C3%9C \n}"));
+        final List<TMEObject> objs = p.getTMEObjects();
+
+        assertEquals(2, objs.size());
+        assertEquals(2, objs.get(0).getArray("a").size());
+        assertEquals("Ü", objs.get(1).getString("a"));
+    }
+
     /**
      * Test invalid TME markup.
      */
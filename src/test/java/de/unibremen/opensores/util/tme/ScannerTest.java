@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import static org.junit.matchers.JUnitMatchers.*;
 
 import org.junit.Test;
+import java.io.StringReader;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
@@ -97,6 +98,59 @@ public class ScannerTest {
         }
     }
 
+    /**
+     * Test that the reader based scanner yields the same tokens.
+     */
+    @Test
+    public void testReaderMixedValues() {
+        final String data = "foo 42 {\n a={1, 2.3, μ}\r\n b=%C3%9C\n}";
+        final Scanner expected = new Scanner(data);
+        final Scanner actual = new Scanner(new StringReader(data));
+
+        Token t;
+        do {
+            t = next(expected);
+            final Token a = next(actual);
+
+            assertEquals(t.getType(), a.getType());
+            assertEquals(t.getText(), a.getText());
+            assertEquals(t.getLine(), a.getLine());
+        } while (t.getType() != TokenType.EOF);
+    }
+
+    /**
+     * Test reader based scanner with tokens exceeding the input buffer.
+     */
+    @Test
+    public void testReaderLongTokens() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append('x');
+        }
+
+        final String id = sb.toString();
+        final Scanner s = new Scanner(new StringReader(id + " 1337\n" + id));
+
+        assertEquals(id, next(s).getText());
+        assertEquals("1337", next(s).getText());
+        assertEquals(TokenType.NEWLINE, next(s).getType());
+
+        final Token t = next(s);
+        assertEquals(id, t.getText());
+        assertEquals(2, t.getLine());
+        assertEquals(TokenType.EOF, next(s).getType());
+    }
+
+    /**
+     * Negative test for the nextToken method of the reader based scanner.
+     */
+    @Test(expected=NoSuchElementException.class)
+    public void testReaderNextTokenNegative() {
+        final Scanner s = new Scanner(new StringReader(""));
+        assertEquals(next(s).getText(), "EOF");
+        next(s);
+    }
+
     /**
      * Helper method for invoking Scanner.nextToken.
      */